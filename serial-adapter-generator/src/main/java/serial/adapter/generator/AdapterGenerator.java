@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package serial.adapter.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the source of direct, statically typed adapters for a package implementing the javax.comm API, e.g.
+ * <code>gnu.io</code>.  For each package three classes are generated from templates:
+ * <ul>
+ * <li><code>&lt;Prefix&gt;AdapterBackend</code>, a <code>serial.SerialBackend</code> extending the package's
+ * reflective backend, which is still used to check that the package is available</li>
+ * <li><code>&lt;Prefix&gt;AdapterPortIdentifier</code>, a <code>serial.BackendPortIdentifier</code></li>
+ * <li><code>&lt;Prefix&gt;AdapterSerialPort</code>, a <code>serial.BackendSerialPort</code> which also
+ * translates the package's events</li>
+ * </ul>
+ * The generated classes call the package's classes directly, so they must be compiled against it.
+ * <p>
+ * Usage: <code>AdapterGenerator &lt;output directory&gt; &lt;spec&gt;...</code>, where each spec is
+ * <code>&lt;package&gt;:&lt;Prefix&gt;:&lt;reflective backend class&gt;</code>, e.g.
+ * <code>gnu.io:Rxtx:serial.RxtxSerialBackend</code>.  The classes are generated in the package
+ * <code>serial.adapter.&lt;prefix&gt;</code>.
+ * </p>
+ * @author Alex
+ */
+public class AdapterGenerator {
+//> STATIC CONSTANTS
+	/** Package which the generated packages are created in */
+	private static final String ADAPTER_PACKAGE_PREFIX = "serial.adapter.";
+	/** Names of the templates, which are also the suffixes of the generated class names */
+	private static final String[] TEMPLATES = { "AdapterBackend", "AdapterPortIdentifier", "AdapterSerialPort" };
+	/** Extension of the template resources */
+	private static final String TEMPLATE_EXTENSION = ".java.template";
+
+//> INSTANCE PROPERTIES
+	/** Root directory of the generated sources */
+	private final File outputDirectory;
+
+//> CONSTRUCTORS
+	/** @param outputDirectory value for {@link #outputDirectory} */
+	public AdapterGenerator(File outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Generates the adapters for one package.
+	 * @param backendPackage the package implementing the javax.comm API, e.g. <code>gnu.io</code>
+	 * @param prefix the prefix of the generated class names, e.g. <code>Rxtx</code>
+	 * @param reflectiveBackend the fully qualified name of the package's reflective backend, which the generated
+	 *   backend extends
+	 * @throws IOException if a template could not be read or a source file could not be written
+	 */
+	public void generate(String backendPackage, String prefix, String reflectiveBackend) throws IOException {
+		String adapterPackage = ADAPTER_PACKAGE_PREFIX + prefix.toLowerCase();
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put("adapterPackage", adapterPackage);
+		values.put("backendPackage", backendPackage);
+		values.put("prefix", prefix);
+		values.put("reflectiveBackend", reflectiveBackend);
+		values.put("reflectiveBackendSimpleName", reflectiveBackend.substring(reflectiveBackend.lastIndexOf('.') + 1));
+
+		File packageDirectory = new File(outputDirectory, adapterPackage.replace('.', File.separatorChar));
+		if(!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+			throw new IOException("Could not create directory " + packageDirectory);
+		}
+		for(String template : TEMPLATES) {
+			String source = expand(readTemplate(template), values);
+			write(new File(packageDirectory, prefix + template + ".java"), source);
+		}
+	}
+
+//> STATIC METHODS
+	/**
+	 * @param args the output directory, followed by one spec per package to generate adapters for
+	 * @throws IOException if the adapters could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			throw new IllegalArgumentException("Usage: AdapterGenerator <output directory> <package>:<Prefix>:<reflective backend class>...");
+		}
+		AdapterGenerator generator = new AdapterGenerator(new File(args[0]));
+		for(int i = 1; i < args.length; ++i) {
+			String[] spec = args[i].split(":");
+			if(spec.length != 3) throw new IllegalArgumentException("Bad adapter spec: " + args[i]);
+			generator.generate(spec[0], spec[1], spec[2]);
+		}
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Replaces each <code>${name}</code> in a template with its value.
+	 * @param template the template text
+	 * @param values the values, keyed by name
+	 * @return the expanded text
+	 * @throws IllegalArgumentException if the template refers to a name without a value
+	 */
+	static String expand(String template, Map<String, String> values) {
+		StringBuilder expanded = new StringBuilder(template.length());
+		int position = 0;
+		while(true) {
+			int start = template.indexOf("${", position);
+			if(start < 0) break;
+			int end = template.indexOf('}', start);
+			String name = template.substring(start + 2, end);
+			String value = values.get(name);
+			if(value == null) throw new IllegalArgumentException("No value for template variable: " + name);
+			expanded.append(template, position, start).append(value);
+			position = end + 1;
+		}
+		return expanded.append(template, position, template.length()).toString();
+	}
+
+	/**
+	 * @param name the name of the template, from {@link #TEMPLATES}
+	 * @return the text of the template
+	 * @throws IOException if the template could not be read
+	 */
+	private static String readTemplate(String name) throws IOException {
+		InputStream in = AdapterGenerator.class.getResourceAsStream(name + TEMPLATE_EXTENSION);
+		if(in == null) throw new IOException("Template not found: " + name);
+		try {
+			ByteArrayOutputStream text = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int count;
+			while((count = in.read(buffer)) != -1) {
+				text.write(buffer, 0, count);
+			}
+			return text.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param file the file to write
+	 * @param source the source to write to it
+	 * @throws IOException if the file could not be written
+	 */
+	private static void write(File file, String source) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(source.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
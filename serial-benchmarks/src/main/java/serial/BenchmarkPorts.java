@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package serial;
+
+import serial.loopback.LoopbackSerialBackend;
+import serial.loopback.LoopbackSerialPort;
+import serial.loopback.VirtualPort;
+import serial.loopback.VirtualPorts;
+
+/**
+ * Opens loopback ports of the simulated backend for the benchmarks.  The benchmarks are in package
+ * <code>serial</code> so that they can measure package-private parts of the library directly.
+ * @author Alex
+ */
+final class BenchmarkPorts {
+//> STATIC CONSTANTS
+	/** Application name the benchmarks open ports as */
+	private static final String APP_NAME = "serial-benchmarks";
+
+//> CONSTRUCTORS
+	/** Not instantiable. */
+	private BenchmarkPorts() {}
+
+//> STATIC METHODS
+	/**
+	 * Creates loopback ports <code>loop0</code> to <code>loop<i>n-1</i></code> where they do not already exist, and
+	 * selects the loopback backend.
+	 * @param count the number of ports
+	 */
+	static void init(int count) {
+		for(int i=0; i<count; ++i) getVirtualPort("loop" + i);
+		SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK);
+	}
+
+	/**
+	 * @param name the name of a loopback port
+	 * @return the virtual port with the name, which is created if it does not exist
+	 */
+	static synchronized VirtualPort getVirtualPort(String name) {
+		VirtualPort port = VirtualPorts.get(name);
+		if(port == null) port = VirtualPorts.createLoopback(name);
+		return port;
+	}
+
+	/**
+	 * Selects the loopback backend and opens a loopback port, creating it if necessary.
+	 * @param name the name of the port, e.g. <code>loop0</code>
+	 * @return the opened port
+	 * @throws NoSuchPortException never
+	 * @throws PortInUseException if the port is already open
+	 */
+	static SerialPort open(String name) throws NoSuchPortException, PortInUseException {
+		getVirtualPort(name);
+		SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK);
+		return CommPortIdentifier.getPortIdentifier(name).open(APP_NAME, 0);
+	}
+
+	/**
+	 * @param port a port opened by {@link #open(String)}
+	 * @return the loopback port it wraps
+	 */
+	static LoopbackSerialPort getLoopback(SerialPort port) {
+		return (LoopbackSerialPort) port.getBackendPort();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import serial.loopback.LoopbackSerialPort;
+
+/**
+ * Cost of calling a backend method through the wrapper layer.
+ * <ul>
+ * <li><code>lookupPerCall</code> resolves the method with {@link ReflectionHelper#getMethod(Class, String, Class...)}
+ * on every call, as the wrappers did before methods were cached in a {@link DispatchTable}</li>
+ * <li><code>dispatchTable</code> resolves it from the shared {@link DispatchTable} of the backend class</li>
+ * <li><code>wrapperSetter</code> and <code>wrapperGetInputStream</code> go through the public {@link SerialPort}
+ * methods, which call the loopback backend through {@link BackendSerialPort} without reflection</li>
+ * <li><code>direct</code> calls the backend without reflection, as a baseline</li>
+ * </ul>
+ * @author Alex
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class DispatchBenchmark {
+//> STATIC CONSTANTS
+	/** Signature of the method called */
+	private static final MethodSignature SET_INPUT_BUFFER_SIZE = new MethodSignature("setInputBufferSize", int.class);
+
+//> INSTANCE PROPERTIES
+	/** The wrapped port */
+	private SerialPort port;
+	/** The backend port */
+	private LoopbackSerialPort loopback;
+	/** Value passed to the setter, varied so that the call is not hoisted */
+	private int size;
+
+//> LIFECYCLE
+	/** @throws Exception if the port could not be opened */
+	@Setup
+	public void setUp() throws Exception {
+		port = BenchmarkPorts.open("loop0");
+		loopback = BenchmarkPorts.getLoopback(port);
+	}
+
+	/** Closes the port. */
+	@TearDown
+	public void tearDown() {
+		port.close();
+	}
+
+//> BENCHMARKS
+	/** @throws InvocationTargetException never */
+	@Benchmark
+	public void lookupPerCall() throws InvocationTargetException {
+		Method method = ReflectionHelper.getMethod(loopback.getClass(), "setInputBufferSize", int.class);
+		ReflectionHelper.invoke(method, loopback, ++size);
+	}
+
+	/** @throws InvocationTargetException never */
+	@Benchmark
+	public void dispatchTable() throws InvocationTargetException {
+		Method method = DispatchTable.forClass(loopback.getClass()).getMethod(SET_INPUT_BUFFER_SIZE);
+		ReflectionHelper.invoke(method, loopback, ++size);
+	}
+
+	/** Calls through {@link SerialPort#setInputBufferSize(int)}. */
+	@Benchmark
+	public void wrapperSetter() {
+		port.setInputBufferSize(++size);
+	}
+
+	/**
+	 * @return the result of {@link SerialPort#getInputStream()}
+	 * @throws IOException never
+	 */
+	@Benchmark
+	public InputStream wrapperGetInputStream() throws IOException {
+		return port.getInputStream();
+	}
+
+	/** Calls the backend directly. */
+	@Benchmark
+	public void direct() {
+		loopback.setInputBufferSize(++size);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import serial.loopback.LoopbackSerialPort;
+import serial.loopback.VirtualPort;
+
+/**
+ * Cost of delivering one backend event to application code.  The event is raised on the benchmark thread by changing
+ * the CTS line of a loopback port.
+ * <ul>
+ * <li><code>raw</code> registers a backend listener directly, as a baseline</li>
+ * <li><code>wrapped</code> registers a {@link SerialPortEventListener}, so each event is wrapped in a
+ *   {@link SerialPortEvent}</li>
+ * <li><code>primitive</code> registers a {@link SerialPortPrimitiveListener} with {@link SerialPort#onCtsChange(SerialPortPrimitiveListener)}</li>
+ * </ul>
+ * @author Alex
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class EventDispatchBenchmark {
+//> INSTANCE PROPERTIES
+	/** How the event reaches application code */
+	@Param({"raw", "wrapped", "primitive"})
+	public String path;
+	/** The wrapped port */
+	private SerialPort port;
+	/** The backend port */
+	private LoopbackSerialPort loopback;
+	/** The virtual port, whose CTS line is toggled to raise events */
+	private VirtualPort virtual;
+	/** Value of the line, toggled for each event */
+	private boolean cts;
+
+//> LIFECYCLE
+	/**
+	 * Opens the port and registers the listener for {@link #path}.
+	 * @param blackhole sink for the delivered event values
+	 * @throws Exception if the port could not be opened
+	 */
+	@Setup
+	public void setUp(final Blackhole blackhole) throws Exception {
+		port = BenchmarkPorts.open("loop1");
+		loopback = BenchmarkPorts.getLoopback(port);
+		virtual = BenchmarkPorts.getVirtualPort("loop1");
+		if("raw".equals(path)) {
+			loopback.addEventListener(new BackendEventListener() {
+				public void serialEvent(int eventType, boolean oldValue, boolean newValue) {
+					blackhole.consume(newValue);
+				}
+			});
+			loopback.setNotification(SerialPortEvent.CTS, true);
+		} else if("wrapped".equals(path)) {
+			port.addEventListener(new SerialPortEventListener() {
+				public void serialEvent(SerialPortEvent ev) {
+					blackhole.consume(ev.getNewValue());
+				}
+			});
+			port.notifyOnCTS(true);
+		} else if("primitive".equals(path)) {
+			port.onCtsChange(new SerialPortPrimitiveListener() {
+				public void onEvent(SerialPort port, int eventType, boolean oldValue, boolean newValue, long nanoTimestamp) {
+					blackhole.consume(newValue);
+				}
+			});
+		} else {
+			throw new IllegalArgumentException("Unknown path: " + path);
+		}
+	}
+
+	/** Closes the port. */
+	@TearDown
+	public void tearDown() {
+		port.removeEventListener();
+		port.close();
+	}
+
+//> BENCHMARKS
+	/** Raises a {@link SerialPortEvent#CTS} event. */
+	@Benchmark
+	public void ctsEvent() {
+		cts = !cts;
+		virtual.setCTS(cts);
+	}
+}
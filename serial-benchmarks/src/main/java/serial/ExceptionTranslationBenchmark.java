@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link SerialException#throwIfMatches(Class, InvocationTargetException)}, which translates a backend
+ * exception into this package's exception by simple class name.
+ * @author Alex
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class ExceptionTranslationBenchmark {
+//> INSTANCE PROPERTIES
+	/** A backend exception which translates to {@link PortInUseException} */
+	private final InvocationTargetException portInUse = new InvocationTargetException(new Backend.PortInUseException("in use"));
+	/** A backend exception which does not translate to {@link PortInUseException} */
+	private final InvocationTargetException noSuchPort = new InvocationTargetException(new Backend.NoSuchPortException("no such port"));
+
+//> BENCHMARKS
+	/** @return the translated exception */
+	@Benchmark
+	public PortInUseException match() {
+		try {
+			SerialException.throwIfMatches(PortInUseException.class, portInUse);
+			throw new IllegalStateException("Exception was not translated.");
+		} catch(PortInUseException ex) {
+			return ex;
+		}
+	}
+
+	/** @throws PortInUseException never */
+	@Benchmark
+	public void noMatch() throws PortInUseException {
+		SerialException.throwIfMatches(PortInUseException.class, noSuchPort);
+	}
+
+//> INNER CLASSES
+	/**
+	 * Exceptions named as a reflective backend's are, e.g. <code>gnu.io.PortInUseException</code>.
+	 */
+	private static final class Backend {
+		/** Stands in for a backend's <code>PortInUseException</code> */
+		@SuppressWarnings("serial")
+		static final class PortInUseException extends Exception {
+			/** @param message the detail message */
+			PortInUseException(String message) {
+				super(message);
+			}
+		}
+
+		/** Stands in for a backend's <code>NoSuchPortException</code> */
+		@SuppressWarnings("serial")
+		static final class NoSuchPortException extends Exception {
+			/** @param message the detail message */
+			NoSuchPortException(String message) {
+				super(message);
+			}
+		}
+	}
+}
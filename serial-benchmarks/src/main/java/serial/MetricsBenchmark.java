@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of recording {@link PortMetrics}, with four threads recording into the same port's metrics at once.
+ * <ul>
+ * <li><code>atomicLong</code> increments one shared {@link AtomicLong}, as a baseline for contended counting</li>
+ * <li><code>stripedCounter</code> increments a {@link StripedCounter}</li>
+ * <li><code>histogramRecord</code> records a latency in a {@link LatencyHistogram}</li>
+ * <li><code>recordWriteRead</code> records a write and the read answering it, as the metered streams do for each
+ * request, including the write-to-first-byte latency</li>
+ * <li><code>recordEvent</code> counts an event, as the dispatcher does for each event</li>
+ * </ul>
+ * @author Alex
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class MetricsBenchmark {
+//> INSTANCE PROPERTIES
+	/** Shared counter for the baseline */
+	private final AtomicLong atomicLong = new AtomicLong();
+	/** Striped counter recorded into */
+	private final StripedCounter stripedCounter = new StripedCounter();
+	/** Histogram recorded into */
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	/** Metrics recorded into */
+	private final PortMetrics metrics = new PortMetrics("bench0");
+
+//> BENCHMARKS
+	/** @return the incremented value */
+	@Benchmark
+	public long atomicLong() {
+		return atomicLong.incrementAndGet();
+	}
+
+	/** Increments the striped counter. */
+	@Benchmark
+	public void stripedCounter() {
+		stripedCounter.increment();
+	}
+
+	/** Records a latency of a few microseconds, varied so that several buckets are used. */
+	@Benchmark
+	public void histogramRecord() {
+		histogram.record(1000 + (System.nanoTime() & 0x3fff));
+	}
+
+	/** Records a 16 byte write and its 16 byte answer. */
+	@Benchmark
+	public void recordWriteRead() {
+		metrics.recordWrite(16);
+		metrics.recordRead(16);
+	}
+
+	/** Counts a {@link SerialPortEvent#DATA_AVAILABLE} event. */
+	@Benchmark
+	public void recordEvent() {
+		metrics.recordEvent(SerialPortEvent.DATA_AVAILABLE);
+	}
+}
@@ -0,0 +1,352 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import serial.at.AtCommandChannel;
+import serial.at.AtResponse;
+import serial.at.AtUnsolicitedListener;
+import serial.at.AtUnsolicitedResult;
+import serial.loopback.LoopbackSerialBackend;
+import serial.modem.LatencyDistributions;
+import serial.modem.ModemBank;
+import serial.modem.ModemProfile;
+import serial.modem.ModemSimulator;
+import serial.tty.TtySerialBackend;
+
+/**
+ * Load generator for code which drives many GSM modems, such as an SMS gateway: simulated modems are placed behind
+ * <code>CommPortIdentifier</code>, and each is driven through an {@link AtCommandChannel} as a gateway would, to find
+ * how many ports a host can serve and at what latency.
+ * <p>
+ * Each modem has a thread which keeps a batch of commands in flight, mostly <code>AT+CSQ</code> polls with a share
+ * of <code>AT+CMGS</code> sends, and reads and deletes each message announced by <code>+CMTI:</code>.  Progress is
+ * printed as it runs; at the end the throughput and latency percentiles of each kind of operation are reported.
+ * </p>
+ * <p>
+ * Options are given as <code>name=value</code> arguments:
+ * <ul>
+ * <li><code>modems</code> - number of modems, default 100</li>
+ * <li><code>seconds</code> - how long to run, default 30</li>
+ * <li><code>backend</code> - <code>loopback</code> for simulated ports, or <code>pty</code> for pseudo-terminals
+ *   through the kernel's tty layer; default <code>loopback</code></li>
+ * <li><code>inFlight</code> - commands in flight per modem, default 4</li>
+ * <li><code>smsShare</code> - fraction of commands which send a message, default 0.1</li>
+ * <li><code>latency</code> - distribution of command latency, see {@link LatencyDistributions#parse(String)};
+ *   default <code>lognormal:20ms:0.5</code></li>
+ * <li><code>smsLatency</code> - distribution of message send latency, default <code>lognormal:800ms:0.5</code></li>
+ * <li><code>ringRate</code> - incoming calls per second per modem, default 0.01</li>
+ * <li><code>smsRate</code> - incoming messages per second per modem, default 0.1</li>
+ * <li><code>direct</code> - <code>true</code> to deliver incoming messages with <code>+CMT:</code>, default
+ *   <code>false</code></li>
+ * <li><code>seed</code> - seed for the modems' behaviour, default 1</li>
+ * <li><code>report</code> - seconds between progress lines, default 5</li>
+ * </ul>
+ * e.g. <code>java -cp benchmarks.jar serial.ModemLoadGenerator modems=500 latency=exp:30ms</code>
+ * </p>
+ * @author Alex
+ */
+public class ModemLoadGenerator {
+//> STATIC CONSTANTS
+	/** Application name the ports are opened as */
+	private static final String APP_NAME = "modem-load";
+	/** Prefix of the names of loopback ports */
+	private static final String LOOPBACK_PREFIX = "modem";
+	/** Milliseconds to wait for a command's response before counting it as timed out */
+	private static final long COMMAND_TIMEOUT = 30000;
+	/** SMS-SUBMIT of "Hello" to +447712345678, as hexadecimal digits starting with an empty service centre address */
+	private static final String SUBMIT_PDU = "00" + "0100" + "0C91" + "447721436587" + "0000" + "05" + "C8329BFD06";
+	/** Percentiles reported */
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+	/** Names of the kinds of operation, in the order reported */
+	private static final String[] OPERATIONS = { "AT+CSQ", "AT+CMGS", "AT+CMGR", "AT+CMGD" };
+
+//> INSTANCE PROPERTIES
+	/** Options, by name */
+	private final Map<String, String> options;
+	/** Number of operations completed, since the last progress line */
+	private final AtomicLong completed = new AtomicLong();
+	/** Number of operations which failed or timed out */
+	private final AtomicLong failed = new AtomicLong();
+	/** Number of <code>RING</code>s received */
+	private final AtomicLong ringsReceived = new AtomicLong();
+	/** Number of incoming messages announced, by <code>+CMTI:</code> or <code>+CMT:</code> */
+	private final AtomicLong messagesReceived = new AtomicLong();
+	/** Set <code>true</code> to stop the drivers */
+	private volatile boolean stopping;
+
+//> CONSTRUCTORS
+	/** @param options value for {@link #options} */
+	private ModemLoadGenerator(Map<String, String> options) {
+		this.options = options;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Runs the load, and prints the report.
+	 * @throws Exception if the modems could not be created or opened
+	 */
+	private void run() throws Exception {
+		int modemCount = getInt("modems", 100);
+		int seconds = getInt("seconds", 30);
+		boolean pty = getOption("backend", "loopback").equals("pty");
+		ModemProfile profile = new ModemProfile();
+		profile.setCommandLatency(LatencyDistributions.parse(getOption("latency", "lognormal:20ms:0.5")));
+		profile.setSmsSendLatency(LatencyDistributions.parse(getOption("smsLatency", "lognormal:800ms:0.5")));
+		profile.setRingRate(getDouble("ringRate", 0.01));
+		profile.setSmsRate(getDouble("smsRate", 0.1));
+		profile.setDirectDelivery(Boolean.valueOf(getOption("direct", "false")).booleanValue());
+		long seed = Long.parseLong(getOption("seed", "1"));
+
+		System.out.println("Creating " + modemCount + " modems on " + (pty ? "pseudo-terminals" : "loopback ports") + "...");
+		ModemBank bank = pty ? ModemBank.createPty(modemCount, profile, seed)
+				: ModemBank.createLoopback(LOOPBACK_PREFIX, modemCount, profile, seed);
+		SerialClassFactory.init(pty ? TtySerialBackend.PACKAGE_TTY : LoopbackSerialBackend.PACKAGE_LOOPBACK);
+
+		List<Driver> drivers = new ArrayList<Driver>(modemCount);
+		Random seeds = new Random(~seed);
+		try {
+			for(int i=0; i<modemCount; ++i) {
+				SerialPort port = CommPortIdentifier.getPortIdentifier(bank.getPortNames().get(i)).open(APP_NAME, 2000);
+				drivers.add(new Driver(port, seeds.nextLong()));
+			}
+			System.out.println("Running for " + seconds + "s...");
+			long start = System.nanoTime();
+			for(Driver driver : drivers) driver.start();
+			report(start, TimeUnit.SECONDS.toNanos(seconds), TimeUnit.SECONDS.toMillis(getInt("report", 5)));
+			stopping = true;
+			for(Driver driver : drivers) driver.join();
+			printSummary(drivers, bank, System.nanoTime() - start);
+		} finally {
+			for(Driver driver : drivers) driver.close();
+			bank.close();
+		}
+	}
+
+	/**
+	 * Prints a progress line at intervals until the run time is over.
+	 * @param start the time the run started, by {@link System#nanoTime()}
+	 * @param duration the length of the run, in nanoseconds
+	 * @param interval the time between progress lines, in milliseconds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private void report(long start, long duration, long interval) throws InterruptedException {
+		long last = start;
+		while(true) {
+			long remaining = start + duration - System.nanoTime();
+			if(remaining <= 0) return;
+			Thread.sleep(Math.min(interval, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+			long now = System.nanoTime();
+			double elapsed = (now - last) / 1e9;
+			last = now;
+			System.out.println(String.format(Locale.ROOT, "%6.1fs  %10.1f ops/s  failed %d  RING %d  messages %d",
+					(now - start) / 1e9, completed.getAndSet(0) / elapsed, failed.get(), ringsReceived.get(), messagesReceived.get()));
+		}
+	}
+
+	/**
+	 * Prints the throughput and latency percentiles of each kind of operation.
+	 * @param drivers the drivers, which have stopped
+	 * @param bank the simulated modems
+	 * @param elapsed the length of the run, in nanoseconds
+	 */
+	private void printSummary(List<Driver> drivers, ModemBank bank, long elapsed) {
+		double seconds = elapsed / 1e9;
+		System.out.println();
+		StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-10s %10s %10s", "operation", "count", "ops/s"));
+		for(double percentile : PERCENTILES) header.append(String.format(Locale.ROOT, " %9s", "p" + formatPercentile(percentile)));
+		header.append(String.format(Locale.ROOT, " %9s", "max"));
+		System.out.println(header + "   (latencies in ms)");
+		for(int i=0; i<OPERATIONS.length; ++i) {
+			LatencyHistogram total = new LatencyHistogram();
+			for(Driver driver : drivers) total.add(driver.histograms[i]);
+			StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-10s %10d %10.1f",
+					OPERATIONS[i], total.getTotalCount(), total.getTotalCount() / seconds));
+			for(double percentile : PERCENTILES) line.append(String.format(Locale.ROOT, " %9.2f", total.getValueAtPercentile(percentile) / 1e6));
+			line.append(String.format(Locale.ROOT, " %9.2f", total.getMax() / 1e6));
+			System.out.println(line);
+		}
+
+		long rings = 0, delivered = 0, dropped = 0;
+		for(ModemSimulator simulator : bank.getSimulators()) {
+			rings += simulator.getRingCount();
+			delivered += simulator.getSmsDeliveredCount();
+			dropped += simulator.getSmsDroppedCount();
+		}
+		System.out.println();
+		System.out.println("Failed or timed out: " + failed.get());
+		System.out.println("RING received " + ringsReceived.get() + " of " + rings + " sent");
+		System.out.println("Incoming messages received " + messagesReceived.get() + " of " + delivered + " sent; " + dropped + " dropped with storage full");
+	}
+
+	/**
+	 * @param name the name of an option
+	 * @param defaultValue the value if the option was not given
+	 * @return the option's value
+	 */
+	private String getOption(String name, String defaultValue) {
+		String value = options.get(name);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * @param name the name of an option
+	 * @param defaultValue the value if the option was not given
+	 * @return the option's value
+	 */
+	private int getInt(String name, int defaultValue) {
+		return Integer.parseInt(getOption(name, Integer.toString(defaultValue)));
+	}
+
+	/**
+	 * @param name the name of an option
+	 * @param defaultValue the value if the option was not given
+	 * @return the option's value
+	 */
+	private double getDouble(String name, double defaultValue) {
+		return Double.parseDouble(getOption(name, Double.toString(defaultValue)));
+	}
+
+//> STATIC METHODS
+	/**
+	 * @param args options as <code>name=value</code>
+	 * @throws Exception if the load could not be run
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		for(String arg : args) {
+			int equals = arg.indexOf('=');
+			if(equals < 1) throw new IllegalArgumentException("Options must be name=value: " + arg);
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+		new ModemLoadGenerator(options).run();
+		// Channel reader threads are daemons, but make sure nothing keeps the JVM alive
+		System.exit(0);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param percentile a percentile
+	 * @return the percentile without a fraction if it is whole, e.g. <code>99</code> or <code>99.9</code>
+	 */
+	private static String formatPercentile(double percentile) {
+		return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+	}
+
+//> INNER CLASSES
+	/**
+	 * Drives one modem as a gateway would.
+	 */
+	private final class Driver extends Thread implements AtUnsolicitedListener {
+		/** The port the modem is attached to */
+		private final SerialPort port;
+		/** Channel to the modem */
+		private final AtCommandChannel channel;
+		/** Chooses which commands to send */
+		private final Random random;
+		/** Number of commands sent in each batch */
+		private final int batchSize;
+		/** Fraction of commands which send a message */
+		private final double smsShare;
+		/** Indices of stored messages announced by <code>+CMTI:</code>, waiting to be read */
+		private final Queue<Integer> announced = new ConcurrentLinkedQueue<Integer>();
+		/** Latencies of each kind of operation, in the order of {@link ModemLoadGenerator#OPERATIONS}.  Only used by this thread until it ends. */
+		private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+
+		/**
+		 * @param port value for {@link #port}
+		 * @param seed seed for {@link #random}
+		 * @throws Exception if the channel could not be created
+		 */
+		Driver(SerialPort port, long seed) throws Exception {
+			super("ModemLoadGenerator-" + port);
+			setDaemon(true);
+			this.port = port;
+			this.random = new Random(seed);
+			this.batchSize = getInt("inFlight", 4);
+			this.smsShare = getDouble("smsShare", 0.1);
+			this.channel = new AtCommandChannel(port);
+			channel.setMaxInFlight(batchSize);
+			channel.setCommandTimeout(COMMAND_TIMEOUT);
+			channel.addUnsolicitedListener(this);
+			channel.start();
+			for(int i=0; i<histograms.length; ++i) histograms[i] = new LatencyHistogram();
+		}
+
+		@Override
+		public void run() {
+			// Room for at least one read and delete of an announced message
+			int capacity = Math.max(2, batchSize);
+			List<Future<AtResponse>> futures = new ArrayList<Future<AtResponse>>(capacity);
+			int[] operations = new int[capacity];
+			long[] sent = new long[capacity];
+			while(!stopping) {
+				futures.clear();
+				Integer index;
+				while(futures.size() + 2 <= capacity && (index = announced.poll()) != null) {
+					operations[futures.size()] = 2;
+					sent[futures.size()] = System.nanoTime();
+					futures.add(channel.send("AT+CMGR=" + index));
+					operations[futures.size()] = 3;
+					sent[futures.size()] = System.nanoTime();
+					futures.add(channel.send("AT+CMGD=" + index));
+				}
+				while(futures.size() < batchSize) {
+					boolean sms = random.nextDouble() < smsShare;
+					operations[futures.size()] = sms ? 1 : 0;
+					sent[futures.size()] = System.nanoTime();
+					futures.add(sms ? channel.send("AT+CMGS=" + (SUBMIT_PDU.length() / 2 - 1), SUBMIT_PDU) : channel.send("AT+CSQ"));
+				}
+				// The modem answers in order, so each response is waited for just as it arrives
+				for(int i=0; i<futures.size(); ++i) {
+					try {
+						AtResponse response = futures.get(i).get();
+						if(response.isOk()) {
+							histograms[operations[i]].record(System.nanoTime() - sent[i]);
+							completed.incrementAndGet();
+						} else {
+							failed.incrementAndGet();
+						}
+					} catch(ExecutionException ex) {
+						failed.incrementAndGet();
+						if(!(ex.getCause() instanceof TimeoutException)) return;
+					} catch(InterruptedException ex) {
+						return;
+					}
+				}
+			}
+		}
+
+		public void unsolicitedResult(AtCommandChannel channel, AtUnsolicitedResult result) {
+			String line = result.getLine();
+			if(line.startsWith("RING")) {
+				ringsReceived.incrementAndGet();
+			} else if(line.startsWith("+CMTI:")) {
+				messagesReceived.incrementAndGet();
+				announced.add(Integer.valueOf(line.substring(line.lastIndexOf(',') + 1).trim()));
+			} else if(line.startsWith("+CMT:")) {
+				messagesReceived.incrementAndGet();
+			}
+		}
+
+		/** Closes the channel and the port. */
+		void close() {
+			channel.close();
+			port.close();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import serial.loopback.VirtualPorts;
+
+/**
+ * Cost of {@link CommPortIdentifier#getPortIdentifiers()}, both from the cached port list and when the list has to be
+ * fetched from the backend again, for various numbers of ports.
+ * @author Alex
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class PortEnumerationBenchmark {
+//> INSTANCE PROPERTIES
+	/** Number of loopback ports */
+	@Param({"8", "256", "4096"})
+	public int ports;
+
+//> LIFECYCLE
+	/** Creates the loopback ports. */
+	@Setup
+	public void setUp() {
+		VirtualPorts.clear();
+		BenchmarkPorts.init(ports);
+		CommPortIdentifier.invalidatePortIdentifiers();
+	}
+
+//> BENCHMARKS
+	/** @param blackhole sink for the identifiers */
+	@Benchmark
+	public void cached(Blackhole blackhole) {
+		consume(CommPortIdentifier.getPortIdentifiers(), blackhole);
+	}
+
+	/** @param blackhole sink for the identifiers */
+	@Benchmark
+	public void invalidated(Blackhole blackhole) {
+		CommPortIdentifier.invalidatePortIdentifiers();
+		consume(CommPortIdentifier.getPortIdentifiers(), blackhole);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Reads the name of every identifier, so that lazily wrapped identifiers are fully created.
+	 * @param identifiers the identifiers
+	 * @param blackhole sink for the names
+	 */
+	private static void consume(Enumeration<CommPortIdentifier> identifiers, Blackhole blackhole) {
+		while(identifiers.hasMoreElements()) blackhole.consume(identifiers.nextElement().getName());
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end byte throughput: each operation writes a chunk to a loopback port and reads it back, through the
+ * streams and through the {@link SerialChannel}.  Multiply the operation rate by {@link #chunkSize} for bytes per
+ * second.
+ * @author Alex
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+public class ThroughputBenchmark {
+//> INSTANCE PROPERTIES
+	/** Number of bytes written and read per operation */
+	@Param({"1", "64", "4096"})
+	public int chunkSize;
+	/** The port */
+	private SerialPort port;
+	/** The port's input stream */
+	private InputStream in;
+	/** The port's output stream */
+	private OutputStream out;
+	/** The port's channel */
+	private SerialChannel channel;
+	/** Bytes to write */
+	private byte[] writeArray;
+	/** Buffer to read into */
+	private byte[] readArray;
+	/** Bytes to write through {@link #channel} */
+	private ByteBuffer writeBuffer;
+	/** Buffer to read into through {@link #channel} */
+	private ByteBuffer readBuffer;
+
+//> LIFECYCLE
+	/** @throws Exception if the port could not be opened */
+	@Setup
+	public void setUp() throws Exception {
+		port = BenchmarkPorts.open("loop2");
+		port.enableReceiveTimeout(1000);
+		in = port.getInputStream();
+		out = port.getOutputStream();
+		channel = port.getChannel();
+		writeArray = new byte[chunkSize];
+		readArray = new byte[chunkSize];
+		writeBuffer = ByteBuffer.allocateDirect(chunkSize);
+		readBuffer = ByteBuffer.allocateDirect(chunkSize);
+	}
+
+	/** Closes the port. */
+	@TearDown
+	public void tearDown() {
+		port.close();
+	}
+
+//> BENCHMARKS
+	/**
+	 * @return the number of bytes read
+	 * @throws IOException if the port fails
+	 */
+	@Benchmark
+	public int streams() throws IOException {
+		out.write(writeArray, 0, chunkSize);
+		int read = 0;
+		while(read < chunkSize) read += in.read(readArray, read, chunkSize - read);
+		return read;
+	}
+
+	/**
+	 * @return the number of bytes read
+	 * @throws IOException if the port fails
+	 */
+	@Benchmark
+	public int channel() throws IOException {
+		writeBuffer.clear();
+		while(writeBuffer.hasRemaining()) channel.write(writeBuffer);
+		readBuffer.clear();
+		while(readBuffer.hasRemaining()) channel.read(readBuffer);
+		return readBuffer.position();
+	}
+}
@@ -0,0 +1,382 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Queue of writes to a single port, drained on a thread pool shared by all writers, so that callers are never blocked
+ * by a congested port.  A writer only occupies a pool thread while it has writes queued, so idle ports cost no thread.
+ * <p>
+ * {@link #writeAsync(ByteBuffer)} queues a buffer and returns a {@link Future} straight away.  The queue is bounded by
+ * watermarks on the number of bytes waiting: once it reaches the high watermark the writer is no longer
+ * {@link #isWritable() writable}, and it becomes writable again only when the queue has drained to the low watermark.
+ * Producers should check {@link #isWritable()} or wait with {@link #awaitWritable(long, TimeUnit)} before queueing
+ * more.  A write which would take the queue past {@link #setMaxQueuedBytes(int) its hard limit} is not queued, and
+ * its future fails straight away.
+ * </p>
+ * <p>
+ * A write's future completes with the number of bytes written once the bytes have been passed to the driver, or, if
+ * {@link #setCompleteOnOutputEmpty(boolean)} is enabled, once the port next reports
+ * {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY}.  An event raised while the last bytes of a write are being passed to the
+ * driver, as some drivers do on the writing thread, counts for that write.
+ * </p>
+ * @author Alex
+ * @see SerialPort#writeAsync(ByteBuffer)
+ */
+public class AsyncSerialWriter {
+//> STATIC CONSTANTS
+	/** Default value for {@link #highWatermark} */
+	public static final int DEFAULT_HIGH_WATERMARK = 64 * 1024;
+	/** Default value for {@link #lowWatermark} */
+	public static final int DEFAULT_LOW_WATERMARK = 16 * 1024;
+	/** Default value for {@link #maxQueuedBytes} */
+	public static final int DEFAULT_MAX_QUEUED_BYTES = 4 * DEFAULT_HIGH_WATERMARK;
+	/** Executor shared by all writers for draining their queues */
+	private static final ExecutorService DRAIN_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "AsyncSerialWriter-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** Callable for {@link WriteFuture}s, which are only ever completed by {@link WriteFuture#complete(int)} or {@link WriteFuture#fail(Throwable)} */
+	private static final Callable<Integer> NOT_RUNNABLE = new Callable<Integer>() {
+		public Integer call() {
+			throw new IllegalStateException("Write futures are not run.");
+		}
+	};
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The port being written to */
+	private final SerialPort port;
+	/** The channel writes are made through */
+	private final SerialChannel channel;
+	/** Writes waiting to be made.  Guarded by <code>this</code>. */
+	private final Queue<WriteRequest> queue = new LinkedList<WriteRequest>();
+	/** Writes made which are waiting for {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY}.  Guarded by <code>this</code>. */
+	private final Queue<WriteRequest> awaitingOutputEmpty = new LinkedList<WriteRequest>();
+	/** Number of bytes queued and not yet written.  Guarded by <code>this</code>. */
+	private long queuedBytes;
+	/** Number of queued bytes at which this writer stops being writable.  Guarded by <code>this</code>. */
+	private int highWatermark = DEFAULT_HIGH_WATERMARK;
+	/** Number of queued bytes at which this writer becomes writable again.  Guarded by <code>this</code>. */
+	private int lowWatermark = DEFAULT_LOW_WATERMARK;
+	/** Largest number of bytes which may be queued; writes which would exceed it are rejected.  Guarded by <code>this</code>. */
+	private int maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+	/** <code>false</code> between the queue reaching {@link #highWatermark} and draining to {@link #lowWatermark}.  Guarded by <code>this</code>. */
+	private boolean writable = true;
+	/** The write being passed to the driver, or <code>null</code>.  Guarded by <code>this</code>. */
+	private WriteRequest writing;
+	/** Handler for {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY}, or <code>null</code> if futures complete when written.  Guarded by <code>this</code>. */
+	private SerialPortPrimitiveListener outputEmptyHandler;
+	/** Task which drains {@link #queue} on the {@link #DRAIN_EXECUTOR} */
+	private final Runnable drainTask = new Runnable() {
+		public void run() {
+			drain();
+		}
+	};
+	/** <code>true</code> while {@link #drainTask} is submitted or running.  Guarded by <code>this</code>. */
+	private boolean draining;
+	/** Set <code>true</code> when {@link #close()} is called.  Guarded by <code>this</code>. */
+	private boolean closed;
+
+//> CONSTRUCTORS
+	/**
+	 * @param port value for {@link #port}
+	 * @param channel value for {@link #channel}
+	 */
+	AsyncSerialWriter(SerialPort port, SerialChannel channel) {
+		this.port = port;
+		this.channel = channel;
+	}
+
+//> ACCESSORS
+	/**
+	 * Sets the watermarks which control {@link #isWritable()}.
+	 * @param highWatermark the number of queued bytes at which this writer stops being writable
+	 * @param lowWatermark the number of queued bytes at which this writer becomes writable again
+	 */
+	public synchronized void setWatermarks(int highWatermark, int lowWatermark) {
+		if(lowWatermark < 0 || highWatermark <= lowWatermark) throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high: low=" + lowWatermark + ", high=" + highWatermark);
+		this.highWatermark = highWatermark;
+		this.lowWatermark = lowWatermark;
+		updateWritable();
+	}
+
+	/** @return the largest number of bytes which may be queued */
+	public synchronized int getMaxQueuedBytes() {
+		return maxQueuedBytes;
+	}
+
+	/**
+	 * Sets the hard limit on the number of bytes queued.  A write which would take the queue past it fails rather than
+	 * being queued, so a single write larger than the limit always fails.  Writes already queued are not affected.
+	 * @param maxQueuedBytes the largest number of bytes which may be queued; must be positive
+	 */
+	public synchronized void setMaxQueuedBytes(int maxQueuedBytes) {
+		if(maxQueuedBytes < 1) throw new IllegalArgumentException("Maximum queued bytes must be at least 1: " + maxQueuedBytes);
+		this.maxQueuedBytes = maxQueuedBytes;
+	}
+
+	/** @return the number of bytes queued and not yet written */
+	public synchronized long getQueuedBytes() {
+		return queuedBytes;
+	}
+
+	/** @return <code>true</code> if more writes should be queued, <code>false</code> if producers should wait */
+	public synchronized boolean isWritable() {
+		return writable;
+	}
+
+	/**
+	 * Waits until this writer is writable.
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of <code>timeout</code>
+	 * @return <code>true</code> if this writer is writable, <code>false</code> if the wait timed out
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized boolean awaitWritable(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!writable && !closed) {
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0) return false;
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return writable;
+	}
+
+	/**
+	 * Sets whether futures complete when the port reports {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} after their bytes
+	 * are written, rather than as soon as they are passed to the driver.  Only enable this for backends and hardware
+	 * which raise the event, as otherwise futures will not complete until the writer is closed.  Backends which do not
+	 * declare {@link SerialBackend.Capability#OUTPUT_BUFFER_EMPTY} may raise the event as soon as data has been passed
+	 * to the driver, so on them futures may complete before the data has been sent, and a warning is logged.
+	 * @param enable <code>true</code> to wait for the output buffer to empty
+	 */
+	public void setCompleteOnOutputEmpty(boolean enable) {
+		SerialClassFactory factory = SerialClassFactory.getInstance();
+		if(enable && factory != null && !factory.getBackend().getCapabilities().contains(SerialBackend.Capability.OUTPUT_BUFFER_EMPTY)) {
+			log.warn("Backend " + factory.getBackend().getPackageName() + " raises OUTPUT_BUFFER_EMPTY before output has drained; futures will complete when data reaches the driver.");
+		}
+		SerialPortPrimitiveListener added = null;
+		SerialPortPrimitiveListener removed = null;
+		synchronized(this) {
+			if(enable && outputEmptyHandler == null) {
+				added = outputEmptyHandler = new SerialPortPrimitiveListener() {
+					public void onEvent(SerialPort port, int eventType, boolean oldValue, boolean newValue, long nanoTimestamp) {
+						outputEmpty();
+					}
+				};
+			} else if(!enable && outputEmptyHandler != null) {
+				removed = outputEmptyHandler;
+				outputEmptyHandler = null;
+			}
+		}
+		if(added != null) port.onOutputEmpty(added);
+		if(removed != null) {
+			port.removeEventHandler(removed);
+			outputEmpty();
+		}
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Queues the remaining bytes of a buffer to be written.  The buffer is not copied, so must not be modified until the
+	 * returned future completes; its position is advanced as it is written.
+	 * @param src the bytes to write
+	 * @return a future which completes with the number of bytes written, or fails with the {@link IOException} which
+	 *   stopped them being written, or with an {@link IOException} straight away if the queue is too full to take them
+	 */
+	public Future<Integer> writeAsync(ByteBuffer src) {
+		WriteFuture future = new WriteFuture();
+		synchronized(this) {
+			if(closed) {
+				future.fail(new AsynchronousCloseException());
+				return future;
+			}
+			if(queuedBytes + src.remaining() > maxQueuedBytes) {
+				future.fail(new IOException("Write queue full: " + queuedBytes + " bytes queued, " + src.remaining() + " more would exceed " + maxQueuedBytes + "."));
+				return future;
+			}
+			queue.add(new WriteRequest(src, future));
+			queuedBytes += src.remaining();
+			updateWritable();
+			if(!draining) {
+				draining = true;
+				DRAIN_EXECUTOR.execute(drainTask);
+			}
+		}
+		return future;
+	}
+
+	/** Stops the writer.  Writes which have not completed fail with {@link AsynchronousCloseException}. */
+	public void close() {
+		SerialPortPrimitiveListener handler;
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+			handler = outputEmptyHandler;
+			outputEmptyHandler = null;
+			failAll(queue);
+			failAll(awaitingOutputEmpty);
+			queuedBytes = 0;
+			notifyAll();
+		}
+		if(handler != null) port.removeEventHandler(handler);
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Makes queued writes in order until the queue is empty or the writer is closed, then returns the pool thread.
+	 * The next write to be queued submits {@link #drainTask} again.
+	 */
+	private void drain() {
+		while(true) {
+			WriteRequest request;
+			synchronized(this) {
+				if(closed || queue.isEmpty()) {
+					draining = false;
+					return;
+				}
+				request = queue.peek();
+				writing = request;
+			}
+
+			int written = 0;
+			Exception failure = null;
+			try {
+				while(request.buffer.hasRemaining()) {
+					// Only an event raised during or after the last chunk means this write's bytes have drained
+					synchronized(this) {
+						request.outputEmptied = false;
+					}
+					written += channel.write(request.buffer);
+				}
+			} catch(IOException ex) {
+				failure = ex;
+			} catch(RuntimeException ex) {
+				// Fail the write rather than leave the writer marked as draining
+				failure = ex;
+			}
+
+			synchronized(this) {
+				writing = null;
+				if(closed) {
+					draining = false;
+					return;
+				}
+				queue.remove();
+				queuedBytes -= written + request.buffer.remaining();
+				updateWritable();
+				if(failure != null) {
+					log.debug("Asynchronous write failed.", failure);
+					request.future.fail(failure);
+				} else if(outputEmptyHandler != null && !request.outputEmptied) {
+					request.written = written;
+					awaitingOutputEmpty.add(request);
+				} else {
+					request.future.complete(written);
+				}
+			}
+		}
+	}
+
+	/** Completes the writes which were waiting for the output buffer to empty, and notes the event for the write being made. */
+	private synchronized void outputEmpty() {
+		if(writing != null) writing.outputEmptied = true;
+		WriteRequest request;
+		while((request = awaitingOutputEmpty.poll()) != null) {
+			request.future.complete(request.written);
+		}
+	}
+
+	/** Updates {@link #writable} from the watermarks, and wakes any waiting producers.  Must be called holding <code>this</code>. */
+	private void updateWritable() {
+		if(writable && queuedBytes >= highWatermark) {
+			writable = false;
+		} else if(!writable && queuedBytes <= lowWatermark) {
+			writable = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Fails and removes every write in a queue.  Must be called holding <code>this</code>.
+	 * @param requests the writes to fail
+	 */
+	private static void failAll(Queue<WriteRequest> requests) {
+		WriteRequest request;
+		while((request = requests.poll()) != null) {
+			request.future.fail(new AsynchronousCloseException());
+		}
+	}
+
+//> INNER CLASSES
+	/**
+	 * A queued write.
+	 */
+	private static final class WriteRequest {
+		/** The bytes to write */
+		private final ByteBuffer buffer;
+		/** The future to complete */
+		private final WriteFuture future;
+		/** Number of bytes written, while waiting for {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} */
+		private int written;
+		/** Set <code>true</code> if {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} was raised while the last chunk was being written.  Guarded by the writer. */
+		private boolean outputEmptied;
+
+		/**
+		 * @param buffer value for {@link #buffer}
+		 * @param future value for {@link #future}
+		 */
+		WriteRequest(ByteBuffer buffer, WriteFuture future) {
+			this.buffer = buffer;
+			this.future = future;
+		}
+	}
+
+	/**
+	 * Future of a queued write, completed by the writer rather than by running it.
+	 */
+	private static final class WriteFuture extends FutureTask<Integer> {
+		/** Creates a future which will be completed by {@link #complete(int)} or {@link #fail(Throwable)}. */
+		WriteFuture() {
+			super(NOT_RUNNABLE);
+		}
+
+		/** @param written the number of bytes written */
+		void complete(int written) {
+			set(Integer.valueOf(written));
+		}
+
+		/** @param cause the reason the write failed */
+		void fail(Throwable cause) {
+			setException(cause);
+		}
+
+		/** Writes cannot be cancelled once queued. */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.EventListener;
+
+/**
+ * Listener registered with a {@link BackendSerialPort}, which is passed the fields of each event.
+ * @author Alex
+ */
+public interface BackendEventListener extends EventListener {
+	/**
+	 * Called on the backend's event thread for each event of an enabled type.
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param oldValue the old value of the state which changed
+	 * @param newValue the new value of the state which changed
+	 */
+	public void serialEvent(int eventType, boolean oldValue, boolean newValue);
+}
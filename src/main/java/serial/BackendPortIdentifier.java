@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package serial;
+
+/**
+ * A port of a {@link SerialBackend}, which may not be open.  Wrapped by {@link CommPortIdentifier}.
+ * @author Alex
+ */
+public interface BackendPortIdentifier {
+	/** @return the name of the port, e.g. <code>COM1</code> or <code>/dev/ttyUSB0</code> */
+	public String getName();
+
+	/** @return the port type, e.g. {@link CommPortIdentifier#PORT_SERIAL} */
+	public int getPortType();
+
+	/** @return <code>true</code> if the port is currently open */
+	public boolean isCurrentlyOwned();
+
+	/** @return the name of the application which has the port open, or <code>null</code> if it is not open */
+	public String getCurrentOwner();
+
+	/**
+	 * Opens the port.
+	 * @param appname the name of the application opening the port
+	 * @param timeout milliseconds to wait for the port to be released if it is already open
+	 * @return the opened port
+	 * @throws PortInUseException if the port was still owned once the timeout expired, or could not be opened
+	 */
+	public BackendSerialPort open(String appname, int timeout) throws PortInUseException;
+}
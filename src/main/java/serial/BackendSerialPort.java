@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.TooManyListenersException;
+
+/**
+ * An open port of a {@link SerialBackend}.  Wrapped by {@link SerialPort}, which documents the behaviour expected of
+ * each method; constants have the values of javax.comm.
+ * @author Alex
+ */
+public interface BackendSerialPort {
+	/** Closes the port, releasing it for other applications. */
+	public void close();
+
+	/**
+	 * @return the stream for reading from the port
+	 * @throws IOException if the port is closed or the stream could not be got
+	 */
+	public InputStream getInputStream() throws IOException;
+
+	/**
+	 * @return the stream for writing to the port
+	 * @throws IOException if the port is closed or the stream could not be got
+	 */
+	public OutputStream getOutputStream() throws IOException;
+
+	/**
+	 * A backend's channel must not be an {@link java.nio.channels.InterruptibleChannel} sharing the port's file
+	 * descriptor, as interrupting a thread blocked in it would close the port.
+	 * @return a channel for reading from and writing to the port, or <code>null</code> if the backend has none and
+	 *   the streams should be adapted instead
+	 * @throws IOException if the port is closed or the channel could not be got
+	 */
+	public SerialChannel getChannel() throws IOException;
+
+	/**
+	 * @param baudrate the baud rate
+	 * @param dataBits one of the <code>DATABITS_</code> constants
+	 * @param stopBits one of the <code>STOPBITS_</code> constants
+	 * @param parity one of the <code>PARITY_</code> constants
+	 * @throws UnsupportedCommOperationException if any of the parameters is not supported
+	 */
+	public void setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) throws UnsupportedCommOperationException;
+
+	/**
+	 * @param flowcontrol a bitmask of the <code>FLOWCONTROL_</code> constants
+	 * @throws UnsupportedCommOperationException if the mode is not supported
+	 */
+	public void setFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException;
+
+	/**
+	 * @param threshold the number of bytes a read waits for
+	 * @throws UnsupportedCommOperationException if a receive threshold is not supported
+	 */
+	public void enableReceiveThreshold(int threshold) throws UnsupportedCommOperationException;
+
+	/**
+	 * @param timeout the milliseconds a read waits for
+	 * @throws UnsupportedCommOperationException if a receive timeout is not supported
+	 */
+	public void enableReceiveTimeout(int timeout) throws UnsupportedCommOperationException;
+
+	/** @param size the advised size of the input buffer */
+	public void setInputBufferSize(int size);
+
+	/** @param size the advised size of the output buffer */
+	public void setOutputBufferSize(int size);
+
+	/**
+	 * Enables or disables events of one type, as the <code>notifyOnXXX</code> methods of javax.comm do.
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param enable <code>true</code> to raise events of the type, <code>false</code> to stop raising them
+	 */
+	public void setNotification(int eventType, boolean enable);
+
+	/**
+	 * @param listener the listener to pass events to
+	 * @throws TooManyListenersException if a listener is already registered
+	 * @throws UnsupportedOperationException if the backend does not declare {@link SerialBackend.Capability#EVENTS}
+	 */
+	public void addEventListener(BackendEventListener listener) throws TooManyListenersException;
+
+	/** Removes the listener, if any. */
+	public void removeEventListener();
+}
@@ -0,0 +1,206 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link OutputStream} which gathers small writes into a buffer and passes them to a port's output stream as one
+ * driver write.
+ * <p>
+ * The buffer is written out when it is full, when {@link #flush()} is called, or when the first byte written into it
+ * has waited for the flush delay, whichever comes first.  A write too large for the buffer is passed straight through
+ * after whatever is buffered.  The number of driver writes saved is recorded, so that the buffer size and delay can be
+ * tuned, e.g. against {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} events.
+ * </p>
+ * <p>
+ * If a delayed flush fails, its {@link IOException} is thrown by the next call to {@link #write(int)},
+ * {@link #write(byte[], int, int)} or {@link #flush()}.
+ * </p>
+ * @author Alex
+ * @see SerialPort#getCoalescingOutputStream(int, long)
+ */
+public class CoalescingOutputStream extends OutputStream {
+//> STATIC CONSTANTS
+	/** Timer shared by all coalescing streams for delayed flushes */
+	private static final ScheduledExecutorService FLUSH_TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "CoalescingOutputStream-flush");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The port's output stream */
+	private final OutputStream out;
+	/** Buffer for bytes not yet written to {@link #out}.  Guarded by <code>this</code>. */
+	private final byte[] buffer;
+	/** Longest time in nanoseconds a byte may wait in {@link #buffer} */
+	private final long flushDelay;
+	/** Number of bytes in {@link #buffer}.  Guarded by <code>this</code>. */
+	private int count;
+	/** Task which will flush {@link #buffer} when {@link #flushDelay} expires, or <code>null</code>.  Guarded by <code>this</code>. */
+	private ScheduledFuture<?> pendingFlush;
+	/** Exception thrown by a delayed flush, to be thrown to the next caller.  Guarded by <code>this</code>. */
+	private IOException flushException;
+	/** Number of calls to the write methods of this stream */
+	private final AtomicLong writeCount = new AtomicLong();
+	/** Number of writes made to {@link #out} */
+	private final AtomicLong driverWriteCount = new AtomicLong();
+	/** Task run by {@link #FLUSH_TIMER} to flush the buffer */
+	private final Runnable flushTask = new Runnable() {
+		public void run() {
+			synchronized(CoalescingOutputStream.this) {
+				pendingFlush = null;
+				try {
+					flushBuffer();
+					out.flush();
+				} catch(IOException ex) {
+					log.debug("Delayed flush failed.", ex);
+					if(flushException == null) flushException = ex;
+				}
+			}
+		}
+	};
+
+//> CONSTRUCTORS
+	/**
+	 * @param out value for {@link #out}
+	 * @param bufferSize the number of bytes at which the buffer is written out
+	 * @param flushDelayMicros the longest time in microseconds a byte may wait in the buffer
+	 */
+	public CoalescingOutputStream(OutputStream out, int bufferSize, long flushDelayMicros) {
+		if(out == null) throw new IllegalArgumentException("Output stream must not be null.");
+		if(bufferSize < 1) throw new IllegalArgumentException("Buffer size must be at least 1: " + bufferSize);
+		if(flushDelayMicros < 1) throw new IllegalArgumentException("Flush delay must be at least 1us: " + flushDelayMicros);
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+		this.flushDelay = TimeUnit.MICROSECONDS.toNanos(flushDelayMicros);
+	}
+
+//> ACCESSORS
+	/** @return the number of calls made to the write methods of this stream */
+	public long getWriteCount() {
+		return writeCount.get();
+	}
+
+	/** @return the number of writes made to the port's output stream */
+	public long getDriverWriteCount() {
+		return driverWriteCount.get();
+	}
+
+	/** @return the number of driver writes saved by coalescing, i.e. {@link #getWriteCount()} less {@link #getDriverWriteCount()} */
+	public long getSavedWriteCount() {
+		return Math.max(writeCount.get() - driverWriteCount.get(), 0);
+	}
+
+	/** @return the number of bytes waiting to be written to the port */
+	public synchronized int getBufferedCount() {
+		return count;
+	}
+
+//> OUTPUTSTREAM METHODS
+	/** @see OutputStream#write(int) */
+	@Override
+	public synchronized void write(int b) throws IOException {
+		throwFlushException();
+		writeCount.incrementAndGet();
+		if(count == buffer.length) flushBuffer();
+		buffer[count++] = (byte) b;
+		bufferChanged();
+	}
+
+	/** @see OutputStream#write(byte[], int, int) */
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+		throwFlushException();
+		if(len == 0) return;
+		writeCount.incrementAndGet();
+		if(len > buffer.length - count) {
+			flushBuffer();
+			if(len >= buffer.length) {
+				driverWriteCount.incrementAndGet();
+				out.write(b, off, len);
+				return;
+			}
+		}
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+		bufferChanged();
+	}
+
+	/** Writes out the buffer straight away, and flushes the port's output stream. */
+	@Override
+	public synchronized void flush() throws IOException {
+		throwFlushException();
+		flushBuffer();
+		out.flush();
+	}
+
+	/** Flushes, then closes the port's output stream. */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Called after bytes are added to the buffer.  Writes it out if it is full, or schedules a delayed flush if the
+	 * bytes are the first in it.  Must be called holding <code>this</code>.
+	 * @throws IOException if thrown by the port's stream
+	 */
+	private void bufferChanged() throws IOException {
+		if(count == buffer.length) {
+			flushBuffer();
+		} else if(pendingFlush == null) {
+			pendingFlush = FLUSH_TIMER.schedule(flushTask, flushDelay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Writes the buffer to the port's stream in one call, and cancels any delayed flush.  Must be called holding <code>this</code>.
+	 * @throws IOException if thrown by the port's stream
+	 */
+	private void flushBuffer() throws IOException {
+		if(pendingFlush != null) {
+			pendingFlush.cancel(false);
+			pendingFlush = null;
+		}
+		if(count > 0) {
+			int length = count;
+			count = 0;
+			driverWriteCount.incrementAndGet();
+			out.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Throws the exception of a failed delayed flush, if there was one.  Must be called holding <code>this</code>.
+	 * @throws IOException the exception thrown by the delayed flush
+	 */
+	private void throwFlushException() throws IOException {
+		IOException ex = flushException;
+		if(ex != null) {
+			flushException = null;
+			throw ex;
+		}
+	}
+}
@@ -20,16 +20,17 @@
 
 package serial;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Vector;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Communications port management.
  * <p>
- * <b>Please note: </b>This is a wrapper around
+ * <b>Please note: </b>This is a wrapper around a {@link BackendPortIdentifier}, e.g.
  * <code>javax.comm.CommPortIdentifier</code> (and so
  * <code>gnu.io.CommPortIdentifier</code>). The API definition is taken from
  * Sun. So honor them!
@@ -54,34 +55,54 @@ import java.util.Vector;
  * 
  * @author gwellisch
  */
-public class CommPortIdentifier extends SerialClassWrapper
+public class CommPortIdentifier
 {
 	/**
 	 * @see gnu.io.CommPortIdentifier#PORT_SERIAL
 	 * @see javax.comm.CommPortIdentifier#PORT_SERIAL
 	 */
-	public static final int PORT_SERIAL;
-	static
-	{
-		Class<?> classCommPortIdentifier = SerialClassFactory.getInstance().forName(CommPortIdentifier.class);
-		try
-		{
-			PORT_SERIAL = ReflectionHelper.getStaticInt(classCommPortIdentifier, "PORT_SERIAL");
-		}
-		catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
-		} catch (NoSuchFieldException e) {
-			throw new RuntimeException(e);
-		}
-	}
+	public static final int PORT_SERIAL = 1;
+
+	/** Directory whose modification time is checked to decide whether the cached port list is stale */
+	private static final File DEV_DIRECTORY = new File("/dev");
+	/** Directory of udev's persistent serial device links, also checked to decide whether the cached port list is stale */
+	private static final File SERIAL_BY_ID_DIRECTORY = new File("/dev/serial/by-id");
+	/** Value returned by {@link #getModificationStamp(File)} for a directory which does not exist */
+	private static final long NO_STAMP = -1;
+	/** Value returned by {@link #getEntryCount(File)} for a directory which does not exist */
+	private static final int NO_ENTRIES = -1;
+	/**
+	 * Resolution in milliseconds of directory modification times.  Linux JDKs before 10 truncate them to the second,
+	 * so a device added in the same second as a listing does not change the stamp.
+	 */
+	private static final long STAMP_RESOLUTION = 1000;
+	
+	/** The most recent list of ports, or <code>null</code> if it must be rebuilt */
+	private static volatile PortListSnapshot portListSnapshot;
+	/** Incremented by {@link #invalidatePortIdentifiers()}, so that a list being built when it is called is not used */
+	private static final AtomicLong INVALIDATION_COUNT = new AtomicLong();
+
+//> INSTANCE PROPERTIES
+	/** The backend's identifier, which all operations are passed to */
+	private final BackendPortIdentifier backendIdentifier;
 
 //> CONSTRUCTORS
-	/** @see SerialClassWrapper#SerialClassWrapper(Object) */
-	private CommPortIdentifier(Object realObject) {
-		super(realObject);
+	/** @param backendIdentifier value for {@link #backendIdentifier} */
+	private CommPortIdentifier(BackendPortIdentifier backendIdentifier) {
+		this.backendIdentifier = backendIdentifier;
 	}
 	
 //> ACCESSORS
+	/**
+	 * @return the reflective backend's identifier which this wraps, e.g. a <code>gnu.io.CommPortIdentifier</code>, or
+	 *   <code>null</code> if the backend is not reflective
+	 * @deprecated the backend's identifier should not be used directly
+	 */
+	@Deprecated
+	public Object getRealObject() {
+		return backendIdentifier instanceof SerialClassWrapper ? ((SerialClassWrapper) backendIdentifier).getRealObject() : null;
+	}
+
 	/**
 	 * Returns the port type.
 	 * 
@@ -90,7 +111,7 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 * @see javax.comm.CommPortIdentifier#getPortType()
 	 */
 	public int getPortType() {
-		return super.invokeWithoutInvocationException(int.class, "getPortType");
+		return backendIdentifier.getPortType();
 	}
 
 	/**
@@ -101,7 +122,7 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 * @see javax.comm.CommPortIdentifier#getName()
 	 */
 	public String getName() {
-		return super.invokeWithoutInvocationException(String.class, "getName");
+		return backendIdentifier.getName();
 	}
 
 	/**
@@ -110,7 +131,7 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 * @see javax.comm.CommPortIdentifier#isCurrentlyOwned()
 	 */
 	public boolean isCurrentlyOwned() {
-		return super.invokeWithoutInvocationException(boolean.class, "isCurrentlyOwned");
+		return backendIdentifier.isCurrentlyOwned();
 	}
 
 	/**
@@ -119,7 +140,7 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 * @see javax.comm.CommPortIdentifier#getCurrentOwner()
 	 */
 	public String getCurrentOwner() {
-		return super.invokeWithoutInvocationException(String.class, "getCurrentOwner");
+		return backendIdentifier.getCurrentOwner();
 	}
 
 	/**
@@ -132,66 +153,87 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 */
 	public SerialPort open(String appname, int timeout) throws PortInUseException
 	{
-		Class<?>[] paramTypes = new Class<?>[] { String.class, int.class };
-		Method method = ReflectionHelper.getMethod(SerialClassFactory.getInstance().forName(CommPortIdentifier.class), "open", paramTypes);
-		try {
-			return new SerialPort(ReflectionHelper.invoke(Object.class, method, this.getRealObject(), appname, timeout));
-		} catch (InvocationTargetException ex) {
-			SerialException.throwIfMatches(PortInUseException.class, ex);
-			throw new IllegalStateException(ex);
+		if(!PortMetricsRegistry.isEnabled()) {
+			return new SerialPort(backendIdentifier.open(appname, timeout));
 		}
+		long start = System.nanoTime();
+		SerialPort port = new SerialPort(backendIdentifier.open(appname, timeout));
+		PortMetrics metrics = PortMetricsRegistry.getOrCreate(getName());
+		metrics.recordOpen(System.nanoTime() - start);
+		port.setMetrics(metrics);
+		return port;
 	}
 
 //> PUBLIC STATIC METHODS
 	/**
 	 * Obtains an enumeration object that contains a
 	 * <code>CommPortIdentifier</code> object for each port in the system.
-	 *
-	 * This method is synchronized to prevent strange things happening when reloading the config via {@link #refreshListIfRequired()}.
+	 * <p>
+	 * The list of ports is cached.  Where the system has a <code>/dev</code> directory, the cache is only
+	 * rebuilt when the modification time of <code>/dev</code> or <code>/dev/serial/by-id</code> or the number of
+	 * entries in <code>/dev/serial/by-id</code> changes, i.e. when a device is added or removed.  As modification
+	 * times may only have a resolution of a second, a list built within a second of a change is not reused, so the
+	 * list is rebuilt on each call until the change is a second old.  Otherwise it is rebuilt on every call, as before.  Calls which find
+	 * the cache up to date do not lock, so do not block each other.
+	 * </p>
 	 * 
 	 * @return <code>Enumeration</code> that can be used to enumerate all the
 	 *         ports known to the system
 	 */
-	@SuppressWarnings("unchecked")
-	public static synchronized Enumeration<CommPortIdentifier> getPortIdentifiers()
-	{		
-		// get the enumeration of real objects
-		Class<?> commPortIdentifierClass = SerialClassFactory.getInstance().forName(CommPortIdentifier.class);
-		refreshListIfRequired(commPortIdentifierClass);
-		Method method = ReflectionHelper.getMethod(commPortIdentifierClass, "getPortIdentifiers");
-		Enumeration list = ReflectionHelper.invokeWithoutInvocationException(Enumeration.class, method, null);
-		
-		// wrap the real objects
-		Vector<CommPortIdentifier> vec = new Vector<CommPortIdentifier>();
-		while (list.hasMoreElements())
-			vec.add(new CommPortIdentifier(list.nextElement()));
-		return vec.elements();
+	public static Enumeration<CommPortIdentifier> getPortIdentifiers()
+	{
+		SerialClassFactory factory = SerialClassFactory.getInstance();
+		PortListSnapshot snapshot = portListSnapshot;
+		if(snapshot == null || !snapshot.isCurrent(factory)) {
+			snapshot = refreshPortListSnapshot(factory);
+		}
+		return Collections.enumeration(snapshot.ports);
 	}
 	
 	/**
-	 * Refresh list of available COM ports.  This method works around a bug with Java COM API
-	 * that leads to ports being cached.  For more info on the bug, you could see
-	 * http://forum.java.sun.com/thread.jspa?threadID=575580&messageID=2986928 but Oracle have
-	 * killed the link :(
-	 * 
-	 * This method should only be called from {@link #getPortIdentifiers()}
+	 * Discards the cached list of ports, so that the next call to {@link #getPortIdentifiers()} asks the
+	 * implementation for the ports again.  This is only needed when ports change without a change to
+	 * <code>/dev</code>, e.g. when the javax.comm properties file is edited.
 	 */
-	private static void refreshListIfRequired(Class<?> commPortIdentifierClass) {
-		if(SerialClassFactory.PACKAGE_JAVAXCOMM.equals(SerialClassFactory.getInstance().getSerialPackageName())) {
-			try {
-				Field masterIdList = commPortIdentifierClass.getDeclaredField("masterIdList");
-				masterIdList.setAccessible(true);
-				masterIdList.set(null, null);
+	public static void invalidatePortIdentifiers() {
+		INVALIDATION_COUNT.incrementAndGet();
+		portListSnapshot = null;
+	}
 	
-				Method loadDriver = commPortIdentifierClass.getDeclaredMethod("loadDriver", String.class);
-				loadDriver.setAccessible(true);
-				loadDriver.invoke(null, SerialClassFactory.javaxCommPropertiesPath);
-			} catch(Exception ex) {
-				System.err.println("There was an error trying to reset javax.comm ports cache: " + ex + " : " + ex.getMessage()); // TODO consider logging this properly?
-			}
+	/**
+	 * Rebuilds {@link #portListSnapshot} from the implementation, unless another thread did so while we were
+	 * waiting for the lock.
+	 * This method is synchronized to prevent strange things happening when a backend reloads its configuration while
+	 * listing, as {@link JavaxCommSerialBackend} does.
+	 * @param factory the factory in use
+	 * @return the current snapshot
+	 */
+	private static synchronized PortListSnapshot refreshPortListSnapshot(SerialClassFactory factory) {
+		PortListSnapshot snapshot = portListSnapshot;
+		if(snapshot != null && snapshot.isCurrent(factory)) {
+			return snapshot;
 		}
+		
+		// Take the stamps and the invalidation count before listing, so that a change during listing causes another refresh
+		long generation = INVALIDATION_COUNT.get();
+		long now = System.currentTimeMillis();
+		long devStamp = getModificationStamp(DEV_DIRECTORY);
+		long serialByIdStamp = getModificationStamp(SERIAL_BY_ID_DIRECTORY);
+		int serialByIdCount = getEntryCount(SERIAL_BY_ID_DIRECTORY);
+		// A later change within the same second as the stamps would not change them
+		boolean settled = now - Math.max(devStamp, serialByIdStamp) >= STAMP_RESOLUTION;
+		
+		// wrap the backend's identifiers
+		List<CommPortIdentifier> ports = new ArrayList<CommPortIdentifier>();
+		for(BackendPortIdentifier backendIdentifier : factory.getBackend().getPortIdentifiers()) {
+			ports.add(new CommPortIdentifier(backendIdentifier));
+		}
+		
+		snapshot = new PortListSnapshot(factory, Collections.unmodifiableList(ports), generation, devStamp, serialByIdStamp, serialByIdCount, settled);
+		portListSnapshot = snapshot;
+		return snapshot;
 	}
-
+	
 	/**
 	 * Obtains a CommPortIdentifier object by using a port name. The port name
 	 * may have been stored in persistent storage by the application.
@@ -205,16 +247,79 @@ public class CommPortIdentifier extends SerialClassWrapper
 	 */
 	public static CommPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException
 	{
-		//get the string of real objects
-		Method method = ReflectionHelper.getMethod(SerialClassFactory.getInstance().forName(CommPortIdentifier.class), "getPortIdentifier", String.class);
-		CommPortIdentifier port;
-		try {
-			port = new CommPortIdentifier(ReflectionHelper.invoke(Object.class, method, null, portName));
-		} catch (InvocationTargetException invocationException) {
-			SerialException.throwIfMatches(NoSuchPortException.class, invocationException);
-			throw new IllegalStateException(invocationException);
+		return new CommPortIdentifier(SerialClassFactory.getInstance().getBackend().getPortIdentifier(portName));
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param directory a directory
+	 * @return the modification time of the directory, or {@link #NO_STAMP} if it does not exist
+	 */
+	private static long getModificationStamp(File directory) {
+		return directory.isDirectory() ? directory.lastModified() : NO_STAMP;
+	}
+
+	/**
+	 * @param directory a directory
+	 * @return the number of entries in the directory, or {@link #NO_ENTRIES} if it does not exist
+	 */
+	private static int getEntryCount(File directory) {
+		String[] entries = directory.list();
+		return entries == null ? NO_ENTRIES : entries.length;
+	}
+
+//> INNER CLASSES
+	/**
+	 * Immutable list of the ports found by {@link CommPortIdentifier#getPortIdentifiers()}, with the state of the
+	 * device directories when it was built.
+	 */
+	private static final class PortListSnapshot {
+		/** The factory in use when the list was built */
+		private final SerialClassFactory factory;
+		/** The ports, in the order the implementation listed them */
+		private final List<CommPortIdentifier> ports;
+		/** Value of {@link CommPortIdentifier#INVALIDATION_COUNT} when the list was started */
+		private final long generation;
+		/** Modification time of {@link CommPortIdentifier#DEV_DIRECTORY} when the list was built */
+		private final long devStamp;
+		/** Modification time of {@link CommPortIdentifier#SERIAL_BY_ID_DIRECTORY} when the list was built */
+		private final long serialByIdStamp;
+		/** Number of entries in {@link CommPortIdentifier#SERIAL_BY_ID_DIRECTORY} when the list was built */
+		private final int serialByIdCount;
+		/** <code>false</code> if the stamps were less than {@link CommPortIdentifier#STAMP_RESOLUTION} old when the list was built */
+		private final boolean settled;
+		
+		/**
+		 * @param factory value for {@link #factory}
+		 * @param ports value for {@link #ports}
+		 * @param generation value for {@link #generation}
+		 * @param devStamp value for {@link #devStamp}
+		 * @param serialByIdStamp value for {@link #serialByIdStamp}
+		 * @param serialByIdCount value for {@link #serialByIdCount}
+		 * @param settled value for {@link #settled}
+		 */
+		PortListSnapshot(SerialClassFactory factory, List<CommPortIdentifier> ports, long generation, long devStamp, long serialByIdStamp, int serialByIdCount, boolean settled) {
+			this.factory = factory;
+			this.ports = ports;
+			this.generation = generation;
+			this.devStamp = devStamp;
+			this.serialByIdStamp = serialByIdStamp;
+			this.serialByIdCount = serialByIdCount;
+			this.settled = settled;
 		}
 		
-		return port;
+		/**
+		 * @param currentFactory the factory now in use
+		 * @return <code>true</code> if this list can still be used; <code>false</code> if it must be rebuilt
+		 */
+		boolean isCurrent(SerialClassFactory currentFactory) {
+			return this.factory == currentFactory
+					&& this.settled
+					&& this.generation == INVALIDATION_COUNT.get()
+					&& this.devStamp != NO_STAMP
+					&& this.devStamp == getModificationStamp(DEV_DIRECTORY)
+					&& this.serialByIdStamp == getModificationStamp(SERIAL_BY_ID_DIRECTORY)
+					&& this.serialByIdCount == getEntryCount(SERIAL_BY_ID_DIRECTORY);
+		}
 	}
 }
@@ -0,0 +1,97 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the reflected {@link Method}s of a single wrapped serial class.
+ * <p>
+ * {@link ReflectionHelper#getMethod(Class, String, Class...)} is comparatively expensive, as it searches
+ * the declared methods of the class and calls {@link Method#setAccessible(boolean)} every time.  A table is
+ * shared by every wrapper instance of the same implementation class, so each method is only resolved once
+ * per class, the first time it is called.
+ * </p>
+ * @author Alex
+ */
+final class DispatchTable {
+//> STATIC CONSTANTS
+	/** Dispatch tables for every implementation class that has been wrapped so far */
+	private static final ConcurrentMap<Class<?>, DispatchTable> TABLES = new ConcurrentHashMap<Class<?>, DispatchTable>();
+
+//> INSTANCE PROPERTIES
+	/** The implementation class whose methods are cached in this table */
+	private final Class<?> wrappedClass;
+	/** Methods of {@link #wrappedClass} that have been resolved so far */
+	private final ConcurrentMap<MethodSignature, Method> methods = new ConcurrentHashMap<MethodSignature, Method>();
+	/** Signatures which {@link #findMethod(MethodSignature)} found were not declared by {@link #wrappedClass} */
+	private final ConcurrentMap<MethodSignature, Boolean> missingMethods = new ConcurrentHashMap<MethodSignature, Boolean>();
+
+//> CONSTRUCTORS
+	/**
+	 * Create a new, empty dispatch table.
+	 * @param wrappedClass value for {@link #wrappedClass}
+	 */
+	private DispatchTable(Class<?> wrappedClass) {
+		this.wrappedClass = wrappedClass;
+	}
+
+//> ACCESSORS
+	/** @return {@link #wrappedClass} */
+	Class<?> getWrappedClass() {
+		return wrappedClass;
+	}
+
+	/**
+	 * Gets the method with the supplied signature, resolving it if this is the first time it has been requested.
+	 * @param signature the signature of the method
+	 * @return the requested {@link Method}, already set accessible
+	 * @throws IllegalStateException if the wrapped class does not declare the requested method
+	 */
+	Method getMethod(MethodSignature signature) {
+		Method method = this.methods.get(signature);
+		if(method == null) {
+			method = ReflectionHelper.getMethod(this.wrappedClass, signature.getName(), signature.getParameterTypes());
+			Method existing = this.methods.putIfAbsent(signature, method);
+			if(existing != null) method = existing;
+		}
+		return method;
+	}
+
+	/**
+	 * Gets the method with the supplied signature if the wrapped class declares it, for methods which only some
+	 * implementations provide.  Absent methods are remembered, so are only searched for once.
+	 * @param signature the signature of the method
+	 * @return the requested {@link Method}, or <code>null</code> if the wrapped class does not declare it
+	 */
+	Method findMethod(MethodSignature signature) {
+		Method method = this.methods.get(signature);
+		if(method == null && !this.missingMethods.containsKey(signature)) {
+			try {
+				method = getMethod(signature);
+			} catch(IllegalStateException ex) {
+				this.missingMethods.put(signature, Boolean.TRUE);
+			}
+		}
+		return method;
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Gets the shared dispatch table for the supplied class, creating it if necessary.
+	 * @param wrappedClass the implementation class
+	 * @return the dispatch table for the class
+	 */
+	static DispatchTable forClass(Class<?> wrappedClass) {
+		DispatchTable table = TABLES.get(wrappedClass);
+		if(table == null) {
+			table = new DispatchTable(wrappedClass);
+			DispatchTable existing = TABLES.putIfAbsent(wrappedClass, table);
+			if(existing != null) table = existing;
+		}
+		return table;
+	}
+}
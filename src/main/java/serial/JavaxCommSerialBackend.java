@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link SerialBackend} for Sun's javax.comm.
+ * @author Alex
+ */
+public class JavaxCommSerialBackend extends ReflectiveSerialBackend {
+//> STATIC CONSTANTS
+	/** Priority of this backend.  javax.comm has historically been preferred over RXTX. */
+	public static final int PRIORITY = 20;
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+
+//> CONSTRUCTORS
+	/** Create a new javax.comm backend. */
+	public JavaxCommSerialBackend() {
+		super(SerialClassFactory.PACKAGE_JAVAXCOMM, PRIORITY, ALL_CAPABILITIES);
+	}
+
+	/**
+	 * Create a new javax.comm backend with a different priority, for subclasses which replace the reflective wrappers.
+	 * @param priority the priority of the backend
+	 */
+	protected JavaxCommSerialBackend(int priority) {
+		super(SerialClassFactory.PACKAGE_JAVAXCOMM, priority, ALL_CAPABILITIES);
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Reloads the javax.comm driver before listing the ports, as javax.comm otherwise never notices ports which
+	 * are added or removed.
+	 * @see ReflectiveSerialBackend#getPortIdentifiers()
+	 */
+	@Override
+	public List<BackendPortIdentifier> getPortIdentifiers() {
+		reloadDriver();
+		return super.getPortIdentifiers();
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Refresh list of available COM ports.  This method works around a bug with Java COM API
+	 * that leads to ports being cached.  For more info on the bug, you could see
+	 * http://forum.java.sun.com/thread.jspa?threadID=575580&messageID=2986928 but Oracle have
+	 * killed the link :(
+	 */
+	private void reloadDriver() {
+		Class<?> commPortIdentifierClass = forName("CommPortIdentifier");
+		try {
+			Field masterIdList = commPortIdentifierClass.getDeclaredField("masterIdList");
+			masterIdList.setAccessible(true);
+			masterIdList.set(null, null);
+
+			Method loadDriver = commPortIdentifierClass.getDeclaredMethod("loadDriver", String.class);
+			loadDriver.setAccessible(true);
+			loadDriver.invoke(null, SerialClassFactory.javaxCommPropertiesPath);
+		} catch(Exception ex) {
+			log.warn("There was an error trying to reset javax.comm ports cache: " + ex + " : " + ex.getMessage());
+		}
+	}
+}
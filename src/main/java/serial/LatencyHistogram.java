@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in the style of HdrHistogram, which threads can record into at once.
+ * <p>
+ * Buckets are one nanosecond wide up to 64ns, and above that each doubling of value is split into 32 buckets, so a
+ * bucket is never wider than 1/32 of its values: any percentile is reported to within about 3%.  Values from 0 to
+ * about 68 seconds are distinguished, and longer ones are counted in the last bucket, though the {@link #getMax()
+ * maximum} is kept exactly.  The whole range takes 1024 buckets, or 8KB.
+ * </p>
+ * <p>
+ * Recording computes the bucket with a few shifts and makes one atomic increment, with no allocation or locking.
+ * Reading a percentile scans the buckets, and may see a recording in progress as partly made.
+ * </p>
+ * @author Alex
+ */
+public final class LatencyHistogram {
+//> STATIC CONSTANTS
+	/** Number of buckets per doubling of value; values below twice this have a bucket each */
+	private static final int SUB_BUCKETS = 32;
+	/** log2 of {@link #SUB_BUCKETS} */
+	private static final int SUB_BUCKET_BITS = 5;
+	/** Number of bits of the largest value distinguished */
+	private static final int MAX_VALUE_BITS = 36;
+	/** Largest value distinguished; larger values are counted as this */
+	private static final long MAX_TRACKED_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	/** Number of buckets */
+	private static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1);
+
+//> INSTANCE PROPERTIES
+	/** Number of values recorded in each bucket */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	/** Largest value recorded */
+	private final AtomicLong max = new AtomicLong();
+
+//> ACCESSORS
+	/** @return the number of values recorded */
+	public long getTotalCount() {
+		long total = 0;
+		for(int i=0; i<BUCKET_COUNT; ++i) total += counts.get(i);
+		return total;
+	}
+
+	/** @return the largest value recorded, in nanoseconds, or <code>0</code> if none has been */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile the percentile, from <code>0</code> to <code>100</code>
+	 * @return the highest value in the bucket containing the percentile, capped at {@link #getMax()}, in nanoseconds,
+	 *   or <code>0</code> if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKET_COUNT];
+		long total = 0;
+		for(int i=0; i<BUCKET_COUNT; ++i) total += snapshot[i] = counts.get(i);
+		if(total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long seen = 0;
+		long maxValue = max.get();
+		for(int i=0; i<BUCKET_COUNT; ++i) {
+			seen += snapshot[i];
+			if(seen >= rank) return Math.min(maxValue, getBucketEnd(i));
+		}
+		return maxValue;
+	}
+
+//> INSTANCE METHODS
+	/** @param nanos a latency, in nanoseconds; negative values are recorded as <code>0</code> */
+	public void record(long nanos) {
+		if(nanos < 0) nanos = 0;
+		counts.getAndIncrement(getBucket(Math.min(nanos, MAX_TRACKED_VALUE)));
+		long current;
+		while(nanos > (current = max.get())) {
+			if(max.compareAndSet(current, nanos)) break;
+		}
+	}
+
+	/** @param other a histogram whose values are added to this one */
+	public void add(LatencyHistogram other) {
+		for(int i=0; i<BUCKET_COUNT; ++i) {
+			long count = other.counts.get(i);
+			if(count != 0) counts.getAndAdd(i, count);
+		}
+		long otherMax = other.max.get();
+		long current;
+		while(otherMax > (current = max.get())) {
+			if(max.compareAndSet(current, otherMax)) break;
+		}
+	}
+
+	/** Discards every value recorded.  Values recorded at the same time may or may not be kept. */
+	public void reset() {
+		for(int i=0; i<BUCKET_COUNT; ++i) counts.set(i, 0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "count=%d p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns", getTotalCount(),
+				getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param value a value from <code>0</code> to {@link #MAX_TRACKED_VALUE}
+	 * @return the bucket the value is counted in
+	 */
+	private static int getBucket(long value) {
+		if(value < 2 * SUB_BUCKETS) return (int) value;
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+		return SUB_BUCKETS * shift + (int) (value >>> shift);
+	}
+
+	/**
+	 * @param bucket a bucket
+	 * @return the highest value counted in the bucket
+	 */
+	private static long getBucketEnd(int bucket) {
+		if(bucket < 2 * SUB_BUCKETS) return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long start = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return start + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bridges {@link BackendEventListener}s to the listener interface of a reflective backend, e.g.
+ * <code>gnu.io.SerialPortEventListener</code>.
+ * <p>
+ * The proxy class implementing the backend's interface, its constructor and the backend's
+ * <code>addEventListener</code> method are all looked up once per backend port class, so registering a listener
+ * costs one constructor call and one method call.  Each event crosses into our code with a single
+ * {@link InvocationHandler#invoke(Object, Method, Object[])}, which reads the fields of the backend event with a
+ * {@link SerialPortEventAccessor} and passes them on.
+ * </p>
+ * @author Alex
+ */
+final class ListenerBridge {
+//> STATIC CONSTANTS
+	/** Bridges for every backend port class that has had a listener added so far */
+	private static final ConcurrentMap<Class<?>, ListenerBridge> BRIDGES = new ConcurrentHashMap<Class<?>, ListenerBridge>();
+
+//> INSTANCE PROPERTIES
+	/** Constructor of the proxy class implementing the backend's listener interface */
+	private final Constructor<?> proxyConstructor;
+	/** The backend port's <code>addEventListener</code> method */
+	private final Method addEventListener;
+
+//> CONSTRUCTORS
+	/**
+	 * @param proxyConstructor value for {@link #proxyConstructor}
+	 * @param addEventListener value for {@link #addEventListener}
+	 */
+	private ListenerBridge(Constructor<?> proxyConstructor, Method addEventListener) {
+		this.proxyConstructor = proxyConstructor;
+		this.addEventListener = addEventListener;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Registers a listener with a backend port.
+	 * @param realPort the backend port
+	 * @param listener the listener to register
+	 * @throws InvocationTargetException if thrown by the backend's <code>addEventListener</code>
+	 * @throws IllegalAccessException if the proxy or backend method could not be accessed
+	 * @throws InstantiationException if the proxy could not be created
+	 */
+	void addEventListener(Object realPort, BackendEventListener listener) throws InvocationTargetException, IllegalAccessException, InstantiationException {
+		Object proxy = proxyConstructor.newInstance(new Handler(listener));
+		addEventListener.invoke(realPort, proxy);
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Gets the bridge for a backend port class, creating it if necessary.
+	 * @param portClass the backend's <code>SerialPort</code> class
+	 * @return the bridge for the class
+	 * @throws NoSuchMethodException if the proxy class has no {@link InvocationHandler} constructor
+	 */
+	static ListenerBridge forPortClass(Class<?> portClass) throws NoSuchMethodException {
+		ListenerBridge bridge = BRIDGES.get(portClass);
+		if(bridge == null) {
+			// The exact interface argument type (javax.comm.SerialPortEventListener or gnu.io.SerialPortEventListener)
+			// is that of the port's addEventListener method
+			Method addEventListener = getAddEventListenerMethod(portClass);
+			Class<?> listenerClass = addEventListener.getParameterTypes()[0];
+			Class<?> proxyClass = Proxy.getProxyClass(listenerClass.getClassLoader(), listenerClass);
+			bridge = new ListenerBridge(proxyClass.getConstructor(InvocationHandler.class), addEventListener);
+			ListenerBridge existing = BRIDGES.putIfAbsent(portClass, bridge);
+			if(existing != null) bridge = existing;
+		}
+		return bridge;
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param portClass the backend's <code>SerialPort</code> class
+	 * @return the class's public <code>addEventListener</code> method which takes a single listener interface
+	 * @throws NoSuchMethodException if the class has no such method
+	 */
+	private static Method getAddEventListenerMethod(Class<?> portClass) throws NoSuchMethodException {
+		for(Method method : portClass.getMethods()) {
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			if(method.getName().equals("addEventListener") && parameterTypes.length == 1 && parameterTypes[0].isInterface()) {
+				return method;
+			}
+		}
+		throw new NoSuchMethodException(portClass.getName() + ".addEventListener");
+	}
+
+//> INNER CLASSES
+	/**
+	 * {@link BackendEventListener} which is also passed the backend's event, for {@link SerialPortEvent#getRealObject()}.
+	 */
+	interface RealEventListener extends BackendEventListener {
+		/**
+		 * Called instead of {@link BackendEventListener#serialEvent(int, boolean, boolean)} by a reflective backend.
+		 * @param realEvent the backend's event
+		 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+		 * @param oldValue the old value of the state which changed
+		 * @param newValue the new value of the state which changed
+		 */
+		public void serialEvent(Object realEvent, int eventType, boolean oldValue, boolean newValue);
+	}
+
+	/**
+	 * Passes the events received by a backend listener proxy on to one of our listeners.
+	 */
+	private static final class Handler implements InvocationHandler {
+		/** The listener events are passed to */
+		private final BackendEventListener listener;
+		/** Accessor for the backend's event class, created when the first event arrives */
+		private volatile SerialPortEventAccessor eventAccessor;
+
+		/** @param listener value for {@link #listener} */
+		Handler(BackendEventListener listener) {
+			this.listener = listener;
+		}
+
+		/**
+		 * The backend interface has a single method, taking the event, so any call which is not to a method of
+		 * {@link Object} is an event.
+		 * @see InvocationHandler#invoke(Object, Method, Object[])
+		 */
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if(method.getDeclaringClass() == Object.class) {
+				return invokeObjectMethod(proxy, method, args);
+			}
+			Object realEvent = args[0];
+			SerialPortEventAccessor accessor = eventAccessor;
+			if(accessor == null || !accessor.accepts(realEvent)) {
+				accessor = new SerialPortEventAccessor(realEvent.getClass());
+				eventAccessor = accessor;
+			}
+			if(listener instanceof RealEventListener) {
+				((RealEventListener) listener).serialEvent(realEvent, accessor.getEventType(realEvent), accessor.getOldValue(realEvent), accessor.getNewValue(realEvent));
+			} else {
+				listener.serialEvent(accessor.getEventType(realEvent), accessor.getOldValue(realEvent), accessor.getNewValue(realEvent));
+			}
+			// The original interface is void
+			return null;
+		}
+
+		/**
+		 * Implements the methods of {@link Object} for the proxy.
+		 * @param proxy the proxy
+		 * @param method <code>equals</code>, <code>hashCode</code> or <code>toString</code>
+		 * @param args the arguments of the call
+		 * @return the result of the call
+		 */
+		private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if(name.equals("equals")) return Boolean.valueOf(proxy == args[0]);
+			if(name.equals("hashCode")) return Integer.valueOf(System.identityHashCode(proxy));
+			return "ListenerBridge[" + listener + "]";
+		}
+	}
+}
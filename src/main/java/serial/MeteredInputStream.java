@@ -0,0 +1,43 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream of a port which records its reads in the port's {@link PortMetrics}.
+ * @author Alex
+ */
+class MeteredInputStream extends FilterInputStream {
+//> INSTANCE PROPERTIES
+	/** The metrics reads are recorded in */
+	private final PortMetrics metrics;
+
+//> CONSTRUCTORS
+	/**
+	 * @param in the port's input stream
+	 * @param metrics value for {@link #metrics}
+	 */
+	MeteredInputStream(InputStream in, PortMetrics metrics) {
+		super(in);
+		this.metrics = metrics;
+	}
+
+//> INPUTSTREAM METHODS
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		metrics.recordRead(b < 0 ? 0 : 1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		metrics.recordRead(n);
+		return n;
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream of a port which records its writes in the port's {@link PortMetrics}.  Unlike
+ * {@link FilterOutputStream}, arrays are passed to the port in one write rather than a byte at a time.
+ * @author Alex
+ */
+class MeteredOutputStream extends FilterOutputStream {
+//> INSTANCE PROPERTIES
+	/** The metrics writes are recorded in */
+	private final PortMetrics metrics;
+
+//> CONSTRUCTORS
+	/**
+	 * @param out the port's output stream
+	 * @param metrics value for {@link #metrics}
+	 */
+	MeteredOutputStream(OutputStream out, PortMetrics metrics) {
+		super(out);
+		this.metrics = metrics;
+	}
+
+//> OUTPUTSTREAM METHODS
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		metrics.recordWrite(1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		metrics.recordWrite(len);
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Channel of a port, provided by its backend, which records its reads and writes in the port's {@link PortMetrics}.
+ * Channels adapted from the port's streams need no wrapping, as the streams are already metered.
+ * @author Alex
+ */
+class MeteredSerialChannel implements SerialChannel {
+//> INSTANCE PROPERTIES
+	/** The backend's channel */
+	private final SerialChannel channel;
+	/** The metrics reads and writes are recorded in */
+	private final PortMetrics metrics;
+
+//> CONSTRUCTORS
+	/**
+	 * @param channel value for {@link #channel}
+	 * @param metrics value for {@link #metrics}
+	 */
+	MeteredSerialChannel(SerialChannel channel, PortMetrics metrics) {
+		this.channel = channel;
+		this.metrics = metrics;
+	}
+
+//> CHANNEL METHODS
+	/** @see java.nio.channels.Channel#isOpen() */
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	/** @see java.nio.channels.Channel#close() */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/** @see java.nio.channels.ReadableByteChannel#read(ByteBuffer) */
+	public int read(ByteBuffer dst) throws IOException {
+		int n = channel.read(dst);
+		metrics.recordRead(n);
+		return n;
+	}
+
+	/** @see java.nio.channels.ScatteringByteChannel#read(ByteBuffer[], int, int) */
+	public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+		long n = channel.read(dsts, offset, length);
+		metrics.recordRead((int) Math.min(n, Integer.MAX_VALUE));
+		return n;
+	}
+
+	/** @see java.nio.channels.ScatteringByteChannel#read(ByteBuffer[]) */
+	public long read(ByteBuffer[] dsts) throws IOException {
+		return read(dsts, 0, dsts.length);
+	}
+
+	/** @see java.nio.channels.WritableByteChannel#write(ByteBuffer) */
+	public int write(ByteBuffer src) throws IOException {
+		int n = channel.write(src);
+		metrics.recordWrite(n);
+		return n;
+	}
+
+	/** @see java.nio.channels.GatheringByteChannel#write(ByteBuffer[], int, int) */
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long n = channel.write(srcs, offset, length);
+		metrics.recordWrite((int) Math.min(n, Integer.MAX_VALUE));
+		return n;
+	}
+
+	/** @see java.nio.channels.GatheringByteChannel#write(ByteBuffer[]) */
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+}
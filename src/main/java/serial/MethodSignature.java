@@ -0,0 +1,58 @@
+/**
+ *
+ */
+package serial;
+
+/**
+ * Name and parameter types of a method on a wrapped serial class.
+ * <p>
+ * Signatures are declared once as static constants by the wrapper classes and are then used as keys
+ * into a {@link DispatchTable}.  They are compared by identity, so a signature should never be created
+ * on the hot path.
+ * </p>
+ * @author Alex
+ */
+final class MethodSignature {
+//> STATIC CONSTANTS
+	/** Parameter types for a method which takes no arguments */
+	private static final Class<?>[] NO_PARAMETERS = new Class<?>[0];
+
+//> INSTANCE PROPERTIES
+	/** The name of the method */
+	private final String name;
+	/** The parameter types of the method */
+	private final Class<?>[] parameterTypes;
+
+//> CONSTRUCTORS
+	/**
+	 * Declare a new method signature.
+	 * @param name value for {@link #name}
+	 * @param parameterTypes value for {@link #parameterTypes}
+	 */
+	MethodSignature(String name, Class<?>... parameterTypes) {
+		if(name == null) throw new IllegalStateException("Method name must not be null.");
+		this.name = name;
+		this.parameterTypes = parameterTypes.length == 0 ? NO_PARAMETERS : parameterTypes.clone();
+	}
+
+//> ACCESSORS
+	/** @return {@link #name} */
+	String getName() {
+		return name;
+	}
+
+	/** @return a copy of {@link #parameterTypes} */
+	Class<?>[] getParameterTypes() {
+		return parameterTypes.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder bob = new StringBuilder(name).append('(');
+		for(int i=0; i<parameterTypes.length; ++i) {
+			if(i > 0) bob.append(", ");
+			bob.append(parameterTypes[i].getSimpleName());
+		}
+		return bob.append(')').toString();
+	}
+}
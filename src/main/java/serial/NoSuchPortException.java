@@ -19,6 +19,11 @@ public class NoSuchPortException extends SerialException {
 		super(cause);
 	}
 
+	/** @see SerialException#SerialException(String) */
+	public NoSuchPortException(String message) {
+		super(message);
+	}
+
 //> ACCESSORS
 
 //> INSTANCE HELPER METHODS
@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.EventObject;
+
+/**
+ * Event raised by a {@link PortDiscoveryWatcher} when a serial port is added to or removed from the system.
+ * <p>
+ * For USB devices, the USB descriptor fields are included where sysfs provides them.  They are <code>null</code>
+ * for other devices, and for removed devices whose sysfs entries had already gone when the removal was seen.
+ * </p>
+ * @author Alex
+ */
+@SuppressWarnings("serial")
+public class PortDiscoveryEvent extends EventObject {
+//> STATIC CONSTANTS
+	/** A port has been added. */
+	public static final int PORT_ADDED = 1;
+	/** A port has been removed. */
+	public static final int PORT_REMOVED = 2;
+
+//> INSTANCE PROPERTIES
+	/** The type of this event, {@link #PORT_ADDED} or {@link #PORT_REMOVED} */
+	private final int eventType;
+	/** The name of the port, as used by {@link CommPortIdentifier#getPortIdentifier(String)} */
+	private final String portName;
+	/** The USB device the port belongs to, or <code>null</code> */
+	private final UsbDeviceInfo usbDevice;
+
+//> CONSTRUCTORS
+	/**
+	 * @param source the watcher which raised this event
+	 * @param eventType value for {@link #eventType}
+	 * @param portName value for {@link #portName}
+	 * @param usbDevice value for {@link #usbDevice}
+	 */
+	public PortDiscoveryEvent(PortDiscoveryWatcher source, int eventType, String portName, UsbDeviceInfo usbDevice) {
+		super(source);
+		this.eventType = eventType;
+		this.portName = portName;
+		this.usbDevice = usbDevice;
+	}
+
+//> ACCESSORS
+	/** @return {@link #eventType} */
+	public int getEventType() {
+		return eventType;
+	}
+
+	/** @return {@link #portName} */
+	public String getPortName() {
+		return portName;
+	}
+
+	/** @return {@link #usbDevice} */
+	public UsbDeviceInfo getUsbDevice() {
+		return usbDevice;
+	}
+
+	@Override
+	public String toString() {
+		return (eventType == PORT_ADDED ? "PORT_ADDED " : "PORT_REMOVED ") + portName + (usbDevice == null ? "" : " " + usbDevice);
+	}
+}
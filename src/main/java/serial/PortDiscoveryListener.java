@@ -0,0 +1,18 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.EventListener;
+
+/**
+ * Listener for serial ports being added to or removed from the system, registered with a {@link PortDiscoveryWatcher}.
+ * @author Alex
+ */
+public interface PortDiscoveryListener extends EventListener {
+	/**
+	 * Called on the watcher's thread when a port is added or removed.
+	 * @param event the event describing the change
+	 */
+	public void portDiscoveryEvent(PortDiscoveryEvent event);
+}
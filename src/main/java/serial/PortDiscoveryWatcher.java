@@ -0,0 +1,284 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Watches for serial ports being added to and removed from a Linux system, and notifies {@link PortDiscoveryListener}s.
+ * <p>
+ * The watcher thread checks the modification times of the device directory and of the sysfs tty class directory,
+ * and the number of entries in the latter, every poll interval.  Only when one of them changes is the sysfs tty
+ * class directory scanned and compared with the ports seen before.  Sysfs directory modification times do not change
+ * on hotplug, and device directory modification times may only have a resolution of a second, so a second device
+ * appearing in the same second as the last scan might change none of them; the watcher therefore keeps scanning on
+ * every poll until the last change is a second old.  A port is any entry of the sysfs tty class
+ * directory with a <code>device</code> link, i.e. one backed by real hardware rather than a virtual console or
+ * pseudo-terminal.
+ * </p>
+ * <p>
+ * Both directories can be supplied to the constructor, so that a fake sysfs tree can be used for testing.
+ * </p>
+ * @author Alex
+ */
+public class PortDiscoveryWatcher {
+//> STATIC CONSTANTS
+	/** Default sysfs tty class directory */
+	public static final File DEFAULT_SYSFS_TTY_DIRECTORY = new File("/sys/class/tty");
+	/** Default device directory */
+	public static final File DEFAULT_DEV_DIRECTORY = new File("/dev");
+	/** Default number of milliseconds between checks for changes */
+	public static final long DEFAULT_POLL_INTERVAL = 20;
+	/** Maximum number of directories to search above a tty's device for the USB device attributes */
+	private static final int MAX_USB_SEARCH_DEPTH = 4;
+	/** Resolution in milliseconds of directory modification times, which Linux JDKs before 10 truncate to the second */
+	private static final long STAMP_RESOLUTION = 1000;
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The sysfs tty class directory */
+	private final File sysfsTtyDirectory;
+	/** The device directory, in which the ports' device files appear */
+	private final File devDirectory;
+	/** Number of milliseconds between checks for changes */
+	private final long pollInterval;
+	/** Listeners to notify of changes */
+	private final List<PortDiscoveryListener> listeners = new CopyOnWriteArrayList<PortDiscoveryListener>();
+	/** Ports currently present, keyed by tty name, with their USB device where known.  Only accessed by the watcher thread once started. */
+	private final Map<String, UsbDeviceInfo> ports = new HashMap<String, UsbDeviceInfo>();
+	/** Names of the ports currently present, for {@link #getPortNames()} */
+	private volatile Set<String> portNames = Collections.emptySet();
+	/** The thread checking for changes, or <code>null</code> if not started */
+	private Thread thread;
+	/** Set <code>true</code> when {@link #stop()} is called */
+	private volatile boolean stopped;
+	/** Modification time of {@link #devDirectory} at the last scan */
+	private long devStamp;
+	/** Modification time of {@link #sysfsTtyDirectory} at the last scan */
+	private long sysfsStamp;
+	/** Number of entries in {@link #sysfsTtyDirectory} at the last scan */
+	private int sysfsCount;
+	/** <code>false</code> if the last scan was within {@link #STAMP_RESOLUTION} of the stamps, so may have missed a change */
+	private boolean settled;
+
+//> CONSTRUCTORS
+	/**
+	 * Creates a watcher for the real system directories, with the {@link #DEFAULT_POLL_INTERVAL}.
+	 */
+	public PortDiscoveryWatcher() {
+		this(DEFAULT_SYSFS_TTY_DIRECTORY, DEFAULT_DEV_DIRECTORY, DEFAULT_POLL_INTERVAL);
+	}
+
+	/**
+	 * @param sysfsTtyDirectory value for {@link #sysfsTtyDirectory}
+	 * @param devDirectory value for {@link #devDirectory}
+	 * @param pollInterval value for {@link #pollInterval}
+	 */
+	public PortDiscoveryWatcher(File sysfsTtyDirectory, File devDirectory, long pollInterval) {
+		if(pollInterval < 1) throw new IllegalArgumentException("Poll interval must be at least 1ms: " + pollInterval);
+		this.sysfsTtyDirectory = sysfsTtyDirectory;
+		this.devDirectory = devDirectory;
+		this.pollInterval = pollInterval;
+	}
+
+//> ACCESSORS
+	/** @param listener listener to add */
+	public void addListener(PortDiscoveryListener listener) {
+		listeners.add(listener);
+	}
+
+	/** @param listener listener to remove */
+	public void removeListener(PortDiscoveryListener listener) {
+		listeners.remove(listener);
+	}
+
+	/** @return the names of the ports present at the last scan, as paths in the device directory */
+	public Set<String> getPortNames() {
+		return portNames;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Scans for the ports currently present, without raising events for them, and starts watching for changes.
+	 */
+	public synchronized void start() {
+		if(thread != null) throw new IllegalStateException("Already started.");
+		updateStamps();
+		scan(false);
+		thread = new Thread("PortDiscoveryWatcher") {
+			@Override
+			public void run() {
+				watch();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Stops watching for changes. */
+	public synchronized void stop() {
+		stopped = true;
+		if(thread != null) thread.interrupt();
+	}
+
+//> INSTANCE HELPER METHODS
+	/** Checks for changes every {@link #pollInterval} until stopped. */
+	private void watch() {
+		while(!stopped) {
+			try {
+				Thread.sleep(pollInterval);
+			} catch(InterruptedException ex) {
+				continue;
+			}
+			if(!settled || devDirectory.lastModified() != devStamp || sysfsTtyDirectory.lastModified() != sysfsStamp
+					|| getEntryCount(sysfsTtyDirectory) != sysfsCount) {
+				updateStamps();
+				try {
+					scan(true);
+				} catch(RuntimeException ex) {
+					log.warn("Failed to scan for serial ports.", ex);
+				}
+			}
+		}
+	}
+
+	/** Records the state of the directories before a scan. */
+	private void updateStamps() {
+		long now = System.currentTimeMillis();
+		devStamp = devDirectory.lastModified();
+		sysfsStamp = sysfsTtyDirectory.lastModified();
+		sysfsCount = getEntryCount(sysfsTtyDirectory);
+		// A later change within the same second as the stamps would not change them
+		settled = now - Math.max(devStamp, sysfsStamp) >= STAMP_RESOLUTION;
+	}
+
+	/**
+	 * Lists the ports present and compares them with those seen before.
+	 * @param notify <code>true</code> if listeners should be told about the differences
+	 */
+	private void scan(boolean notify) {
+		Set<String> current = new TreeSet<String>();
+		String[] ttyNames = sysfsTtyDirectory.list();
+		if(ttyNames != null) {
+			for(String ttyName : ttyNames) {
+				if(new File(new File(sysfsTtyDirectory, ttyName), "device").exists()) current.add(ttyName);
+			}
+		}
+
+		// Publish the names first, so that listeners see them
+		Set<String> names = new TreeSet<String>();
+		for(String ttyName : current) names.add(getPortName(ttyName));
+		portNames = Collections.unmodifiableSet(names);
+
+		for(String ttyName : new TreeSet<String>(ports.keySet())) {
+			if(!current.contains(ttyName)) {
+				UsbDeviceInfo usbDevice = ports.remove(ttyName);
+				if(notify) fire(PortDiscoveryEvent.PORT_REMOVED, ttyName, usbDevice);
+			}
+		}
+		for(String ttyName : current) {
+			if(!ports.containsKey(ttyName)) {
+				UsbDeviceInfo usbDevice = readUsbDevice(ttyName);
+				ports.put(ttyName, usbDevice);
+				if(notify) fire(PortDiscoveryEvent.PORT_ADDED, ttyName, usbDevice);
+			}
+		}
+	}
+
+	/**
+	 * Notifies all listeners of a change.
+	 * @param eventType the event type
+	 * @param ttyName the name of the tty which changed
+	 * @param usbDevice the USB device of the tty, or <code>null</code>
+	 */
+	private void fire(int eventType, String ttyName, UsbDeviceInfo usbDevice) {
+		PortDiscoveryEvent event = new PortDiscoveryEvent(this, eventType, getPortName(ttyName), usbDevice);
+		for(PortDiscoveryListener listener : listeners) {
+			try {
+				listener.portDiscoveryEvent(event);
+			} catch(RuntimeException ex) {
+				log.warn("Port discovery listener threw an exception.", ex);
+			}
+		}
+	}
+
+	/**
+	 * @param ttyName the name of a tty, e.g. <code>ttyUSB0</code>
+	 * @return the path of its device file, e.g. <code>/dev/ttyUSB0</code>
+	 */
+	private String getPortName(String ttyName) {
+		return new File(devDirectory, ttyName).getPath();
+	}
+
+	/**
+	 * Finds the USB device of a tty by searching upwards from its sysfs device directory for the USB attributes.
+	 * @param ttyName the name of the tty
+	 * @return the USB device, or <code>null</code> if the tty does not belong to one
+	 */
+	private UsbDeviceInfo readUsbDevice(String ttyName) {
+		File directory;
+		try {
+			directory = new File(new File(sysfsTtyDirectory, ttyName), "device").getCanonicalFile();
+		} catch(IOException ex) {
+			return null;
+		}
+		for(int depth=0; directory != null && depth<=MAX_USB_SEARCH_DEPTH; ++depth) {
+			String vendorId = readAttribute(directory, "idVendor");
+			if(vendorId != null) {
+				return new UsbDeviceInfo(vendorId,
+						readAttribute(directory, "idProduct"),
+						readAttribute(directory, "serial"),
+						readAttribute(directory, "manufacturer"),
+						readAttribute(directory, "product"));
+			}
+			directory = directory.getParentFile();
+		}
+		return null;
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param directory a directory
+	 * @return the number of entries in the directory, or <code>-1</code> if it could not be listed
+	 */
+	private static int getEntryCount(File directory) {
+		String[] entries = directory.list();
+		return entries == null ? -1 : entries.length;
+	}
+
+	/**
+	 * @param directory a sysfs directory
+	 * @param name the name of an attribute file in the directory
+	 * @return the first line of the attribute, trimmed, or <code>null</code> if it could not be read
+	 */
+	private static String readAttribute(File directory, String name) {
+		File file = new File(directory, name);
+		if(!file.isFile()) return null;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				String line = reader.readLine();
+				return line == null ? null : line.trim();
+			} finally {
+				reader.close();
+			}
+		} catch(IOException ex) {
+			return null;
+		}
+	}
+}
@@ -18,6 +18,11 @@ public class PortInUseException extends SerialException {
 		super(cause);
 	}
 
+	/** @see SerialException#SerialException(String) */
+	public PortInUseException(String message) {
+		super(message);
+	}
+
 //> ACCESSORS
 
 //> INSTANCE HELPER METHODS
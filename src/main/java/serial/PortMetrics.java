@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms for one port, kept by {@link PortMetricsRegistry} while metrics are enabled.
+ * <p>
+ * Reads and writes are counted by the streams and channel of a {@link SerialPort}, whichever is used, as the calls
+ * reach the driver: bytes gathered by a {@link CoalescingOutputStream} count as one write.  Events are counted by type
+ * as the port's {@link SerialPortEventDispatcher} receives them, so only while it has listeners, and error events such
+ * as {@link SerialPortEvent#FE} only once notification of them is enabled.  Metrics are kept by port name, so they
+ * accumulate over every time the port is opened.
+ * </p>
+ * <p>
+ * The write-to-first-byte latency is the time from the last write to the next byte read, i.e. the response time of a
+ * device which answers each request.  Unsolicited input which arrives in between is counted as the response.  Input
+ * arriving more than {@link #RESPONSE_WINDOW} after the last write is not counted, so a write which gets no
+ * response does not show up later as one very slow response.  The event dispatch latency is the time from the dispatcher receiving an event to its
+ * delivery to a listener, for listeners which are not {@link SerialPortPrimitiveListener}s.
+ * </p>
+ * <p>
+ * Recording uses {@link StripedCounter}s and {@link LatencyHistogram}s, and so costs a few nanoseconds without
+ * locking or allocation; only write-to-first-byte tracking reads the clock on the I/O path.
+ * </p>
+ * @author Alex
+ */
+public final class PortMetrics {
+//> STATIC CONSTANTS
+	/** Number of event types counted, indexed by the constants of {@link SerialPortEvent} */
+	private static final int EVENT_TYPE_COUNT = SerialPortEvent.BI + 1;
+	/** Nanoseconds after a write within which the next byte read is counted as its response */
+	private static final long RESPONSE_WINDOW = TimeUnit.SECONDS.toNanos(60);
+
+//> INSTANCE PROPERTIES
+	/** The name of the port */
+	private final String name;
+	/** Number of bytes read */
+	private final StripedCounter bytesRead = new StripedCounter();
+	/** Number of bytes written */
+	private final StripedCounter bytesWritten = new StripedCounter();
+	/** Number of reads made, including those which returned no bytes */
+	private final StripedCounter readCount = new StripedCounter();
+	/** Number of writes made */
+	private final StripedCounter writeCount = new StripedCounter();
+	/** Number of events received, indexed by event type */
+	private final StripedCounter[] eventCounts = new StripedCounter[EVENT_TYPE_COUNT];
+	/** Number of times the port has been opened */
+	private final StripedCounter openCount = new StripedCounter();
+	/** Number of times the port has been closed */
+	private final StripedCounter closeCount = new StripedCounter();
+	/** Time taken by the driver to open the port */
+	private final LatencyHistogram openDurations = new LatencyHistogram();
+	/** Time taken by the driver to close the port */
+	private final LatencyHistogram closeDurations = new LatencyHistogram();
+	/** Time from the last write to the next byte read */
+	private final LatencyHistogram writeToFirstByteLatencies = new LatencyHistogram();
+	/** Time from an event being received to its delivery to a listener */
+	private final LatencyHistogram eventDispatchLatencies = new LatencyHistogram();
+	/** {@link System#nanoTime()} of the last write since the last byte was read, or <code>0</code> if there has been none */
+	private final AtomicLong pendingWriteNanos = new AtomicLong();
+
+//> CONSTRUCTORS
+	/** @param name value for {@link #name} */
+	PortMetrics(String name) {
+		this.name = name;
+		for(int i=0; i<EVENT_TYPE_COUNT; ++i) eventCounts[i] = new StripedCounter();
+	}
+
+//> ACCESSORS
+	/** @return {@link #name} */
+	public String getName() {
+		return name;
+	}
+
+	/** @return the number of bytes read */
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/** @return the number of bytes written */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/** @return the number of reads made, including those which returned no bytes */
+	public long getReadCount() {
+		return readCount.sum();
+	}
+
+	/** @return the number of writes made */
+	public long getWriteCount() {
+		return writeCount.sum();
+	}
+
+	/**
+	 * @param eventType one of the event type constants of {@link SerialPortEvent}
+	 * @return the number of events of the type received
+	 */
+	public long getEventCount(int eventType) {
+		return eventType >= 0 && eventType < EVENT_TYPE_COUNT ? eventCounts[eventType].sum() : 0;
+	}
+
+	/** @return the number of {@link SerialPortEvent#FE} events received */
+	public long getFramingErrorCount() {
+		return getEventCount(SerialPortEvent.FE);
+	}
+
+	/** @return the number of {@link SerialPortEvent#OE} events received */
+	public long getOverrunErrorCount() {
+		return getEventCount(SerialPortEvent.OE);
+	}
+
+	/** @return the number of {@link SerialPortEvent#PE} events received */
+	public long getParityErrorCount() {
+		return getEventCount(SerialPortEvent.PE);
+	}
+
+	/** @return the number of times the port has been opened */
+	public long getOpenCount() {
+		return openCount.sum();
+	}
+
+	/** @return the number of times the port has been closed */
+	public long getCloseCount() {
+		return closeCount.sum();
+	}
+
+	/** @return {@link #openDurations} */
+	public LatencyHistogram getOpenDurations() {
+		return openDurations;
+	}
+
+	/** @return {@link #closeDurations} */
+	public LatencyHistogram getCloseDurations() {
+		return closeDurations;
+	}
+
+	/** @return {@link #writeToFirstByteLatencies} */
+	public LatencyHistogram getWriteToFirstByteLatencies() {
+		return writeToFirstByteLatencies;
+	}
+
+	/** @return {@link #eventDispatchLatencies} */
+	public LatencyHistogram getEventDispatchLatencies() {
+		return eventDispatchLatencies;
+	}
+
+//> INSTANCE METHODS
+	/** Resets every counter and histogram. */
+	public void reset() {
+		bytesRead.reset();
+		bytesWritten.reset();
+		readCount.reset();
+		writeCount.reset();
+		for(StripedCounter counter : eventCounts) counter.reset();
+		openCount.reset();
+		closeCount.reset();
+		openDurations.reset();
+		closeDurations.reset();
+		writeToFirstByteLatencies.reset();
+		eventDispatchLatencies.reset();
+		pendingWriteNanos.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + name + ": read " + getBytesRead() + "B in " + getReadCount()
+				+ ", written " + getBytesWritten() + "B in " + getWriteCount()
+				+ ", FE " + getFramingErrorCount() + ", OE " + getOverrunErrorCount() + ", PE " + getParityErrorCount()
+				+ ", write-to-first-byte {" + writeToFirstByteLatencies + "}]";
+	}
+
+//> RECORDING METHODS
+	/** @param bytes the number of bytes returned by a read; <code>0</code> or negative if none */
+	void recordRead(int bytes) {
+		readCount.increment();
+		if(bytes > 0) {
+			bytesRead.add(bytes);
+			long writeNanos = pendingWriteNanos.get();
+			if(writeNanos != 0 && pendingWriteNanos.compareAndSet(writeNanos, 0)) {
+				long latency = System.nanoTime() - writeNanos;
+				if(latency <= RESPONSE_WINDOW) writeToFirstByteLatencies.record(latency);
+			}
+		}
+	}
+
+	/** @param bytes the number of bytes written */
+	void recordWrite(int bytes) {
+		writeCount.increment();
+		bytesWritten.add(bytes);
+		long now = System.nanoTime();
+		// 0 means no write is pending, so a clock reading of exactly 0 is nudged
+		pendingWriteNanos.set(now != 0 ? now : 1);
+	}
+
+	/** @param eventType the type of an event received */
+	void recordEvent(int eventType) {
+		if(eventType >= 0 && eventType < EVENT_TYPE_COUNT) eventCounts[eventType].increment();
+	}
+
+	/** @param latency nanoseconds from an event being received to its delivery to a listener */
+	void recordDispatch(long latency) {
+		eventDispatchLatencies.record(latency);
+	}
+
+	/** @param duration nanoseconds taken by the driver to open the port */
+	void recordOpen(long duration) {
+		openCount.increment();
+		openDurations.record(duration);
+	}
+
+	/** @param duration nanoseconds taken by the driver to close the port */
+	void recordClose(long duration) {
+		closeCount.increment();
+		closeDurations.record(duration);
+	}
+}
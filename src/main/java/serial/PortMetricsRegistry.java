@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link PortMetrics} of every port, by port name.
+ * <p>
+ * Metrics are disabled by default, and can be enabled with {@link #setEnabled(boolean)} or by setting the system
+ * property <code>serial.metrics</code> to <code>true</code>.  Only ports opened while metrics are enabled are
+ * measured, for as long as they stay open; ports opened while disabled cost nothing extra.
+ * </p>
+ * @author Alex
+ */
+public final class PortMetricsRegistry {
+//> STATIC CONSTANTS
+	/** System property which enables metrics from startup */
+	public static final String PROPERTY_ENABLED = "serial.metrics";
+	/** Metrics of every port measured, by port name */
+	private static final ConcurrentMap<String, PortMetrics> METRICS = new ConcurrentHashMap<String, PortMetrics>();
+
+//> STATIC PROPERTIES
+	/** <code>true</code> if ports opened now are measured */
+	private static volatile boolean enabled = Boolean.getBoolean(PROPERTY_ENABLED);
+
+//> CONSTRUCTORS
+	/** Not instantiable. */
+	private PortMetricsRegistry() {}
+
+//> STATIC METHODS
+	/** @return <code>true</code> if ports opened now are measured */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/** @param enable <code>true</code> to measure ports opened from now on, <code>false</code> to stop measuring newly opened ports */
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * @param portName the name of a port
+	 * @return the port's metrics, or <code>null</code> if it has not been measured
+	 */
+	public static PortMetrics get(String portName) {
+		return METRICS.get(portName);
+	}
+
+	/** @return the metrics of every port measured, sorted by port name */
+	public static List<PortMetrics> getAll() {
+		return new ArrayList<PortMetrics>(new TreeMap<String, PortMetrics>(METRICS).values());
+	}
+
+	/**
+	 * Forgets a port's metrics.  If the port is open, it carries on recording into the forgotten metrics.
+	 * @param portName the name of a port
+	 * @return the metrics removed, or <code>null</code> if there were none
+	 */
+	public static PortMetrics remove(String portName) {
+		return METRICS.remove(portName);
+	}
+
+	/** Forgets the metrics of every port. */
+	public static void clear() {
+		METRICS.clear();
+	}
+
+	/**
+	 * @param portName the name of a port being opened
+	 * @return the port's metrics, created if necessary
+	 */
+	static PortMetrics getOrCreate(String portName) {
+		PortMetrics metrics = METRICS.get(portName);
+		if(metrics == null) {
+			metrics = new PortMetrics(portName);
+			PortMetrics existing = METRICS.putIfAbsent(portName, metrics);
+			if(existing != null) metrics = existing;
+		}
+		return metrics;
+	}
+}
@@ -34,6 +34,9 @@ import java.lang.reflect.Method;
  */
 public class ReflectionHelper
 {
+	/** Empty argument array, for passing to methods without parameters without allocating a new array each time. */
+	static final Object[] NO_ARGUMENTS = new Object[0];
+
 	/**
 	 * Invokes the given method on the given object with the given arguments.
 	 * The result is cast to T and every kind of exception is wrapped as
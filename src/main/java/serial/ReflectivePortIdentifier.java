@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * {@link BackendPortIdentifier} wrapping the <code>CommPortIdentifier</code> of a {@link ReflectiveSerialBackend}.
+ * @author Alex
+ */
+class ReflectivePortIdentifier extends SerialClassWrapper implements BackendPortIdentifier {
+//> STATIC CONSTANTS
+	/** Signature of <code>getPortType()</code> */
+	private static final MethodSignature GET_PORT_TYPE = new MethodSignature("getPortType");
+	/** Signature of <code>getName()</code> */
+	private static final MethodSignature GET_NAME = new MethodSignature("getName");
+	/** Signature of <code>isCurrentlyOwned()</code> */
+	private static final MethodSignature IS_CURRENTLY_OWNED = new MethodSignature("isCurrentlyOwned");
+	/** Signature of <code>getCurrentOwner()</code> */
+	private static final MethodSignature GET_CURRENT_OWNER = new MethodSignature("getCurrentOwner");
+	/** Signature of <code>open(String, int)</code> */
+	private static final MethodSignature OPEN = new MethodSignature("open", String.class, int.class);
+
+//> INSTANCE PROPERTIES
+	/** The port type, cached after it is first read from the real object as it never changes. */
+	private int portType;
+	/** <code>true</code> once {@link #portType} has been read from the real object */
+	private volatile boolean portTypeRead;
+
+//> CONSTRUCTORS
+	/** @see SerialClassWrapper#SerialClassWrapper(Object) */
+	ReflectivePortIdentifier(Object realObject) {
+		super(realObject);
+	}
+
+//> ACCESSORS
+	/** @see BackendPortIdentifier#getName() */
+	public String getName() {
+		return super.invokeWithoutInvocationException(String.class, GET_NAME);
+	}
+
+	/** @see BackendPortIdentifier#getPortType() */
+	public int getPortType() {
+		if(!portTypeRead) {
+			portType = super.invokeIntGetter(GET_PORT_TYPE);
+			portTypeRead = true;
+		}
+		return portType;
+	}
+
+	/** @see BackendPortIdentifier#isCurrentlyOwned() */
+	public boolean isCurrentlyOwned() {
+		return super.invokeBooleanGetter(IS_CURRENTLY_OWNED);
+	}
+
+	/** @see BackendPortIdentifier#getCurrentOwner() */
+	public String getCurrentOwner() {
+		return super.invokeWithoutInvocationException(String.class, GET_CURRENT_OWNER);
+	}
+
+//> INSTANCE METHODS
+	/** @see BackendPortIdentifier#open(String, int) */
+	public BackendSerialPort open(String appname, int timeout) throws PortInUseException {
+		Method method = super.getMethod(OPEN);
+		try {
+			return new ReflectiveSerialPort(ReflectionHelper.invoke(Object.class, method, this.getRealObject(), appname, timeout));
+		} catch (InvocationTargetException ex) {
+			SerialException.throwIfMatches(PortInUseException.class, ex);
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link SerialBackend} for a package of classes implementing the javax.comm API, which are wrapped
+ * by reflection.
+ * <p>
+ * The package's classes must have the simple names of javax.comm's, e.g. <code>CommPortIdentifier</code>, and its
+ * exceptions are translated to this package's by simple name.  Methods are looked up once per class in a shared
+ * {@link DispatchTable}.
+ * </p>
+ * @author Alex
+ */
+public class ReflectiveSerialBackend implements SerialBackend {
+//> STATIC CONSTANTS
+	/** Capabilities of a complete implementation of the javax.comm API */
+	public static final Set<Capability> ALL_CAPABILITIES = Collections.unmodifiableSet(EnumSet.allOf(Capability.class));
+	/** Signature of static <code>CommPortIdentifier.getPortIdentifiers()</code> */
+	private static final MethodSignature GET_PORT_IDENTIFIERS = new MethodSignature("getPortIdentifiers");
+	/** Signature of static <code>CommPortIdentifier.getPortIdentifier(String)</code> */
+	private static final MethodSignature GET_PORT_IDENTIFIER = new MethodSignature("getPortIdentifier", String.class);
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The name of the package containing the implementation */
+	private final String packageName;
+	/** The priority of this backend */
+	private final int priority;
+	/** The features supported by this backend */
+	private final Set<Capability> capabilities;
+	/** Implementation classes resolved so far by {@link #forName(String)}, keyed by simple name */
+	private final ConcurrentMap<String, Class<?>> implementationClasses = new ConcurrentHashMap<String, Class<?>>();
+
+//> CONSTRUCTORS
+	/**
+	 * Create a new backend.
+	 * @param packageName value for {@link #packageName}
+	 * @param priority value for {@link #priority}
+	 * @param capabilities value for {@link #capabilities}
+	 */
+	public ReflectiveSerialBackend(String packageName, int priority, Set<Capability> capabilities) {
+		this.packageName = packageName;
+		this.priority = priority;
+		this.capabilities = Collections.unmodifiableSet(EnumSet.copyOf(capabilities));
+	}
+
+//> ACCESSORS
+	/** @see SerialBackend#getPackageName() */
+	public String getPackageName() {
+		return packageName;
+	}
+
+	/** @see SerialBackend#getPriority() */
+	public int getPriority() {
+		return priority;
+	}
+
+	/** @see SerialBackend#getCapabilities() */
+	public Set<Capability> getCapabilities() {
+		return capabilities;
+	}
+
+	/**
+	 * Checks that the implementation of <code>CommPortIdentifier</code> can be loaded and initialised.  Initialising
+	 * the class is what loads the native library of most implementations.
+	 * @see SerialBackend#isAvailable()
+	 */
+	public boolean isAvailable() {
+		String className = this.packageName + "." + CommPortIdentifier.class.getSimpleName();
+		try {
+			Class.forName(className);
+			return true;
+		} catch(ClassNotFoundException ex) {
+			log.info("Serial package not found: " + this.packageName);
+			return false;
+		} catch(LinkageError err) {
+			log.info("Serial package could not be loaded: " + this.packageName + " (" + err + ")");
+			return false;
+		} catch(RuntimeException ex) {
+			log.info("Serial package could not be initialised: " + this.packageName + " (" + ex + ")");
+			return false;
+		}
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Lists the ports using {@link #listPortIdentifiers()}.
+	 * @see SerialBackend#getPortIdentifiers()
+	 */
+	public List<BackendPortIdentifier> getPortIdentifiers() {
+		return listPortIdentifiers();
+	}
+
+	/** @see SerialBackend#getPortIdentifier(String) */
+	public BackendPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException {
+		Method method = getCommPortIdentifierTable().getMethod(GET_PORT_IDENTIFIER);
+		try {
+			return new ReflectivePortIdentifier(ReflectionHelper.invoke(Object.class, method, null, portName));
+		} catch(InvocationTargetException invocationException) {
+			SerialException.throwIfMatches(NoSuchPortException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+	}
+
+	/**
+	 * Gets a class of the package wrapped.  Each class is only looked up by name the first time it is requested.
+	 * @param simpleName the simple name of the class, e.g. <code>SerialPort</code>
+	 * @return the class
+	 * @throws IllegalStateException if the package has no class with the name
+	 */
+	public Class<?> forName(String simpleName) {
+		Class<?> implementation = this.implementationClasses.get(simpleName);
+		if(implementation == null) {
+			try {
+				implementation = Class.forName(this.packageName + "." + simpleName);
+			} catch (ClassNotFoundException ex) {
+				throw new IllegalStateException(simpleName + " class not found in package " + this.packageName);
+			}
+			this.implementationClasses.putIfAbsent(simpleName, implementation);
+		}
+		return implementation;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + this.packageName + ", priority=" + this.priority + "]";
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Lists the ports of the package.  Subclasses which reach the package's classes some other way override this,
+	 * keeping any work {@link #getPortIdentifiers()} does before listing.
+	 * @return identifiers for all ports of the package
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<BackendPortIdentifier> listPortIdentifiers() {
+		Method method = getCommPortIdentifierTable().getMethod(GET_PORT_IDENTIFIERS);
+		Enumeration realIdentifiers = ReflectionHelper.invokeWithoutInvocationException(Enumeration.class, method, null);
+		List<BackendPortIdentifier> identifiers = new ArrayList<BackendPortIdentifier>();
+		while(realIdentifiers.hasMoreElements()) {
+			identifiers.add(new ReflectivePortIdentifier(realIdentifiers.nextElement()));
+		}
+		return identifiers;
+	}
+
+	/** @return the {@link DispatchTable} of the package's <code>CommPortIdentifier</code>, for its static methods */
+	DispatchTable getCommPortIdentifierTable() {
+		return DispatchTable.forClass(forName("CommPortIdentifier"));
+	}
+}
@@ -0,0 +1,237 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.TooManyListenersException;
+
+/**
+ * {@link BackendSerialPort} wrapping the <code>SerialPort</code> of a {@link ReflectiveSerialBackend}.
+ * <p>
+ * Methods are looked up once per backend class in the shared {@link DispatchTable}, and <code>boolean</code> and
+ * small <code>int</code> arguments are passed in shared arrays, so most calls neither box nor allocate.
+ * </p>
+ * @author Alex
+ */
+class ReflectiveSerialPort extends SerialClassWrapper implements BackendSerialPort {
+//> STATIC CONSTANTS
+	/** Signature of <code>close()</code> */
+	private static final MethodSignature CLOSE = new MethodSignature("close");
+	/** Signature of <code>enableReceiveThreshold(int)</code> */
+	private static final MethodSignature ENABLE_RECEIVE_THRESHOLD = new MethodSignature("enableReceiveThreshold", int.class);
+	/** Signature of <code>enableReceiveTimeout(int)</code> */
+	private static final MethodSignature ENABLE_RECEIVE_TIMEOUT = new MethodSignature("enableReceiveTimeout", int.class);
+	/** Signature of <code>getInputStream()</code> */
+	private static final MethodSignature GET_INPUT_STREAM = new MethodSignature("getInputStream");
+	/** Signature of <code>getOutputStream()</code> */
+	private static final MethodSignature GET_OUTPUT_STREAM = new MethodSignature("getOutputStream");
+	/** Signature of <code>getChannel()</code>, which is only declared by some backends */
+	private static final MethodSignature GET_CHANNEL = new MethodSignature("getChannel");
+	/** Signature of <code>notifyOnBreakInterrupt(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_BREAK_INTERRUPT = new MethodSignature("notifyOnBreakInterrupt", boolean.class);
+	/** Signature of <code>notifyOnDataAvailable(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_DATA_AVAILABLE = new MethodSignature("notifyOnDataAvailable", boolean.class);
+	/** Signature of <code>notifyOnFramingError(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_FRAMING_ERROR = new MethodSignature("notifyOnFramingError", boolean.class);
+	/** Signature of <code>notifyOnCTS(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_CTS = new MethodSignature("notifyOnCTS", boolean.class);
+	/** Signature of <code>notifyOnDSR(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_DSR = new MethodSignature("notifyOnDSR", boolean.class);
+	/** Signature of <code>notifyOnCarrierDetect(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_CARRIER_DETECT = new MethodSignature("notifyOnCarrierDetect", boolean.class);
+	/** Signature of <code>notifyOnRingIndicator(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_RING_INDICATOR = new MethodSignature("notifyOnRingIndicator", boolean.class);
+	/** Signature of <code>notifyOnOutputEmpty(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_OUTPUT_EMPTY = new MethodSignature("notifyOnOutputEmpty", boolean.class);
+	/** Signature of <code>notifyOnOverrunError(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_OVERRUN_ERROR = new MethodSignature("notifyOnOverrunError", boolean.class);
+	/** Signature of <code>notifyOnParityError(boolean)</code> */
+	private static final MethodSignature NOTIFY_ON_PARITY_ERROR = new MethodSignature("notifyOnParityError", boolean.class);
+	/** Signatures of the <code>notifyOnXXX</code> methods, indexed by event type */
+	private static final MethodSignature[] NOTIFY_ON = new MethodSignature[SerialPortEvent.BI + 1];
+	/** Signature of <code>removeEventListener()</code> */
+	private static final MethodSignature REMOVE_EVENT_LISTENER = new MethodSignature("removeEventListener");
+	/** Signature of <code>setFlowControlMode(int)</code> */
+	private static final MethodSignature SET_FLOW_CONTROL_MODE = new MethodSignature("setFlowControlMode", int.class);
+	/** Signature of <code>setInputBufferSize(int)</code> */
+	private static final MethodSignature SET_INPUT_BUFFER_SIZE = new MethodSignature("setInputBufferSize", int.class);
+	/** Signature of <code>setOutputBufferSize(int)</code> */
+	private static final MethodSignature SET_OUTPUT_BUFFER_SIZE = new MethodSignature("setOutputBufferSize", int.class);
+	/** Signature of <code>setSerialPortParams(int, int, int, int)</code> */
+	private static final MethodSignature SET_SERIAL_PORT_PARAMS = new MethodSignature("setSerialPortParams", int.class, int.class, int.class, int.class);
+
+	static {
+		NOTIFY_ON[SerialPortEvent.DATA_AVAILABLE] = NOTIFY_ON_DATA_AVAILABLE;
+		NOTIFY_ON[SerialPortEvent.OUTPUT_BUFFER_EMPTY] = NOTIFY_ON_OUTPUT_EMPTY;
+		NOTIFY_ON[SerialPortEvent.CTS] = NOTIFY_ON_CTS;
+		NOTIFY_ON[SerialPortEvent.DSR] = NOTIFY_ON_DSR;
+		NOTIFY_ON[SerialPortEvent.RI] = NOTIFY_ON_RING_INDICATOR;
+		NOTIFY_ON[SerialPortEvent.CD] = NOTIFY_ON_CARRIER_DETECT;
+		NOTIFY_ON[SerialPortEvent.OE] = NOTIFY_ON_OVERRUN_ERROR;
+		NOTIFY_ON[SerialPortEvent.PE] = NOTIFY_ON_PARITY_ERROR;
+		NOTIFY_ON[SerialPortEvent.FE] = NOTIFY_ON_FRAMING_ERROR;
+		NOTIFY_ON[SerialPortEvent.BI] = NOTIFY_ON_BREAK_INTERRUPT;
+	}
+
+//> CONSTRUCTORS
+	/** @see SerialClassWrapper#SerialClassWrapper(Object) */
+	ReflectiveSerialPort(Object realObject) {
+		super(realObject);
+	}
+
+//> ACCESSORS
+	/** @see BackendSerialPort#getInputStream() */
+	public InputStream getInputStream() throws IOException {
+		Method method = super.getMethod(GET_INPUT_STREAM);
+		try {
+			return ReflectionHelper.invoke(InputStream.class, method, this.getRealObject());
+		} catch (InvocationTargetException invocationException) {
+			throwIfExpected(IOException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+	}
+
+	/** @see BackendSerialPort#getOutputStream() */
+	public OutputStream getOutputStream() throws IOException {
+		Method method = super.getMethod(GET_OUTPUT_STREAM);
+		try {
+			return ReflectionHelper.invoke(OutputStream.class, method, this.getRealObject());
+		} catch (InvocationTargetException invocationException) {
+			throwIfExpected(IOException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+	}
+
+	/**
+	 * Gets the backend's channel if its <code>SerialPort</code> declares a <code>getChannel()</code> method which
+	 * returns a {@link SerialChannel}.
+	 * @see BackendSerialPort#getChannel()
+	 */
+	public SerialChannel getChannel() throws IOException {
+		Method method = super.findMethod(GET_CHANNEL);
+		if(method == null) return null;
+		Object backendChannel;
+		try {
+			backendChannel = ReflectionHelper.invoke(Object.class, method, this.getRealObject());
+		} catch (InvocationTargetException invocationException) {
+			throwIfExpected(IOException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+		return backendChannel instanceof SerialChannel ? (SerialChannel) backendChannel : null;
+	}
+
+	/** @see BackendSerialPort#setInputBufferSize(int) */
+	public void setInputBufferSize(int size) {
+		super.invokeIntSetter(SET_INPUT_BUFFER_SIZE, size);
+	}
+
+	/** @see BackendSerialPort#setOutputBufferSize(int) */
+	public void setOutputBufferSize(int size) {
+		super.invokeIntSetter(SET_OUTPUT_BUFFER_SIZE, size);
+	}
+
+//> INSTANCE METHODS
+	/** @see BackendSerialPort#close() */
+	public void close() {
+		super.invokeVoid(CLOSE);
+	}
+
+	/** @see BackendSerialPort#setSerialPortParams(int, int, int, int) */
+	public void setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) throws UnsupportedCommOperationException {
+		Method method = super.getMethod(SET_SERIAL_PORT_PARAMS);
+		try {
+			ReflectionHelper.invoke(method, this.getRealObject(), baudrate, dataBits, stopBits, parity);
+		} catch (InvocationTargetException invocationException) {
+			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+	}
+
+	/** @see BackendSerialPort#setFlowControlMode(int) */
+	public void setFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException {
+		invokeConfiguration(SET_FLOW_CONTROL_MODE, flowcontrol);
+	}
+
+	/** @see BackendSerialPort#enableReceiveThreshold(int) */
+	public void enableReceiveThreshold(int threshold) throws UnsupportedCommOperationException {
+		invokeConfiguration(ENABLE_RECEIVE_THRESHOLD, threshold);
+	}
+
+	/** @see BackendSerialPort#enableReceiveTimeout(int) */
+	public void enableReceiveTimeout(int timeout) throws UnsupportedCommOperationException {
+		invokeConfiguration(ENABLE_RECEIVE_TIMEOUT, timeout);
+	}
+
+	/**
+	 * Calls the <code>notifyOnXXX</code> method matching the event type.  Unknown event types are ignored.
+	 * @see BackendSerialPort#setNotification(int, boolean)
+	 */
+	public void setNotification(int eventType, boolean enable) {
+		if(eventType > 0 && eventType < NOTIFY_ON.length) {
+			super.invokeBooleanSetter(NOTIFY_ON[eventType], enable);
+		}
+	}
+
+	/**
+	 * Registers the listener through a {@link ListenerBridge}, which implements the backend's listener interface.
+	 * @see BackendSerialPort#addEventListener(BackendEventListener)
+	 */
+	public void addEventListener(BackendEventListener listener) throws TooManyListenersException {
+		try {
+			ListenerBridge.forPortClass(this.getWrappedClass()).addEventListener(this.getRealObject(), listener);
+		} catch (InvocationTargetException ex) {
+			if(ex.getCause() instanceof TooManyListenersException) throw (TooManyListenersException) ex.getCause();
+			throw new RuntimeException(ex.getTargetException().toString(), ex.getTargetException());
+		} catch (IllegalAccessException ex) {
+			throw new RuntimeException(ex);
+		} catch (InstantiationException ex) {
+			throw new RuntimeException(ex);
+		} catch (NoSuchMethodException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/** @see BackendSerialPort#removeEventListener() */
+	public void removeEventListener() {
+		super.invokeVoid(REMOVE_EVENT_LISTENER);
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Calls a configuration method which takes one <code>int</code> and may throw
+	 * <code>UnsupportedCommOperationException</code>.
+	 * @param signature the signature of the method
+	 * @param value the value to pass
+	 * @throws UnsupportedCommOperationException if the backend threw its namesake
+	 */
+	private void invokeConfiguration(MethodSignature signature, int value) throws UnsupportedCommOperationException {
+		Method method = super.getMethod(signature);
+		try {
+			ReflectionHelper.invoke(method, this.getRealObject(), value);
+		} catch (InvocationTargetException invocationException) {
+			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
+			throw new IllegalStateException(invocationException);
+		}
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Throws the wrapped exception if an {@link InvocationTargetException} was caused by the type specified
+	 * @param clazz 
+	 * @param <T> 
+	 * @param invocationException
+	 * @throws T 
+	 */
+	@SuppressWarnings("unchecked")
+	private static final <T extends Throwable> void throwIfExpected(Class<T> clazz, InvocationTargetException invocationException) throws T {
+		Throwable cause = invocationException.getCause();
+		if(clazz.equals(cause.getClass())) {
+			throw (T) cause;
+		}
+	}
+}
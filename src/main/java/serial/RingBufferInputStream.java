@@ -0,0 +1,225 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * {@link InputStream} which reads from a port's input stream in bulk into a fixed-size ring buffer.
+ * <p>
+ * Each fill asks the port for as much as will fit in the buffer, so the driver returns everything it has rather than
+ * a byte at a time; how long a fill waits is governed by the port's receive threshold and timeout.  Parsers can look
+ * at the buffered bytes with {@link #peek(int)} and {@link #indexOf(int, int)}, which neither consume nor copy them,
+ * and then {@link #read(byte[], int, int)} or {@link #skip(long)} exactly the bytes they want.
+ * </p>
+ * <p>
+ * The capacity is rounded up to a power of two, so positions wrap with a mask.  Instances are not thread safe, and
+ * are intended to be used by a single reading thread.
+ * </p>
+ * <p>
+ * Like the port's own stream, a read which times out without data returns <code>0</code> from
+ * {@link #read(byte[], int, int)} and throws {@link InterruptedIOException} from {@link #read()}.  Both return
+ * <code>-1</code> only at the end of the stream.
+ * </p>
+ * @author Alex
+ * @see SerialPort#getBufferedInputStream(int)
+ */
+public class RingBufferInputStream extends InputStream {
+//> STATIC CONSTANTS
+	/** Largest capacity allowed, which is the largest power of two an int can hold */
+	private static final int MAX_CAPACITY = 1 << 30;
+
+//> INSTANCE PROPERTIES
+	/** The stream being buffered */
+	private final InputStream in;
+	/** The ring buffer.  Its length is a power of two. */
+	private final byte[] buffer;
+	/** <code>buffer.length - 1</code>, for wrapping positions */
+	private final int mask;
+	/** Index in {@link #buffer} of the first buffered byte */
+	private int head;
+	/** Number of bytes buffered */
+	private int count;
+	/** Set <code>true</code> once {@link #in} has reached the end of the stream */
+	private boolean endOfStream;
+
+//> CONSTRUCTORS
+	/**
+	 * @param in value for {@link #in}
+	 * @param capacity the minimum size of the buffer; rounded up to a power of two
+	 */
+	public RingBufferInputStream(InputStream in, int capacity) {
+		if(in == null) throw new IllegalArgumentException("Input stream must not be null.");
+		if(capacity < 1 || capacity > MAX_CAPACITY) throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) size <<= 1;
+		this.in = in;
+		this.buffer = new byte[size];
+		this.mask = size - 1;
+	}
+
+//> ACCESSORS
+	/** @return the size of the ring buffer */
+	public int getCapacity() {
+		return buffer.length;
+	}
+
+	/** @return the number of bytes buffered, which can be read without touching the port */
+	public int getBufferedCount() {
+		return count;
+	}
+
+//> BUFFER METHODS
+	/**
+	 * Reads from the port into the free space of the buffer.  Blocks only as long as a read from the port would, and
+	 * then also takes whatever else is already available.
+	 * @return the number of bytes added to the buffer, which is <code>0</code> if it is full or the read timed out,
+	 *   or <code>-1</code> at the end of the stream
+	 * @throws IOException if thrown by the port's stream
+	 */
+	public int fill() throws IOException {
+		if(endOfStream) return -1;
+		int added = 0;
+		while(count < buffer.length) {
+			if(added > 0 && in.available() <= 0) break;
+			int tail = (head + count) & mask;
+			int contiguous = Math.min(buffer.length - count, buffer.length - tail);
+			int read = in.read(buffer, tail, contiguous);
+			if(read < 0) {
+				endOfStream = true;
+				return added > 0 ? added : -1;
+			}
+			if(read == 0) break;
+			count += read;
+			added += read;
+		}
+		return added;
+	}
+
+	/**
+	 * Gets a buffered byte without consuming it.  Does not read from the port.
+	 * @param offset the offset of the byte from the next byte to be read
+	 * @return the byte, as an int from <code>0</code> to <code>255</code>, or <code>-1</code> if fewer than
+	 *   <code>offset + 1</code> bytes are buffered
+	 */
+	public int peek(int offset) {
+		if(offset < 0 || offset >= count) return -1;
+		return buffer[(head + offset) & mask] & 0xFF;
+	}
+
+	/**
+	 * Searches the buffered bytes for a value.  Does not read from the port.
+	 * @param value the byte to search for
+	 * @param fromOffset the offset from the next byte to be read to start searching at
+	 * @return the offset of the first matching byte, or <code>-1</code> if it is not buffered
+	 */
+	public int indexOf(int value, int fromOffset) {
+		byte b = (byte) value;
+		for(int offset=Math.max(fromOffset, 0); offset<count; ++offset) {
+			if(buffer[(head + offset) & mask] == b) return offset;
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches the buffered bytes for a sequence.  Does not read from the port.
+	 * @param pattern the bytes to search for
+	 * @param fromOffset the offset from the next byte to be read to start searching at
+	 * @return the offset of the start of the first match, or <code>-1</code> if it is not buffered
+	 */
+	public int indexOf(byte[] pattern, int fromOffset) {
+		if(pattern.length == 0) return Math.min(Math.max(fromOffset, 0), count);
+		int last = count - pattern.length;
+		for(int offset=Math.max(fromOffset, 0); offset<=last; ++offset) {
+			int i = 0;
+			while(i < pattern.length && buffer[(head + offset + i) & mask] == pattern[i]) ++i;
+			if(i == pattern.length) return offset;
+		}
+		return -1;
+	}
+
+//> INPUTSTREAM METHODS
+	/**
+	 * Reads a byte, filling the buffer first only if it is empty.
+	 * @throws InterruptedIOException if the port's receive timeout expired without data
+	 * @see InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		if(count == 0) {
+			int filled = fillForRead();
+			if(filled < 0) return -1;
+			if(filled == 0) throw new InterruptedIOException("Receive timeout expired.");
+		}
+		int value = buffer[head] & 0xFF;
+		consume(1);
+		return value;
+	}
+
+	/**
+	 * Copies buffered bytes, filling the buffer first only if it is empty.
+	 * @see InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+		if(len == 0) return 0;
+		if(count == 0) {
+			int filled = fillForRead();
+			if(filled < 0) return -1;
+			if(filled == 0) return 0;
+		}
+		int copied = Math.min(len, count);
+		int first = Math.min(copied, buffer.length - head);
+		System.arraycopy(buffer, head, b, off, first);
+		if(copied > first) System.arraycopy(buffer, 0, b, off + first, copied - first);
+		consume(copied);
+		return copied;
+	}
+
+	/**
+	 * Discards buffered bytes, filling the buffer first only if it is empty.
+	 * @see InputStream#skip(long)
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		if(n <= 0) return 0;
+		if(count == 0 && fillForRead() <= 0) return 0;
+		int skipped = (int) Math.min(n, count);
+		consume(skipped);
+		return skipped;
+	}
+
+	/** @return the number of bytes buffered plus those available from the port */
+	@Override
+	public int available() throws IOException {
+		int available = endOfStream ? 0 : in.available();
+		return count + Math.max(available, 0);
+	}
+
+	/** Closes the port's input stream. */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Fills the empty buffer for a read.  The buffer is reset to the start first, so one read from the port can fill it.
+	 * @return as for {@link #fill()}
+	 * @throws IOException if thrown by the port's stream
+	 */
+	private int fillForRead() throws IOException {
+		head = 0;
+		return fill();
+	}
+
+	/** @param n number of buffered bytes to discard */
+	private void consume(int n) {
+		head = (head + n) & mask;
+		count -= n;
+	}
+}
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package serial;
+
+/**
+ * {@link SerialBackend} for RXTXserial.
+ * @author Alex
+ */
+public class RxtxSerialBackend extends ReflectiveSerialBackend {
+//> STATIC CONSTANTS
+	/** Priority of this backend */
+	public static final int PRIORITY = 10;
+
+//> CONSTRUCTORS
+	/** Create a new RXTX backend. */
+	public RxtxSerialBackend() {
+		super(SerialClassFactory.PACKAGE_RXTX, PRIORITY, ALL_CAPABILITIES);
+	}
+
+	/**
+	 * Create a new RXTX backend with a different priority, for subclasses which replace the reflective wrappers.
+	 * @param priority the priority of the backend
+	 */
+	protected RxtxSerialBackend(int priority) {
+		super(SerialClassFactory.PACKAGE_RXTX, priority, ALL_CAPABILITIES);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service provider interface for a serial implementation which the classes in this package can wrap.
+ * <p>
+ * A backend lists and looks up its ports as {@link BackendPortIdentifier}s, which open them as
+ * {@link BackendSerialPort}s.  Those carry configuration, streams and events, so a backend need not resemble the
+ * javax.comm API at all.  Constants passed through the interface, e.g. event types, data bits and parity, have the
+ * values of javax.comm, which RXTX shares, and are defined by {@link SerialPort} and {@link SerialPortEvent}.
+ * {@link ReflectiveSerialBackend} implements this interface for packages which do mirror javax.comm, such as
+ * javax.comm and RXTX themselves.
+ * </p>
+ * <p>
+ * Backends are discovered by {@link SerialClassFactory} from <code>META-INF/services/serial.SerialBackend</code>
+ * files on the classpath, so a new implementation can be added by dropping in a jar.  Each entry must name a
+ * public class with a public no-argument constructor.  The factory picks the available backend with the highest
+ * {@link #getPriority()} which has all of the required {@link Capability}s.
+ * </p>
+ * @author Alex
+ */
+public interface SerialBackend {
+	/**
+	 * Optional features which a backend may declare.
+	 */
+	public enum Capability {
+		/** Ports can be listed with <code>CommPortIdentifier.getPortIdentifiers()</code> */
+		PORT_ENUMERATION,
+		/** Events are delivered to listeners registered with <code>SerialPort.addEventListener()</code> */
+		EVENTS,
+		/** <code>SerialPort.enableReceiveThreshold(int)</code> is honoured */
+		RECEIVE_THRESHOLD,
+		/** <code>SerialPort.enableReceiveTimeout(int)</code> is honoured */
+		RECEIVE_TIMEOUT,
+		/** <code>SerialPort.setFlowControlMode(int)</code> is honoured */
+		FLOW_CONTROL,
+		/**
+		 * <code>SerialPortEvent.OUTPUT_BUFFER_EMPTY</code> is raised once written data has left the port, rather than
+		 * when it has only been passed to the driver
+		 */
+		OUTPUT_BUFFER_EMPTY,
+	}
+
+	/**
+	 * Gets the name which identifies this backend, e.g. to {@link SerialClassFactory#init(String)}.  Reflective backends
+	 * use the name of the package they wrap, e.g. {@link SerialClassFactory#PACKAGE_RXTX}.
+	 * @return the name of this backend
+	 */
+	public String getPackageName();
+
+	/** @return the priority of this backend; where more than one backend is available, the highest priority is used */
+	public int getPriority();
+
+	/** @return the features which this backend supports */
+	public Set<Capability> getCapabilities();
+
+	/**
+	 * Check whether this backend can be used in the current environment, e.g. whether its classes and native
+	 * libraries can be loaded.  This should not throw or log stack traces if the backend is missing.
+	 * @return <code>true</code> if this backend can be used; <code>false</code> otherwise
+	 */
+	public boolean isAvailable();
+
+	/**
+	 * Lists the ports of this backend.  This may be slow, as it may probe the system; callers cache the result.
+	 * @return identifiers of the ports which can currently be opened
+	 */
+	public List<BackendPortIdentifier> getPortIdentifiers();
+
+	/**
+	 * @param portName the name of a port
+	 * @return the identifier of the port
+	 * @throws NoSuchPortException if this backend has no port with the name
+	 */
+	public BackendPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException;
+}
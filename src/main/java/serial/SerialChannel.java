@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package serial;
+
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * A channel for reading from and writing to a {@link SerialPort}, obtained with {@link SerialPort#getChannel()}.
+ * <p>
+ * Reads block in the same way as reads from {@link SerialPort#getInputStream()}, subject to the receive threshold and
+ * timeout.  A read which times out without receiving any data returns <code>0</code>.  Closing the channel does not
+ * close the port.
+ * </p>
+ * @author Alex
+ */
+public interface SerialChannel extends ByteChannel, ScatteringByteChannel, GatheringByteChannel {
+}
@@ -3,6 +3,20 @@
  */
 package serial;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 
 /**
@@ -17,33 +31,42 @@ public class SerialClassFactory {
 	public static String javaxCommPropertiesPath = "javax.comm.properties";
 	/** Package name for RXTXserial */
 	public static final String PACKAGE_RXTX = "gnu.io";
+	/** Location of the service provider configuration files listing {@link SerialBackend} implementations */
+	static final String SERVICES_PATH = "META-INF/services/" + SerialBackend.class.getName();
 	/** Singleton instance of this class */
 	private static SerialClassFactory INSTANCE;
 
 //> INSTANCE PROPERTIES
 	/** Logging object */
 	private final Logger log = Logger.getLogger(this.getClass().getName());
-	/** The name of the package of the serial implementation to use, either {@link #PACKAGE_JAVAXCOMM} or {@value #PACKAGE_RXTX} */
+	/** The name of the package of the serial implementation to use, e.g. {@link #PACKAGE_JAVAXCOMM} or {@value #PACKAGE_RXTX} */
 	private final String serialPackageName;
+	/** The backend which the wrapper classes delegate to */
+	private final SerialBackend backend;
 
 //> CONSTRUCTORS
 	/**
 	 * Constructs a {@link SerialClassFactory}.
 	 * @param preferredSerialPackageName the name of the serial package we would rather use
+	 * @param requiredCapabilities capabilities that the selected backend must declare
 	 */
-	private SerialClassFactory(String preferredSerialPackageName) {
-		if(testSerialPackageName(preferredSerialPackageName)) {
-			this.serialPackageName = preferredSerialPackageName;
-		} else if(!PACKAGE_JAVAXCOMM.equals(preferredSerialPackageName)
-				&& testSerialPackageName(PACKAGE_JAVAXCOMM)) {
-			this.serialPackageName = PACKAGE_JAVAXCOMM;
-		} else if(!PACKAGE_RXTX.equals(preferredSerialPackageName)
-				&& testSerialPackageName(PACKAGE_RXTX)) {
-				this.serialPackageName = PACKAGE_RXTX;
-		} else {
+	private SerialClassFactory(String preferredSerialPackageName, Set<SerialBackend.Capability> requiredCapabilities) {
+		SerialBackend selected = null;
+		for(SerialBackend candidate : getCandidates(preferredSerialPackageName)) {
+			if(!candidate.getCapabilities().containsAll(requiredCapabilities)) {
+				log.info("Skipping serial package " + candidate.getPackageName() + " as it does not support all of " + requiredCapabilities);
+			} else if(candidate.isAvailable()) {
+				selected = candidate;
+				break;
+			}
+		}
+		if(selected == null) {
 			this.log.error("Failed to load any serial pacakges.  Using RXTX by default, but it won't work.");
-			this.serialPackageName = PACKAGE_RXTX;
+			selected = new RxtxSerialBackend();
 		}
+		log.info("Using serial package: " + selected.getPackageName());
+		this.backend = selected;
+		this.serialPackageName = selected.getPackageName();
 	}
 
 //> ACCESSORS
@@ -51,21 +74,10 @@ public class SerialClassFactory {
 	public String getSerialPackageName() {
 		return serialPackageName;
 	}
-	/**
-	 * Test loading a serial package.
-	 * @param serialPackageName the name of the serial package, e.g. {@link #PACKAGE_JAVAXCOMM}
-	 * @return <code>true</code> if the package loaded successfully; <code>false</code> otherwise
-	 */
-	private boolean testSerialPackageName(String serialPackageName) {
-		try {
-			log.info("Attempting to load serial package: " + serialPackageName);
-			Class.forName(serialPackageName + "." + CommPortIdentifier.class.getSimpleName());
-			log.info("Using serial package: " + serialPackageName);
-			return true;
-		} catch(Throwable t) {
-			log.warn("Failed to load serial package: " + serialPackageName, t);
-			return false;
-		}
+	
+	/** @return {@link #backend} */
+	public SerialBackend getBackend() {
+		return backend;
 	}
 
 //> INSTANCE HELPER METHODS
@@ -77,10 +89,104 @@ public class SerialClassFactory {
 	 * @param preferredSerialPackageName the name of the serial package to prefer
 	 */
 	public static final void init(String preferredSerialPackageName) {
-		INSTANCE = new SerialClassFactory(preferredSerialPackageName);
+		init(preferredSerialPackageName, EnumSet.noneOf(SerialBackend.Capability.class));
+	}
+	
+	/**
+	 * Initialise the factory with the highest priority available backend which supports all of the required
+	 * capabilities.  The preferred package will be tried first if it supports them.
+	 * @param preferredSerialPackageName the name of the serial package to prefer, or <code>null</code> to go by priority alone
+	 * @param requiredCapabilities the capabilities which the selected backend must declare
+	 */
+	public static final void init(String preferredSerialPackageName, Set<SerialBackend.Capability> requiredCapabilities) {
+		INSTANCE = new SerialClassFactory(preferredSerialPackageName, requiredCapabilities);
 	}
 
 //> STATIC HELPER METHODS
+	/**
+	 * Gets the backends to try, in the order they should be tried.  This is the preferred package, followed by
+	 * all backends registered in <code>META-INF/services/serial.SerialBackend</code> files in descending order of
+	 * priority.  If the preferred package is not a registered backend, it is wrapped by reflection with all capabilities.
+	 * @param preferredSerialPackageName the name of the serial package to prefer, or <code>null</code>
+	 * @return the backends to try
+	 */
+	private static List<SerialBackend> getCandidates(String preferredSerialPackageName) {
+		List<SerialBackend> candidates = loadBackends();
+		if(candidates.isEmpty()) {
+			// The service files may have been lost, e.g. when repackaging this library, so fall back to the built-in backends
+			candidates.add(new JavaxCommSerialBackend());
+			candidates.add(new RxtxSerialBackend());
+		}
+		Collections.sort(candidates, new Comparator<SerialBackend>() {
+			public int compare(SerialBackend a, SerialBackend b) {
+				return b.getPriority() < a.getPriority() ? -1 : (b.getPriority() == a.getPriority() ? 0 : 1);
+			}
+		});
+		if(preferredSerialPackageName != null) {
+			SerialBackend preferred = null;
+			for(Iterator<SerialBackend> i=candidates.iterator(); i.hasNext() && preferred == null; ) {
+				SerialBackend candidate = i.next();
+				if(preferredSerialPackageName.equals(candidate.getPackageName())) {
+					preferred = candidate;
+					i.remove();
+				}
+			}
+			if(preferred == null) {
+				preferred = new ReflectiveSerialBackend(preferredSerialPackageName, Integer.MAX_VALUE, ReflectiveSerialBackend.ALL_CAPABILITIES);
+			}
+			candidates.add(0, preferred);
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Instantiates every {@link SerialBackend} listed in <code>META-INF/services/serial.SerialBackend</code> files
+	 * visible to the classloader of this class.  Entries which cannot be instantiated are logged and skipped.
+	 * @return all registered backends, in classpath order
+	 */
+	static List<SerialBackend> loadBackends() {
+		List<SerialBackend> backends = new ArrayList<SerialBackend>();
+		Set<String> classNames = new LinkedHashSet<String>();
+		ClassLoader classLoader = SerialClassFactory.class.getClassLoader();
+		try {
+			Enumeration<URL> serviceFiles = classLoader.getResources(SERVICES_PATH);
+			while(serviceFiles.hasMoreElements()) {
+				readServiceFile(serviceFiles.nextElement(), classNames);
+			}
+		} catch(IOException ex) {
+			Logger.getLogger(SerialClassFactory.class).warn("Failed to list serial backends", ex);
+		}
+		for(String className : classNames) {
+			try {
+				backends.add(Class.forName(className, true, classLoader).asSubclass(SerialBackend.class).newInstance());
+			} catch(Exception ex) {
+				Logger.getLogger(SerialClassFactory.class).warn("Failed to instantiate serial backend: " + className, ex);
+			}
+		}
+		return backends;
+	}
+	
+	/**
+	 * Reads the class names from a service provider configuration file.  Blank lines and <code>#</code> comments are ignored.
+	 * @param serviceFile the location of the file
+	 * @param classNames the set to add the class names to
+	 * @throws IOException if there was a problem reading the file
+	 */
+	private static void readServiceFile(URL serviceFile, Set<String> classNames) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(serviceFile.openStream(), "UTF-8"));
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				int commentStart = line.indexOf('#');
+				if(commentStart >= 0) line = line.substring(0, commentStart);
+				line = line.trim();
+				if(line.length() > 0) classNames.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+	
 	/**
 	 * Get the singleton instance of this class.  The class must previously have been initialised using {@link #init(String)}
 	 * @return the singleton instance of this class
@@ -90,16 +196,16 @@ public class SerialClassFactory {
 	}
 	
 	/**
-	 * Attempt to get a class by name, first from the {@link #PACKAGE_JAVAXCOMM}, and then from {@link #PACKAGE_RXTX}
-	 * TODO once we have decided which package we are using, we should probably try exclusively to get classes from that package.  E.g. it might be possible to get javax.comm classes even though the library is broken.  If we can detect that, do it here the first time this method is called.
+	 * Get the implementation of a class from the {@link #serialPackageName} package.  This is only possible when the
+	 * backend is a {@link ReflectiveSerialBackend}, which caches the classes it has looked up.
 	 * @param clazz The class whose namesake we should fetch
 	 * @return An implementation of the desired class
+	 * @throws IllegalStateException if the backend does not wrap a package by reflection, or the class is not found
 	 */
 	public Class<?> forName(Class<?> clazz) {
-		try {
-			return Class.forName(this.serialPackageName + "." + clazz.getSimpleName());
-		} catch (ClassNotFoundException ex) {
-			throw new IllegalStateException(clazz.getSimpleName() + " class not found in package " + this.serialPackageName);
+		if(!(this.backend instanceof ReflectiveSerialBackend)) {
+			throw new IllegalStateException("Serial backend " + this.serialPackageName + " does not wrap a package of classes.");
 		}
+		return ((ReflectiveSerialBackend) this.backend).forName(clazz.getSimpleName());
 	}
 }
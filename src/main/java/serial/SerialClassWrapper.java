@@ -11,12 +11,31 @@ import java.lang.reflect.Method;
  */
 abstract class SerialClassWrapper {
 //> STATIC CONSTANTS
+	/** Empty argument array, shared by all calls to methods without parameters. */
+	private static final Object[] NO_ARGUMENTS = ReflectionHelper.NO_ARGUMENTS;
+	/** Argument array for passing <code>true</code> to a single <code>boolean</code> parameter.  Reflection never modifies it, so it is safe to share. */
+	private static final Object[] ARGUMENTS_TRUE = new Object[] { Boolean.TRUE };
+	/** Argument array for passing <code>false</code> to a single <code>boolean</code> parameter.  Reflection never modifies it, so it is safe to share. */
+	private static final Object[] ARGUMENTS_FALSE = new Object[] { Boolean.FALSE };
+	/** Lowest <code>int</code> argument with a shared array in {@link #INT_ARGUMENTS} */
+	private static final int INT_ARGUMENTS_MIN = -128;
+	/** Shared argument arrays for passing each <code>int</code> from {@link #INT_ARGUMENTS_MIN} to <code>127</code>, the values boxed by {@link Integer#valueOf(int)} without allocation. */
+	private static final Object[][] INT_ARGUMENTS = createIntArguments();
 
 //> INSTANCE PROPERTIES
 	/**
 	 * The real object that this class wraps.
 	 */
 	private final Object realObject;
+	/**
+	 * The methods of the wrapped class, shared with all other wrappers of the same class.
+	 */
+	private final DispatchTable dispatchTable;
+	/**
+	 * The argument array last passed by {@link #invokeIntSetter(MethodSignature, int)} for a value outside the shared
+	 * arrays, reused while the same value is set again.  The array is never modified after publication.
+	 */
+	private volatile Object[] lastIntArguments;
 
 //> CONSTRUCTORS
 	/**
@@ -25,6 +44,7 @@ abstract class SerialClassWrapper {
 	 */
 	protected SerialClassWrapper(Object realObject) {
 		this.realObject = realObject;
+		this.dispatchTable = DispatchTable.forClass(realObject.getClass());
 	}
 
 //> ACCESSORS
@@ -35,44 +55,124 @@ abstract class SerialClassWrapper {
 	
 	/** @return the class that this wraps. */
 	protected Class<?> getWrappedClass() {
-		return this.realObject.getClass();
+		return this.dispatchTable.getWrappedClass();
 	}
 	
 	/**
-	 * Executes a void method on the superclass.
-	 * @param methodName The name of the method to call
+	 * Gets a method of the wrapped class from the shared {@link DispatchTable}.
+	 * @param signature The signature of the method
+	 * @return The requested method
+	 */
+	protected Method getMethod(MethodSignature signature) {
+		return this.dispatchTable.getMethod(signature);
+	}
+	
+	/**
+	 * Gets an optional method of the wrapped class from the shared {@link DispatchTable}.
+	 * @param signature The signature of the method
+	 * @return The requested method, or <code>null</code> if the wrapped class does not declare it
 	 */
-	protected void invokeWithoutInvocationException(String methodName) {
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), methodName);
-		ReflectionHelper.invokeWithoutInvocationException(method, this.realObject);
+	protected Method findMethod(MethodSignature signature) {
+		return this.dispatchTable.findMethod(signature);
 	}
 	
 	/**
 	 * Executes a void method on the superclass.
-	 * @param methodName The name of the method to call
-	 * @param parameterTypes Parameters for the method
+	 * @param signature The signature of the method to call
 	 * @param args Arguments to pass to the method
 	 */
-	protected void invokeWithoutInvocationException(String methodName, Class<?>[] parameterTypes, Object... args) {
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), methodName, parameterTypes);
-		ReflectionHelper.invokeWithoutInvocationException(method, this.realObject, args);
+	protected void invokeWithoutInvocationException(MethodSignature signature, Object... args) {
+		ReflectionHelper.invokeWithoutInvocationException(getMethod(signature), this.realObject, args);
 	}
 	
 	/**
 	 * Executes a getter of generic type and returns the response.
 	 * @param <T> The return type of the method
 	 * @param clazz The class of the return type of the method
-	 * @param methodName The name of the method to call
+	 * @param signature The signature of the method to call
 	 * @return The response from the getter.
 	 */
-	protected <T> T invokeWithoutInvocationException(Class<T> clazz, String methodName) {
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), methodName);
-		return ReflectionHelper.invokeWithoutInvocationException(clazz, method, this.realObject);		
+	protected <T> T invokeWithoutInvocationException(Class<T> clazz, MethodSignature signature) {
+		return ReflectionHelper.invokeWithoutInvocationException(clazz, getMethod(signature), this.realObject, NO_ARGUMENTS);
+	}
+	
+	/**
+	 * Executes a void method without parameters.  Unlike {@link #invokeWithoutInvocationException(MethodSignature, Object...)},
+	 * no argument array is allocated.
+	 * @param signature The signature of the method to call
+	 */
+	protected void invokeVoid(MethodSignature signature) {
+		ReflectionHelper.invokeWithoutInvocationException(getMethod(signature), this.realObject, NO_ARGUMENTS);
+	}
+	
+	/**
+	 * Executes a void method which takes a single <code>boolean</code>, e.g. the <code>notifyOnXXX(boolean)</code> methods.
+	 * The argument is passed in a shared array, so no boxing or array allocation takes place.
+	 * @param signature The signature of the method to call
+	 * @param value The value to pass to the method
+	 */
+	protected void invokeBooleanSetter(MethodSignature signature, boolean value) {
+		ReflectionHelper.invokeWithoutInvocationException(getMethod(signature), this.realObject, value ? ARGUMENTS_TRUE : ARGUMENTS_FALSE);
+	}
+	
+	/**
+	 * Executes a void method which takes a single <code>int</code>, e.g. <code>setInputBufferSize(int)</code>.
+	 * Values from <code>-128</code> to <code>127</code> are passed in shared arrays, and other values reuse the array
+	 * of the last such value set through this wrapper, so setting the same value repeatedly neither boxes nor
+	 * allocates.  Setting a new value outside that range allocates one array and one {@link Integer}.
+	 * @param signature The signature of the method to call
+	 * @param value The value to pass to the method
+	 */
+	protected void invokeIntSetter(MethodSignature signature, int value) {
+		ReflectionHelper.invokeWithoutInvocationException(getMethod(signature), this.realObject, getIntArguments(value));
+	}
+	
+	/**
+	 * Executes a getter which returns an <code>int</code>.  {@link Method#invoke(Object, Object...)} boxes the result,
+	 * which only avoids allocation for values from <code>-128</code> to <code>127</code>, e.g. port and event types.
+	 * @param signature The signature of the method to call
+	 * @return The response from the getter.
+	 */
+	protected int invokeIntGetter(MethodSignature signature) {
+		return ReflectionHelper.invokeWithoutInvocationException(Integer.class, getMethod(signature), this.realObject, NO_ARGUMENTS).intValue();
+	}
+	
+	/**
+	 * Executes a getter which returns a <code>boolean</code>.  The result is boxed by {@link Method#invoke(Object, Object...)}
+	 * to {@link Boolean#TRUE} or {@link Boolean#FALSE}, so nothing is allocated.
+	 * @param signature The signature of the method to call
+	 * @return The response from the getter.
+	 */
+	protected boolean invokeBooleanGetter(MethodSignature signature) {
+		return ReflectionHelper.invokeWithoutInvocationException(Boolean.class, getMethod(signature), this.realObject, NO_ARGUMENTS).booleanValue();
 	}
 
 //> INSTANCE HELPER METHODS
+	/**
+	 * @param value an <code>int</code> argument
+	 * @return an argument array containing the value, shared if possible
+	 */
+	private Object[] getIntArguments(int value) {
+		if(value >= INT_ARGUMENTS_MIN && value < INT_ARGUMENTS_MIN + INT_ARGUMENTS.length) {
+			return INT_ARGUMENTS[value - INT_ARGUMENTS_MIN];
+		}
+		Object[] arguments = lastIntArguments;
+		if(arguments == null || ((Integer) arguments[0]).intValue() != value) {
+			arguments = new Object[] { Integer.valueOf(value) };
+			lastIntArguments = arguments;
+		}
+		return arguments;
+	}
 
 //> STATIC FACTORIES
 
 //> STATIC HELPER METHODS
+	/** @return value for {@link #INT_ARGUMENTS} */
+	private static Object[][] createIntArguments() {
+		Object[][] arguments = new Object[128 - INT_ARGUMENTS_MIN][];
+		for(int i=0; i<arguments.length; ++i) {
+			arguments[i] = new Object[] { Integer.valueOf(INT_ARGUMENTS_MIN + i) };
+		}
+		return arguments;
+	}
 }
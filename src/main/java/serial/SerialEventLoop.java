@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Drives reading from many {@link SerialPort}s from a small, fixed number of threads, rather than a thread per port.
+ * <p>
+ * Each registered port is assigned to one of the loop's threads.  The thread repeatedly checks
+ * {@link InputStream#available()} on each of its ports, which does not block, and calls the port's
+ * {@link SerialReadHandler} when data is waiting.  When a pass over its ports finds no data, the thread sleeps for
+ * the poll interval before checking again, so idle ports cost one <code>available()</code> call per interval.
+ * </p>
+ * <p>
+ * Only readable readiness is reported.  Output buffer and line state changes are not visible without the
+ * backend's event thread, so ports which need them should still use {@link SerialPort#addEventListener(SerialPortEventListener)}.
+ * </p>
+ * @author Alex
+ */
+public class SerialEventLoop {
+//> STATIC CONSTANTS
+	/** Default number of milliseconds an idle thread sleeps between passes over its ports */
+	public static final long DEFAULT_POLL_INTERVAL = 5;
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The threads which service the registered ports */
+	private final LoopThread[] threads;
+	/** Number of milliseconds an idle thread sleeps between passes over its ports */
+	private final long pollInterval;
+	/** Counter used to spread registrations across {@link #threads} */
+	private final AtomicInteger nextThread = new AtomicInteger();
+	/** Set <code>true</code> when {@link #shutdown()} is called */
+	private volatile boolean shutdown;
+
+//> CONSTRUCTORS
+	/**
+	 * Creates and starts a new event loop.
+	 * @param threadCount the number of threads to service ports from
+	 * @param pollInterval value for {@link #pollInterval}
+	 */
+	public SerialEventLoop(int threadCount, long pollInterval) {
+		if(threadCount < 1) throw new IllegalArgumentException("Thread count must be at least 1: " + threadCount);
+		if(pollInterval < 1) throw new IllegalArgumentException("Poll interval must be at least 1ms: " + pollInterval);
+		this.pollInterval = pollInterval;
+		this.threads = new LoopThread[threadCount];
+		for(int i=0; i<threadCount; ++i) {
+			this.threads[i] = new LoopThread(i);
+			this.threads[i].start();
+		}
+	}
+
+	/**
+	 * Creates and starts a new event loop with one thread per available processor and the {@link #DEFAULT_POLL_INTERVAL}.
+	 */
+	public SerialEventLoop() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_POLL_INTERVAL);
+	}
+
+//> ACCESSORS
+	/** @return the total number of ports currently registered */
+	public int getRegistrationCount() {
+		int count = 0;
+		for(LoopThread thread : threads) count += thread.registrations.size();
+		return count;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Registers a port with this loop.  The port's input stream is fetched once, now.
+	 * @param port the port to read from
+	 * @param handler the handler to call when data is available
+	 * @return the registration, which can be used to cancel it
+	 * @throws IOException if the port's input stream could not be fetched
+	 */
+	public Registration register(SerialPort port, SerialReadHandler handler) throws IOException {
+		if(shutdown) throw new IllegalStateException("Event loop has been shut down.");
+		LoopThread thread = threads[(nextThread.getAndIncrement() & Integer.MAX_VALUE) % threads.length];
+		Registration registration = new Registration(thread, port, port.getInputStream(), handler);
+		thread.registrations.add(registration);
+		return registration;
+	}
+
+	/** Stops all threads.  Registered ports are not closed. */
+	public void shutdown() {
+		shutdown = true;
+		for(LoopThread thread : threads) {
+			thread.interrupt();
+			thread.registrations.clear();
+		}
+	}
+
+//> INNER CLASSES
+	/**
+	 * Registration of a port with a {@link SerialEventLoop}.
+	 */
+	public static final class Registration {
+		/** The thread servicing this registration */
+		private final LoopThread thread;
+		/** The registered port */
+		private final SerialPort port;
+		/** The input stream of {@link #port} */
+		private final InputStream in;
+		/** The handler to call when data is available */
+		private final SerialReadHandler handler;
+
+		/**
+		 * @param thread value for {@link #thread}
+		 * @param port value for {@link #port}
+		 * @param in value for {@link #in}
+		 * @param handler value for {@link #handler}
+		 */
+		private Registration(LoopThread thread, SerialPort port, InputStream in, SerialReadHandler handler) {
+			this.thread = thread;
+			this.port = port;
+			this.in = in;
+			this.handler = handler;
+		}
+
+		/** @return the registered port */
+		public SerialPort getPort() {
+			return port;
+		}
+
+		/** @return <code>true</code> if this registration has not been cancelled */
+		public boolean isValid() {
+			return thread.registrations.contains(this);
+		}
+
+		/** Cancels this registration.  The handler may still be called once if a dispatch is in progress. */
+		public void cancel() {
+			thread.registrations.remove(this);
+		}
+	}
+
+	/**
+	 * Thread servicing a share of the registered ports.
+	 */
+	private final class LoopThread extends Thread {
+		/** The ports serviced by this thread */
+		private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+		/** @param index the index of this thread, used for its name */
+		LoopThread(int index) {
+			super("SerialEventLoop-" + index);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while(!shutdown) {
+				boolean dispatched = false;
+				for(Registration registration : registrations) {
+					dispatched |= poll(registration);
+				}
+				if(!dispatched) {
+					try {
+						Thread.sleep(pollInterval);
+					} catch(InterruptedException ex) {
+						// Either shutting down, or nothing to do
+					}
+				}
+			}
+		}
+
+		/**
+		 * Checks a single port for data, and dispatches to its handler if there is any.
+		 * @param registration the registration to check
+		 * @return <code>true</code> if the handler was called
+		 */
+		private boolean poll(Registration registration) {
+			try {
+				int available = registration.in.available();
+				if(available <= 0) return false;
+				registration.handler.dataAvailable(registration.port, registration.in, available);
+				return true;
+			} catch(IOException ex) {
+				registration.cancel();
+				try {
+					registration.handler.readFailed(registration.port, ex);
+				} catch(RuntimeException handlerException) {
+					log.warn("Read handler threw an exception from readFailed(); continuing.", handlerException);
+				}
+				return false;
+			} catch(RuntimeException ex) {
+				log.warn("Read handler threw an exception; continuing.", ex);
+				return false;
+			}
+		}
+	}
+}
@@ -24,6 +24,14 @@ public abstract class SerialException extends Exception {
 		super(cause.getMessage(), cause);
 	}
 
+	/**
+	 * Creates a new serial Exception with a message, for backends which raise this package's exceptions directly.
+	 * @param message The detail message
+	 */
+	protected SerialException(String message) {
+		super(message);
+	}
+
 //> ACCESSORS
 
 //> INSTANCE HELPER METHODS
@@ -23,15 +23,14 @@ package serial;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.TooManyListenersException;
+import java.util.concurrent.Future;
 
 /**
  * An RS-232 serial communications port.
  * <p>
- * <b>Please note: </b>This is a wrapper around
+ * <b>Please note: </b>This is a wrapper around a {@link BackendSerialPort}, e.g.
  * <code>javax.comm.SerialPort</code> (and so <code>gnu.io.SerialPort</code>).
  * The API definition is taken from Sun. So honor them!
  * </p>
@@ -42,68 +41,85 @@ import java.lang.reflect.Proxy;
  * 
  * @author gwellisch
  */
-public class SerialPort extends SerialClassWrapper
+public class SerialPort
 {
-	/**
-	 * Wrapper for SerialPortEventListeners
-	 */
-	private class SerialPortEventListenerHandler implements InvocationHandler
-	{
-		private SerialPortEventListener realListenerObject;
-
-		public SerialPortEventListenerHandler(SerialPortEventListener realListenerObj)
-		{
-			this.realListenerObject = realListenerObj;
-		}
-
-		/**
-		 * It's a simple interfaces. just call the only available method with
-		 * the (only) given argument
-		 */
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
-		{
-			this.realListenerObject.serialEvent(new SerialPortEvent(args[0]));
-			// The original interfaces is void
-			return null;
-		}
-	}
-
-//> STATIC CONSTANTS // TODO these constants should probably be enclosed in a static final singleton class hidden behind the static methods, as currently this initialisation is very weird and ill-defined
+//> STATIC CONSTANTS
 	/** RTS/CTS flow control on input. */
-	public static final int FLOWCONTROL_RTSCTS_IN;
+	public static final int FLOWCONTROL_RTSCTS_IN = 1;
 	/** 8 data bit format. */
-	public static final int DATABITS_8;
+	public static final int DATABITS_8 = 8;
 	/** Number of STOP bits - 1. */
-	public static final int STOPBITS_1;
+	public static final int STOPBITS_1 = 1;
 	/** No parity bit. */
-	public static final int PARITY_NONE;
+	public static final int PARITY_NONE = 0;
 	/** RTS/CTS flow control on output. */
-	public static final int FLOWCONTROL_RTSCTS_OUT;
-	static
-	{
-		// SET UP CONSTANTS
-		try
-		{
-			Class<?> classSerialPort = SerialClassFactory.getInstance().forName(SerialPort.class);
-			// get the value of constants
-			FLOWCONTROL_RTSCTS_IN = ReflectionHelper.getStaticInt(classSerialPort, "FLOWCONTROL_RTSCTS_IN");
-			DATABITS_8 = ReflectionHelper.getStaticInt(classSerialPort, "DATABITS_8");
-			STOPBITS_1 = ReflectionHelper.getStaticInt(classSerialPort, "STOPBITS_1");
-			PARITY_NONE = ReflectionHelper.getStaticInt(classSerialPort, "PARITY_NONE");
-			FLOWCONTROL_RTSCTS_OUT = ReflectionHelper.getStaticInt(classSerialPort, "FLOWCONTROL_RTSCTS_OUT");
-		} catch (NoSuchFieldException e) {
-			throw new IllegalStateException(e);
-		} catch (IllegalAccessException e) {
-			throw new IllegalStateException(e);
-		}
-	}
+	public static final int FLOWCONTROL_RTSCTS_OUT = 2;
+
+//> INSTANCE PROPERTIES
+	/** The backend's port, which all operations are passed to */
+	private final BackendSerialPort backendPort;
+	/** The channel returned by {@link #getChannel()}, created when first requested.  Guarded by <code>this</code>. */
+	private SerialChannel channel;
+	/** The dispatcher returned by {@link #getEventDispatcher()}, created when first requested.  Guarded by <code>this</code>. */
+	private SerialPortEventDispatcher eventDispatcher;
+	/** Handlers added with the <code>onXXX</code> methods, created when the first is added.  Guarded by <code>this</code>. */
+	private SerialPortEventHandlerTable eventHandlers;
+	/** Event types enabled with the <code>notifyOnXXX</code> methods, as a bitmask by event type.  Guarded by <code>this</code>. */
+	private long notifications;
+	/** Event types enabled because they have handlers in {@link #eventHandlers}, as a bitmask by event type.  Guarded by <code>this</code>. */
+	private long handlerNotifications;
+	/** The writer returned by {@link #getAsyncWriter()}, created when first requested.  Guarded by <code>this</code>. */
+	private AsyncSerialWriter asyncWriter;
+	/** Metrics of this port, or <code>null</code> if it was opened while {@link PortMetricsRegistry metrics} were disabled */
+	private volatile PortMetrics metrics;
 
 //> CONSTRUCTORS
-	/** @see SerialClassWrapper#SerialClassWrapper(Object) */
+	/** @param backendPort value for {@link #backendPort} */
+	protected SerialPort(BackendSerialPort backendPort) {
+		this.backendPort = backendPort;
+	}
+
+	/**
+	 * Create a new instance of this class, wrapping a port of a reflective backend, e.g. a <code>gnu.io.SerialPort</code>.
+	 * @param myRealObject the backend's port
+	 * @deprecated use {@link #SerialPort(BackendSerialPort)}
+	 */
+	@Deprecated
 	protected SerialPort(Object myRealObject) {
-		super(myRealObject);
+		this(myRealObject instanceof BackendSerialPort ? (BackendSerialPort) myRealObject : new ReflectiveSerialPort(myRealObject));
+	}
+
+//> ACCESSORS
+	/**
+	 * Gets the metrics of this port, which are only kept if it was opened while metrics were enabled.
+	 * @return {@link #metrics}
+	 * @see PortMetricsRegistry
+	 */
+	public PortMetrics getMetrics() {
+		return metrics;
+	}
+
+	/** @param metrics value for {@link #metrics} */
+	void setMetrics(PortMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the reflective backend's port which this wraps, e.g. a <code>gnu.io.SerialPort</code>, or
+	 *   <code>null</code> if the backend is not reflective
+	 * @deprecated the backend's port should not be used directly
+	 */
+	@Deprecated
+	public Object getRealObject() {
+		return backendPort instanceof SerialClassWrapper ? ((SerialClassWrapper) backendPort).getRealObject() : null;
 	}
 
+	/** @return {@link #backendPort} */
+	BackendSerialPort getBackendPort() {
+		return backendPort;
+	}
+
+//> INSTANCE METHODS
 	/**
 	 * Registers a SerialPortEventListener object to listen for SerialEvents.
 	 * Interest in specific events may be expressed using the notifyOnXXX calls.
@@ -127,32 +143,202 @@ public class SerialPort extends SerialClassWrapper
 	 *             a listener succeeds, subsequent attempts will throw
 	 *             TooManyListenersException without effecting the first
 	 *             listener.
+	 * @throws UnsupportedOperationException if the backend does not support events
 	 */
 	public void addEventListener(final SerialPortEventListener lsnr)
 	{
-		try
-		{
-			Class<?> spelClass = SerialClassFactory.getInstance().forName(SerialPortEventListener.class);
-			// Determine the exact interface argument type (javax.comm.SerialPortEventListener or gnu.io.SerialPortEventListener)
-			InvocationHandler handler = new SerialPortEventListenerHandler(lsnr);
-			// Create proxy class on the found interface type
-			Class<?> proxyClass = Proxy.getProxyClass(spelClass.getClassLoader(), spelClass);
-			// Bind our proxy object to the original addListener
-			Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "addEventListener", spelClass);
-			ReflectionHelper.invoke(method, this.getRealObject(), proxyClass.getConstructor(InvocationHandler.class).newInstance(handler));
-		}
-		catch (InvocationTargetException e)
-		{
-			throw new RuntimeException(new RuntimeException(e.getTargetException().toString()));
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
-		} catch (InstantiationException e) {
-			throw new RuntimeException(e);
-		} catch (NoSuchMethodException e) {
+		addBackendEventListener(new ListenerBridge.RealEventListener() {
+			public void serialEvent(int eventType, boolean oldValue, boolean newValue) {
+				lsnr.serialEvent(new SerialPortEvent(SerialPort.this, eventType, oldValue, newValue));
+			}
+
+			public void serialEvent(Object realEvent, int eventType, boolean oldValue, boolean newValue) {
+				lsnr.serialEvent(new SerialPortEvent(SerialPort.this, realEvent, eventType, oldValue, newValue));
+			}
+		});
+	}
+
+	/**
+	 * Registers a listener with the backend, which is passed the fields of each event without a
+	 * {@link SerialPortEvent} being created.
+	 * @param listener the listener
+	 * @see #addEventListener(SerialPortEventListener)
+	 */
+	void addBackendEventListener(BackendEventListener listener) {
+		try {
+			backendPort.addEventListener(listener);
+		} catch (TooManyListenersException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Gets the dispatcher for this port's events, which supports any number of listeners and delivers events
+	 * away from the driver's event thread.  The dispatcher registers itself with
+	 * {@link #addEventListener(SerialPortEventListener)} when its first listener is added, so it cannot be used
+	 * together with a listener added directly with that method.
+	 * @return the event dispatcher for this port
+	 */
+	public synchronized SerialPortEventDispatcher getEventDispatcher() {
+		if(eventDispatcher == null) {
+			eventDispatcher = new SerialPortEventDispatcher(this);
+		}
+		return eventDispatcher;
+	}
+
+	/**
+	 * Folds consecutive {@link SerialPortEvent#DATA_AVAILABLE} events into a single event for the listeners of the
+	 * {@link #getEventDispatcher()}, so that a stream of incoming data wakes them up far less often.
+	 * @param maxDelayMicros the longest time in microseconds to hold back the first of a run of events
+	 * @param byteThreshold deliver straight away once at least this many bytes are available
+	 * @throws IOException if the input stream of the port could not be got
+	 * @see SerialPortEventDispatcher#setDataAvailableCoalescing(long, int)
+	 */
+	public void setDataAvailableCoalescing(long maxDelayMicros, int byteThreshold) throws IOException {
+		getEventDispatcher().setDataAvailableCoalescing(maxDelayMicros, byteThreshold);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#DATA_AVAILABLE} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onDataAvailable(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.DATA_AVAILABLE, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onOutputEmpty(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.OUTPUT_BUFFER_EMPTY, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#CTS} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onCtsChange(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.CTS, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#DSR} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onDsrChange(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.DSR, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#CD} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onCarrierDetectChange(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.CD, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#RI} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onRingIndicator(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.RI, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#BI} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onBreakInterrupt(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.BI, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#OE} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onOverrun(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.OE, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#PE} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onParityError(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.PE, handler);
+	}
+
+	/**
+	 * Adds a handler for {@link SerialPortEvent#FE} events, and enables them.
+	 * @param handler the handler, called on the driver's event thread
+	 * @see #addEventHandler(int, SerialPortPrimitiveListener)
+	 */
+	public void onFramingError(SerialPortPrimitiveListener handler) {
+		addEventHandler(SerialPortEvent.FE, handler);
+	}
+
+	/**
+	 * Adds a handler for a single event type.  Handlers are kept in an array indexed by event type, which is
+	 * registered with the {@link #getEventDispatcher()} as one {@link SerialPortPrimitiveListener}, so an event is
+	 * routed to its handlers without a <code>switch</code> on its type.  When the first handler for a type is added,
+	 * the matching <code>notifyOnXXX</code> method is called to enable it; event types without handlers are left as
+	 * they are, so the driver need not generate them at all.  Notification of a type stays enabled while it has
+	 * handlers, even if its <code>notifyOnXXX</code> method is called with <code>false</code>.
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param handler the handler, called on the driver's event thread
+	 */
+	public void addEventHandler(int eventType, SerialPortPrimitiveListener handler) {
+		if(handler == null) throw new IllegalArgumentException("Handler must not be null.");
+		synchronized(this) {
+			SerialPortEventHandlerTable handlers = eventHandlers;
+			if(handlers == null) {
+				// Installed before any notification is enabled, and before any other caller can see the table
+				handlers = new SerialPortEventHandlerTable();
+				getEventDispatcher().addPrimitiveListener(handlers);
+				eventHandlers = handlers;
+			}
+			if(handlers.add(eventType, handler)) setNotification(eventType, true, true);
+		}
+	}
+
+	/**
+	 * Removes a handler from every event type it was added for.  Notification of any event type left without a
+	 * handler is disabled, unless it was also enabled with its <code>notifyOnXXX</code> method.
+	 * @param handler the handler to remove
+	 */
+	public synchronized void removeEventHandler(SerialPortPrimitiveListener handler) {
+		if(eventHandlers == null) return;
+		for(int eventType : eventHandlers.remove(handler)) {
+			setNotification(eventType, false, true);
+		}
+	}
+
+	/**
+	 * Records whether an event type is wanted by the <code>notifyOnXXX</code> methods or by the handlers, and enables
+	 * notification of it in the backend while either wants it.
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param enable <code>true</code> to enable notification, <code>false</code> to disable it
+	 * @param forHandlers <code>true</code> if called for {@link #eventHandlers}; <code>false</code> if called by a
+	 *   <code>notifyOnXXX</code> method
+	 */
+	private synchronized void setNotification(int eventType, boolean enable, boolean forHandlers) {
+		long bit = eventType >= 0 && eventType < Long.SIZE ? 1L << eventType : 0;
+		if(forHandlers) handlerNotifications = enable ? handlerNotifications | bit : handlerNotifications & ~bit;
+		else notifications = enable ? notifications | bit : notifications & ~bit;
+		backendPort.setNotification(eventType, enable || ((notifications | handlerNotifications) & bit) != 0);
+	}
+
 	/**
 	 * Closes the communications port. The application must call
 	 * <code>close</code> when it is done with the port. Notification of this
@@ -162,7 +348,20 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#close()
 	 */
 	public void close() {
-		super.invokeWithoutInvocationException("close");
+		AsyncSerialWriter writer;
+		synchronized(this) {
+			writer = asyncWriter;
+			asyncWriter = null;
+		}
+		if(writer != null) writer.close();
+		PortMetrics metrics = this.metrics;
+		if(metrics == null) {
+			backendPort.close();
+		} else {
+			long start = System.nanoTime();
+			backendPort.close();
+			metrics.recordClose(System.nanoTime() - start);
+		}
 	}
 
 	/**
@@ -190,13 +389,7 @@ public class SerialPort extends SerialClassWrapper
 	 */
 	public void enableReceiveThreshold(int i) throws UnsupportedCommOperationException
 	{
-		Method method = ReflectionHelper.getMethod(super.getWrappedClass(), "enableReceiveThreshold", int.class);
-		try {
-			ReflectionHelper.invoke(method, this.getRealObject(), i);
-		} catch (InvocationTargetException invocationException) {
-			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
-			throw new IllegalStateException(invocationException);
-		}
+		backendPort.enableReceiveThreshold(i);
 	}
 
 	/**
@@ -227,14 +420,7 @@ public class SerialPort extends SerialClassWrapper
 	 */
 	public void enableReceiveTimeout(int rcvTimeout) throws UnsupportedCommOperationException
 	{
-		Class<?>[] paramTypes = new Class<?>[] { int.class };
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "enableReceiveTimeout", paramTypes);
-		try {
-			ReflectionHelper.invoke(method, this.getRealObject(), rcvTimeout);
-		} catch (InvocationTargetException invocationException) {
-			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
-			throw new IllegalStateException(invocationException);
-		}
+		backendPort.enableReceiveTimeout(rcvTimeout);
 	}
 
 	/**
@@ -301,6 +487,11 @@ public class SerialPort extends SerialClassWrapper
 	 * This causes the underlying driver to poll for incoming data instead being
 	 * event driven. Otherwise, the behaviour is identical to having both the
 	 * Timeout and Threshold disabled.
+	 * <P>
+	 * With the tty and loopback backends, a read which times out without data
+	 * returns 0 from <CODE>read(byte[])</CODE> and throws
+	 * {@link java.io.InterruptedIOException} from <CODE>read()</CODE>.  Both
+	 * return -1 only once the port is closed.
 	 * 
 	 * @return InputStream object that can be used to read from the port
 	 * @throws IOException 
@@ -308,29 +499,23 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#getInputStream()
 	 */
 	public InputStream getInputStream() throws IOException
-	{		
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "getInputStream");
-		try {
-			return ReflectionHelper.invoke(InputStream.class, method, this.getRealObject());
-		} catch (InvocationTargetException invocationException) {
-			throwIfExpected(IOException.class, invocationException);
-			throw new IllegalStateException(invocationException);
-		}
+	{
+		InputStream in = backendPort.getInputStream();
+		PortMetrics metrics = this.metrics;
+		return metrics == null || in == null ? in : new MeteredInputStream(in, metrics);
 	}
 	
 	/**
-	 * Throws the wrapped exception if an {@link InvocationTargetException} was caused by the type specified
-	 * @param clazz 
-	 * @param <T> 
-	 * @param invocationException
-	 * @throws T 
-	 */
-	@SuppressWarnings("unchecked")
-	private static final <T extends Throwable> void throwIfExpected(Class<T> clazz, InvocationTargetException invocationException) throws T {
-		Throwable cause = invocationException.getCause();
-		if(clazz.equals(cause.getClass())) {
-			throw (T) cause;
-		}
+	 * Gets a new buffered stream over {@link #getInputStream()}, which reads from the port in bulk and lets parsers scan
+	 * the buffered bytes without consuming them.  Bytes buffered by one such stream cannot be read from another, so a
+	 * single buffered stream should be used for the life of the port.
+	 * @param capacity the minimum size of the ring buffer; rounded up to a power of two
+	 * @return a new buffered input stream for this port
+	 * @throws IOException if the port's input stream could not be got
+	 * @see RingBufferInputStream
+	 */
+	public RingBufferInputStream getBufferedInputStream(int capacity) throws IOException {
+		return new RingBufferInputStream(getInputStream(), capacity);
 	}
 
 	/**
@@ -345,13 +530,73 @@ public class SerialPort extends SerialClassWrapper
 	 */
 	public OutputStream getOutputStream() throws IOException
 	{
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "getOutputStream");
-		try {
-			return ReflectionHelper.invoke(OutputStream.class, method, this.getRealObject());
-		} catch (InvocationTargetException invocationException) {
-			throwIfExpected(IOException.class, invocationException);
-			throw new IllegalStateException(invocationException);
+		OutputStream out = backendPort.getOutputStream();
+		PortMetrics metrics = this.metrics;
+		return metrics == null || out == null ? out : new MeteredOutputStream(out, metrics);
+	}
+
+	/**
+	 * Gets a new stream over {@link #getOutputStream()} which gathers small writes into one driver write.
+	 * @param bufferSize the number of buffered bytes at which they are written to the port
+	 * @param flushDelayMicros the longest time in microseconds a byte may wait before being written to the port
+	 * @return a new coalescing output stream for this port
+	 * @throws IOException if the port's output stream could not be got
+	 * @see CoalescingOutputStream
+	 */
+	public CoalescingOutputStream getCoalescingOutputStream(int bufferSize, long flushDelayMicros) throws IOException {
+		return new CoalescingOutputStream(getOutputStream(), bufferSize, flushDelayMicros);
+	}
+
+	/**
+	 * Gets the writer which queues writes to this port and makes them on its own thread.
+	 * @return the asynchronous writer for this port
+	 * @throws IOException if the port's channel could not be got
+	 * @see AsyncSerialWriter
+	 */
+	public synchronized AsyncSerialWriter getAsyncWriter() throws IOException {
+		if(asyncWriter == null) {
+			asyncWriter = new AsyncSerialWriter(this, getChannel());
+		}
+		return asyncWriter;
+	}
+
+	/**
+	 * Queues the remaining bytes of a buffer to be written by the {@link #getAsyncWriter()}, without blocking.  Callers
+	 * producing a lot of data should respect {@link AsyncSerialWriter#isWritable()}.
+	 * @param src the bytes to write; must not be modified until the returned future completes
+	 * @return a future which completes with the number of bytes written
+	 * @throws IOException if the port's channel could not be got
+	 * @see AsyncSerialWriter#writeAsync(ByteBuffer)
+	 */
+	public Future<Integer> writeAsync(ByteBuffer src) throws IOException {
+		return getAsyncWriter().writeAsync(src);
+	}
+
+	/**
+	 * Returns a channel for reading from and writing to this port.  If the backend provides its own
+	 * {@link SerialChannel}, that is used.  Otherwise the channel
+	 * is an adapter over {@link #getInputStream()} and {@link #getOutputStream()}.  The same channel is
+	 * returned on every call.
+	 * <p>
+	 * The channel is not interruptible: interrupting a thread blocked in a read or write neither wakes the thread
+	 * nor closes the channel or the port.  Use the receive timeout to bound reads.
+	 * </p>
+	 * 
+	 * @return SerialChannel object that can be used to read from and write to the port
+	 * @throws IOException if the streams of the port could not be fetched
+	 */
+	public synchronized SerialChannel getChannel() throws IOException
+	{
+		if(channel == null) {
+			channel = backendPort.getChannel();
+			if(channel != null) {
+				PortMetrics metrics = this.metrics;
+				if(metrics != null) channel = new MeteredSerialChannel(channel, metrics);
+			} else {
+				channel = new StreamSerialChannel(getInputStream(), getOutputStream());
+			}
 		}
+		return channel;
 	}
 
 	/**
@@ -367,7 +612,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnBreakInterrupt(boolean)
 	 */
 	public void notifyOnBreakInterrupt(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnBreakInterrupt", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.BI, b, false);
 	}
 
 	/**
@@ -386,7 +631,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnDataAvailable(boolean)
 	 */
 	public void notifyOnDataAvailable(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnDataAvailable", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.DATA_AVAILABLE, b, false);
 	}
 
 	/**
@@ -402,7 +647,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnFramingError(boolean)
 	 */
 	public void notifyOnFramingError(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnFramingError", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.FE, b, false);
 	}
 	
 	/**
@@ -412,16 +657,54 @@ public class SerialPort extends SerialClassWrapper
 	 * @param b
 	 */
 	public void notifyOnCTS(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnCTS", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.CTS, b, false);
 	}
 
 	/**
 	 * Wrapper for javax COMM and RXTXcomm method
+	 * @see gnu.io.SerialPort#notifyOnDSR(boolean)
+	 * @see javax.comm.SerialPort#notifyOnDSR(boolean)
+	 * @param b
+	 */
+	public void notifyOnDSR(boolean b) {
+		setNotification(SerialPortEvent.DSR, b, false);
+	}
+
+	/**
+	 * Wrapper for javax COMM and RXTXcomm method
+	 * @see gnu.io.SerialPort#notifyOnCarrierDetect(boolean)
+	 * @see javax.comm.SerialPort#notifyOnCarrierDetect(boolean)
+	 * @param b
+	 */
+	public void notifyOnCarrierDetect(boolean b) {
+		setNotification(SerialPortEvent.CD, b, false);
+	}
+
+	/**
+	 * Wrapper for javax COMM and RXTXcomm method
+	 * @see gnu.io.SerialPort#notifyOnRingIndicator(boolean)
+	 * @see javax.comm.SerialPort#notifyOnRingIndicator(boolean)
+	 * @param b
+	 */
+	public void notifyOnRingIndicator(boolean b) {
+		setNotification(SerialPortEvent.RI, b, false);
+	}
+
+	/**
+	 * Removes the backend's listener.  This also detaches the {@link #getEventDispatcher()} and all of its
+	 * listeners; a subsequent call to {@link #getEventDispatcher()} will return a new dispatcher.
 	 * @see gnu.io.SerialPort#removeEventListener()
 	 * @see javax.comm.SerialPort#removeEventListener()
 	 */
 	public void removeEventListener() {
-		super.invokeWithoutInvocationException("removeEventListener");
+		backendPort.removeEventListener();
+		synchronized(this) {
+			eventDispatcher = null;
+			eventHandlers = null;
+			for(int eventType=0; eventType<Long.SIZE; ++eventType) {
+				if((handlerNotifications & (1L << eventType)) != 0) setNotification(eventType, false, true);
+			}
+		}
 	}
 
 	/**
@@ -440,7 +723,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnOutputEmpty(boolean)
 	 */
 	public void notifyOnOutputEmpty(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnOutputEmpty", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.OUTPUT_BUFFER_EMPTY, b, false);
 	}
 
 	/**
@@ -456,7 +739,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnOverrunError(boolean)
 	 */
 	public void notifyOnOverrunError(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnOverrunError", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.OE, b, false);
 	}
 
 	/**
@@ -472,7 +755,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#notifyOnParityError(boolean)
 	 */
 	public void notifyOnParityError(boolean b) {
-		super.invokeWithoutInvocationException("notifyOnParityError", new Class<?>[]{boolean.class}, b);
+		setNotification(SerialPortEvent.PE, b, false);
 	}
 
 	/**
@@ -497,14 +780,7 @@ public class SerialPort extends SerialClassWrapper
 	 */
 	public void setFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException
 	{
-		Class<?>[] paramTypes = new Class<?>[] { int.class };
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "setFlowControlMode", paramTypes);
-		try {
-			ReflectionHelper.invoke(method, this.getRealObject(), flowcontrol);
-		} catch (InvocationTargetException invocationException) {
-			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
-			throw new IllegalStateException(invocationException);
-		}
+		backendPort.setFlowControlMode(flowcontrol);
 	}
 
 	/**
@@ -518,7 +794,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#setInputBufferSize(int)
 	 */
 	public void setInputBufferSize(int serial_buffer_size) {
-		super.invokeWithoutInvocationException("setInputBufferSize", new Class<?>[]{int.class}, serial_buffer_size);
+		backendPort.setInputBufferSize(serial_buffer_size);
 	}
 
 	/**
@@ -531,7 +807,7 @@ public class SerialPort extends SerialClassWrapper
 	 * @see javax.comm.SerialPort#setOutputBufferSize(int)
 	 */
 	public void setOutputBufferSize(int serial_buffer_size) {
-		super.invokeWithoutInvocationException("setOutputBufferSize", new Class<?>[]{int.class}, serial_buffer_size);
+		backendPort.setOutputBufferSize(serial_buffer_size);
 	}
 
 	/**
@@ -566,13 +842,6 @@ public class SerialPort extends SerialClassWrapper
 	 */
 	public void setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) throws UnsupportedCommOperationException
 	{
-		Class<?>[] paramTypes = new Class<?>[] { int.class, int.class, int.class, int.class };
-		Method method = ReflectionHelper.getMethod(this.getWrappedClass(), "setSerialPortParams", paramTypes);
-		try {
-			ReflectionHelper.invoke(method, this.getRealObject(), baudrate, dataBits, stopBits, parity);
-		} catch (InvocationTargetException invocationException) {
-			SerialException.throwIfMatches(UnsupportedCommOperationException.class, invocationException);
-			throw new IllegalStateException(invocationException);
-		}
+		backendPort.setSerialPortParams(baudrate, dataBits, stopBits, parity);
 	}
 }
@@ -1,65 +1,55 @@
 
 package serial;
 
-import java.lang.reflect.Constructor;
+import java.util.EventObject;
 
 /**
  * A serial port event.
  * <p>
- * <b>Please note: </b>This is a wrapper around
+ * <b>Please note: </b>This mirrors
  * <code>javax.comm.SerialPortEvent</code> (and so
- * <code>gnu.io.SerialPortEvent</code>). The API definition is taken from
- * Sun. So honor them!
+ * <code>gnu.io.SerialPortEvent</code>), whose constant values it shares.
+ * The API definition is taken from Sun. So honor them!
  * </p>
  * 
  * @author Jagane Sundar
  */
-public class SerialPortEvent extends SerialClassWrapper
+@SuppressWarnings("serial")
+public class SerialPortEvent extends EventObject
 {
-//> STATIC CONSTANTS // TODO these constants should probably be enclosed in a static final singleton class hidden behind the static methods, as currently this initialisation is very weird and ill-defined
+//> STATIC CONSTANTS
 	/** Break interrupt. */
-	public static final int BI;
+	public static final int BI = 10;
 	/** Carrier detect. */
-	public static final int CD;
+	public static final int CD = 6;
 	/** Clear to send. */
-	public static final int CTS;
+	public static final int CTS = 3;
 	/** Data available at the serial port. */
-	public static final int DATA_AVAILABLE;
+	public static final int DATA_AVAILABLE = 1;
 	/** Data set ready. */
-	public static final int DSR;
+	public static final int DSR = 4;
 	/** Framing error. */
-	public static final int FE;
+	public static final int FE = 9;
 	/** Overrun error. */
-	public static final int OE;
+	public static final int OE = 7;
 	/** Output buffer is empty. */
-	public static final int OUTPUT_BUFFER_EMPTY;
+	public static final int OUTPUT_BUFFER_EMPTY = 2;
 	/** Parity error. */
-	public static final int PE;
+	public static final int PE = 8;
 	/** Ring indicator. */
-	public static final int RI;
-	static
-	{
-		// SET UP CONSTANTS
-		try
-		{
-			Class<?> classSerialPortEvent = SerialClassFactory.getInstance().forName(SerialPortEvent.class);
-			// get the value of constants
-			BI = ReflectionHelper.getStaticInt(classSerialPortEvent, "BI");
-			CD = ReflectionHelper.getStaticInt(classSerialPortEvent, "CD");
-			CTS = ReflectionHelper.getStaticInt(classSerialPortEvent, "CTS");
-			DATA_AVAILABLE = ReflectionHelper.getStaticInt(classSerialPortEvent, "DATA_AVAILABLE");
-			DSR = ReflectionHelper.getStaticInt(classSerialPortEvent, "DSR");
-			FE = ReflectionHelper.getStaticInt(classSerialPortEvent, "FE");
-			OE = ReflectionHelper.getStaticInt(classSerialPortEvent, "OE");
-			OUTPUT_BUFFER_EMPTY = ReflectionHelper.getStaticInt(classSerialPortEvent, "OUTPUT_BUFFER_EMPTY");
-			PE = ReflectionHelper.getStaticInt(classSerialPortEvent, "PE");
-			RI = ReflectionHelper.getStaticInt(classSerialPortEvent, "RI");
-		}
-		catch (Exception e)
-		{
-			throw new RuntimeException(e);
-		}
-	}
+	public static final int RI = 5;
+
+//> INSTANCE PROPERTIES
+	/** The event type */
+	private final int eventType;
+	/** The new value of the state which changed */
+	private final boolean newValue;
+	/** The old value of the state which changed */
+	private final boolean oldValue;
+	/** The reflective backend's event which this was created from, or <code>null</code> */
+	private final Object realObject;
+	/** Number of bytes available when a coalesced {@link #DATA_AVAILABLE} event was delivered, or <code>-1</code> */
+	private int bytesAvailable = -1;
 
 //> CONSTRUCTORS
 	/**
@@ -78,35 +68,36 @@ public class SerialPortEvent extends SerialClassWrapper
 	 */
 	public SerialPortEvent(SerialPort srcport, int eventtype, boolean oldvalue, boolean newvalue)
 	{
-		super(constructRealObject(srcport, eventtype, oldvalue, newvalue));
+		this(srcport, null, eventtype, oldvalue, newvalue);
 	}
 
-	SerialPortEvent(Object obj)
+	/**
+	 * @param srcport source serial port
+	 * @param realObject value for {@link #realObject}
+	 * @param eventtype event type
+	 * @param oldvalue old value
+	 * @param newvalue new value
+	 */
+	SerialPortEvent(SerialPort srcport, Object realObject, int eventtype, boolean oldvalue, boolean newvalue)
 	{
-		super(obj);
+		super(srcport);
+		this.realObject = realObject;
+		this.eventType = eventtype;
+		this.oldValue = oldvalue;
+		this.newValue = newvalue;
 	}
-	
+
+//> ACCESSORS
 	/**
-	 * Constructs the real object for wrapping with this class.
-	 * @param srcport
-	 * @param eventtype
-	 * @param oldvalue
-	 * @param newvalue
-	 * @return
+	 * @return the reflective backend's event which this was created from, e.g. a <code>gnu.io.SerialPortEvent</code>, or
+	 *   <code>null</code> if the backend is not reflective or the event was delivered by a {@link SerialPortEventDispatcher}
+	 * @deprecated the backend's event should not be used directly
 	 */
-	private static Object constructRealObject(SerialPort srcport, int eventtype, boolean oldvalue, boolean newvalue) {
-		try
-		{
-			Constructor<?> constr = SerialClassFactory.getInstance().forName(SerialPortEvent.class).getConstructor(SerialPort.class, int.class, boolean.class, boolean.class);
-			return constr.newInstance(srcport, eventtype, oldvalue, newvalue);
-		}
-		catch (Exception e)
-		{
-			throw new RuntimeException(e);
-		}
+	@Deprecated
+	public Object getRealObject() {
+		return realObject;
 	}
 
-//> ACCESSORS
 	/**
 	 * Gets the type of this event.
 	 * 
@@ -119,7 +110,7 @@ public class SerialPortEvent extends SerialClassWrapper
 	 * @see javax.comm.SerialPortEvent#getEventType()
 	 */
 	public int getEventType() {
-		return invokeWithoutInvocationException(int.class, "getEventType");
+		return eventType;
 	}
 
 	/**
@@ -131,7 +122,7 @@ public class SerialPortEvent extends SerialClassWrapper
 	 * @see javax.comm.SerialPortEvent#getNewValue()
 	 */
 	public boolean getNewValue() {
-		return invokeWithoutInvocationException(boolean.class, "getNewValue");
+		return newValue;
 	}
 
 	/**
@@ -143,6 +134,21 @@ public class SerialPortEvent extends SerialClassWrapper
 	 * @see javax.comm.SerialPortEvent#getOldValue()
 	 */
 	public boolean getOldValue() {
-		return invokeWithoutInvocationException(boolean.class, "getOldValue");
+		return oldValue;
+	}
+
+	/**
+	 * Gets the number of bytes which could be read without blocking when this event was delivered.  This is only known for
+	 * {@link #DATA_AVAILABLE} events which a {@link SerialPortEventDispatcher} has coalesced.
+	 * @return the number of bytes available, or <code>-1</code> if not known
+	 * @see SerialPort#setDataAvailableCoalescing(long, int)
+	 */
+	public int getBytesAvailable() {
+		return bytesAvailable;
+	}
+
+	/** @param bytesAvailable value for {@link #bytesAvailable} */
+	void setBytesAvailable(int bytesAvailable) {
+		this.bytesAvailable = bytesAvailable;
 	}
 }
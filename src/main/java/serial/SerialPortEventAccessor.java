@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package serial;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reads the fields of the backend's event objects, with the accessor methods resolved once for the backend's event class.
+ * @author Alex
+ */
+final class SerialPortEventAccessor {
+//> STATIC CONSTANTS
+	/** Signature of <code>getEventType()</code> */
+	private static final MethodSignature GET_EVENT_TYPE = new MethodSignature("getEventType");
+	/** Signature of <code>getNewValue()</code> */
+	private static final MethodSignature GET_NEW_VALUE = new MethodSignature("getNewValue");
+	/** Signature of <code>getOldValue()</code> */
+	private static final MethodSignature GET_OLD_VALUE = new MethodSignature("getOldValue");
+
+//> INSTANCE PROPERTIES
+	/** The backend's event class */
+	private final Class<?> eventClass;
+	/** <code>getEventType()</code> of {@link #eventClass} */
+	private final Method getEventType;
+	/** <code>getOldValue()</code> of {@link #eventClass} */
+	private final Method getOldValue;
+	/** <code>getNewValue()</code> of {@link #eventClass} */
+	private final Method getNewValue;
+
+//> CONSTRUCTORS
+	/** @param eventClass value for {@link #eventClass} */
+	SerialPortEventAccessor(Class<?> eventClass) {
+		DispatchTable table = DispatchTable.forClass(eventClass);
+		this.eventClass = eventClass;
+		this.getEventType = table.getMethod(GET_EVENT_TYPE);
+		this.getOldValue = table.getMethod(GET_OLD_VALUE);
+		this.getNewValue = table.getMethod(GET_NEW_VALUE);
+	}
+
+//> ACCESSORS
+	/**
+	 * @param realEvent a backend event object
+	 * @return <code>true</code> if this accessor can read the supplied event
+	 */
+	boolean accepts(Object realEvent) {
+		return realEvent.getClass() == eventClass;
+	}
+
+	/**
+	 * @param realEvent a backend event object of {@link #eventClass}
+	 * @return the event type
+	 */
+	int getEventType(Object realEvent) {
+		return ReflectionHelper.invokeWithoutInvocationException(Integer.class, getEventType, realEvent, ReflectionHelper.NO_ARGUMENTS).intValue();
+	}
+
+	/**
+	 * @param realEvent a backend event object of {@link #eventClass}
+	 * @return the old value
+	 */
+	boolean getOldValue(Object realEvent) {
+		return ReflectionHelper.invokeWithoutInvocationException(Boolean.class, getOldValue, realEvent, ReflectionHelper.NO_ARGUMENTS).booleanValue();
+	}
+
+	/**
+	 * @param realEvent a backend event object of {@link #eventClass}
+	 * @return the new value
+	 */
+	boolean getNewValue(Object realEvent) {
+		return ReflectionHelper.invokeWithoutInvocationException(Boolean.class, getNewValue, realEvent, ReflectionHelper.NO_ARGUMENTS).booleanValue();
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.EventListener;
+import java.util.List;
+
+/**
+ * Listener which receives every event queued for it since its last call in a single callback, rather than one call
+ * per event.  Register with {@link SerialPortEventDispatcher#addBatchListener(SerialPortEventBatchListener)}.
+ * @author Alex
+ */
+public interface SerialPortEventBatchListener extends EventListener {
+	/**
+	 * Called with one or more events, in the order they were raised.
+	 * @param port the port which raised the events
+	 * @param events the events; never empty, and only valid for the duration of the call
+	 */
+	void serialEvents(SerialPort port, List<SerialPortEvent> events);
+}
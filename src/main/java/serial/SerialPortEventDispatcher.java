@@ -0,0 +1,591 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Delivers the events of a single {@link SerialPort} to any number of listeners, away from the driver's event thread.
+ * <p>
+ * The dispatcher registers itself as the port's only backend listener.  When the driver raises an event, the
+ * dispatcher adds it to the queue of each registered listener and returns straight away.  Each listener's queue
+ * is drained in order by a task on that listener's {@link Executor}, so a slow listener delays only its own events.
+ * Listeners registered without an executor share a pool of daemon threads.
+ * </p>
+ * <p>
+ * Registration uses copy-on-write, so adding or removing a listener never blocks event delivery.  Queue depth and
+ * the latency between the driver raising an event and a listener receiving it are recorded.
+ * </p>
+ * <p>
+ * Each listener's queue holds at most {@link #setMaxQueueDepth(int) a maximum number} of events, so a listener which
+ * cannot keep up falls behind rather than using more and more memory.  When a queue is full, a
+ * {@link SerialPortEvent#DATA_AVAILABLE} event is dropped if one is already waiting in it, since that one will prompt
+ * the listener to read; any other event makes room for itself by dropping the oldest event in the queue, other than
+ * the only waiting {@link SerialPortEvent#DATA_AVAILABLE}.  Dropped events are counted.
+ * </p>
+ * <p>
+ * {@link SerialPortPrimitiveListener}s are the exception: they are called directly on the driver's event thread with
+ * the fields of the event, as the backend passed them.  If only primitive listeners are registered, no
+ * {@link SerialPortEvent} is created at all.
+ * </p>
+ * <p>
+ * With {@link #setDataAvailableCoalescing(long, int)}, a run of {@link SerialPortEvent#DATA_AVAILABLE} events is
+ * folded into one event carrying the number of bytes available, which is queued once enough bytes have arrived or
+ * the first event of the run has waited long enough.  {@link SerialPortEventBatchListener}s receive all of their
+ * queued events in one call.  Neither applies to primitive listeners, which are still called for every event.
+ * </p>
+ * @author Alex
+ */
+public class SerialPortEventDispatcher implements BackendEventListener {
+//> STATIC CONSTANTS
+	/** Executor shared by listeners registered without one */
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "SerialPortEventDispatcher-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** Timer shared by all dispatchers for flushing coalesced events */
+	private static final ScheduledExecutorService COALESCING_TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "SerialPortEventDispatcher-coalescing");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** Default value for {@link #maxQueueDepth} */
+	public static final int DEFAULT_MAX_QUEUE_DEPTH = 1024;
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The port whose events are dispatched */
+	private final SerialPort port;
+	/** The registered listeners */
+	private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+	/** The registered primitive listeners.  Replaced, never modified, so it can be iterated on the driver thread without an iterator.  Guarded by <code>this</code> for writes. */
+	private volatile SerialPortPrimitiveListener[] primitiveListeners = new SerialPortPrimitiveListener[0];
+	/** Number of events received from the driver */
+	private final AtomicLong receivedCount = new AtomicLong();
+	/** Number of events delivered to listeners; an event delivered to two listeners is counted twice */
+	private final AtomicLong dispatchedCount = new AtomicLong();
+	/** Total nanoseconds between events being received and being delivered, over {@link #dispatchedCount} deliveries */
+	private final AtomicLong totalDispatchLatency = new AtomicLong();
+	/** Longest time in nanoseconds between an event being received and being delivered */
+	private final AtomicLong maxDispatchLatency = new AtomicLong();
+	/** Largest number of events queued for a single listener */
+	private volatile int maxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
+	/** Number of events not delivered to a listener because its queue was full; an event dropped for two listeners is counted twice */
+	private final AtomicLong droppedCount = new AtomicLong();
+	/** <code>true</code> once this dispatcher has been registered with the port's backend */
+	private boolean installed;
+	/** Number of {@link SerialPortEvent#DATA_AVAILABLE} events folded into an earlier event by coalescing */
+	private final AtomicLong coalescedCount = new AtomicLong();
+	/** Lock guarding the coalescing state below */
+	private final Object coalescingLock = new Object();
+	/** Longest time in nanoseconds to hold back a coalesced event, or <code>0</code> if coalescing is disabled */
+	private volatile long coalescingDelay;
+	/** Number of available bytes at which a coalesced event is queued without waiting for {@link #coalescingDelay} */
+	private int coalescingByteThreshold;
+	/** The port's input stream, for checking the bytes available while coalescing */
+	private InputStream coalescingInput;
+	/** <code>true</code> while a run of events is being coalesced */
+	private boolean pendingEvent;
+	/** Old value of the latest event of the run being coalesced */
+	private boolean pendingOldValue;
+	/** New value of the latest event of the run being coalesced */
+	private boolean pendingNewValue;
+	/** {@link System#nanoTime()} when the first event of the run being coalesced was received */
+	private long pendingReceivedNanos;
+	/** Task which will queue the pending event when {@link #coalescingDelay} expires, or <code>null</code> */
+	private ScheduledFuture<?> pendingFlush;
+	/** Task run by {@link #COALESCING_TIMER} to queue the pending event */
+	private final Runnable flushTask = new Runnable() {
+		public void run() {
+			synchronized(coalescingLock) {
+				pendingFlush = null;
+				if(pendingEvent) flushPendingEvent(getBytesAvailable());
+			}
+		}
+	};
+
+//> CONSTRUCTORS
+	/** @param port value for {@link #port} */
+	SerialPortEventDispatcher(SerialPort port) {
+		this.port = port;
+	}
+
+//> ACCESSORS
+	/** @return the total number of events waiting to be delivered, over all listeners */
+	public int getQueueDepth() {
+		int depth = 0;
+		for(Registration registration : registrations) depth += registration.queueDepth.get();
+		return depth;
+	}
+
+	/** @return the number of events received from the driver */
+	public long getReceivedCount() {
+		return receivedCount.get();
+	}
+
+	/** @return the number of events delivered to listeners; an event delivered to two listeners is counted twice */
+	public long getDispatchedCount() {
+		return dispatchedCount.get();
+	}
+
+	/** @return the mean nanoseconds between an event being received and being delivered to a listener */
+	public long getMeanDispatchLatencyNanos() {
+		long count = dispatchedCount.get();
+		return count == 0 ? 0 : totalDispatchLatency.get() / count;
+	}
+
+	/** @return the longest nanoseconds between an event being received and being delivered to a listener */
+	public long getMaxDispatchLatencyNanos() {
+		return maxDispatchLatency.get();
+	}
+
+	/** @return the number of {@link SerialPortEvent#DATA_AVAILABLE} events which were folded into an earlier event rather than queued */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/** @return the number of events not delivered to a listener because its queue was full */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/** @return the largest number of events queued for a single listener */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Sets the largest number of events queued for a single listener.  Queues already longer are trimmed as events
+	 * are added to them.
+	 * @param maxQueueDepth the largest number of events; must be positive
+	 */
+	public void setMaxQueueDepth(int maxQueueDepth) {
+		if(maxQueueDepth < 1) throw new IllegalArgumentException("Maximum queue depth must be at least 1: " + maxQueueDepth);
+		this.maxQueueDepth = maxQueueDepth;
+	}
+
+	/**
+	 * Enables coalescing of {@link SerialPortEvent#DATA_AVAILABLE} events.  The first event of a run is held back until
+	 * at least <code>byteThreshold</code> bytes are available or <code>maxDelayMicros</code> has passed, and any
+	 * further events meanwhile are folded into it.  The event then queued reports the bytes available through
+	 * {@link SerialPortEvent#getBytesAvailable()}.
+	 * @param maxDelayMicros the longest time in microseconds to hold back an event; must be positive
+	 * @param byteThreshold the number of available bytes at which the event is queued straight away; must be positive
+	 * @throws IOException if the input stream of the port could not be got
+	 */
+	public void setDataAvailableCoalescing(long maxDelayMicros, int byteThreshold) throws IOException {
+		if(maxDelayMicros < 1) throw new IllegalArgumentException("Maximum delay must be at least 1us: " + maxDelayMicros);
+		if(byteThreshold < 1) throw new IllegalArgumentException("Byte threshold must be at least 1: " + byteThreshold);
+		InputStream in = port.getInputStream();
+		synchronized(coalescingLock) {
+			coalescingInput = in;
+			coalescingByteThreshold = byteThreshold;
+			coalescingDelay = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+		}
+	}
+
+	/** Disables coalescing of {@link SerialPortEvent#DATA_AVAILABLE} events.  Any event being held back is queued now. */
+	public void disableDataAvailableCoalescing() {
+		synchronized(coalescingLock) {
+			coalescingDelay = 0;
+			if(pendingEvent) flushPendingEvent(getBytesAvailable());
+			coalescingInput = null;
+		}
+	}
+
+//> LISTENER REGISTRATION
+	/**
+	 * Adds a listener, whose events will be delivered on the shared dispatcher threads.
+	 * @param listener the listener to add
+	 */
+	public void addListener(SerialPortEventListener listener) {
+		addListener(listener, DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Adds a listener, whose events will be delivered by tasks on the supplied executor.  No more than one task per
+	 * listener is submitted at a time, so events arrive in order even on a multi-threaded executor.
+	 * @param listener the listener to add
+	 * @param executor the executor to deliver events on
+	 */
+	public void addListener(SerialPortEventListener listener, Executor executor) {
+		if(listener == null) throw new IllegalArgumentException("Listener must not be null.");
+		if(executor == null) throw new IllegalArgumentException("Executor must not be null.");
+		registrations.add(new Registration(listener, null, executor));
+		install();
+	}
+
+	/**
+	 * Adds a batch listener, whose events will be delivered on the shared dispatcher threads.
+	 * @param listener the listener to add
+	 */
+	public void addBatchListener(SerialPortEventBatchListener listener) {
+		addBatchListener(listener, DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Adds a batch listener, which will be called on the supplied executor with all events queued since its last call.
+	 * @param listener the listener to add
+	 * @param executor the executor to deliver events on
+	 */
+	public void addBatchListener(SerialPortEventBatchListener listener, Executor executor) {
+		if(listener == null) throw new IllegalArgumentException("Listener must not be null.");
+		if(executor == null) throw new IllegalArgumentException("Executor must not be null.");
+		registrations.add(new Registration(null, listener, executor));
+		install();
+	}
+
+	/**
+	 * Removes a listener.  Events already queued for it are discarded.
+	 * @param listener the listener to remove
+	 */
+	public void removeListener(SerialPortEventListener listener) {
+		for(Registration registration : registrations) {
+			if(registration.listener == listener) {
+				registrations.remove(registration);
+				registration.removed = true;
+			}
+		}
+	}
+
+	/**
+	 * Removes a batch listener.  Events already queued for it are discarded.
+	 * @param listener the listener to remove
+	 */
+	public void removeBatchListener(SerialPortEventBatchListener listener) {
+		for(Registration registration : registrations) {
+			if(registration.batchListener == listener) {
+				registrations.remove(registration);
+				registration.removed = true;
+			}
+		}
+	}
+
+	/**
+	 * Adds a listener which will be called on the driver's event thread with the fields of each event.
+	 * @param listener the listener to add
+	 */
+	public void addPrimitiveListener(SerialPortPrimitiveListener listener) {
+		if(listener == null) throw new IllegalArgumentException("Listener must not be null.");
+		synchronized(this) {
+			SerialPortPrimitiveListener[] listeners = new SerialPortPrimitiveListener[primitiveListeners.length + 1];
+			System.arraycopy(primitiveListeners, 0, listeners, 0, primitiveListeners.length);
+			listeners[primitiveListeners.length] = listener;
+			primitiveListeners = listeners;
+		}
+		install();
+	}
+
+	/** @param listener the primitive listener to remove */
+	public synchronized void removePrimitiveListener(SerialPortPrimitiveListener listener) {
+		List<SerialPortPrimitiveListener> listeners = new ArrayList<SerialPortPrimitiveListener>(Arrays.asList(primitiveListeners));
+		listeners.remove(listener);
+		primitiveListeners = listeners.toArray(new SerialPortPrimitiveListener[listeners.size()]);
+	}
+
+//> DRIVER CALLBACK
+	/**
+	 * Called on the driver's event thread with the fields of the backend's event.  Calls the primitive listeners,
+	 * queues the event for every other listener and returns.
+	 * @see BackendEventListener#serialEvent(int, boolean, boolean)
+	 */
+	public void serialEvent(int eventType, boolean oldValue, boolean newValue) {
+		long receivedNanos = System.nanoTime();
+		receivedCount.incrementAndGet();
+		PortMetrics metrics = port.getMetrics();
+		if(metrics != null) metrics.recordEvent(eventType);
+
+		SerialPortPrimitiveListener[] listeners = primitiveListeners;
+		for(int i=0; i<listeners.length; ++i) {
+			SerialPortPrimitiveListener listener = listeners[i];
+			try {
+				listener.onEvent(port, eventType, oldValue, newValue, receivedNanos);
+			} catch(RuntimeException ex) {
+				log.warn("Serial port primitive listener threw an exception.", ex);
+			}
+		}
+
+		if(!registrations.isEmpty()) {
+			if(eventType == SerialPortEvent.DATA_AVAILABLE && coalescingDelay > 0) {
+				coalesce(oldValue, newValue, receivedNanos);
+			} else {
+				enqueue(new SerialPortEvent(port, eventType, oldValue, newValue), receivedNanos);
+			}
+		}
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Queues an event for every listener.
+	 * @param ev the event
+	 * @param receivedNanos {@link System#nanoTime()} when the event was received
+	 */
+	private void enqueue(SerialPortEvent ev, long receivedNanos) {
+		QueuedEvent queued = new QueuedEvent(ev, receivedNanos);
+		for(Registration registration : registrations) {
+			registration.enqueue(queued);
+		}
+	}
+
+	/**
+	 * Folds a {@link SerialPortEvent#DATA_AVAILABLE} event into the run being coalesced, and queues the run's event if
+	 * enough bytes are now available.
+	 * @param oldValue the old value of the event
+	 * @param newValue the new value of the event
+	 * @param receivedNanos {@link System#nanoTime()} when the event was received
+	 */
+	private void coalesce(boolean oldValue, boolean newValue, long receivedNanos) {
+		synchronized(coalescingLock) {
+			if(coalescingDelay <= 0) {
+				// Coalescing was disabled since the caller checked
+				enqueue(new SerialPortEvent(port, SerialPortEvent.DATA_AVAILABLE, oldValue, newValue), receivedNanos);
+				return;
+			}
+			if(!pendingEvent) {
+				pendingReceivedNanos = receivedNanos;
+			} else {
+				coalescedCount.incrementAndGet();
+			}
+			pendingEvent = true;
+			pendingOldValue = oldValue;
+			pendingNewValue = newValue;
+
+			int available = getBytesAvailable();
+			if(available >= coalescingByteThreshold) {
+				flushPendingEvent(available);
+			} else if(pendingFlush == null) {
+				long delay = coalescingDelay - (System.nanoTime() - pendingReceivedNanos);
+				pendingFlush = COALESCING_TIMER.schedule(flushTask, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Queues the event of the run being coalesced.  Must be called holding {@link #coalescingLock}.
+	 * @param available the number of bytes available
+	 */
+	private void flushPendingEvent(int available) {
+		if(pendingFlush != null) {
+			pendingFlush.cancel(false);
+			pendingFlush = null;
+		}
+		SerialPortEvent ev = new SerialPortEvent(port, SerialPortEvent.DATA_AVAILABLE, pendingOldValue, pendingNewValue);
+		ev.setBytesAvailable(available);
+		pendingEvent = false;
+		enqueue(ev, pendingReceivedNanos);
+	}
+
+	/**
+	 * Must be called holding {@link #coalescingLock}.
+	 * @return the number of bytes available on {@link #coalescingInput}, or <code>-1</code> if unknown
+	 */
+	private int getBytesAvailable() {
+		if(coalescingInput == null) return -1;
+		try {
+			return coalescingInput.available();
+		} catch(IOException ex) {
+			log.debug("Could not get the number of bytes available.", ex);
+			return -1;
+		}
+	}
+
+	/** Registers this dispatcher as the port's backend listener, if not already done. */
+	private synchronized void install() {
+		if(!installed) {
+			port.addBackendEventListener(this);
+			installed = true;
+		}
+	}
+
+	/**
+	 * Records the latency of a delivery.
+	 * @param latency nanoseconds between the event being received and delivered
+	 */
+	private void recordDispatch(long latency) {
+		dispatchedCount.incrementAndGet();
+		totalDispatchLatency.addAndGet(latency);
+		long max;
+		while(latency > (max = maxDispatchLatency.get())) {
+			if(maxDispatchLatency.compareAndSet(max, latency)) break;
+		}
+		PortMetrics metrics = port.getMetrics();
+		if(metrics != null) metrics.recordDispatch(latency);
+	}
+
+//> INNER CLASSES
+	/**
+	 * An event waiting to be delivered, with the time it was received.  Shared by the queues of all listeners.
+	 */
+	private static final class QueuedEvent {
+		/** The event */
+		private final SerialPortEvent event;
+		/** {@link System#nanoTime()} when the event was received from the driver */
+		private final long receivedNanos;
+
+		/**
+		 * @param event value for {@link #event}
+		 * @param receivedNanos value for {@link #receivedNanos}
+		 */
+		QueuedEvent(SerialPortEvent event, long receivedNanos) {
+			this.event = event;
+			this.receivedNanos = receivedNanos;
+		}
+	}
+
+	/**
+	 * A registered listener with its own queue of events.  The queue is drained by at most one task at a time.
+	 * Exactly one of {@link #listener} and {@link #batchListener} is set.
+	 */
+	private final class Registration implements Runnable {
+		/** The listener, or <code>null</code> for a batch listener */
+		private final SerialPortEventListener listener;
+		/** The batch listener, or <code>null</code> */
+		private final SerialPortEventBatchListener batchListener;
+		/** The executor to deliver events on */
+		private final Executor executor;
+		/** Events waiting to be delivered */
+		private final Queue<QueuedEvent> queue = new ConcurrentLinkedQueue<QueuedEvent>();
+		/** Number of events in {@link #queue} */
+		private final AtomicInteger queueDepth = new AtomicInteger();
+		/** Number of {@link SerialPortEvent#DATA_AVAILABLE} events in {@link #queue} */
+		private final AtomicInteger queuedDataAvailable = new AtomicInteger();
+		/** <code>true</code> while a task draining {@link #queue} is submitted or running */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		/** Set <code>true</code> when this listener is removed */
+		private volatile boolean removed;
+
+		/**
+		 * @param listener value for {@link #listener}
+		 * @param batchListener value for {@link #batchListener}
+		 * @param executor value for {@link #executor}
+		 */
+		Registration(SerialPortEventListener listener, SerialPortEventBatchListener batchListener, Executor executor) {
+			this.listener = listener;
+			this.batchListener = batchListener;
+			this.executor = executor;
+		}
+
+		/**
+		 * Queues an event, and submits a task to drain the queue if there is not one already.  If the queue is full,
+		 * the event or the oldest queued event is dropped.
+		 * @param event the event to queue
+		 */
+		void enqueue(QueuedEvent event) {
+			boolean dataAvailable = event.event.getEventType() == SerialPortEvent.DATA_AVAILABLE;
+			if(queueDepth.get() >= maxQueueDepth) {
+				if(dataAvailable && queuedDataAvailable.get() > 0) {
+					// The listener has yet to see an earlier DATA_AVAILABLE, which will prompt it to read
+					droppedCount.incrementAndGet();
+					schedule();
+					return;
+				}
+				QueuedEvent oldest = queue.poll();
+				if(oldest != null && !dataAvailable && queuedDataAvailable.get() == 1
+						&& oldest.event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
+					// Keep the only DATA_AVAILABLE, which may be the listener's only prompt to read, behind the others
+					queue.add(oldest);
+					oldest = queue.poll();
+				}
+				if(oldest != null) {
+					took(oldest);
+					droppedCount.incrementAndGet();
+				}
+			}
+			if(dataAvailable) queuedDataAvailable.incrementAndGet();
+			queueDepth.incrementAndGet();
+			queue.add(event);
+			schedule();
+		}
+
+		/**
+		 * Updates the counts after an event is taken from {@link #queue}.
+		 * @param event the event taken
+		 */
+		private void took(QueuedEvent event) {
+			queueDepth.decrementAndGet();
+			if(event.event.getEventType() == SerialPortEvent.DATA_AVAILABLE) queuedDataAvailable.decrementAndGet();
+		}
+
+		/** Submits a task to drain the queue, unless one is already submitted or running. */
+		private void schedule() {
+			if(scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch(RuntimeException ex) {
+					scheduled.set(false);
+					log.warn("Failed to submit serial event delivery task.", ex);
+				}
+			}
+		}
+
+		/** Delivers all queued events, in order. */
+		public void run() {
+			try {
+				if(batchListener != null) {
+					deliverBatch();
+				} else {
+					QueuedEvent queued;
+					while(!removed && (queued = queue.poll()) != null) {
+						took(queued);
+						recordDispatch(System.nanoTime() - queued.receivedNanos);
+						try {
+							listener.serialEvent(queued.event);
+						} catch(RuntimeException ex) {
+							log.warn("Serial port event listener threw an exception.", ex);
+						}
+					}
+				}
+			} finally {
+				scheduled.set(false);
+			}
+			// An event may have been queued after the last poll but before scheduled was cleared
+			if(!removed && !queue.isEmpty()) schedule();
+		}
+
+		/** Delivers all queued events to {@link #batchListener} in one call. */
+		private void deliverBatch() {
+			List<SerialPortEvent> events = new ArrayList<SerialPortEvent>(queueDepth.get());
+			long now = System.nanoTime();
+			QueuedEvent queued;
+			while(!removed && (queued = queue.poll()) != null) {
+				took(queued);
+				recordDispatch(now - queued.receivedNanos);
+				events.add(queued.event);
+			}
+			if(!removed && !events.isEmpty()) {
+				try {
+					batchListener.serialEvents(port, events);
+				} catch(RuntimeException ex) {
+					log.warn("Serial port event batch listener threw an exception.", ex);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Handlers for individual event types of one port, in a flat array indexed by event type.
+ * <p>
+ * The table is registered as a single {@link SerialPortPrimitiveListener} with the port's
+ * {@link SerialPortEventDispatcher}, so finding the handlers for an event is one array load rather than a
+ * <code>switch</code> over the event type constants.  The arrays are replaced, never modified, so events are
+ * dispatched without locking.
+ * </p>
+ * @author Alex
+ */
+final class SerialPortEventHandlerTable implements SerialPortPrimitiveListener {
+//> STATIC CONSTANTS
+	/** Array with no handlers, shared by every event type without any */
+	private static final SerialPortPrimitiveListener[] NO_HANDLERS = new SerialPortPrimitiveListener[0];
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** Handlers for each event type, indexed by event type.  Replaced, never modified.  Guarded by <code>this</code> for writes. */
+	private volatile SerialPortPrimitiveListener[][] handlers = new SerialPortPrimitiveListener[0][];
+
+//> ACCESSORS
+	/**
+	 * Adds a handler for a single event type.
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param handler the handler to add
+	 * @return <code>true</code> if this is the first handler for the event type
+	 */
+	synchronized boolean add(int eventType, SerialPortPrimitiveListener handler) {
+		if(eventType < 0) throw new IllegalArgumentException("Invalid event type: " + eventType);
+		SerialPortPrimitiveListener[][] table = handlers;
+		if(eventType >= table.length) {
+			SerialPortPrimitiveListener[][] grown = new SerialPortPrimitiveListener[eventType + 1][];
+			System.arraycopy(table, 0, grown, 0, table.length);
+			for(int i=table.length; i<grown.length; ++i) grown[i] = NO_HANDLERS;
+			table = grown;
+		} else {
+			table = table.clone();
+		}
+		SerialPortPrimitiveListener[] typeHandlers = table[eventType];
+		SerialPortPrimitiveListener[] added = new SerialPortPrimitiveListener[typeHandlers.length + 1];
+		System.arraycopy(typeHandlers, 0, added, 0, typeHandlers.length);
+		added[typeHandlers.length] = handler;
+		table[eventType] = added;
+		handlers = table;
+		return typeHandlers.length == 0;
+	}
+
+	/**
+	 * Removes a handler from every event type it was added for.
+	 * @param handler the handler to remove
+	 * @return the event types which had the handler and now have none
+	 */
+	synchronized int[] remove(SerialPortPrimitiveListener handler) {
+		SerialPortPrimitiveListener[][] table = handlers.clone();
+		int[] emptied = new int[table.length];
+		int emptiedCount = 0;
+		for(int eventType=0; eventType<table.length; ++eventType) {
+			List<SerialPortPrimitiveListener> typeHandlers = new ArrayList<SerialPortPrimitiveListener>(Arrays.asList(table[eventType]));
+			if(typeHandlers.remove(handler)) {
+				while(typeHandlers.remove(handler)) {}
+				if(typeHandlers.isEmpty()) {
+					table[eventType] = NO_HANDLERS;
+					emptied[emptiedCount++] = eventType;
+				} else {
+					table[eventType] = typeHandlers.toArray(new SerialPortPrimitiveListener[typeHandlers.size()]);
+				}
+			}
+		}
+		handlers = table;
+		int[] result = new int[emptiedCount];
+		System.arraycopy(emptied, 0, result, 0, emptiedCount);
+		return result;
+	}
+
+//> SERIALPORTPRIMITIVELISTENER METHODS
+	/**
+	 * Calls the handlers for the event's type.
+	 * @see SerialPortPrimitiveListener#onEvent(SerialPort, int, boolean, boolean, long)
+	 */
+	public void onEvent(SerialPort port, int eventType, boolean oldValue, boolean newValue, long nanoTimestamp) {
+		SerialPortPrimitiveListener[][] table = handlers;
+		if(eventType < 0 || eventType >= table.length) return;
+		SerialPortPrimitiveListener[] typeHandlers = table[eventType];
+		for(int i=0; i<typeHandlers.length; ++i) {
+			try {
+				typeHandlers[i].onEvent(port, eventType, oldValue, newValue, nanoTimestamp);
+			} catch(RuntimeException ex) {
+				log.warn("Serial port event handler threw an exception.", ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.EventListener;
+
+/**
+ * Listener which receives the fields of serial port events as primitives, without a {@link SerialPortEvent} being
+ * created.  Registered with {@link SerialPortEventDispatcher#addPrimitiveListener(SerialPortPrimitiveListener)}.
+ * <p>
+ * Primitive listeners are called directly on the driver's event thread, so they must return quickly and must not
+ * block.  Slow work should be handed off, or an ordinary {@link SerialPortEventListener} used instead.
+ * </p>
+ * @author Alex
+ */
+public interface SerialPortPrimitiveListener extends EventListener {
+	/**
+	 * Called for every event raised by the port.
+	 * @param port the port which raised the event
+	 * @param eventType the event type, one of the constants of {@link SerialPortEvent}
+	 * @param oldValue the old value of the state which changed
+	 * @param newValue the new value of the state which changed
+	 * @param nanoTimestamp {@link System#nanoTime()} when the event was received from the driver
+	 */
+	public void onEvent(SerialPort port, int eventType, boolean oldValue, boolean newValue, long nanoTimestamp);
+}
@@ -0,0 +1,34 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Handler for ports registered with a {@link SerialEventLoop}.
+ * <p>
+ * All calls for a particular port are made from the same event loop thread, so the handler may read from
+ * the port without further synchronisation.  A handler must not block, as other ports share its thread.
+ * </p>
+ * @author Alex
+ */
+public interface SerialReadHandler {
+	/**
+	 * Called when data is available to read from a port.
+	 * @param port the port which has data available
+	 * @param in the input stream of the port
+	 * @param available the number of bytes which can be read without blocking
+	 * @throws IOException if there was a problem reading from the port.  The port's registration will be cancelled.
+	 */
+	public void dataAvailable(SerialPort port, InputStream in, int available) throws IOException;
+
+	/**
+	 * Called when a port's registration has been cancelled because reading from it failed, e.g. because the
+	 * port was closed or the device was unplugged.
+	 * @param port the port which failed
+	 * @param cause the exception which caused the failure
+	 */
+	public void readFailed(SerialPort port, IOException cause);
+}
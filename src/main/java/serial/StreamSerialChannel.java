@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package serial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * {@link SerialChannel} over the input and output streams of a port, for backends which do not provide a channel themselves.
+ * <p>
+ * Buffers backed by an accessible array are read into and written from directly.  Other buffers, e.g. direct
+ * buffers, are copied through a scratch array which is reused for every call.
+ * </p>
+ * @author Alex
+ */
+class StreamSerialChannel implements SerialChannel {
+//> STATIC CONSTANTS
+	/** Size of the scratch arrays used for buffers without an accessible array */
+	private static final int SCRATCH_SIZE = 4096;
+
+//> INSTANCE PROPERTIES
+	/** The stream to read from */
+	private final InputStream in;
+	/** The stream to write to */
+	private final OutputStream out;
+	/** Lock held while reading, which guards {@link #readScratch} */
+	private final Object readLock = new Object();
+	/** Lock held while writing, which guards {@link #writeScratch} */
+	private final Object writeLock = new Object();
+	/** Scratch array for reading into buffers without an accessible array; created when first needed */
+	private byte[] readScratch;
+	/** Scratch array for writing from buffers without an accessible array; created when first needed */
+	private byte[] writeScratch;
+	/** Set <code>false</code> when {@link #close()} is called */
+	private volatile boolean open = true;
+
+//> CONSTRUCTORS
+	/**
+	 * @param in value for {@link #in}
+	 * @param out value for {@link #out}
+	 */
+	StreamSerialChannel(InputStream in, OutputStream out) {
+		this.in = in;
+		this.out = out;
+	}
+
+//> CHANNEL METHODS
+	/** @see java.nio.channels.Channel#isOpen() */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/** Closes this channel.  The underlying streams, and so the port, are left open. */
+	public void close() {
+		open = false;
+	}
+
+	/** @see java.nio.channels.ReadableByteChannel#read(ByteBuffer) */
+	public int read(ByteBuffer dst) throws IOException {
+		synchronized(readLock) {
+			checkOpen();
+			return readInto(dst);
+		}
+	}
+
+	/**
+	 * Reads into each buffer in turn.  Only the first read may block; further buffers are only filled from data which is
+	 * already available.
+	 * @see java.nio.channels.ScatteringByteChannel#read(ByteBuffer[], int, int)
+	 */
+	public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+		synchronized(readLock) {
+			checkOpen();
+			long total = 0;
+			for(int i=offset; i<offset+length; ++i) {
+				ByteBuffer dst = dsts[i];
+				if(!dst.hasRemaining()) continue;
+				if(total > 0 && in.available() <= 0) break;
+				int count = readInto(dst);
+				if(count < 0) return total > 0 ? total : -1;
+				total += count;
+				if(dst.hasRemaining()) break;
+			}
+			return total;
+		}
+	}
+
+	/** @see java.nio.channels.ScatteringByteChannel#read(ByteBuffer[]) */
+	public long read(ByteBuffer[] dsts) throws IOException {
+		return read(dsts, 0, dsts.length);
+	}
+
+	/** @see java.nio.channels.WritableByteChannel#write(ByteBuffer) */
+	public int write(ByteBuffer src) throws IOException {
+		synchronized(writeLock) {
+			checkOpen();
+			return writeFrom(src);
+		}
+	}
+
+	/** @see java.nio.channels.GatheringByteChannel#write(ByteBuffer[], int, int) */
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		synchronized(writeLock) {
+			checkOpen();
+			long total = 0;
+			for(int i=offset; i<offset+length; ++i) {
+				total += writeFrom(srcs[i]);
+			}
+			return total;
+		}
+	}
+
+	/** @see java.nio.channels.GatheringByteChannel#write(ByteBuffer[]) */
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Performs a single read from {@link #in} into the supplied buffer.  Must be called holding {@link #readLock}.
+	 * @param dst the buffer to read into
+	 * @return the number of bytes read, or <code>-1</code> at the end of the stream
+	 * @throws IOException if thrown by the stream
+	 */
+	private int readInto(ByteBuffer dst) throws IOException {
+		int remaining = dst.remaining();
+		if(remaining == 0) return 0;
+		if(dst.hasArray()) {
+			int count = in.read(dst.array(), dst.arrayOffset() + dst.position(), remaining);
+			if(count > 0) dst.position(dst.position() + count);
+			return count;
+		} else {
+			if(readScratch == null) readScratch = new byte[SCRATCH_SIZE];
+			int count = in.read(readScratch, 0, Math.min(remaining, SCRATCH_SIZE));
+			if(count > 0) dst.put(readScratch, 0, count);
+			return count;
+		}
+	}
+
+	/**
+	 * Writes all remaining bytes of the supplied buffer to {@link #out}.  Must be called holding {@link #writeLock}.
+	 * @param src the buffer to write
+	 * @return the number of bytes written
+	 * @throws IOException if thrown by the stream
+	 */
+	private int writeFrom(ByteBuffer src) throws IOException {
+		int remaining = src.remaining();
+		if(remaining == 0) return 0;
+		if(src.hasArray()) {
+			out.write(src.array(), src.arrayOffset() + src.position(), remaining);
+			src.position(src.limit());
+		} else {
+			if(writeScratch == null) writeScratch = new byte[SCRATCH_SIZE];
+			while(src.hasRemaining()) {
+				int count = Math.min(src.remaining(), SCRATCH_SIZE);
+				src.get(writeScratch, 0, count);
+				out.write(writeScratch, 0, count);
+			}
+		}
+		return remaining;
+	}
+
+	/** @throws ClosedChannelException if this channel has been closed */
+	private void checkOpen() throws ClosedChannelException {
+		if(!open) throw new ClosedChannelException();
+	}
+}
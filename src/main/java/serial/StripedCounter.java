@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package serial;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which many threads can add to at once without contending, for metrics on the I/O path.
+ * <p>
+ * The count is split over several cells, each on its own cache line, and each thread adds to the cell chosen by its
+ * id, so threads on different cores rarely write the same line.  Adding costs one uncontended atomic add; reading the
+ * total sums the cells, so is slower and only consistent once adding has stopped.  This is the technique of Java 8's
+ * <code>LongAdder</code>, with a fixed number of cells.
+ * </p>
+ * @author Alex
+ */
+public final class StripedCounter {
+//> STATIC CONSTANTS
+	/** Largest number of cells */
+	private static final int MAX_STRIPES = 16;
+	/** Number of cells: the number of processors rounded up to a power of two, at most {@link #MAX_STRIPES} */
+	private static final int STRIPES = getStripeCount();
+	/** Number of <code>long</code>s from one cell to the next, so that each is on its own 64 byte cache line */
+	private static final int PADDING = 8;
+
+//> INSTANCE PROPERTIES
+	/** The cells; cell <code>i</code> is at index <code>i * PADDING</code> */
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+//> ACCESSORS
+	/** @return the total of everything added since creation or the last {@link #reset()} */
+	public long sum() {
+		long sum = 0;
+		for(int i=0; i<STRIPES; ++i) sum += cells.get(i * PADDING);
+		return sum;
+	}
+
+//> INSTANCE METHODS
+	/** Adds one. */
+	public void increment() {
+		cells.getAndIncrement(getCellIndex());
+	}
+
+	/** @param delta the amount to add */
+	public void add(long delta) {
+		cells.getAndAdd(getCellIndex(), delta);
+	}
+
+	/** Resets the count to zero.  Amounts added at the same time may or may not be kept. */
+	public void reset() {
+		for(int i=0; i<STRIPES; ++i) cells.set(i * PADDING, 0);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+//> STATIC HELPER METHODS
+	/** @return the index of the current thread's cell */
+	private static int getCellIndex() {
+		return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+	}
+
+	/** @return the value for {@link #STRIPES} */
+	private static int getStripeCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int stripes = 1;
+		while(stripes < processors && stripes < MAX_STRIPES) stripes <<= 1;
+		return stripes;
+	}
+}
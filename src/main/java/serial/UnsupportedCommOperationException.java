@@ -19,6 +19,11 @@ public class UnsupportedCommOperationException extends SerialException {
 		super(cause);
 	}
 
+	/** @see SerialException#SerialException(String) */
+	public UnsupportedCommOperationException(String message) {
+		super(message);
+	}
+
 //> ACCESSORS
 
 //> INSTANCE HELPER METHODS
@@ -0,0 +1,70 @@
+/**
+ *
+ */
+package serial;
+
+/**
+ * Descriptor fields of the USB device which provides a serial port, as read from sysfs.
+ * Any field which the device does not provide is <code>null</code>.
+ * @author Alex
+ */
+public final class UsbDeviceInfo {
+//> INSTANCE PROPERTIES
+	/** Vendor ID, as four hex digits, e.g. <code>12d1</code> */
+	private final String vendorId;
+	/** Product ID, as four hex digits */
+	private final String productId;
+	/** Serial number string */
+	private final String serialNumber;
+	/** Manufacturer string */
+	private final String manufacturer;
+	/** Product string */
+	private final String product;
+
+//> CONSTRUCTORS
+	/**
+	 * @param vendorId value for {@link #vendorId}
+	 * @param productId value for {@link #productId}
+	 * @param serialNumber value for {@link #serialNumber}
+	 * @param manufacturer value for {@link #manufacturer}
+	 * @param product value for {@link #product}
+	 */
+	public UsbDeviceInfo(String vendorId, String productId, String serialNumber, String manufacturer, String product) {
+		this.vendorId = vendorId;
+		this.productId = productId;
+		this.serialNumber = serialNumber;
+		this.manufacturer = manufacturer;
+		this.product = product;
+	}
+
+//> ACCESSORS
+	/** @return {@link #vendorId} */
+	public String getVendorId() {
+		return vendorId;
+	}
+
+	/** @return {@link #productId} */
+	public String getProductId() {
+		return productId;
+	}
+
+	/** @return {@link #serialNumber} */
+	public String getSerialNumber() {
+		return serialNumber;
+	}
+
+	/** @return {@link #manufacturer} */
+	public String getManufacturer() {
+		return manufacturer;
+	}
+
+	/** @return {@link #product} */
+	public String getProduct() {
+		return product;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + vendorId + ":" + productId + " " + manufacturer + " " + product + " serial=" + serialNumber + "]";
+	}
+}
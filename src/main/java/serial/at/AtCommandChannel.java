@@ -0,0 +1,619 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import serial.RingBufferInputStream;
+import serial.SerialPort;
+import serial.UnsupportedCommOperationException;
+
+/**
+ * Sends AT commands to a modem and matches its responses to them, keeping several commands in flight at once.
+ * <p>
+ * Commands are written as soon as fewer than the maximum number are in flight, without waiting for the previous
+ * response.  A reader thread splits the incoming bytes into lines as they arrive, using a
+ * {@link RingBufferInputStream} so that each line is found without copying.  A modem answers commands in the order it
+ * receives them, so each final result code completes the oldest command in flight.
+ * </p>
+ * <p>
+ * Lines beginning with a registered unsolicited result code prefix, e.g. <code>RING</code> or <code>+CMTI:</code>,
+ * are passed to {@link AtUnsolicitedListener}s instead, unless they answer the command in flight; a <code>+CREG:</code>
+ * line is the response to <code>AT+CREG?</code>.  Lines received while no command is in flight are always unsolicited.
+ * The prefixes are found with a {@link BytePatternMatcher} over the raw bytes of each line, before it is decoded.
+ * </p>
+ * <p>
+ * Commands which must not overlap others, such as <code>AT+CMGS</code> which waits for a <code>&gt;</code> prompt, are
+ * sent with {@link #sendExclusive(String)} or {@link #send(String, String)}, and are only written once every earlier
+ * command has completed.
+ * </p>
+ * <p>
+ * The echo of each command in flight is dropped, whichever command's response it arrives in the middle of.
+ * </p>
+ * <p>
+ * The channel enables a receive timeout on the port, so that its reader thread can expire commands which get no
+ * response.  When a command times out, every command in flight fails with a {@link TimeoutException}, any input
+ * already received is discarded, and the channel sends <code>AT</code> and waits for its final result code before
+ * writing any more commands, so that late responses to the failed commands are not matched to later ones.  While the
+ * modem is echoing commands, lines received before the echo of that <code>AT</code> are discarded, so that a late
+ * final result code of a failed command is not taken for its answer.  If the modem does not answer, the commands
+ * waiting to be written fail too, and the next resynchronisation does not wait for an echo.
+ * </p>
+ * @author Alex
+ */
+public class AtCommandChannel {
+//> STATIC CONSTANTS
+	/** Default value for {@link #maxInFlight} */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+	/** Default value for {@link #commandTimeout}, in milliseconds */
+	public static final long DEFAULT_COMMAND_TIMEOUT = 10000;
+	/** Receive timeout set on the port, in milliseconds, which bounds how late a command timeout may be noticed */
+	private static final int RECEIVE_TIMEOUT = 100;
+	/** Size of the read buffer, which is the longest line that can be received */
+	private static final int BUFFER_CAPACITY = 4096;
+	/** Character set for commands and responses, which maps bytes to chars one to one */
+	private static final String CHARSET = "ISO-8859-1";
+	/** Ctrl-Z, which ends the data sent after a <code>&gt;</code> prompt */
+	private static final byte CTRL_Z = 0x1A;
+	/** Final result codes which end a response */
+	private static final String[] FINAL_RESULTS = { "OK", "ERROR", "NO CARRIER", "NO DIALTONE", "BUSY", "NO ANSWER", "CONNECT" };
+	/** Prefixes of final result codes which end a response */
+	private static final String[] FINAL_RESULT_PREFIXES = { "+CME ERROR:", "+CMS ERROR:", "CONNECT " };
+	/** Command sent to resynchronise with the modem after a timeout */
+	private static final String RESYNC_COMMAND = "AT";
+	/** Counter used to name the reader threads */
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	/** Callable for {@link CommandFuture}s, which are only ever completed by the channel */
+	private static final Callable<AtResponse> NOT_RUNNABLE = new Callable<AtResponse>() {
+		public AtResponse call() {
+			throw new IllegalStateException("Command futures are not run.");
+		}
+	};
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The port the modem is attached to */
+	private final SerialPort port;
+	/** Buffered stream of the modem's output */
+	private final RingBufferInputStream in;
+	/** Stream commands are written to */
+	private final OutputStream out;
+	/** Listeners for unsolicited result codes */
+	private final List<AtUnsolicitedListener> listeners = new CopyOnWriteArrayList<AtUnsolicitedListener>();
+	/** Prefixes of unsolicited result codes, mapped to the number of data lines which follow them.  Guarded by itself. */
+	private final Map<String, Integer> unsolicitedPrefixDefinitions = new LinkedHashMap<String, Integer>();
+	/** {@link #unsolicitedPrefixDefinitions} compiled for matching; replaced whenever a prefix is added */
+	private volatile UnsolicitedPrefixes unsolicitedPrefixes;
+	/** Matcher for {@link #unsolicitedPrefixes}.  Only used by the reader thread. */
+	private final BytePatternMatcher prefixMatcher;
+	/** Offset of the first non-blank byte of the line being matched.  Only used by the reader thread. */
+	private int lineStart;
+	/** Index of the longest prefix found at {@link #lineStart}, or <code>-1</code>.  Only used by the reader thread. */
+	private int matchedPrefix;
+	/** Commands waiting to be written.  Guarded by <code>this</code>. */
+	private final LinkedList<Command> pending = new LinkedList<Command>();
+	/** Commands written and waiting for their final result code, oldest first.  Guarded by <code>this</code>. */
+	private final LinkedList<Command> inFlight = new LinkedList<Command>();
+	/** Largest number of commands to have in flight at once.  Guarded by <code>this</code>. */
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	/** Milliseconds to wait for a command's final result code.  Guarded by <code>this</code>. */
+	private long commandTimeout = DEFAULT_COMMAND_TIMEOUT;
+	/** The reader thread, or <code>null</code> if not started.  Guarded by <code>this</code>. */
+	private Thread thread;
+	/** Set <code>true</code> when {@link #close()} is called, or the port fails.  Guarded by <code>this</code>. */
+	private boolean closed;
+	/** The unsolicited result code whose data lines are being read, or <code>null</code>.  Only used by the reader thread. */
+	private String unsolicitedLine;
+	/** Data lines read for {@link #unsolicitedLine}.  Only used by the reader thread. */
+	private List<String> unsolicitedData;
+	/** Number of data lines still to read for {@link #unsolicitedLine}.  Only used by the reader thread. */
+	private int unsolicitedRemaining;
+	/** <code>true</code> if the modem echoed the last command to complete, or an echo has arrived since.  Guarded by <code>this</code>. */
+	private boolean echoing;
+
+//> CONSTRUCTORS
+	/**
+	 * Creates a channel over a port.  The port's receive timeout is changed, and its input stream should not be read
+	 * by anything else.
+	 * @param port value for {@link #port}
+	 * @throws IOException if the port's streams could not be got
+	 * @throws UnsupportedCommOperationException if the port does not support a receive timeout
+	 */
+	public AtCommandChannel(SerialPort port) throws IOException, UnsupportedCommOperationException {
+		this.port = port;
+		port.enableReceiveTimeout(RECEIVE_TIMEOUT);
+		this.in = port.getBufferedInputStream(BUFFER_CAPACITY);
+		this.out = port.getOutputStream();
+		unsolicitedPrefixDefinitions.put("RING", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CRING:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CLIP:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CMTI:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CDSI:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CREG:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CGREG:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CUSD:", Integer.valueOf(0));
+		unsolicitedPrefixDefinitions.put("+CMT:", Integer.valueOf(1));
+		unsolicitedPrefixDefinitions.put("+CDS:", Integer.valueOf(1));
+		unsolicitedPrefixDefinitions.put("+CBM:", Integer.valueOf(1));
+		this.unsolicitedPrefixes = new UnsolicitedPrefixes(unsolicitedPrefixDefinitions);
+		this.prefixMatcher = new BytePatternMatcher(unsolicitedPrefixes.patterns, new BytePatternListener() {
+			public void patternMatched(BytePatternSet patterns, int patternIndex, int startOffset, int endOffset) {
+				if(startOffset == lineStart && (matchedPrefix < 0 || patterns.getPatternLength(patternIndex) > patterns.getPatternLength(matchedPrefix))) {
+					matchedPrefix = patternIndex;
+				}
+			}
+		});
+	}
+
+//> ACCESSORS
+	/** @param listener listener to add */
+	public void addUnsolicitedListener(AtUnsolicitedListener listener) {
+		listeners.add(listener);
+	}
+
+	/** @param listener listener to remove */
+	public void removeUnsolicitedListener(AtUnsolicitedListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers an additional unsolicited result code.  It is recognised from the next line received; reception is not
+	 * interrupted.
+	 * @param prefix the start of the result code's line, e.g. <code>+CIEV:</code>
+	 * @param dataLines the number of lines of data which follow the result code
+	 */
+	public void addUnsolicitedPrefix(String prefix, int dataLines) {
+		if(prefix == null || prefix.length() == 0) throw new IllegalArgumentException("Prefix must not be empty.");
+		if(dataLines < 0) throw new IllegalArgumentException("Data lines must not be negative: " + dataLines);
+		synchronized(unsolicitedPrefixDefinitions) {
+			unsolicitedPrefixDefinitions.put(prefix, Integer.valueOf(dataLines));
+			unsolicitedPrefixes = new UnsolicitedPrefixes(unsolicitedPrefixDefinitions);
+		}
+	}
+
+	/** @param maxInFlight the largest number of commands to have in flight at once */
+	public synchronized void setMaxInFlight(int maxInFlight) {
+		if(maxInFlight < 1) throw new IllegalArgumentException("At least one command must be allowed in flight: " + maxInFlight);
+		this.maxInFlight = maxInFlight;
+		writePending();
+	}
+
+	/** @param commandTimeout milliseconds to wait for a command's final result code */
+	public synchronized void setCommandTimeout(long commandTimeout) {
+		if(commandTimeout < 1) throw new IllegalArgumentException("Timeout must be at least 1ms: " + commandTimeout);
+		this.commandTimeout = commandTimeout;
+	}
+
+	/** @return the port the modem is attached to */
+	public SerialPort getPort() {
+		return port;
+	}
+
+//> INSTANCE METHODS
+	/** Starts the reader thread.  Called by the first command, if not called before; call it earlier to receive unsolicited result codes straight away. */
+	public synchronized void start() {
+		if(thread != null) return;
+		thread = new Thread("AtCommandChannel-" + THREAD_COUNT.incrementAndGet()) {
+			@Override
+			public void run() {
+				readLoop();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Sends a command, which may be in flight together with others.
+	 * @param command the command, e.g. <code>AT+CSQ</code>, without a terminating carriage return
+	 * @return a future which completes with the response, or fails with a {@link TimeoutException} or {@link IOException}
+	 */
+	public Future<AtResponse> send(String command) {
+		return enqueue(new Command(command, null, false));
+	}
+
+	/**
+	 * Sends a command once every earlier command has completed, and sends no other command until it has completed.
+	 * @param command the command, without a terminating carriage return
+	 * @return a future which completes with the response
+	 */
+	public Future<AtResponse> sendExclusive(String command) {
+		return enqueue(new Command(command, null, true));
+	}
+
+	/**
+	 * Sends a command which is answered with a <code>&gt;</code> prompt, e.g. <code>AT+CMGS=23</code>, followed by its
+	 * data and Ctrl-Z once the prompt arrives.  The command is exclusive, as for {@link #sendExclusive(String)}.
+	 * @param command the command, without a terminating carriage return
+	 * @param data the data to send after the prompt, without the Ctrl-Z
+	 * @return a future which completes with the response
+	 */
+	public Future<AtResponse> send(String command, String data) {
+		if(data == null) throw new IllegalArgumentException("Data must not be null.");
+		return enqueue(new Command(command, data, true));
+	}
+
+	/** Stops the reader thread.  Commands which have not completed fail with {@link AsynchronousCloseException}. */
+	public synchronized void close() {
+		if(closed) return;
+		closed = true;
+		failAll(new AsynchronousCloseException());
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Queues a command and writes it if it may be in flight now.
+	 * @param command the command
+	 * @return the command's future
+	 */
+	private synchronized Future<AtResponse> enqueue(Command command) {
+		if(closed) {
+			command.future.fail(new AsynchronousCloseException());
+		} else {
+			start();
+			pending.add(command);
+			writePending();
+		}
+		return command.future;
+	}
+
+	/** Writes waiting commands for as long as they may be in flight.  Must be called holding <code>this</code>. */
+	private void writePending() {
+		while(!pending.isEmpty()) {
+			Command next = pending.getFirst();
+			if(!inFlight.isEmpty() && (next.exclusive || inFlight.getFirst().exclusive || inFlight.size() >= maxInFlight)) break;
+			pending.removeFirst();
+			try {
+				write(next.text + "\r");
+				next.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commandTimeout);
+				inFlight.add(next);
+			} catch(IOException ex) {
+				next.future.fail(ex);
+			}
+		}
+	}
+
+	/** Reads and handles lines until closed. */
+	private void readLoop() {
+		try {
+			while(true) {
+				synchronized(this) {
+					if(closed) return;
+					expireCommands();
+				}
+				int end = in.indexOf('\n', 0);
+				if(end < 0) {
+					if(in.peek(0) == '>' && sendPromptData()) continue;
+					if(in.getBufferedCount() == in.getCapacity()) end = in.getCapacity();
+					else if(in.fill() < 0) throw new EOFException("End of stream from modem.");
+					if(end < 0) continue;
+				}
+				UnsolicitedPrefixes prefixes = unsolicitedPrefixes;
+				int prefix = matchUnsolicitedPrefix(prefixes, end);
+				byte[] bytes = new byte[end];
+				int read = in.read(bytes, 0, end);
+				if(end < in.getCapacity()) in.skip(1);
+				String line = new String(bytes, 0, read, CHARSET).trim();
+				if(line.length() > 0) handleLine(line, prefixes, prefix);
+			}
+		} catch(IOException ex) {
+			synchronized(this) {
+				if(!closed) {
+					log.warn("Reading from modem failed.", ex);
+					closed = true;
+					failAll(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the unsolicited result code prefix at the start of the next buffered line, without consuming it.
+	 * @param prefixes the prefixes to match
+	 * @param end the offset of the end of the line
+	 * @return the index of the longest matching prefix, or <code>-1</code> if none matches
+	 */
+	private int matchUnsolicitedPrefix(UnsolicitedPrefixes prefixes, int end) {
+		int start = 0;
+		while(start < end && in.peek(start) <= ' ') ++start;
+		lineStart = start;
+		matchedPrefix = -1;
+		prefixMatcher.setPatterns(prefixes.patterns);
+		prefixMatcher.reset();
+		prefixMatcher.scan(in, start, Math.min(end, start + prefixes.patterns.getMaxLength()));
+		return matchedPrefix;
+	}
+
+	/**
+	 * Passes a line to the command it answers, or to the unsolicited listeners.
+	 * @param line the line, trimmed and not empty
+	 * @param prefixes the unsolicited result code prefixes the line was matched against
+	 * @param prefix the index of the prefix the line starts with, or <code>-1</code>
+	 */
+	private void handleLine(String line, UnsolicitedPrefixes prefixes, int prefix) {
+		AtUnsolicitedResult unsolicited = null;
+		if(unsolicitedRemaining > 0) {
+			unsolicitedData.add(line);
+			if(--unsolicitedRemaining == 0) unsolicited = finishUnsolicited();
+		} else {
+			synchronized(this) {
+				Command head = inFlight.peek();
+				// A prefix naming the command in flight is information text in its response
+				boolean isUnsolicited = prefix >= 0 && (head == null || !prefixes.prefixes[prefix].equals(head.name + ":"));
+				if(!isUnsolicited && isEcho(line)) {
+					// The echo of a command in flight, which may arrive amid the response to an earlier one
+					echoing = true;
+				} else if(isUnsolicited || head == null) {
+					unsolicitedLine = line;
+					unsolicitedData = new ArrayList<String>();
+					unsolicitedRemaining = isUnsolicited ? prefixes.dataLines[prefix] : 0;
+					if(unsolicitedRemaining == 0) unsolicited = finishUnsolicited();
+				} else if(head.awaitEcho && !head.echoed) {
+					// Part of a late response to a command which timed out, received before the resync command
+					log.debug("Discarded line before resynchronisation: " + line);
+				} else if(isFinalResult(line)) {
+					echoing = head.echoed;
+					inFlight.removeFirst();
+					head.future.complete(new AtResponse(head.text, Collections.unmodifiableList(head.lines), line));
+					writePending();
+				} else {
+					head.lines.add(line);
+				}
+			}
+		}
+		if(unsolicited != null) {
+			for(AtUnsolicitedListener listener : listeners) {
+				try {
+					listener.unsolicitedResult(this, unsolicited);
+				} catch(RuntimeException ex) {
+					log.warn("Unsolicited result listener threw an exception.", ex);
+				}
+			}
+		}
+	}
+
+	/** @return the unsolicited result code which has been read, with its data lines */
+	private AtUnsolicitedResult finishUnsolicited() {
+		AtUnsolicitedResult result = new AtUnsolicitedResult(unsolicitedLine, Collections.unmodifiableList(unsolicitedData));
+		unsolicitedLine = null;
+		unsolicitedData = null;
+		return result;
+	}
+
+	/**
+	 * Sends the data of the oldest command in flight if it is waiting for the prompt at the start of the buffer.
+	 * @return <code>true</code> if the prompt was consumed
+	 * @throws IOException if the data could not be written
+	 */
+	private synchronized boolean sendPromptData() throws IOException {
+		Command head = inFlight.peek();
+		if(head == null || head.data == null || head.dataSent) return false;
+		in.skip(in.peek(1) == ' ' ? 2 : 1);
+		head.dataSent = true;
+		byte[] data = head.data.getBytes(CHARSET);
+		byte[] bytes = new byte[data.length + 1];
+		System.arraycopy(data, 0, bytes, 0, data.length);
+		bytes[data.length] = CTRL_Z;
+		out.write(bytes);
+		out.flush();
+		return true;
+	}
+
+	/**
+	 * Checks whether a line is the echo of a command in flight which has not been echoed yet, and if so marks the
+	 * command as echoed.  Must be called holding <code>this</code>.
+	 * @param line a line received from the modem
+	 * @return <code>true</code> if the line is an echo
+	 */
+	private boolean isEcho(String line) {
+		for(Command command : inFlight) {
+			if(!command.echoed && line.equals(command.text)) {
+				command.echoed = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * If the final result code of the oldest command in flight is overdue, fails every command in flight and
+	 * resynchronises with the modem.  If the overdue command was itself resynchronising, the modem is not responding,
+	 * so the commands waiting to be written fail as well.  Must be called holding <code>this</code>, from the reader
+	 * thread.
+	 * @throws IOException if the buffered input could not be discarded
+	 */
+	private void expireCommands() throws IOException {
+		if(inFlight.isEmpty() || System.nanoTime() - inFlight.getFirst().deadline <= 0) return;
+		Command overdue = inFlight.getFirst();
+		for(Command command : inFlight) {
+			command.future.fail(new TimeoutException(command == overdue ? "No response to " + command.text
+					: "Abandoned after no response to " + overdue.text));
+		}
+		inFlight.clear();
+		// An echo which never came is not waited for next time
+		if(overdue.awaitEcho && !overdue.echoed) echoing = false;
+		if(overdue.resync) {
+			for(Command command : pending) command.future.fail(new TimeoutException("Modem not responding."));
+			pending.clear();
+		}
+		resynchronise();
+	}
+
+	/**
+	 * Discards the input received so far, and sends {@link #RESYNC_COMMAND} as an exclusive command, so that no other
+	 * command is written until the modem has answered it.  If the modem is echoing, its answer is only accepted after
+	 * its echo.  Must be called holding <code>this</code>, from the reader thread, with no commands in flight.
+	 * @throws IOException if the buffered input could not be discarded
+	 */
+	private void resynchronise() throws IOException {
+		in.skip(in.getBufferedCount());
+		Command resync = new Command(RESYNC_COMMAND, null, true);
+		resync.resync = true;
+		resync.awaitEcho = echoing;
+		try {
+			write(resync.text + "\r");
+			resync.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commandTimeout);
+			inFlight.add(resync);
+		} catch(IOException ex) {
+			log.warn("Could not resynchronise with modem.", ex);
+			writePending();
+		}
+	}
+
+	/**
+	 * Fails every command which has not completed.  Must be called holding <code>this</code>.
+	 * @param cause the reason the commands failed
+	 */
+	private void failAll(Throwable cause) {
+		for(Command command : inFlight) command.future.fail(cause);
+		for(Command command : pending) command.future.fail(cause);
+		inFlight.clear();
+		pending.clear();
+	}
+
+	/**
+	 * Writes text to the modem in a single write.
+	 * @param text the text to write
+	 * @throws IOException if the write failed
+	 */
+	private void write(String text) throws IOException {
+		out.write(text.getBytes(CHARSET));
+		out.flush();
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param line a line received from the modem
+	 * @return <code>true</code> if the line is a final result code
+	 */
+	private static boolean isFinalResult(String line) {
+		for(String result : FINAL_RESULTS) {
+			if(line.equals(result)) return true;
+		}
+		for(String prefix : FINAL_RESULT_PREFIXES) {
+			if(line.startsWith(prefix)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param command an AT command, e.g. <code>AT+CREG?</code>
+	 * @return the name of the command, e.g. <code>+CREG</code>
+	 */
+	private static String getCommandName(String command) {
+		String name = command.regionMatches(true, 0, "AT", 0, 2) ? command.substring(2) : command;
+		for(int i=0; i<name.length(); ++i) {
+			char c = name.charAt(i);
+			if(c == '=' || c == '?') return name.substring(0, i);
+		}
+		return name;
+	}
+
+//> INNER CLASSES
+	/**
+	 * The unsolicited result code prefixes compiled for matching, with their data line counts, by pattern index.
+	 */
+	private static final class UnsolicitedPrefixes {
+		/** The compiled prefixes */
+		private final BytePatternSet patterns;
+		/** The prefixes */
+		private final String[] prefixes;
+		/** The number of data lines following each prefix */
+		private final int[] dataLines;
+
+		/** @param definitions the prefixes, mapped to the number of data lines which follow them */
+		UnsolicitedPrefixes(Map<String, Integer> definitions) {
+			prefixes = definitions.keySet().toArray(new String[definitions.size()]);
+			dataLines = new int[prefixes.length];
+			for(int i=0; i<prefixes.length; ++i) dataLines[i] = definitions.get(prefixes[i]).intValue();
+			patterns = BytePatternSet.compile(prefixes);
+		}
+	}
+
+	/**
+	 * A command, from being sent until its final result code is received.
+	 */
+	private static final class Command {
+		/** The command text, without a terminating carriage return */
+		private final String text;
+		/** The name of the command, e.g. <code>+CREG</code>, to recognise its information text */
+		private final String name;
+		/** Data to send after the <code>&gt;</code> prompt, or <code>null</code> */
+		private final String data;
+		/** <code>true</code> if no other command may be in flight with this one */
+		private final boolean exclusive;
+		/** The future to complete */
+		private final CommandFuture future = new CommandFuture();
+		/** The information text lines received so far */
+		private final List<String> lines = new ArrayList<String>();
+		/** {@link System#nanoTime()} by which the final result code must arrive */
+		private long deadline;
+		/** <code>true</code> once {@link #data} has been sent */
+		private boolean dataSent;
+		/** <code>true</code> once the modem's echo of {@link #text} has been received */
+		private boolean echoed;
+		/** <code>true</code> if this command was sent by the channel to resynchronise after a timeout */
+		private boolean resync;
+		/** <code>true</code> if lines received before this command's echo are not part of its response */
+		private boolean awaitEcho;
+
+		/**
+		 * @param text value for {@link #text}
+		 * @param data value for {@link #data}
+		 * @param exclusive value for {@link #exclusive}
+		 */
+		Command(String text, String data, boolean exclusive) {
+			if(text == null) throw new IllegalArgumentException("Command must not be null.");
+			this.text = text;
+			this.name = getCommandName(text);
+			this.data = data;
+			this.exclusive = exclusive;
+		}
+	}
+
+	/**
+	 * Future of a command's response, completed by the channel rather than by running it.
+	 */
+	private static final class CommandFuture extends FutureTask<AtResponse> {
+		/** Creates a future which will be completed by {@link #complete(AtResponse)} or {@link #fail(Throwable)}. */
+		CommandFuture() {
+			super(NOT_RUNNABLE);
+		}
+
+		/** @param response the response to the command */
+		void complete(AtResponse response) {
+			set(response);
+		}
+
+		/** @param cause the reason the command failed */
+		void fail(Throwable cause) {
+			setException(cause);
+		}
+
+		/** Commands cannot be cancelled once sent. */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.util.List;
+
+/**
+ * The response of a modem to an AT command: any information text lines, and the final result code which ended it.
+ * @author Alex
+ */
+public final class AtResponse {
+//> INSTANCE PROPERTIES
+	/** The command, as sent without its terminating carriage return */
+	private final String command;
+	/** The information text lines of the response, excluding blank lines and the echo of the command */
+	private final List<String> lines;
+	/** The final result code, e.g. <code>OK</code> or <code>+CME ERROR: 10</code> */
+	private final String finalResult;
+
+//> CONSTRUCTORS
+	/**
+	 * @param command value for {@link #command}
+	 * @param lines value for {@link #lines}
+	 * @param finalResult value for {@link #finalResult}
+	 */
+	AtResponse(String command, List<String> lines, String finalResult) {
+		this.command = command;
+		this.lines = lines;
+		this.finalResult = finalResult;
+	}
+
+//> ACCESSORS
+	/** @return {@link #command} */
+	public String getCommand() {
+		return command;
+	}
+
+	/** @return {@link #lines}; unmodifiable */
+	public List<String> getLines() {
+		return lines;
+	}
+
+	/** @return {@link #finalResult} */
+	public String getFinalResult() {
+		return finalResult;
+	}
+
+	/** @return <code>true</code> if the final result code is <code>OK</code> */
+	public boolean isOk() {
+		return "OK".equals(finalResult);
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return command + " -> " + lines + " " + finalResult;
+	}
+}
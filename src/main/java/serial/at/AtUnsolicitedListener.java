@@ -0,0 +1,19 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.util.EventListener;
+
+/**
+ * Listener for the unsolicited result codes which an {@link AtCommandChannel} separates from command responses.
+ * @author Alex
+ */
+public interface AtUnsolicitedListener extends EventListener {
+	/**
+	 * Called on the channel's reader thread for each unsolicited result code, so must return quickly.
+	 * @param channel the channel which received the result code
+	 * @param result the result code
+	 */
+	public void unsolicitedResult(AtCommandChannel channel, AtUnsolicitedResult result);
+}
@@ -0,0 +1,46 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.util.List;
+
+/**
+ * An unsolicited result code raised by a modem, e.g. <code>RING</code> or <code>+CMTI: "SM",3</code>, with any data
+ * lines which follow it, such as the PDU after <code>+CMT:</code>.
+ * @author Alex
+ */
+public final class AtUnsolicitedResult {
+//> INSTANCE PROPERTIES
+	/** The line of the result code */
+	private final String line;
+	/** Data lines following {@link #line} */
+	private final List<String> dataLines;
+
+//> CONSTRUCTORS
+	/**
+	 * @param line value for {@link #line}
+	 * @param dataLines value for {@link #dataLines}
+	 */
+	AtUnsolicitedResult(String line, List<String> dataLines) {
+		this.line = line;
+		this.dataLines = dataLines;
+	}
+
+//> ACCESSORS
+	/** @return {@link #line} */
+	public String getLine() {
+		return line;
+	}
+
+	/** @return {@link #dataLines}; unmodifiable */
+	public List<String> getDataLines() {
+		return dataLines;
+	}
+
+	/** @see Object#toString() */
+	@Override
+	public String toString() {
+		return dataLines.isEmpty() ? line : line + " " + dataLines;
+	}
+}
@@ -0,0 +1,22 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.util.EventListener;
+
+/**
+ * Receives the matches found by a {@link BytePatternMatcher}.
+ * @author Alex
+ */
+public interface BytePatternListener extends EventListener {
+	/**
+	 * Called for each occurrence of a pattern, in the order the occurrences end.  Offsets are relative to the region
+	 * being scanned, so a match which began in an earlier region has a negative start offset.
+	 * @param patterns the pattern set which matched
+	 * @param patternIndex the index of the pattern in <code>patterns</code>
+	 * @param startOffset the offset of the first byte of the match
+	 * @param endOffset the offset after the last byte of the match
+	 */
+	public void patternMatched(BytePatternSet patterns, int patternIndex, int startOffset, int endOffset);
+}
@@ -0,0 +1,122 @@
+/**
+ *
+ */
+package serial.at;
+
+import serial.RingBufferInputStream;
+
+/**
+ * Finds occurrences of a {@link BytePatternSet} in a stream of bytes, which may be scanned a piece at a time.
+ * <p>
+ * Scanning works directly on the raw bytes, either from an array or in place in a {@link RingBufferInputStream}, and
+ * allocates nothing.  Matches are reported to a {@link BytePatternListener} with offsets into the region scanned.
+ * </p>
+ * <p>
+ * The pattern set can be replaced with {@link #setPatterns(BytePatternSet)} from any thread while another is scanning.
+ * The new set takes effect from the start of the next scan, which begins matching afresh.  Otherwise a matcher must
+ * only be used by one thread at a time.
+ * </p>
+ * @author Alex
+ */
+public class BytePatternMatcher {
+//> INSTANCE PROPERTIES
+	/** Listener notified of matches */
+	private final BytePatternListener listener;
+	/** The patterns to use from the next scan */
+	private volatile BytePatternSet patterns;
+	/** The patterns {@link #state} belongs to */
+	private BytePatternSet scanPatterns;
+	/** The state of the automaton after the last byte scanned */
+	private int state;
+
+//> CONSTRUCTORS
+	/**
+	 * @param patterns value for {@link #patterns}
+	 * @param listener value for {@link #listener}
+	 */
+	public BytePatternMatcher(BytePatternSet patterns, BytePatternListener listener) {
+		if(patterns == null) throw new IllegalArgumentException("Patterns must not be null.");
+		if(listener == null) throw new IllegalArgumentException("Listener must not be null.");
+		this.patterns = patterns;
+		this.listener = listener;
+	}
+
+//> ACCESSORS
+	/** @return the patterns which will be used from the next scan */
+	public BytePatternSet getPatterns() {
+		return patterns;
+	}
+
+	/** @param patterns the patterns to use from the next scan */
+	public void setPatterns(BytePatternSet patterns) {
+		if(patterns == null) throw new IllegalArgumentException("Patterns must not be null.");
+		this.patterns = patterns;
+	}
+
+//> INSTANCE METHODS
+	/** Forgets any partial match, so the next scan starts afresh. */
+	public void reset() {
+		state = 0;
+	}
+
+	/**
+	 * Scans bytes from an array, continuing any match from the previous scan.
+	 * @param b the array
+	 * @param off the offset of the first byte to scan; reported offsets are relative to this
+	 * @param len the number of bytes to scan
+	 */
+	public void scan(byte[] b, int off, int len) {
+		if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+		BytePatternSet set = begin();
+		int s = state;
+		for(int i=0; i<len; ++i) {
+			s = set.next(s, b[off + i]);
+			if(set.getMatchPattern(s) != BytePatternSet.NONE || set.getMatchLink(s) != BytePatternSet.NONE) report(set, s, i + 1);
+		}
+		state = s;
+	}
+
+	/**
+	 * Scans the buffered bytes of a stream in place, without consuming them, continuing any match from the previous scan.
+	 * Reported offsets can be passed to {@link RingBufferInputStream#peek(int)}.
+	 * @param in the stream
+	 * @param fromOffset the offset of the first buffered byte to scan
+	 * @param toOffset the offset after the last buffered byte to scan
+	 */
+	public void scan(RingBufferInputStream in, int fromOffset, int toOffset) {
+		if(fromOffset < 0 || toOffset > in.getBufferedCount() || fromOffset > toOffset) throw new IndexOutOfBoundsException();
+		BytePatternSet set = begin();
+		int s = state;
+		for(int offset=fromOffset; offset<toOffset; ++offset) {
+			s = set.next(s, (byte) in.peek(offset));
+			if(set.getMatchPattern(s) != BytePatternSet.NONE || set.getMatchLink(s) != BytePatternSet.NONE) report(set, s, offset + 1);
+		}
+		state = s;
+	}
+
+//> INSTANCE HELPER METHODS
+	/** @return the pattern set to scan with, restarting matching if it has been replaced */
+	private BytePatternSet begin() {
+		BytePatternSet set = patterns;
+		if(set != scanPatterns) {
+			scanPatterns = set;
+			state = 0;
+		}
+		return set;
+	}
+
+	/**
+	 * Reports every pattern ending at a state.
+	 * @param set the pattern set
+	 * @param matchState the state reached
+	 * @param endOffset the offset after the byte which reached the state
+	 */
+	private void report(BytePatternSet set, int matchState, int endOffset) {
+		for(int s=matchState; s!=BytePatternSet.NONE; s=set.getMatchLink(s)) {
+			int pattern = set.getMatchPattern(s);
+			if(pattern != BytePatternSet.NONE) {
+				listener.patternMatched(set, pattern, endOffset - set.getPatternLength(pattern), endOffset);
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ *
+ */
+package serial.at;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * An immutable set of byte patterns compiled into an Aho-Corasick automaton, for {@link BytePatternMatcher}.
+ * <p>
+ * The automaton is compiled to a deterministic transition table with 256 entries per state, so matching costs one
+ * array load per byte, whatever the number of patterns.  Each state records the pattern which ends there, if any,
+ * and the next state on its failure chain which also ends a pattern, so every match can be reported without
+ * allocating.  The table takes 1KB per state, and there is at most one state per pattern byte.
+ * </p>
+ * @author Alex
+ */
+public final class BytePatternSet {
+//> STATIC CONSTANTS
+	/** Value of {@link #matchPattern} and {@link #matchLink} for none */
+	static final int NONE = -1;
+	/** Character set for patterns given as strings, which maps chars to bytes one to one */
+	private static final String CHARSET = "ISO-8859-1";
+
+//> INSTANCE PROPERTIES
+	/** The patterns, by index */
+	private final byte[][] patterns;
+	/** Length of the longest pattern */
+	private final int maxLength;
+	/** Transition table: the state after state <code>s</code> reads byte <code>b</code> is at <code>(s &lt;&lt; 8) | b</code> */
+	private final int[] transitions;
+	/** Index of the pattern which ends at each state, or {@link #NONE} */
+	private final int[] matchPattern;
+	/** The next state on each state's failure chain with a {@link #matchPattern}, or {@link #NONE} */
+	private final int[] matchLink;
+
+//> CONSTRUCTORS
+	/**
+	 * @param patterns value for {@link #patterns}
+	 * @param maxLength value for {@link #maxLength}
+	 * @param transitions value for {@link #transitions}
+	 * @param matchPattern value for {@link #matchPattern}
+	 * @param matchLink value for {@link #matchLink}
+	 */
+	private BytePatternSet(byte[][] patterns, int maxLength, int[] transitions, int[] matchPattern, int[] matchLink) {
+		this.patterns = patterns;
+		this.maxLength = maxLength;
+		this.transitions = transitions;
+		this.matchPattern = matchPattern;
+		this.matchLink = matchLink;
+	}
+
+//> ACCESSORS
+	/** @return the number of patterns */
+	public int size() {
+		return patterns.length;
+	}
+
+	/**
+	 * @param index the index of a pattern
+	 * @return a copy of the pattern
+	 */
+	public byte[] getPattern(int index) {
+		return patterns[index].clone();
+	}
+
+	/**
+	 * @param index the index of a pattern
+	 * @return the length of the pattern
+	 */
+	public int getPatternLength(int index) {
+		return patterns[index].length;
+	}
+
+	/** @return the length of the longest pattern */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @param state the current state
+	 * @param b the next byte
+	 * @return the state after reading the byte
+	 */
+	int next(int state, byte b) {
+		return transitions[(state << 8) | (b & 0xFF)];
+	}
+
+	/**
+	 * @param state a state
+	 * @return the index of the pattern which ends at the state, or {@link #NONE}
+	 */
+	int getMatchPattern(int state) {
+		return matchPattern[state];
+	}
+
+	/**
+	 * @param state a state
+	 * @return the next state on the failure chain which ends a pattern, or {@link #NONE}
+	 */
+	int getMatchLink(int state) {
+		return matchLink[state];
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Compiles patterns given as strings, each char of which must be a single byte.
+	 * @param patterns the patterns; their indices are their positions in this array
+	 * @return the compiled set
+	 */
+	public static BytePatternSet compile(String... patterns) {
+		byte[][] bytes = new byte[patterns.length][];
+		try {
+			for(int i=0; i<patterns.length; ++i) bytes[i] = patterns[i].getBytes(CHARSET);
+		} catch(UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return compile(bytes);
+	}
+
+	/**
+	 * Compiles patterns.
+	 * @param patterns the patterns, none of which may be empty; their indices are their positions in this array
+	 * @return the compiled set
+	 */
+	public static BytePatternSet compile(byte[]... patterns) {
+		byte[][] copies = new byte[patterns.length][];
+		int maxLength = 0;
+		for(int i=0; i<patterns.length; ++i) {
+			if(patterns[i].length == 0) throw new IllegalArgumentException("Pattern " + i + " is empty.");
+			copies[i] = patterns[i].clone();
+			maxLength = Math.max(maxLength, copies[i].length);
+		}
+
+		// Build the trie, with NONE for missing edges
+		List<int[]> edges = new ArrayList<int[]>();
+		List<Integer> patternAt = new ArrayList<Integer>();
+		edges.add(newEdges());
+		patternAt.add(Integer.valueOf(NONE));
+		for(int i=0; i<copies.length; ++i) {
+			int state = 0;
+			for(byte b : copies[i]) {
+				int c = b & 0xFF;
+				if(edges.get(state)[c] == NONE) {
+					edges.get(state)[c] = edges.size();
+					edges.add(newEdges());
+					patternAt.add(Integer.valueOf(NONE));
+				}
+				state = edges.get(state)[c];
+			}
+			if(patternAt.get(state).intValue() == NONE) patternAt.set(state, Integer.valueOf(i));
+		}
+
+		// Resolve failures breadth first, turning the trie into a complete transition table
+		int stateCount = edges.size();
+		int[] transitions = new int[stateCount << 8];
+		int[] failure = new int[stateCount];
+		int[] matchPattern = new int[stateCount];
+		int[] matchLink = new int[stateCount];
+		for(int state=0; state<stateCount; ++state) matchPattern[state] = patternAt.get(state).intValue();
+		matchLink[0] = NONE;
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		queue.add(Integer.valueOf(0));
+		while(!queue.isEmpty()) {
+			int state = queue.removeFirst().intValue();
+			int[] stateEdges = edges.get(state);
+			for(int c=0; c<256; ++c) {
+				int child = stateEdges[c];
+				if(child != NONE) {
+					int childFailure = state == 0 ? 0 : transitions[(failure[state] << 8) | c];
+					failure[child] = childFailure;
+					matchLink[child] = matchPattern[childFailure] != NONE ? childFailure : matchLink[childFailure];
+					transitions[(state << 8) | c] = child;
+					queue.add(Integer.valueOf(child));
+				} else {
+					transitions[(state << 8) | c] = state == 0 ? 0 : transitions[(failure[state] << 8) | c];
+				}
+			}
+		}
+		return new BytePatternSet(copies, maxLength, transitions, matchPattern, matchLink);
+	}
+
+//> STATIC HELPER METHODS
+	/** @return a new array of trie edges, all {@link #NONE} */
+	private static int[] newEdges() {
+		int[] edges = new int[256];
+		for(int i=0; i<edges.length; ++i) edges[i] = NONE;
+		return edges;
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Base for codecs which build each frame up in a buffer of fixed maximum size.
+ * <p>
+ * The frame buffer is direct and is allocated once, and frames are passed to the sink in it, so decoding allocates
+ * nothing.  Subclasses decode in a single loop over the input, calling {@link #append(byte)} and
+ * {@link #emit(FrameSink)}, both of which are final so the JIT can inline them into that loop.  If a frame grows too
+ * long, it is discarded up to the next frame boundary.
+ * </p>
+ * @author Alex
+ */
+public abstract class AbstractFrameCodec implements FrameCodec {
+//> INSTANCE PROPERTIES
+	/** Largest frame which can be decoded or encoded */
+	protected final int maxFrameLength;
+	/** The frame being decoded, from the start of the buffer to its position */
+	protected final ByteBuffer frame;
+	/** <code>true</code> while skipping the rest of a frame which was too long */
+	protected boolean discarding;
+
+//> CONSTRUCTORS
+	/** @param maxFrameLength value for {@link #maxFrameLength} */
+	protected AbstractFrameCodec(int maxFrameLength) {
+		if(maxFrameLength < 1) throw new IllegalArgumentException("Maximum frame length must be at least 1: " + maxFrameLength);
+		this.maxFrameLength = maxFrameLength;
+		this.frame = ByteBuffer.allocateDirect(maxFrameLength);
+	}
+
+//> FRAMEDECODER METHODS
+	/** @see FrameDecoder#reset() */
+	public void reset() {
+		frame.clear();
+		discarding = false;
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Adds a byte to the frame being decoded.
+	 * @param b the byte
+	 * @throws FramingException if the frame is already {@link #maxFrameLength} long; the rest of it will be discarded
+	 */
+	protected final void append(byte b) throws FramingException {
+		if(discarding) return;
+		if(!frame.hasRemaining()) {
+			frame.clear();
+			discarding = true;
+			throw new FramingException("Frame longer than " + maxFrameLength + " bytes.");
+		}
+		frame.put(b);
+	}
+
+	/**
+	 * Passes the frame being decoded to the sink, unless it is being discarded, and starts a new frame.
+	 * @param sink the sink
+	 * @throws IOException if thrown by the sink
+	 */
+	protected final void emit(FrameSink sink) throws IOException {
+		if(discarding) {
+			discarding = false;
+			frame.clear();
+			return;
+		}
+		frame.flip();
+		try {
+			sink.frame(frame);
+		} finally {
+			frame.clear();
+		}
+	}
+
+	/**
+	 * @param frameLength the length of a frame to encode
+	 * @throws FramingException if it is longer than {@link #maxFrameLength}
+	 */
+	protected final void checkEncodeLength(int frameLength) throws FramingException {
+		if(frameLength > maxFrameLength) throw new FramingException("Frame longer than " + maxFrameLength + " bytes: " + frameLength);
+	}
+}
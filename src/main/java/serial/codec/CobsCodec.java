@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Consistent Overhead Byte Stuffing framing.  Each frame is encoded without zero bytes, and followed by a zero byte
+ * as its delimiter.  Frames are decoded on the fly as their bytes arrive.  Repeated delimiters are ignored, so an
+ * empty frame is only decoded from its encoding, <code>01 00</code>.
+ * @author Alex
+ */
+public class CobsCodec extends AbstractFrameCodec {
+//> STATIC CONSTANTS
+	/** Largest code, for a block of 254 non-zero bytes with no implied zero after it */
+	private static final int MAX_CODE = 0xFF;
+
+//> INSTANCE PROPERTIES
+	/** Code of the block being decoded */
+	private int code = MAX_CODE;
+	/** Data bytes remaining in the block being decoded */
+	private int remaining;
+	/** <code>true</code> if a zero is implied before the next block */
+	private boolean pendingZero;
+
+//> CONSTRUCTORS
+	/** @param maxFrameLength largest frame which can be decoded or encoded */
+	public CobsCodec(int maxFrameLength) {
+		super(maxFrameLength);
+	}
+
+//> FRAMEDECODER METHODS
+	/** @see FrameDecoder#decode(ByteBuffer, FrameSink) */
+	public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+		int limit = in.limit();
+		for(int i=in.position(); i<limit; ++i) {
+			byte b = in.get(i);
+			in.position(i + 1);
+			if(b == 0) {
+				boolean complete = remaining == 0;
+				boolean empty = code == MAX_CODE && frame.position() == 0 && !discarding;
+				resetBlock();
+				if(complete) {
+					// A repeated delimiter between frames is not an empty frame
+					if(!empty) emit(sink);
+				} else {
+					boolean reported = discarding;
+					frame.clear();
+					discarding = false;
+					if(!reported) throw new FramingException("COBS frame ended inside a block.");
+				}
+			} else if(remaining == 0) {
+				boolean zero = pendingZero;
+				code = b & 0xFF;
+				remaining = code - 1;
+				pendingZero = remaining == 0 && code != MAX_CODE;
+				if(zero) append((byte) 0);
+			} else {
+				if(--remaining == 0) pendingZero = code != MAX_CODE;
+				append(b);
+			}
+		}
+	}
+
+	/** @see FrameDecoder#reset() */
+	@Override
+	public void reset() {
+		super.reset();
+		resetBlock();
+	}
+
+//> FRAMEENCODER METHODS
+	/** @see FrameEncoder#getMaxEncodedLength(int) */
+	public int getMaxEncodedLength(int frameLength) {
+		return frameLength + frameLength / 254 + 2;
+	}
+
+	/** @see FrameEncoder#encode(ByteBuffer, ByteBuffer) */
+	public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException {
+		checkEncodeLength(frame.remaining());
+		int codePosition = out.position();
+		out.put((byte) 0);
+		int blockCode = 1;
+		int limit = frame.limit();
+		for(int i=frame.position(); i<limit; ++i) {
+			byte b = frame.get(i);
+			if(blockCode == MAX_CODE) {
+				// The last block is full; only start another once there is more to put in it, so that a frame
+				// ending on a block boundary has no empty block after it
+				out.put(codePosition, (byte) blockCode);
+				codePosition = out.position();
+				out.put((byte) 0);
+				blockCode = 1;
+			}
+			if(b == 0) {
+				out.put(codePosition, (byte) blockCode);
+				codePosition = out.position();
+				out.put((byte) 0);
+				blockCode = 1;
+			} else {
+				out.put(b);
+				++blockCode;
+			}
+		}
+		frame.position(limit);
+		out.put(codePosition, (byte) blockCode);
+		out.put((byte) 0);
+	}
+
+//> INSTANCE HELPER METHODS
+	/** Prepares to decode the first block of a frame. */
+	private void resetBlock() {
+		code = MAX_CODE;
+		remaining = 0;
+		pendingZero = false;
+	}
+}
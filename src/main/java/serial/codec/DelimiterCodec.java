@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Framing by a delimiter sequence, e.g. <code>\r\n</code>, which ends each frame.  The delimiter is not included in
+ * decoded frames, and must not occur within frames being encoded.  Empty frames are not emitted.
+ * @author Alex
+ */
+public class DelimiterCodec extends AbstractFrameCodec {
+//> INSTANCE PROPERTIES
+	/** The delimiter */
+	private final byte[] delimiter;
+	/** The last byte of {@link #delimiter}, which is checked for before the rest */
+	private final byte lastDelimiterByte;
+	/** Number of bytes of {@link #delimiter} matched by the last bytes decoded, while discarding */
+	private int discardMatched;
+
+//> CONSTRUCTORS
+	/**
+	 * @param delimiter value for {@link #delimiter}
+	 * @param maxFrameLength largest frame which can be decoded or encoded, not counting the delimiter
+	 */
+	public DelimiterCodec(byte[] delimiter, int maxFrameLength) {
+		super(maxFrameLength + delimiter.length);
+		if(delimiter.length == 0) throw new IllegalArgumentException("Delimiter must not be empty.");
+		this.delimiter = delimiter.clone();
+		this.lastDelimiterByte = delimiter[delimiter.length - 1];
+	}
+
+//> FRAMEDECODER METHODS
+	/** @see FrameDecoder#decode(ByteBuffer, FrameSink) */
+	public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+		int limit = in.limit();
+		for(int i=in.position(); i<limit; ++i) {
+			byte b = in.get(i);
+			in.position(i + 1);
+			if(discarding) {
+				discardMatched = b == delimiter[discardMatched] ? discardMatched + 1 : (b == delimiter[0] ? 1 : 0);
+				if(discardMatched == delimiter.length) {
+					discardMatched = 0;
+					emit(sink);
+				}
+				continue;
+			}
+			append(b);
+			if(b == lastDelimiterByte && endsWithDelimiter()) {
+				frame.position(frame.position() - delimiter.length);
+				if(frame.position() > 0) emit(sink);
+			}
+		}
+	}
+
+	/** @see FrameDecoder#reset() */
+	@Override
+	public void reset() {
+		super.reset();
+		discardMatched = 0;
+	}
+
+//> FRAMEENCODER METHODS
+	/** @see FrameEncoder#getMaxEncodedLength(int) */
+	public int getMaxEncodedLength(int frameLength) {
+		return frameLength + delimiter.length;
+	}
+
+	/** @see FrameEncoder#encode(ByteBuffer, ByteBuffer) */
+	public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException {
+		checkEncodeLength(frame.remaining() + delimiter.length);
+		out.put(frame);
+		out.put(delimiter);
+	}
+
+//> INSTANCE HELPER METHODS
+	/** @return <code>true</code> if the frame being decoded ends with {@link #delimiter} */
+	private boolean endsWithDelimiter() {
+		int end = frame.position();
+		if(end < delimiter.length) return false;
+		for(int i=0; i<delimiter.length; ++i) {
+			if(frame.get(end - delimiter.length + i) != delimiter[i]) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct {@link ByteBuffer}s of a single size.  Direct buffers are expensive to allocate and are freed only by
+ * the garbage collector, so they are returned to the pool after use rather than discarded.
+ * @author Alex
+ */
+public class DirectBufferPool {
+//> INSTANCE PROPERTIES
+	/** Capacity of each buffer */
+	private final int bufferSize;
+	/** Largest number of idle buffers kept */
+	private final int maxIdle;
+	/** Idle buffers */
+	private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<ByteBuffer>();
+	/** Number of buffers in {@link #idle} */
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+//> CONSTRUCTORS
+	/**
+	 * @param bufferSize value for {@link #bufferSize}
+	 * @param maxIdle value for {@link #maxIdle}
+	 */
+	public DirectBufferPool(int bufferSize, int maxIdle) {
+		if(bufferSize < 1) throw new IllegalArgumentException("Buffer size must be at least 1: " + bufferSize);
+		if(maxIdle < 0) throw new IllegalArgumentException("Maximum idle buffers must not be negative: " + maxIdle);
+		this.bufferSize = bufferSize;
+		this.maxIdle = maxIdle;
+	}
+
+//> ACCESSORS
+	/** @return {@link #bufferSize} */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+//> INSTANCE METHODS
+	/** @return a cleared buffer, from the pool if one is idle, otherwise newly allocated */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = idle.poll();
+		if(buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+		idleCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/** @param buffer a buffer from {@link #acquire()}, which must not be used again by the caller */
+	public void release(ByteBuffer buffer) {
+		if(buffer.capacity() != bufferSize || !buffer.isDirect()) throw new IllegalArgumentException("Buffer was not acquired from this pool.");
+		if(idleCount.incrementAndGet() <= maxIdle) {
+			idle.add(buffer);
+		} else {
+			idleCount.decrementAndGet();
+		}
+	}
+}
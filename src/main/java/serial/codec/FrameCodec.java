@@ -0,0 +1,12 @@
+/**
+ *
+ */
+package serial.codec;
+
+/**
+ * A framing which can both decode and encode, for use in a {@link FramePipeline}.  Codecs can be stacked with
+ * {@link FrameCodecs#chain(FrameCodec...)}.
+ * @author Alex
+ */
+public interface FrameCodec extends FrameDecoder, FrameEncoder {
+}
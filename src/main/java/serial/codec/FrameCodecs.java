@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Factory methods for {@link FrameCodec}s.
+ * @author Alex
+ */
+public final class FrameCodecs {
+//> CONSTRUCTORS
+	/** Not instantiable. */
+	private FrameCodecs() {}
+
+//> STATIC FACTORIES
+	/**
+	 * Stacks codecs, e.g. a length-prefixed protocol carried in SLIP frames.
+	 * <p>
+	 * Decoding is fused: each stage passes its frames straight to the next stage's
+	 * {@link FrameDecoder#decode(ByteBuffer, FrameSink)} in its own frame buffer, so there is no copying or queueing
+	 * between stages, and each stage is called once per frame of the stage outside it rather than once per byte.  Each
+	 * sink between stages always calls the same decoder, so the JIT sees one receiver at each call site.
+	 * </p>
+	 * <p>
+	 * Encoding runs innermost first, through scratch buffers owned by the chain.  The chain is not thread safe, except
+	 * that one thread may decode while another encodes.
+	 * </p>
+	 * @param codecs the codecs, outermost (nearest the wire) first
+	 * @return the chained codec, or the codec itself if only one is given
+	 */
+	public static FrameCodec chain(FrameCodec... codecs) {
+		if(codecs.length == 0) throw new IllegalArgumentException("At least one codec must be chained.");
+		if(codecs.length == 1) return codecs[0];
+		return new ChainedCodec(codecs.clone());
+	}
+
+//> INNER CLASSES
+	/**
+	 * Codecs stacked by {@link FrameCodecs#chain(FrameCodec...)}.
+	 */
+	private static final class ChainedCodec implements FrameCodec {
+		/** The codecs, outermost first */
+		private final FrameCodec[] stages;
+		/** Sink for the frames of each stage but the last, which decodes them with the next stage */
+		private final StageSink[] stageSinks;
+		/** Sink for the frames of the last stage, which passes them to {@link #sink} */
+		private final FrameSink outputSink = new FrameSink() {
+			public void frame(ByteBuffer frame) throws IOException {
+				sink.frame(frame);
+			}
+		};
+		/** Scratch buffers for encoding, holding the output of each stage but the first.  Grown when needed. */
+		private final ByteBuffer[] scratch;
+		/** The sink passed to the current call to {@link #decode(ByteBuffer, FrameSink)} */
+		private FrameSink sink;
+
+		/** @param stages value for {@link #stages} */
+		ChainedCodec(FrameCodec[] stages) {
+			this.stages = stages;
+			this.stageSinks = new StageSink[stages.length - 1];
+			for(int i=stageSinks.length-1; i>=0; --i) {
+				FrameSink next = i == stageSinks.length - 1 ? outputSink : stageSinks[i + 1];
+				stageSinks[i] = new StageSink(stages[i + 1], next);
+			}
+			this.scratch = new ByteBuffer[stages.length];
+		}
+
+	//> FRAMEDECODER METHODS
+		/** @see FrameDecoder#decode(ByteBuffer, FrameSink) */
+		public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+			this.sink = sink;
+			try {
+				stages[0].decode(in, stageSinks[0]);
+			} finally {
+				this.sink = null;
+			}
+		}
+
+		/** @see FrameDecoder#reset() */
+		public void reset() {
+			for(FrameCodec stage : stages) stage.reset();
+		}
+
+	//> FRAMEENCODER METHODS
+		/** @see FrameEncoder#getMaxEncodedLength(int) */
+		public int getMaxEncodedLength(int frameLength) {
+			int length = frameLength;
+			for(int i=stages.length-1; i>=0; --i) length = stages[i].getMaxEncodedLength(length);
+			return length;
+		}
+
+		/** @see FrameEncoder#encode(ByteBuffer, ByteBuffer) */
+		public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException {
+			ByteBuffer input = frame;
+			int length = frame.remaining();
+			for(int i=stages.length-1; i>0; --i) {
+				length = stages[i].getMaxEncodedLength(length);
+				ByteBuffer output = scratch[i];
+				if(output == null || output.capacity() < length) {
+					output = scratch[i] = ByteBuffer.allocateDirect(length);
+				}
+				output.clear();
+				stages[i].encode(input, output);
+				output.flip();
+				input = output;
+			}
+			stages[0].encode(input, out);
+		}
+	}
+
+	/**
+	 * Sink which decodes frames with the next stage of a {@link ChainedCodec}.
+	 */
+	private static final class StageSink implements FrameSink {
+		/** The next stage */
+		private final FrameDecoder decoder;
+		/** Sink for the next stage's frames */
+		private final FrameSink next;
+
+		/**
+		 * @param decoder value for {@link #decoder}
+		 * @param next value for {@link #next}
+		 */
+		StageSink(FrameDecoder decoder, FrameSink next) {
+			this.decoder = decoder;
+			this.next = next;
+		}
+
+		/** @see FrameSink#frame(ByteBuffer) */
+		public void frame(ByteBuffer frame) throws IOException {
+			decoder.decode(frame, next);
+		}
+	}
+}
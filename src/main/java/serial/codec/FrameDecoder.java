@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a stream of bytes into frames.  Bytes may be supplied in pieces of any size; a partial frame is kept until
+ * the rest of it arrives.
+ * @author Alex
+ */
+public interface FrameDecoder {
+	/**
+	 * Decodes bytes, passing every frame they complete to the sink.
+	 * @param in the bytes, between its position and limit.  All of them are consumed, unless a
+	 *   {@link FramingException} is thrown, in which case the position is after the byte which was in error.
+	 * @param sink the sink for complete frames
+	 * @throws FramingException if the bytes are not validly framed; the bad frame is discarded, and decoding can continue
+	 * @throws IOException if thrown by the sink
+	 */
+	public void decode(ByteBuffer in, FrameSink sink) throws IOException;
+
+	/** Discards any partial frame. */
+	public void reset();
+}
@@ -0,0 +1,26 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wraps frames for sending.
+ * @author Alex
+ */
+public interface FrameEncoder {
+	/**
+	 * @param frameLength the length of a frame
+	 * @return the largest number of bytes it can be encoded to
+	 */
+	public int getMaxEncodedLength(int frameLength);
+
+	/**
+	 * Encodes a frame.
+	 * @param frame the frame, between its position and limit, all of which is consumed
+	 * @param out the buffer to encode into, which must have at least {@link #getMaxEncodedLength(int)} bytes remaining
+	 * @throws FramingException if the frame cannot be encoded, e.g. it is too long
+	 */
+	public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException;
+}
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import serial.SerialChannel;
+import serial.SerialPort;
+
+/**
+ * Reads and writes frames on a port through a {@link FrameCodec}.
+ * <p>
+ * {@link #read()} reads whatever the port has into a pooled direct buffer and decodes it, passing complete frames to
+ * the sink; frames passed to the sink are only valid until it returns.  Framing errors are logged and counted, and
+ * decoding carries on with the next frame.  {@link #write(ByteBuffer)} encodes a frame into a pooled buffer and writes
+ * it to the port.  One thread may read while others write.
+ * </p>
+ * @author Alex
+ */
+public class FramePipeline {
+//> STATIC CONSTANTS
+	/** Size of the buffers in the pool created by {@link #FramePipeline(SerialPort, FrameCodec, FrameSink)} */
+	public static final int DEFAULT_BUFFER_SIZE = 4096;
+	/** Largest number of idle buffers in the pool created by {@link #FramePipeline(SerialPort, FrameCodec, FrameSink)} */
+	private static final int DEFAULT_MAX_IDLE = 4;
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The port's channel */
+	private final SerialChannel channel;
+	/** The framing */
+	private final FrameCodec codec;
+	/** Sink for decoded frames */
+	private final FrameSink sink;
+	/** Pool of buffers for reads and encoded frames */
+	private final DirectBufferPool pool;
+	/** Lock held while encoding and writing a frame, so frames are not interleaved */
+	private final Object writeLock = new Object();
+	/** Number of framing errors while decoding */
+	private final AtomicLong framingErrorCount = new AtomicLong();
+
+//> CONSTRUCTORS
+	/**
+	 * @param channel value for {@link #channel}
+	 * @param codec value for {@link #codec}
+	 * @param sink value for {@link #sink}
+	 * @param pool value for {@link #pool}, which may be shared between pipelines
+	 */
+	public FramePipeline(SerialChannel channel, FrameCodec codec, FrameSink sink, DirectBufferPool pool) {
+		if(channel == null || codec == null || sink == null || pool == null) throw new IllegalArgumentException("Channel, codec, sink and pool must not be null.");
+		this.channel = channel;
+		this.codec = codec;
+		this.sink = sink;
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates a pipeline on a port's channel, with its own buffer pool.
+	 * @param port the port
+	 * @param codec value for {@link #codec}
+	 * @param sink value for {@link #sink}
+	 * @throws IOException if the port's channel could not be created
+	 */
+	public FramePipeline(SerialPort port, FrameCodec codec, FrameSink sink) throws IOException {
+		this(port.getChannel(), codec, sink, new DirectBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_IDLE));
+	}
+
+//> ACCESSORS
+	/** @return the number of framing errors while decoding */
+	public long getFramingErrorCount() {
+		return framingErrorCount.get();
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Makes one read from the port, and decodes the bytes read.
+	 * @return the number of bytes read, or <code>-1</code> at the end of the stream
+	 * @throws IOException if thrown by the port or the sink
+	 */
+	public int read() throws IOException {
+		ByteBuffer buffer = pool.acquire();
+		try {
+			int read = channel.read(buffer);
+			if(read > 0) {
+				buffer.flip();
+				decode(buffer);
+			}
+			return read;
+		} finally {
+			pool.release(buffer);
+		}
+	}
+
+	/**
+	 * Decodes bytes received other than by {@link #read()}.
+	 * @param in the bytes, between its position and limit, all of which are consumed
+	 * @throws IOException if thrown by the sink
+	 */
+	public void decode(ByteBuffer in) throws IOException {
+		while(in.hasRemaining()) {
+			try {
+				codec.decode(in, sink);
+			} catch(FramingException ex) {
+				framingErrorCount.incrementAndGet();
+				log.warn("Discarded badly framed data: " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Encodes a frame and writes it to the port, blocking until it has all been written.
+	 * @param frame the frame, between its position and limit, which is consumed
+	 * @throws FramingException if the frame cannot be encoded, e.g. because it is too long
+	 * @throws IOException if thrown by the port
+	 */
+	public void write(ByteBuffer frame) throws IOException {
+		synchronized(writeLock) {
+			int length = codec.getMaxEncodedLength(frame.remaining());
+			boolean pooled = length <= pool.getBufferSize();
+			ByteBuffer buffer = pooled ? pool.acquire() : ByteBuffer.allocateDirect(length);
+			try {
+				codec.encode(frame, buffer);
+				buffer.flip();
+				while(buffer.hasRemaining()) channel.write(buffer);
+			} finally {
+				if(pooled) pool.release(buffer);
+			}
+		}
+	}
+}
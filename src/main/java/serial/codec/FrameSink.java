@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the complete frames produced by a {@link FrameDecoder}.
+ * @author Alex
+ */
+public interface FrameSink {
+	/**
+	 * Called with each complete frame.  The buffer belongs to the decoder and is reused for the next frame, so its
+	 * contents must be consumed or copied before returning.
+	 * @param frame the frame, between its position and limit
+	 * @throws IOException if the frame could not be handled; passed back to the caller of the decoder
+	 */
+	public void frame(ByteBuffer frame) throws IOException;
+}
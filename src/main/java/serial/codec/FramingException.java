@@ -0,0 +1,18 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+
+/**
+ * Thrown when bytes are not validly framed, or a frame cannot be encoded.
+ * @author Alex
+ */
+@SuppressWarnings("serial")
+public class FramingException extends IOException {
+	/** @param message the detail message */
+	public FramingException(String message) {
+		super(message);
+	}
+}
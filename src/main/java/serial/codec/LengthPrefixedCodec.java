@@ -0,0 +1,96 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Framing by a big-endian length field of 1, 2 or 4 bytes before each frame, giving the number of bytes which follow.
+ * Frame bodies are copied in bulk rather than a byte at a time.
+ * @author Alex
+ */
+public class LengthPrefixedCodec extends AbstractFrameCodec {
+//> INSTANCE PROPERTIES
+	/** Size of the length field in bytes */
+	private final int lengthFieldSize;
+	/** Number of bytes of the length field read so far */
+	private int headerRead;
+	/** The length field being read */
+	private int length;
+	/** Bytes of the frame body still to read, or <code>-1</code> while reading the length field */
+	private int bodyRemaining = -1;
+
+//> CONSTRUCTORS
+	/**
+	 * @param lengthFieldSize value for {@link #lengthFieldSize}
+	 * @param maxFrameLength largest frame which can be decoded or encoded
+	 */
+	public LengthPrefixedCodec(int lengthFieldSize, int maxFrameLength) {
+		super(maxFrameLength);
+		if(lengthFieldSize != 1 && lengthFieldSize != 2 && lengthFieldSize != 4) throw new IllegalArgumentException("Length field must be 1, 2 or 4 bytes: " + lengthFieldSize);
+		if(lengthFieldSize < 4 && maxFrameLength >= 1 << (8 * lengthFieldSize)) throw new IllegalArgumentException("Maximum frame length too large for length field: " + maxFrameLength);
+		this.lengthFieldSize = lengthFieldSize;
+	}
+
+//> FRAMEDECODER METHODS
+	/** @see FrameDecoder#decode(ByteBuffer, FrameSink) */
+	public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+		while(in.hasRemaining()) {
+			if(bodyRemaining < 0) {
+				length = (length << 8) | (in.get() & 0xFF);
+				if(++headerRead == lengthFieldSize) {
+					if(length < 0 || length > maxFrameLength) {
+						int badLength = length;
+						startHeader();
+						throw new FramingException("Frame length " + (badLength & 0xFFFFFFFFL) + " exceeds maximum " + maxFrameLength + ".");
+					}
+					bodyRemaining = length;
+				} else {
+					continue;
+				}
+			} else {
+				int count = Math.min(bodyRemaining, in.remaining());
+				int limit = in.limit();
+				in.limit(in.position() + count);
+				frame.put(in);
+				in.limit(limit);
+				bodyRemaining -= count;
+			}
+			if(bodyRemaining == 0) {
+				startHeader();
+				emit(sink);
+			}
+		}
+	}
+
+	/** @see FrameDecoder#reset() */
+	@Override
+	public void reset() {
+		super.reset();
+		startHeader();
+	}
+
+//> FRAMEENCODER METHODS
+	/** @see FrameEncoder#getMaxEncodedLength(int) */
+	public int getMaxEncodedLength(int frameLength) {
+		return frameLength + lengthFieldSize;
+	}
+
+	/** @see FrameEncoder#encode(ByteBuffer, ByteBuffer) */
+	public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException {
+		int frameLength = frame.remaining();
+		checkEncodeLength(frameLength);
+		for(int shift=8*(lengthFieldSize-1); shift>=0; shift-=8) out.put((byte) (frameLength >>> shift));
+		out.put(frame);
+	}
+
+//> INSTANCE HELPER METHODS
+	/** Prepares to read the length field of the next frame. */
+	private void startHeader() {
+		headerRead = 0;
+		length = 0;
+		bodyRemaining = -1;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * SLIP framing, as in RFC 1055.  Frames end with <code>END</code>, and <code>END</code> and <code>ESC</code> within
+ * a frame are escaped.  Encoded frames also begin with <code>END</code>, to flush any noise; empty frames are ignored
+ * when decoding.
+ * @author Alex
+ */
+public class SlipCodec extends AbstractFrameCodec {
+//> STATIC CONSTANTS
+	/** Frame end */
+	public static final byte END = (byte) 0xC0;
+	/** Escape */
+	public static final byte ESC = (byte) 0xDB;
+	/** Escaped {@link #END} */
+	public static final byte ESC_END = (byte) 0xDC;
+	/** Escaped {@link #ESC} */
+	public static final byte ESC_ESC = (byte) 0xDD;
+
+//> INSTANCE PROPERTIES
+	/** <code>true</code> if the last byte decoded was {@link #ESC} */
+	private boolean escaped;
+
+//> CONSTRUCTORS
+	/** @param maxFrameLength largest frame which can be decoded or encoded */
+	public SlipCodec(int maxFrameLength) {
+		super(maxFrameLength);
+	}
+
+//> FRAMEDECODER METHODS
+	/** @see FrameDecoder#decode(ByteBuffer, FrameSink) */
+	public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+		int limit = in.limit();
+		for(int i=in.position(); i<limit; ++i) {
+			byte b = in.get(i);
+			in.position(i + 1);
+			if(escaped) {
+				escaped = false;
+				if(b == ESC_END) append(END);
+				else if(b == ESC_ESC) append(ESC);
+				else throw protocolError(b);
+			} else if(b == END) {
+				if(frame.position() > 0 || discarding) emit(sink);
+			} else if(b == ESC) {
+				escaped = true;
+			} else {
+				append(b);
+			}
+		}
+	}
+
+	/** @see FrameDecoder#reset() */
+	@Override
+	public void reset() {
+		super.reset();
+		escaped = false;
+	}
+
+//> FRAMEENCODER METHODS
+	/** @see FrameEncoder#getMaxEncodedLength(int) */
+	public int getMaxEncodedLength(int frameLength) {
+		return 2 * frameLength + 2;
+	}
+
+	/** @see FrameEncoder#encode(ByteBuffer, ByteBuffer) */
+	public void encode(ByteBuffer frame, ByteBuffer out) throws FramingException {
+		checkEncodeLength(frame.remaining());
+		out.put(END);
+		int limit = frame.limit();
+		for(int i=frame.position(); i<limit; ++i) {
+			byte b = frame.get(i);
+			if(b == END) {
+				out.put(ESC).put(ESC_END);
+			} else if(b == ESC) {
+				out.put(ESC).put(ESC_ESC);
+			} else {
+				out.put(b);
+			}
+		}
+		frame.position(limit);
+		out.put(END);
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Discards the frame being decoded after an invalid escape.
+	 * @param b the byte after {@link #ESC}
+	 * @return the exception to throw
+	 */
+	private FramingException protocolError(byte b) {
+		frame.clear();
+		discarding = true;
+		return new FramingException("Invalid SLIP escape: 0x" + Integer.toHexString(b & 0xFF));
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory pipe carrying the bytes sent to one end of a {@link VirtualPort} connection.
+ * <p>
+ * Readers can wait for a minimum number of bytes and for a limited time, which is how receive thresholds and
+ * timeouts are implemented.  Blocked readers and writers can be released with {@link #wakeReaders()} and
+ * {@link #wakeWriters()}, e.g. when the port using the pipe is closed.
+ * </p>
+ * @author Alex
+ */
+final class BytePipe {
+//> INSTANCE PROPERTIES
+	/** Bytes written and not yet read.  Guarded by <code>this</code>. */
+	private final byte[] buffer;
+	/** Index in {@link #buffer} of the first unread byte.  Guarded by <code>this</code>. */
+	private int head;
+	/** Number of unread bytes.  Guarded by <code>this</code>. */
+	private int count;
+	/** Incremented by {@link #wakeReaders()}, so that waiting readers can tell they were released.  Guarded by <code>this</code>. */
+	private int readerWakeCount;
+	/** Incremented by {@link #wakeWriters()}, so that waiting writers can tell they were released.  Guarded by <code>this</code>. */
+	private int writerWakeCount;
+
+//> CONSTRUCTORS
+	/** @param capacity the most bytes the pipe can hold */
+	BytePipe(int capacity) {
+		if(capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		this.buffer = new byte[capacity];
+	}
+
+//> ACCESSORS
+	/** @return the number of bytes which can be read without blocking */
+	synchronized int available() {
+		return count;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Reads bytes, waiting until at least <code>minBytes</code> are available or the timeout expires.
+	 * @param b buffer to read into
+	 * @param off offset in <code>b</code>
+	 * @param len the most bytes to read
+	 * @param minBytes the number of bytes to wait for; capped at <code>len</code>, and at least 1
+	 * @param timeoutNanos the longest time to wait, or a negative value to wait indefinitely
+	 * @return the number of bytes read, which is <code>0</code> if the timeout expired with none available, or
+	 *   <code>-1</code> if released by {@link #wakeReaders()} with none available
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 */
+	synchronized int read(byte[] b, int off, int len, int minBytes, long timeoutNanos) throws InterruptedIOException {
+		if(len == 0) return 0;
+		int wanted = Math.max(1, Math.min(minBytes, len));
+		int startWakeCount = readerWakeCount;
+		long deadline = System.nanoTime() + timeoutNanos;
+		while(count < wanted) {
+			if(readerWakeCount != startWakeCount) {
+				if(count == 0) return -1;
+				break;
+			}
+			if(timeoutNanos < 0) {
+				await(0);
+			} else {
+				long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) break;
+				await(remaining);
+			}
+		}
+		int read = Math.min(len, count);
+		int first = Math.min(read, buffer.length - head);
+		System.arraycopy(buffer, head, b, off, first);
+		System.arraycopy(buffer, 0, b, off + first, read - first);
+		head = (head + read) % buffer.length;
+		count -= read;
+		if(read > 0) notifyAll();
+		return read;
+	}
+
+	/**
+	 * Writes bytes, waiting for space if the pipe is full.
+	 * @param b bytes to write
+	 * @param off offset in <code>b</code>
+	 * @param len number of bytes to write
+	 * @return the number of bytes written, which is less than <code>len</code> only if released by {@link #wakeWriters()}
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 */
+	synchronized int write(byte[] b, int off, int len) throws InterruptedIOException {
+		int startWakeCount = writerWakeCount;
+		int written = 0;
+		while(written < len) {
+			if(count == buffer.length) {
+				if(writerWakeCount != startWakeCount) break;
+				await(0);
+				continue;
+			}
+			int tail = (head + count) % buffer.length;
+			int chunk = Math.min(len - written, Math.min(buffer.length - count, buffer.length - tail));
+			System.arraycopy(b, off + written, buffer, tail, chunk);
+			count += chunk;
+			written += chunk;
+			notifyAll();
+		}
+		return written;
+	}
+
+	/** Releases every thread waiting in {@link #read(byte[], int, int, int, long)}. */
+	synchronized void wakeReaders() {
+		++readerWakeCount;
+		notifyAll();
+	}
+
+	/** Releases every thread waiting in {@link #write(byte[], int, int)}. */
+	synchronized void wakeWriters() {
+		++writerWakeCount;
+		notifyAll();
+	}
+
+	/** Discards all unread bytes. */
+	synchronized void clear() {
+		head = 0;
+		count = 0;
+		notifyAll();
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Waits on this pipe.  Must be called holding <code>this</code>.
+	 * @param nanos the longest time to wait, or <code>0</code> to wait until notified
+	 * @throws InterruptedIOException if the thread was interrupted
+	 */
+	private void await(long nanos) throws InterruptedIOException {
+		try {
+			if(nanos == 0) wait();
+			else TimeUnit.NANOSECONDS.timedWait(this, nanos);
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+}
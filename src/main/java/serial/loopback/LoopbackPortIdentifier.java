@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import serial.BackendPortIdentifier;
+import serial.BackendSerialPort;
+import serial.CommPortIdentifier;
+import serial.PortInUseException;
+
+/**
+ * Identifies a {@link VirtualPort} registered with {@link VirtualPorts}, and controls ownership of it.
+ * @author Alex
+ */
+class LoopbackPortIdentifier implements BackendPortIdentifier {
+//> INSTANCE PROPERTIES
+	/** The virtual port identified */
+	private final VirtualPort port;
+
+//> CONSTRUCTORS
+	/** @param port value for {@link #port} */
+	LoopbackPortIdentifier(VirtualPort port) {
+		this.port = port;
+	}
+
+//> ACCESSORS
+	/** @see BackendPortIdentifier#getName() */
+	public String getName() {
+		return port.getName();
+	}
+
+	/**
+	 * @return {@link CommPortIdentifier#PORT_SERIAL}
+	 * @see BackendPortIdentifier#getPortType()
+	 */
+	public int getPortType() {
+		return CommPortIdentifier.PORT_SERIAL;
+	}
+
+	/** @see BackendPortIdentifier#isCurrentlyOwned() */
+	public boolean isCurrentlyOwned() {
+		return port.getOwner() != null;
+	}
+
+	/** @see BackendPortIdentifier#getCurrentOwner() */
+	public String getCurrentOwner() {
+		return port.getOwner();
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Opens the port, waiting up to the timeout for it to be released if it is already open.
+	 * @see BackendPortIdentifier#open(String, int)
+	 */
+	public BackendSerialPort open(String appname, int timeout) throws PortInUseException {
+		try {
+			if(!port.claim(appname, timeout)) throw new PortInUseException("Port " + port.getName() + " is owned by " + port.getOwner());
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new PortInUseException("Interrupted waiting for port " + port.getName());
+		}
+		return new LoopbackSerialPort(port);
+	}
+}
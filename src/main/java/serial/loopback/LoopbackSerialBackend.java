@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import serial.BackendPortIdentifier;
+import serial.NoSuchPortException;
+import serial.SerialBackend;
+
+/**
+ * {@link SerialBackend} whose ports are the simulated {@link VirtualPort}s registered with {@link VirtualPorts}, for
+ * testing and load testing without serial hardware.
+ * <p>
+ * It is the lowest priority backend, and is only available once at least one virtual port has been created, so it
+ * is never selected by accident.  Select it explicitly with
+ * <code>SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK)</code>.  Flow control settings are accepted
+ * but not simulated.
+ * </p>
+ * @author Alex
+ */
+public class LoopbackSerialBackend implements SerialBackend {
+//> STATIC CONSTANTS
+	/** Name of the package containing this backend */
+	public static final String PACKAGE_LOOPBACK = "serial.loopback";
+	/** Priority of this backend */
+	public static final int PRIORITY = 0;
+	/** Features supported by this backend */
+	private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.PORT_ENUMERATION,
+			Capability.EVENTS, Capability.RECEIVE_THRESHOLD, Capability.RECEIVE_TIMEOUT, Capability.OUTPUT_BUFFER_EMPTY));
+
+//> ACCESSORS
+	/** @see SerialBackend#getPackageName() */
+	public String getPackageName() {
+		return PACKAGE_LOOPBACK;
+	}
+
+	/** @see SerialBackend#getPriority() */
+	public int getPriority() {
+		return PRIORITY;
+	}
+
+	/** @see SerialBackend#getCapabilities() */
+	public Set<Capability> getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	/**
+	 * @return <code>true</code> if any virtual ports have been created
+	 * @see SerialBackend#isAvailable()
+	 */
+	public boolean isAvailable() {
+		return VirtualPorts.size() > 0;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * @return identifiers for all registered virtual ports, in the order they were created
+	 * @see SerialBackend#getPortIdentifiers()
+	 */
+	public List<BackendPortIdentifier> getPortIdentifiers() {
+		List<BackendPortIdentifier> identifiers = new ArrayList<BackendPortIdentifier>();
+		for(VirtualPort port : VirtualPorts.getAll()) {
+			identifiers.add(new LoopbackPortIdentifier(port));
+		}
+		return identifiers;
+	}
+
+	/** @see SerialBackend#getPortIdentifier(String) */
+	public BackendPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException {
+		VirtualPort port = VirtualPorts.get(portName);
+		if(port == null) throw new NoSuchPortException("No such port: " + portName);
+		return new LoopbackPortIdentifier(port);
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + PACKAGE_LOOPBACK + ", priority=" + PRIORITY + "]";
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.TooManyListenersException;
+import java.util.concurrent.TimeUnit;
+
+import serial.BackendEventListener;
+import serial.BackendSerialPort;
+import serial.SerialChannel;
+import serial.SerialPortEvent;
+import serial.UnsupportedCommOperationException;
+
+/**
+ * A {@link VirtualPort} opened as a serial port.
+ * <p>
+ * Reads honour the receive threshold and timeout as javax.comm does: a read waits for the threshold number of bytes,
+ * or one byte if disabled, but no longer than the timeout, if enabled.  Line parameters set the
+ * {@link VirtualPort#setLineParameters(int, int, int, int) pacing} of the virtual port.  Flow control is accepted but
+ * not simulated.
+ * </p>
+ * <p>
+ * Events are raised on the thread which caused them: {@link SerialPortEvent#DATA_AVAILABLE} on the thread writing to
+ * the peer, {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} on the thread writing to this port, and line state events on
+ * the thread changing the line.
+ * </p>
+ * @author Alex
+ */
+public class LoopbackSerialPort implements BackendSerialPort {
+//> STATIC CONSTANTS
+	/** 5 data bit format. */
+	public static final int DATABITS_5 = 5;
+	/** 6 data bit format. */
+	public static final int DATABITS_6 = 6;
+	/** 7 data bit format. */
+	public static final int DATABITS_7 = 7;
+	/** 8 data bit format. */
+	public static final int DATABITS_8 = 8;
+	/** Number of STOP bits - 1. */
+	public static final int STOPBITS_1 = 1;
+	/** Number of STOP bits - 2. */
+	public static final int STOPBITS_2 = 2;
+	/** Number of STOP bits - 1-1/2. */
+	public static final int STOPBITS_1_5 = 3;
+	/** No parity bit. */
+	public static final int PARITY_NONE = 0;
+	/** ODD parity scheme. */
+	public static final int PARITY_ODD = 1;
+	/** EVEN parity scheme. */
+	public static final int PARITY_EVEN = 2;
+	/** MARK parity scheme. */
+	public static final int PARITY_MARK = 3;
+	/** SPACE parity scheme. */
+	public static final int PARITY_SPACE = 4;
+	/** Flow control off. */
+	public static final int FLOWCONTROL_NONE = 0;
+	/** RTS/CTS flow control on input. */
+	public static final int FLOWCONTROL_RTSCTS_IN = 1;
+	/** RTS/CTS flow control on output. */
+	public static final int FLOWCONTROL_RTSCTS_OUT = 2;
+	/** XON/XOFF flow control on input. */
+	public static final int FLOWCONTROL_XONXOFF_IN = 4;
+	/** XON/XOFF flow control on output. */
+	public static final int FLOWCONTROL_XONXOFF_OUT = 8;
+
+//> INSTANCE PROPERTIES
+	/** The virtual port this is opened on */
+	private final VirtualPort port;
+	/** The stream returned by {@link #getInputStream()} */
+	private final InputStream in = new PortInputStream();
+	/** The stream returned by {@link #getOutputStream()} */
+	private final OutputStream out = new PortOutputStream();
+	/** Receive threshold in bytes, or <code>-1</code> if disabled */
+	private volatile int receiveThreshold = -1;
+	/** Receive timeout in milliseconds, or <code>-1</code> if disabled */
+	private volatile int receiveTimeout = -1;
+	/** Flow control mode; not simulated */
+	private int flowControlMode = FLOWCONTROL_NONE;
+	/** Advisory input buffer size */
+	private int inputBufferSize = VirtualPorts.DEFAULT_CAPACITY;
+	/** Advisory output buffer size */
+	private int outputBufferSize = VirtualPorts.DEFAULT_CAPACITY;
+	/** Bit set of the event types which are enabled */
+	private volatile int notifyMask;
+	/** The event listener, or <code>null</code> */
+	private volatile BackendEventListener listener;
+	/** Set <code>true</code> when {@link #close()} is called */
+	private volatile boolean closed;
+
+//> CONSTRUCTORS
+	/** @param port value for {@link #port}, which has already been claimed */
+	LoopbackSerialPort(VirtualPort port) {
+		this.port = port;
+		port.attach(this);
+	}
+
+//> ACCESSORS
+	/** @return the name of the port */
+	public String getName() {
+		return port.getName();
+	}
+
+	/** @see BackendSerialPort#getInputStream() */
+	public InputStream getInputStream() throws IOException {
+		checkOpen();
+		return in;
+	}
+
+	/** @see BackendSerialPort#getOutputStream() */
+	public OutputStream getOutputStream() throws IOException {
+		checkOpen();
+		return out;
+	}
+
+	/**
+	 * @return <code>null</code>, as the streams are adapted
+	 * @see BackendSerialPort#getChannel()
+	 */
+	public SerialChannel getChannel() throws IOException {
+		checkOpen();
+		return null;
+	}
+
+	/** @return {@link #inputBufferSize} */
+	public int getInputBufferSize() {
+		return inputBufferSize;
+	}
+
+	/** @param size new value for {@link #inputBufferSize}; this is advisory and has no effect */
+	public void setInputBufferSize(int size) {
+		this.inputBufferSize = size;
+	}
+
+	/** @return {@link #outputBufferSize} */
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	/** @param size new value for {@link #outputBufferSize}; this is advisory and has no effect */
+	public void setOutputBufferSize(int size) {
+		this.outputBufferSize = size;
+	}
+
+	/** @return the baud rate of the virtual port */
+	public int getBaudRate() {
+		return port.getBaudRate();
+	}
+
+	/** @return {@link #flowControlMode} */
+	public int getFlowControlMode() {
+		return flowControlMode;
+	}
+
+//> CONFIGURATION
+	/**
+	 * Sets the line parameters, which govern pacing if it is enabled on the virtual port.
+	 * @param baudrate the baud rate
+	 * @param dataBits one of the <code>DATABITS_</code> constants
+	 * @param stopBits one of the <code>STOPBITS_</code> constants
+	 * @param parity one of the <code>PARITY_</code> constants
+	 * @throws UnsupportedCommOperationException if any of the parameters is out of range
+	 */
+	public void setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) throws UnsupportedCommOperationException {
+		if(baudrate < 1) throw new UnsupportedCommOperationException("Unsupported baud rate: " + baudrate);
+		if(dataBits < DATABITS_5 || dataBits > DATABITS_8) throw new UnsupportedCommOperationException("Unsupported data bits: " + dataBits);
+		if(stopBits < STOPBITS_1 || stopBits > STOPBITS_1_5) throw new UnsupportedCommOperationException("Unsupported stop bits: " + stopBits);
+		if(parity < PARITY_NONE || parity > PARITY_SPACE) throw new UnsupportedCommOperationException("Unsupported parity: " + parity);
+		port.setLineParameters(baudrate, dataBits, stopBits, parity);
+	}
+
+	/** @param flowcontrol new value for {@link #flowControlMode} */
+	public void setFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException {
+		this.flowControlMode = flowcontrol;
+	}
+
+	/** @param threshold new value for {@link #receiveThreshold} */
+	public void enableReceiveThreshold(int threshold) throws UnsupportedCommOperationException {
+		if(threshold < 0) throw new UnsupportedCommOperationException("Unsupported receive threshold: " + threshold);
+		this.receiveThreshold = threshold;
+	}
+
+	/** Disables the receive threshold. */
+	public void disableReceiveThreshold() {
+		this.receiveThreshold = -1;
+	}
+
+	/** @return <code>true</code> if the receive threshold is enabled */
+	public boolean isReceiveThresholdEnabled() {
+		return receiveThreshold >= 0;
+	}
+
+	/** @param timeout new value for {@link #receiveTimeout} */
+	public void enableReceiveTimeout(int timeout) throws UnsupportedCommOperationException {
+		if(timeout < 0) throw new UnsupportedCommOperationException("Unsupported receive timeout: " + timeout);
+		this.receiveTimeout = timeout;
+	}
+
+	/** Disables the receive timeout. */
+	public void disableReceiveTimeout() {
+		this.receiveTimeout = -1;
+	}
+
+	/** @return <code>true</code> if the receive timeout is enabled */
+	public boolean isReceiveTimeoutEnabled() {
+		return receiveTimeout >= 0;
+	}
+
+//> LINE STATE
+	/** @param dtr new state of the data terminal ready output */
+	public void setDTR(boolean dtr) {
+		port.setDTR(dtr);
+	}
+
+	/** @return the state of the data terminal ready output */
+	public boolean isDTR() {
+		return port.isDTR();
+	}
+
+	/** @param rts new state of the request to send output */
+	public void setRTS(boolean rts) {
+		port.setRTS(rts);
+	}
+
+	/** @return the state of the request to send output */
+	public boolean isRTS() {
+		return port.isRTS();
+	}
+
+	/** @return the state of the clear to send input */
+	public boolean isCTS() {
+		return port.isCTS();
+	}
+
+	/** @return the state of the data set ready input */
+	public boolean isDSR() {
+		return port.isDSR();
+	}
+
+	/** @return the state of the carrier detect input */
+	public boolean isCD() {
+		return port.isCD();
+	}
+
+	/** @return the state of the ring indicator input */
+	public boolean isRI() {
+		return port.isRI();
+	}
+
+//> EVENTS
+	/**
+	 * @param listener new value for {@link #listener}
+	 * @throws TooManyListenersException if a listener is already registered
+	 */
+	public synchronized void addEventListener(BackendEventListener listener) throws TooManyListenersException {
+		if(this.listener != null) throw new TooManyListenersException();
+		this.listener = listener;
+	}
+
+	/** Removes the event listener. */
+	public void removeEventListener() {
+		this.listener = null;
+	}
+
+	/**
+	 * Enables or disables events of one type.
+	 * @see BackendSerialPort#setNotification(int, boolean)
+	 */
+	public synchronized void setNotification(int eventType, boolean enable) {
+		if(enable) notifyMask |= 1 << eventType;
+		else notifyMask &= ~(1 << eventType);
+	}
+
+	/**
+	 * Delivers an event to the listener, if one is registered and the event type is enabled.
+	 * @param eventType the event type
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	void raise(int eventType, boolean oldValue, boolean newValue) {
+		BackendEventListener listener = this.listener;
+		if(listener != null && (notifyMask & (1 << eventType)) != 0) {
+			listener.serialEvent(eventType, oldValue, newValue);
+		}
+	}
+
+//> LIFECYCLE
+	/** Closes the port, releasing any blocked reads and writes, and the ownership of the virtual port. */
+	public void close() {
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+			listener = null;
+		}
+		port.release();
+	}
+
+//> INSTANCE HELPER METHODS
+	/** @throws IOException if this port has been closed */
+	private void checkOpen() throws IOException {
+		if(closed) throw new IOException("Port closed: " + port.getName());
+	}
+
+//> INNER CLASSES
+	/**
+	 * Reads the bytes sent to the virtual port, honouring the receive threshold and timeout.  Returns <code>-1</code>
+	 * once the port is closed.  If the timeout expires without data, <code>read(byte[])</code> returns 0 and
+	 * {@link #read()} throws {@link InterruptedIOException}.
+	 */
+	private class PortInputStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int count = read(b, 0, 1);
+			if(count == 0) throw new InterruptedIOException("Receive timeout expired: " + port.getName());
+			return count == 1 ? b[0] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+			if(closed) return -1;
+			int timeout = receiveTimeout;
+			return port.read(b, off, len, receiveThreshold, timeout < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(timeout));
+		}
+
+		@Override
+		public int available() throws IOException {
+			checkOpen();
+			return port.available();
+		}
+
+		@Override
+		public void close() {
+			LoopbackSerialPort.this.close();
+		}
+	}
+
+	/**
+	 * Sends bytes to the peer of the virtual port.
+	 */
+	private class PortOutputStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+			checkOpen();
+			port.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			LoopbackSerialPort.this.close();
+		}
+	}
+}
@@ -0,0 +1,430 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import serial.SerialPortEvent;
+
+/**
+ * One end of a simulated serial connection, created by {@link VirtualPorts}.
+ * <p>
+ * Bytes written at one end are read at the other, its {@link #getPeer() peer}; a loopback port is its own peer.  An
+ * application opens a registered end through <code>serial.CommPortIdentifier</code> as it would a real port, and test
+ * code can drive the other end directly through {@link #getInputStream()} and {@link #getOutputStream()}.
+ * </p>
+ * <p>
+ * The modem status lines seen by this end can be set with {@link #setCTS(boolean)}, {@link #setDSR(boolean)},
+ * {@link #setCD(boolean)} and {@link #setRI(boolean)}, or through the peer's outputs, which are wired as a null-modem
+ * cable: the peer's RTS drives CTS, and its DTR drives DSR and CD.  Each change, and each error injected with
+ * {@link #injectLineError(int)}, raises the matching event on the port opened on this end, if any.
+ * </p>
+ * <p>
+ * With {@link #setPacing(boolean) pacing} enabled, writes take as long as the bytes would take on the wire at the
+ * configured baud rate and character format, and the peer receives them in small chunks as they are "sent".
+ * Otherwise bytes are passed on as fast as the peer reads them.
+ * </p>
+ * <p>
+ * No threads are created: events are raised on the thread which caused them, e.g. {@link SerialPortEvent#DATA_AVAILABLE}
+ * on the writing thread, so thousands of ports cost only their buffers.
+ * </p>
+ * @author Alex
+ */
+public class VirtualPort {
+//> STATIC CONSTANTS
+	/** Most bytes delivered to the peer at once while pacing, so that it sees data arrive progressively */
+	private static final int PACING_CHUNK = 16;
+	/** Longest single wait of a read through {@link #getInputStream()}, in nanoseconds */
+	private static final long STREAM_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+//> INSTANCE PROPERTIES
+	/** The name of this end */
+	private final String name;
+	/** Bytes sent to this end, waiting to be read */
+	private final BytePipe inbound;
+	/** The other end of the connection */
+	private VirtualPort peer;
+	/** Lock held while writing a chunk, so that chunks are not interleaved and pacing is kept in order */
+	private final Object writeLock = new Object();
+	/** Time by {@link System#nanoTime()} at which the last paced byte finishes sending.  Guarded by {@link #writeLock}. */
+	private long transmitEndNanos;
+	/** <code>true</code> if writes are paced to the baud rate */
+	private volatile boolean pacing;
+	/** Baud rate */
+	private volatile int baudRate = 9600;
+	/** Twice the number of bits per character, including start, parity and stop bits */
+	private volatile int frameHalfBits = 2 * 10;
+	/** Clear to send input.  Guarded by <code>this</code>. */
+	private boolean cts;
+	/** Data set ready input.  Guarded by <code>this</code>. */
+	private boolean dsr;
+	/** Carrier detect input.  Guarded by <code>this</code>. */
+	private boolean cd;
+	/** Ring indicator input.  Guarded by <code>this</code>. */
+	private boolean ri;
+	/** Request to send output.  Guarded by <code>this</code>. */
+	private boolean rts;
+	/** Data terminal ready output.  Guarded by <code>this</code>. */
+	private boolean dtr;
+	/** The port opened on this end, or <code>null</code> */
+	private volatile LoopbackSerialPort attached;
+	/** The application which has this end open, or <code>null</code>.  Guarded by <code>this</code>. */
+	private String owner;
+
+//> CONSTRUCTORS
+	/**
+	 * @param name value for {@link #name}
+	 * @param capacity size of the buffer for bytes sent to this end
+	 */
+	VirtualPort(String name, int capacity) {
+		this.name = name;
+		this.inbound = new BytePipe(capacity);
+	}
+
+//> ACCESSORS
+	/** @return {@link #name} */
+	public String getName() {
+		return name;
+	}
+
+	/** @return {@link #peer} */
+	public VirtualPort getPeer() {
+		return peer;
+	}
+
+	/** @param peer new value for {@link #peer} */
+	void setPeer(VirtualPort peer) {
+		this.peer = peer;
+	}
+
+	/** @return the number of bytes sent to this end which have not been read */
+	public int available() {
+		return inbound.available();
+	}
+
+	/** @return {@link #pacing} */
+	public boolean isPacing() {
+		return pacing;
+	}
+
+	/** @param pacing new value for {@link #pacing} */
+	public void setPacing(boolean pacing) {
+		this.pacing = pacing;
+	}
+
+	/** @return {@link #baudRate} */
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	/**
+	 * Sets the line parameters which govern pacing.  These are also set when a port opened on this end is configured.
+	 * @param baudRate new value for {@link #baudRate}
+	 * @param dataBits number of data bits, from 5 to 8
+	 * @param stopBits {@link LoopbackSerialPort#STOPBITS_1}, {@link LoopbackSerialPort#STOPBITS_2} or
+	 *   {@link LoopbackSerialPort#STOPBITS_1_5}
+	 * @param parity one of the <code>PARITY_</code> constants of {@link LoopbackSerialPort}
+	 */
+	public void setLineParameters(int baudRate, int dataBits, int stopBits, int parity) {
+		if(baudRate < 1) throw new IllegalArgumentException("Baud rate must be positive: " + baudRate);
+		int halfBits = 2 * (1 + dataBits);
+		if(parity != LoopbackSerialPort.PARITY_NONE) halfBits += 2;
+		if(stopBits == LoopbackSerialPort.STOPBITS_2) halfBits += 4;
+		else if(stopBits == LoopbackSerialPort.STOPBITS_1_5) halfBits += 3;
+		else halfBits += 2;
+		this.baudRate = baudRate;
+		this.frameHalfBits = halfBits;
+	}
+
+	/** @return the state of the clear to send input */
+	public synchronized boolean isCTS() {
+		return cts;
+	}
+
+	/** @return the state of the data set ready input */
+	public synchronized boolean isDSR() {
+		return dsr;
+	}
+
+	/** @return the state of the carrier detect input */
+	public synchronized boolean isCD() {
+		return cd;
+	}
+
+	/** @return the state of the ring indicator input */
+	public synchronized boolean isRI() {
+		return ri;
+	}
+
+	/** @return the state of the request to send output */
+	public synchronized boolean isRTS() {
+		return rts;
+	}
+
+	/** @return the state of the data terminal ready output */
+	public synchronized boolean isDTR() {
+		return dtr;
+	}
+
+//> LINE STATE METHODS
+	/** @param value new state of the clear to send input; raises {@link SerialPortEvent#CTS} if it changes */
+	public void setCTS(boolean value) {
+		boolean old;
+		synchronized(this) {
+			old = cts;
+			cts = value;
+		}
+		lineChanged(SerialPortEvent.CTS, old, value);
+	}
+
+	/** @param value new state of the data set ready input; raises {@link SerialPortEvent#DSR} if it changes */
+	public void setDSR(boolean value) {
+		boolean old;
+		synchronized(this) {
+			old = dsr;
+			dsr = value;
+		}
+		lineChanged(SerialPortEvent.DSR, old, value);
+	}
+
+	/** @param value new state of the carrier detect input; raises {@link SerialPortEvent#CD} if it changes */
+	public void setCD(boolean value) {
+		boolean old;
+		synchronized(this) {
+			old = cd;
+			cd = value;
+		}
+		lineChanged(SerialPortEvent.CD, old, value);
+	}
+
+	/** @param value new state of the ring indicator input; raises {@link SerialPortEvent#RI} if it changes */
+	public void setRI(boolean value) {
+		boolean old;
+		synchronized(this) {
+			old = ri;
+			ri = value;
+		}
+		lineChanged(SerialPortEvent.RI, old, value);
+	}
+
+	/** @param value new state of the request to send output, which drives the peer's CTS */
+	public void setRTS(boolean value) {
+		synchronized(this) {
+			rts = value;
+		}
+		peer.setCTS(value);
+	}
+
+	/** @param value new state of the data terminal ready output, which drives the peer's DSR and CD */
+	public void setDTR(boolean value) {
+		synchronized(this) {
+			dtr = value;
+		}
+		peer.setDSR(value);
+		peer.setCD(value);
+	}
+
+	/**
+	 * Raises an error event on the port opened on this end, as if the error had been detected in received data.
+	 * @param eventType {@link SerialPortEvent#OE}, {@link SerialPortEvent#PE}, {@link SerialPortEvent#FE} or
+	 *   {@link SerialPortEvent#BI}
+	 */
+	public void injectLineError(int eventType) {
+		if(eventType != SerialPortEvent.OE && eventType != SerialPortEvent.PE
+				&& eventType != SerialPortEvent.FE && eventType != SerialPortEvent.BI) {
+			throw new IllegalArgumentException("Not a line error event type: " + eventType);
+		}
+		raise(eventType, false, true);
+	}
+
+//> STREAM METHODS
+	/**
+	 * @return a stream reading the bytes sent to this end, which blocks until at least one byte is available; closing
+	 *   the stream releases a blocked read, and later reads return <code>-1</code>
+	 */
+	public InputStream getInputStream() {
+		return new InputStream() {
+			/** Set <code>true</code> when the stream is closed */
+			private volatile boolean closed;
+
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+				if(len == 0) return 0;
+				int read = 0;
+				// Wait in slices, so that a close which races the start of a wait is still noticed
+				while(!closed && read == 0) read = VirtualPort.this.read(b, off, len, 1, STREAM_POLL_NANOS);
+				return read > 0 ? read : -1;
+			}
+
+			@Override
+			public void close() {
+				closed = true;
+				inbound.wakeReaders();
+			}
+
+			@Override
+			public int available() {
+				return VirtualPort.this.available();
+			}
+		};
+	}
+
+	/** @return a stream sending bytes to the peer */
+	public OutputStream getOutputStream() {
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+				VirtualPort.this.write(b, off, len);
+			}
+		};
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Reads bytes sent to this end.
+	 * @see BytePipe#read(byte[], int, int, int, long)
+	 */
+	int read(byte[] b, int off, int len, int minBytes, long timeoutNanos) throws InterruptedIOException {
+		return inbound.read(b, off, len, minBytes, timeoutNanos);
+	}
+
+	/**
+	 * Sends bytes to the peer, pacing them if enabled.  Raises {@link SerialPortEvent#DATA_AVAILABLE} on the peer as
+	 * bytes arrive, and {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} on this end once they have all been sent.  Events are
+	 * raised without holding {@link #writeLock}, so that handlers on both ends of a pair may write back from the
+	 * driver thread without deadlocking; a paced write may therefore be interleaved with others between chunks.
+	 * @param b the bytes
+	 * @param off offset of the first byte in <code>b</code>
+	 * @param len number of bytes to send
+	 * @throws IOException if the write was abandoned because the port on this end was closed, or was interrupted
+	 */
+	void write(byte[] b, int off, int len) throws IOException {
+		if(len == 0) return;
+		int written = 0;
+		while(written < len) {
+			int chunk = len - written;
+			int sent;
+			synchronized(writeLock) {
+				if(pacing) {
+					chunk = Math.min(chunk, PACING_CHUNK);
+					long now = System.nanoTime();
+					transmitEndNanos = Math.max(now, transmitEndNanos) + getTransmitNanos(chunk);
+					parkUntil(transmitEndNanos);
+				}
+				sent = peer.inbound.write(b, off + written, chunk);
+			}
+			if(sent > 0) peer.raise(SerialPortEvent.DATA_AVAILABLE, false, true);
+			if(sent < chunk) throw new IOException("Write abandoned: port " + name + " closed.");
+			written += sent;
+		}
+		raise(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true);
+	}
+
+	/**
+	 * Takes ownership of this end, waiting for any current owner to release it.
+	 * @param appName the name of the application taking ownership
+	 * @param timeoutMillis the longest time to wait
+	 * @return <code>true</code> if ownership was taken, <code>false</code> if the timeout expired first
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	synchronized boolean claim(String appName, int timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(owner != null) {
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0) return false;
+			wait(remaining);
+		}
+		owner = appName;
+		return true;
+	}
+
+	/** @return the application which has this end open, or <code>null</code> */
+	synchronized String getOwner() {
+		return owner;
+	}
+
+	/** @param port the port opened on this end, to which events are raised */
+	void attach(LoopbackSerialPort port) {
+		this.attached = port;
+	}
+
+	/** Detaches the port opened on this end, releases its blocked reads and writes, and releases ownership. */
+	synchronized void release() {
+		attached = null;
+		owner = null;
+		inbound.wakeReaders();
+		peer.inbound.wakeWriters();
+		notifyAll();
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + name + "]";
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Raises an event for a changed line.
+	 * @param eventType the event type
+	 * @param oldValue the old state of the line
+	 * @param newValue the new state of the line
+	 */
+	private void lineChanged(int eventType, boolean oldValue, boolean newValue) {
+		if(oldValue != newValue) raise(eventType, oldValue, newValue);
+	}
+
+	/**
+	 * Raises an event on the port opened on this end, if there is one.
+	 * @param eventType the event type
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	private void raise(int eventType, boolean oldValue, boolean newValue) {
+		LoopbackSerialPort port = attached;
+		if(port != null) port.raise(eventType, oldValue, newValue);
+	}
+
+	/**
+	 * @param byteCount a number of bytes
+	 * @return the time the bytes take to send at the current line parameters, in nanoseconds
+	 */
+	private long getTransmitNanos(int byteCount) {
+		return byteCount * frameHalfBits * TimeUnit.SECONDS.toNanos(1) / (2L * baudRate);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Waits until a time by {@link System#nanoTime()}.
+	 * @param deadline the time to wait until
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private static void parkUntil(long deadline) throws InterruptedIOException {
+		long remaining;
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+			if(Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+}
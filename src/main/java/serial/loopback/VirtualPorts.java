@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import serial.CommPortIdentifier;
+import serial.SerialClassFactory;
+
+/**
+ * Registry of the {@link VirtualPort}s which {@link LoopbackSerialBackend} lists as its ports.
+ * <p>
+ * Create ports here, then select the backend with
+ * <code>SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK)</code>.  Ports are listed in the order they
+ * were created.  A removed port stays usable by whoever has it open, but can no longer be found or opened.  Every
+ * change here discards the port list cached by {@link CommPortIdentifier}, so it is seen at once.
+ * </p>
+ * @author Alex
+ */
+public final class VirtualPorts {
+//> STATIC CONSTANTS
+	/** Size of the receive buffer of each end, in bytes */
+	public static final int DEFAULT_CAPACITY = 4096;
+	/** Suffix of the name of the unregistered far end of a port made by {@link #create(String)} */
+	private static final String DEVICE_SUFFIX = "#device";
+	/** Registered ports, keyed by name.  Guarded by itself. */
+	private static final Map<String, VirtualPort> PORTS = new LinkedHashMap<String, VirtualPort>();
+
+//> CONSTRUCTORS
+	/** Not instantiable. */
+	private VirtualPorts() {}
+
+//> STATIC FACTORIES
+	/**
+	 * Creates a port whose far end is not registered, for test code to play the device attached to it.
+	 * @param name the name of the port
+	 * @return the registered end; the device end is its {@link VirtualPort#getPeer() peer}
+	 * @throws IllegalArgumentException if a port with the name already exists
+	 */
+	public static VirtualPort create(String name) {
+		VirtualPort port = new VirtualPort(name, DEFAULT_CAPACITY);
+		VirtualPort device = new VirtualPort(name + DEVICE_SUFFIX, DEFAULT_CAPACITY);
+		port.setPeer(device);
+		device.setPeer(port);
+		register(port);
+		return port;
+	}
+
+	/**
+	 * Creates two registered ports joined by a null-modem cable, for two applications to talk to each other.
+	 * @param nameA the name of one end
+	 * @param nameB the name of the other end
+	 * @return the two ends, in the order named
+	 * @throws IllegalArgumentException if a port with either name already exists
+	 */
+	public static VirtualPort[] createPair(String nameA, String nameB) {
+		if(nameA.equals(nameB)) throw new IllegalArgumentException("The ends of a pair must have different names: " + nameA);
+		VirtualPort a = new VirtualPort(nameA, DEFAULT_CAPACITY);
+		VirtualPort b = new VirtualPort(nameB, DEFAULT_CAPACITY);
+		a.setPeer(b);
+		b.setPeer(a);
+		synchronized(PORTS) {
+			if(PORTS.containsKey(nameB)) throw new IllegalArgumentException("Port already exists: " + nameB);
+			register(a);
+			register(b);
+		}
+		return new VirtualPort[] { a, b };
+	}
+
+	/**
+	 * Creates a registered port fitted with a loopback plug: bytes written to it are read back from it, its RTS drives
+	 * its CTS, and its DTR drives its DSR and CD.
+	 * @param name the name of the port
+	 * @return the port, which is its own peer
+	 * @throws IllegalArgumentException if a port with the name already exists
+	 */
+	public static VirtualPort createLoopback(String name) {
+		VirtualPort port = new VirtualPort(name, DEFAULT_CAPACITY);
+		port.setPeer(port);
+		register(port);
+		return port;
+	}
+
+//> STATIC METHODS
+	/**
+	 * @param name the name of a port
+	 * @return the registered port with the name, or <code>null</code> if there is none
+	 */
+	public static VirtualPort get(String name) {
+		synchronized(PORTS) {
+			return PORTS.get(name);
+		}
+	}
+
+	/** @return all registered ports, in the order they were created */
+	public static List<VirtualPort> getAll() {
+		synchronized(PORTS) {
+			return new ArrayList<VirtualPort>(PORTS.values());
+		}
+	}
+
+	/** @return the number of registered ports */
+	public static int size() {
+		synchronized(PORTS) {
+			return PORTS.size();
+		}
+	}
+
+	/**
+	 * @param name the name of a port
+	 * @return the port removed, or <code>null</code> if there was none
+	 */
+	public static VirtualPort remove(String name) {
+		VirtualPort removed;
+		synchronized(PORTS) {
+			removed = PORTS.remove(name);
+		}
+		if(removed != null) invalidatePortIdentifiers();
+		return removed;
+	}
+
+	/** Removes every port. */
+	public static void clear() {
+		synchronized(PORTS) {
+			PORTS.clear();
+		}
+		invalidatePortIdentifiers();
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param port a port to register
+	 * @throws IllegalArgumentException if a port with its name already exists
+	 */
+	private static void register(VirtualPort port) {
+		synchronized(PORTS) {
+			if(PORTS.containsKey(port.getName())) throw new IllegalArgumentException("Port already exists: " + port.getName());
+			PORTS.put(port.getName(), port);
+		}
+		invalidatePortIdentifiers();
+	}
+
+	/** Makes the wrapper's cached port list include the latest registered ports, if it has been initialised. */
+	private static void invalidatePortIdentifiers() {
+		// Before the factory is initialised there is no cached list, and loading the wrapper class would fail
+		if(SerialClassFactory.getInstance() != null) CommPortIdentifier.invalidatePortIdentifiers();
+	}
+}
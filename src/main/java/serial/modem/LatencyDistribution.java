@@ -0,0 +1,19 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.util.Random;
+
+/**
+ * A distribution of delays, such as the time a simulated modem takes to answer a command.  Instances are created by
+ * {@link LatencyDistributions}.
+ * @author Alex
+ */
+public interface LatencyDistribution {
+	/**
+	 * @param random the source of randomness to draw from
+	 * @return a delay drawn from the distribution, in nanoseconds, which is never negative
+	 */
+	public long nextNanos(Random random);
+}
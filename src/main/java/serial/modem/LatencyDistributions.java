@@ -0,0 +1,167 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory for {@link LatencyDistribution}s.
+ * @author Alex
+ */
+public final class LatencyDistributions {
+//> CONSTRUCTORS
+	/** Not instantiable. */
+	private LatencyDistributions() {}
+
+//> STATIC FACTORIES
+	/**
+	 * @param delay the delay
+	 * @param unit the unit of <code>delay</code>
+	 * @return a distribution which always gives the same delay
+	 */
+	public static LatencyDistribution fixed(long delay, TimeUnit unit) {
+		final long nanos = toNanos(delay, unit);
+		return new LatencyDistribution() {
+			public long nextNanos(Random random) {
+				return nanos;
+			}
+
+			@Override
+			public String toString() {
+				return "fixed:" + nanos + "ns";
+			}
+		};
+	}
+
+	/**
+	 * @param min the shortest delay
+	 * @param max the longest delay
+	 * @param unit the unit of <code>min</code> and <code>max</code>
+	 * @return a distribution of delays spread evenly between <code>min</code> and <code>max</code>
+	 */
+	public static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+		final long minNanos = toNanos(min, unit);
+		final long maxNanos = toNanos(max, unit);
+		if(maxNanos < minNanos) throw new IllegalArgumentException("Maximum is less than minimum: " + min + " > " + max);
+		return new LatencyDistribution() {
+			public long nextNanos(Random random) {
+				return minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+			}
+
+			@Override
+			public String toString() {
+				return "uniform:" + minNanos + "ns:" + maxNanos + "ns";
+			}
+		};
+	}
+
+	/**
+	 * @param mean the mean delay
+	 * @param unit the unit of <code>mean</code>
+	 * @return a distribution of exponentially distributed delays, e.g. the intervals between events arriving at random
+	 */
+	public static LatencyDistribution exponential(long mean, TimeUnit unit) {
+		final long meanNanos = toNanos(mean, unit);
+		return new LatencyDistribution() {
+			public long nextNanos(Random random) {
+				return (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+			}
+
+			@Override
+			public String toString() {
+				return "exp:" + meanNanos + "ns";
+			}
+		};
+	}
+
+	/**
+	 * Creates a log-normal distribution, which has the long tail typical of modem response times: most responses are
+	 * close to the median, and a few take many times longer.
+	 * @param median the median delay
+	 * @param unit the unit of <code>median</code>
+	 * @param sigma the standard deviation of the delay's logarithm; e.g. <code>0.5</code> puts the 99th percentile at
+	 *   about three times the median
+	 * @return the distribution
+	 */
+	public static LatencyDistribution logNormal(long median, TimeUnit unit, final double sigma) {
+		final long medianNanos = toNanos(median, unit);
+		if(sigma < 0) throw new IllegalArgumentException("Sigma must not be negative: " + sigma);
+		return new LatencyDistribution() {
+			public long nextNanos(Random random) {
+				return (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+			}
+
+			@Override
+			public String toString() {
+				return "lognormal:" + medianNanos + "ns:" + sigma;
+			}
+		};
+	}
+
+	/**
+	 * Creates a distribution from a specification, as given on a command line.  Durations are a number followed by
+	 * <code>ns</code>, <code>us</code>, <code>ms</code> or <code>s</code>.  The specifications are:
+	 * <ul>
+	 * <li><code>fixed:<i>delay</i></code>, e.g. <code>fixed:20ms</code></li>
+	 * <li><code>uniform:<i>min</i>:<i>max</i></code>, e.g. <code>uniform:5ms:50ms</code></li>
+	 * <li><code>exp:<i>mean</i></code>, e.g. <code>exp:30ms</code></li>
+	 * <li><code>lognormal:<i>median</i>:<i>sigma</i></code>, e.g. <code>lognormal:40ms:0.6</code></li>
+	 * </ul>
+	 * A bare duration is the same as <code>fixed:</code> that duration.
+	 * @param specification the specification
+	 * @return the distribution
+	 * @throws IllegalArgumentException if the specification could not be understood
+	 */
+	public static LatencyDistribution parse(String specification) {
+		String[] parts = specification.trim().split(":");
+		try {
+			if(parts.length == 1) return fixed(parseNanos(parts[0]), TimeUnit.NANOSECONDS);
+			String kind = parts[0].toLowerCase();
+			if(kind.equals("fixed") && parts.length == 2) {
+				return fixed(parseNanos(parts[1]), TimeUnit.NANOSECONDS);
+			} else if(kind.equals("uniform") && parts.length == 3) {
+				return uniform(parseNanos(parts[1]), parseNanos(parts[2]), TimeUnit.NANOSECONDS);
+			} else if(kind.equals("exp") && parts.length == 2) {
+				return exponential(parseNanos(parts[1]), TimeUnit.NANOSECONDS);
+			} else if(kind.equals("lognormal") && parts.length == 3) {
+				return logNormal(parseNanos(parts[1]), TimeUnit.NANOSECONDS, Double.parseDouble(parts[2]));
+			}
+		} catch(NumberFormatException ex) {
+			throw new IllegalArgumentException("Bad number in latency distribution: " + specification, ex);
+		}
+		throw new IllegalArgumentException("Unknown latency distribution: " + specification);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param duration a duration, e.g. <code>250us</code>
+	 * @return the duration in nanoseconds
+	 * @throws NumberFormatException if the duration could not be understood
+	 */
+	private static long parseNanos(String duration) {
+		String text = duration.trim().toLowerCase();
+		int unitStart = text.length();
+		while(unitStart > 0 && Character.isLetter(text.charAt(unitStart - 1))) --unitStart;
+		double value = Double.parseDouble(text.substring(0, unitStart));
+		String unit = text.substring(unitStart);
+		double scale;
+		if(unit.equals("ns")) scale = 1;
+		else if(unit.equals("us")) scale = 1e3;
+		else if(unit.equals("ms")) scale = 1e6;
+		else if(unit.equals("s")) scale = 1e9;
+		else throw new NumberFormatException("Missing or unknown unit: " + duration);
+		return (long) (value * scale);
+	}
+
+	/**
+	 * @param duration a duration, which must not be negative
+	 * @param unit the unit of <code>duration</code>
+	 * @return the duration in nanoseconds
+	 */
+	private static long toNanos(long duration, TimeUnit unit) {
+		if(duration < 0) throw new IllegalArgumentException("Delay must not be negative: " + duration);
+		return unit.toNanos(duration);
+	}
+}
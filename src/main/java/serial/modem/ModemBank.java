@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import serial.loopback.VirtualPort;
+import serial.loopback.VirtualPorts;
+import serial.tty.PtyBridge;
+import serial.tty.PtyPair;
+
+/**
+ * A set of {@link ModemSimulator}s, each attached to a port which can be opened through
+ * <code>serial.CommPortIdentifier</code> as if a real modem were plugged in.
+ * <p>
+ * The modems share one scheduler for their unsolicited result codes, and each has its own thread to answer commands.
+ * They can sit behind ports of the loopback backend, which costs no system resources, or behind pseudo-terminals of
+ * the tty backend, which exercise the kernel's tty layer as real ports would.
+ * </p>
+ * @author Alex
+ */
+public class ModemBank {
+//> STATIC CONSTANTS
+	/** Number of threads sending unsolicited result codes */
+	private static final int SCHEDULER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+//> INSTANCE PROPERTIES
+	/** The simulated modems */
+	private final List<ModemSimulator> simulators;
+	/** Names of the ports the modems are attached to, in the same order as {@link #simulators} */
+	private final List<String> portNames;
+	/** Virtual ports created for the modems; empty if they are attached to pseudo-terminals */
+	private final List<VirtualPort> virtualPorts;
+	/** Bridge for the pseudo-terminals the modems are attached to, or <code>null</code> */
+	private final PtyBridge ptyBridge;
+	/** Scheduler for the modems' unsolicited result codes */
+	private final ScheduledThreadPoolExecutor scheduler;
+
+//> CONSTRUCTORS
+	/**
+	 * @param virtualPorts value for {@link #virtualPorts}
+	 * @param ptyBridge value for {@link #ptyBridge}
+	 */
+	private ModemBank(List<VirtualPort> virtualPorts, PtyBridge ptyBridge) {
+		this.simulators = new ArrayList<ModemSimulator>();
+		this.portNames = new ArrayList<String>();
+		this.virtualPorts = virtualPorts;
+		this.ptyBridge = ptyBridge;
+		this.scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ModemBank-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+//> ACCESSORS
+	/** @return the names of the ports to open to talk to the modems */
+	public List<String> getPortNames() {
+		return Collections.unmodifiableList(portNames);
+	}
+
+	/** @return the simulated modems, in the same order as {@link #getPortNames()} */
+	public List<ModemSimulator> getSimulators() {
+		return Collections.unmodifiableList(simulators);
+	}
+
+	/** @return the number of modems */
+	public int size() {
+		return simulators.size();
+	}
+
+//> INSTANCE METHODS
+	/** Stops every modem, and removes the ports they were attached to. */
+	public void close() {
+		for(ModemSimulator simulator : simulators) simulator.close();
+		scheduler.shutdownNow();
+		for(VirtualPort port : virtualPorts) VirtualPorts.remove(port.getName());
+		if(ptyBridge != null) ptyBridge.close();
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * @param portName the name of the port the modem is attached to
+	 * @param simulator the modem, which is started
+	 */
+	private void add(String portName, ModemSimulator simulator) {
+		portNames.add(portName);
+		simulators.add(simulator);
+		simulator.start();
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Creates modems behind new ports of the loopback backend, named <code><i>prefix</i>0</code> to
+	 * <code><i>prefix</i><i>n-1</i></code>.  The loopback backend must be selected to open them.  The ports are
+	 * registered with {@link VirtualPorts}, so <code>CommPortIdentifier.getPortIdentifiers()</code> lists them at once,
+	 * and stops listing them when the bank is closed.
+	 * @param prefix the start of the port names
+	 * @param count the number of modems
+	 * @param profile behaviour of the modems
+	 * @param seed seed for the modems' random behaviour, so that runs can be repeated
+	 * @return the started modems
+	 * @throws IllegalArgumentException if any of the ports already exists
+	 */
+	public static ModemBank createLoopback(String prefix, int count, ModemProfile profile, long seed) {
+		List<VirtualPort> ports = new ArrayList<VirtualPort>(count);
+		try {
+			for(int i=0; i<count; ++i) ports.add(VirtualPorts.create(prefix + i));
+		} catch(IllegalArgumentException ex) {
+			for(VirtualPort port : ports) VirtualPorts.remove(port.getName());
+			throw ex;
+		}
+		ModemBank bank = new ModemBank(ports, null);
+		Random seeds = new Random(seed);
+		for(int i=0; i<count; ++i) {
+			VirtualPort port = ports.get(i);
+			bank.add(port.getName(), ModemSimulator.attach(port, profile, bank.scheduler, seeds.nextLong()));
+		}
+		return bank;
+	}
+
+	/**
+	 * Creates modems behind new pseudo-terminals.  The tty backend must be selected to open them.
+	 * @param count the number of modems
+	 * @param profile behaviour of the modems
+	 * @param seed seed for the modems' random behaviour
+	 * @return the started modems
+	 * @throws IOException if the pseudo-terminals could not be created
+	 * @see PtyBridge
+	 */
+	public static ModemBank createPty(int count, ModemProfile profile, long seed) throws IOException {
+		PtyBridge bridge = PtyBridge.start(count);
+		ModemBank bank = new ModemBank(Collections.<VirtualPort>emptyList(), bridge);
+		try {
+			Random seeds = new Random(seed);
+			List<PtyPair> pairs = bridge.getPairs();
+			for(int i=0; i<count; ++i) {
+				PtyPair pair = pairs.get(i);
+				bank.add(pair.getPortName(), new ModemSimulator(pair.getPortName(), pair.getDeviceInputStream(),
+						pair.getDeviceOutputStream(), profile, bank.scheduler, seeds.nextLong()));
+			}
+		} catch(IOException ex) {
+			bank.close();
+			throw ex;
+		}
+		return bank;
+	}
+}
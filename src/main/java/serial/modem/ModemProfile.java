@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The behaviour of simulated modems: how long they take to answer, and how often unsolicited result codes arrive.  A
+ * profile may be shared by many {@link ModemSimulator}s.  Latencies take effect from the next command; rates are read
+ * when each simulator starts.
+ * @author Alex
+ */
+public class ModemProfile {
+//> STATIC CONSTANTS
+	/** Default value for {@link #storageCapacity}, the size of a typical SIM's message store */
+	public static final int DEFAULT_STORAGE_CAPACITY = 30;
+
+//> INSTANCE PROPERTIES
+	/** Time taken to answer a command */
+	private volatile LatencyDistribution commandLatency = LatencyDistributions.logNormal(20, TimeUnit.MILLISECONDS, 0.5);
+	/** Time taken to send a message once its PDU has been received, until <code>+CMGS:</code> is answered */
+	private volatile LatencyDistribution smsSendLatency = LatencyDistributions.logNormal(800, TimeUnit.MILLISECONDS, 0.5);
+	/** Average number of incoming calls, reported by <code>RING</code>, per second */
+	private volatile double ringRate;
+	/** Average number of incoming messages per second */
+	private volatile double smsRate;
+	/** <code>true</code> to report incoming messages with <code>+CMT:</code> and their PDU, <code>false</code> to store them and report <code>+CMTI:</code> */
+	private volatile boolean directDelivery;
+	/** Number of messages which can be stored; further incoming messages are dropped until some are deleted */
+	private volatile int storageCapacity = DEFAULT_STORAGE_CAPACITY;
+	/** <code>true</code> if commands are echoed until <code>ATE0</code>, as by a modem which has just been switched on */
+	private volatile boolean echo;
+
+//> ACCESSORS
+	/** @return {@link #commandLatency} */
+	public LatencyDistribution getCommandLatency() {
+		return commandLatency;
+	}
+
+	/** @param commandLatency new value for {@link #commandLatency} */
+	public void setCommandLatency(LatencyDistribution commandLatency) {
+		if(commandLatency == null) throw new IllegalArgumentException("Latency distribution must not be null.");
+		this.commandLatency = commandLatency;
+	}
+
+	/** @return {@link #smsSendLatency} */
+	public LatencyDistribution getSmsSendLatency() {
+		return smsSendLatency;
+	}
+
+	/** @param smsSendLatency new value for {@link #smsSendLatency} */
+	public void setSmsSendLatency(LatencyDistribution smsSendLatency) {
+		if(smsSendLatency == null) throw new IllegalArgumentException("Latency distribution must not be null.");
+		this.smsSendLatency = smsSendLatency;
+	}
+
+	/** @return {@link #ringRate} */
+	public double getRingRate() {
+		return ringRate;
+	}
+
+	/** @param ringRate new value for {@link #ringRate} */
+	public void setRingRate(double ringRate) {
+		this.ringRate = checkRate(ringRate);
+	}
+
+	/** @return {@link #smsRate} */
+	public double getSmsRate() {
+		return smsRate;
+	}
+
+	/** @param smsRate new value for {@link #smsRate} */
+	public void setSmsRate(double smsRate) {
+		this.smsRate = checkRate(smsRate);
+	}
+
+	/** @return {@link #directDelivery} */
+	public boolean isDirectDelivery() {
+		return directDelivery;
+	}
+
+	/** @param directDelivery new value for {@link #directDelivery} */
+	public void setDirectDelivery(boolean directDelivery) {
+		this.directDelivery = directDelivery;
+	}
+
+	/** @return {@link #storageCapacity} */
+	public int getStorageCapacity() {
+		return storageCapacity;
+	}
+
+	/** @param storageCapacity new value for {@link #storageCapacity} */
+	public void setStorageCapacity(int storageCapacity) {
+		if(storageCapacity < 1) throw new IllegalArgumentException("Storage capacity must be at least 1: " + storageCapacity);
+		this.storageCapacity = storageCapacity;
+	}
+
+	/** @return {@link #echo} */
+	public boolean isEcho() {
+		return echo;
+	}
+
+	/** @param echo new value for {@link #echo} */
+	public void setEcho(boolean echo) {
+		this.echo = echo;
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param rate a rate of events per second
+	 * @return the rate
+	 * @throws IllegalArgumentException if the rate is negative or not a number
+	 */
+	private static double checkRate(double rate) {
+		if(!(rate >= 0) || Double.isInfinite(rate)) throw new IllegalArgumentException("Rate must be a finite number at least 0: " + rate);
+		return rate;
+	}
+}
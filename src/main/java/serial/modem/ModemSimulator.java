@@ -0,0 +1,619 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import serial.loopback.VirtualPort;
+
+/**
+ * Plays a GSM modem in PDU mode on the device end of a connection, for load testing code which drives modems.
+ * <p>
+ * Commands are answered in the order received, each after a delay drawn from the {@link ModemProfile}, with
+ * plausible responses to the commands an SMS gateway uses: <code>AT+CSQ</code>, <code>AT+CREG?</code>,
+ * <code>AT+CMGF</code>, <code>AT+CMGS</code> with its <code>&gt;</code> prompt, and reading, listing and deleting
+ * stored messages.  Unknown commands are answered with <code>ERROR</code>.
+ * </p>
+ * <p>
+ * Incoming calls and messages arrive at random, at the average rates set in the profile.  A call is reported with
+ * <code>RING</code>; a message is stored and reported with <code>+CMTI:</code>, or delivered straight away with
+ * <code>+CMT:</code> and its PDU.  These unsolicited result codes are written by the scheduler's threads, between
+ * responses, as a real modem would interleave them; those arising between a <code>&gt;</code> prompt and the response
+ * to its PDU are held until the response has been sent.
+ * </p>
+ * <p>
+ * Each simulator has one thread, which reads and answers commands.
+ * </p>
+ * @author Alex
+ */
+public class ModemSimulator {
+//> STATIC CONSTANTS
+	/** Character set for commands and responses, which maps bytes to chars one to one */
+	private static final String CHARSET = "ISO-8859-1";
+	/** Ctrl-Z, which ends a PDU sent after the <code>&gt;</code> prompt */
+	private static final int CTRL_Z = 0x1A;
+	/** Escape, which abandons a PDU sent after the <code>&gt;</code> prompt */
+	private static final int ESC = 0x1B;
+	/** Longest command line kept; longer lines are truncated */
+	private static final int MAX_LINE_LENGTH = 1024;
+	/** Manufacturer reported by <code>AT+CGMI</code> */
+	private static final String MANUFACTURER = "SIMULATED";
+	/** Model reported by <code>AT+CGMM</code> */
+	private static final String MODEL = "ModemSimulator";
+	/** Final result code for success */
+	private static final String OK = "OK";
+	/** Final result code for an unknown or malformed command */
+	private static final String ERROR = "ERROR";
+	/** Error for a command which is not supported, e.g. text mode */
+	private static final String CMS_NOT_SUPPORTED = "+CMS ERROR: 303";
+	/** Error for a PDU which could not be understood */
+	private static final String CMS_INVALID_PDU = "+CMS ERROR: 304";
+	/** Error for reading a message index which is empty or out of range */
+	private static final String CMS_INVALID_INDEX = "+CMS ERROR: 321";
+	/** Texts of incoming messages */
+	private static final String[] MESSAGE_TEXTS = {
+			"Hello", "Are you coming tonight?", "OK, see you at 8.", "Your code is 482913",
+			"Balance: 12.50 EUR. Top up now to keep calling.", "Meeting moved to room 4B (second floor).",
+	};
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** Name of this modem, for logging and its serial number */
+	private final String name;
+	/** Stream of commands from the host */
+	private final InputStream in;
+	/** Stream of responses to the host */
+	private final OutputStream out;
+	/** Behaviour of this modem */
+	private final ModemProfile profile;
+	/** Scheduler for unsolicited result codes */
+	private final ScheduledExecutorService scheduler;
+	/** Source of latencies, arrival times and message contents */
+	private final Random random;
+	/** Port whose ring indicator is pulsed with each <code>RING</code>, or <code>null</code> */
+	private final VirtualPort ringIndicator;
+	/** Lock held while writing, so that unsolicited result codes are not written in the middle of a response */
+	private final Object writeLock = new Object();
+	/** <code>true</code> between a <code>&gt;</code> prompt and its response, while the link is reserved for the PDU.  Guarded by {@link #writeLock}. */
+	private boolean linkReserved;
+	/** Unsolicited result codes held while {@link #linkReserved}.  Guarded by {@link #writeLock}. */
+	private final StringBuilder heldUnsolicited = new StringBuilder();
+	/** Stored incoming messages, by index.  Guarded by <code>this</code>. */
+	private final Map<Integer, SmsPdu> messages = new TreeMap<Integer, SmsPdu>();
+	/** Streams of unsolicited result codes which have been started.  Guarded by <code>this</code>. */
+	private final List<UnsolicitedStream> unsolicitedStreams = new ArrayList<UnsolicitedStream>();
+	/** The thread answering commands, or <code>null</code> if not started.  Guarded by <code>this</code>. */
+	private Thread thread;
+	/** Set <code>true</code> when {@link #close()} is called */
+	private volatile boolean closed;
+	/** <code>true</code> if commands are echoed.  Only used by {@link #thread}. */
+	private boolean echo;
+	/** Reference of the next message sent.  Only used by {@link #thread}. */
+	private int messageReference;
+	/** Number of commands received */
+	private final AtomicLong commandCount = new AtomicLong();
+	/** Number of <code>RING</code>s sent */
+	private final AtomicLong ringCount = new AtomicLong();
+	/** Number of incoming messages reported */
+	private final AtomicLong smsDeliveredCount = new AtomicLong();
+	/** Number of incoming messages dropped because storage was full */
+	private final AtomicLong smsDroppedCount = new AtomicLong();
+	/** Number of messages sent with <code>AT+CMGS</code> */
+	private final AtomicLong smsSentCount = new AtomicLong();
+
+//> CONSTRUCTORS
+	/**
+	 * Creates a simulator over a pair of streams, e.g. the device side of a pseudo-terminal.
+	 * @param name value for {@link #name}
+	 * @param in value for {@link #in}
+	 * @param out value for {@link #out}
+	 * @param profile value for {@link #profile}
+	 * @param scheduler value for {@link #scheduler}
+	 * @param seed seed for {@link #random}
+	 */
+	public ModemSimulator(String name, InputStream in, OutputStream out, ModemProfile profile, ScheduledExecutorService scheduler, long seed) {
+		this(name, in, out, profile, scheduler, seed, null);
+	}
+
+	/**
+	 * @param name value for {@link #name}
+	 * @param in value for {@link #in}
+	 * @param out value for {@link #out}
+	 * @param profile value for {@link #profile}
+	 * @param scheduler value for {@link #scheduler}
+	 * @param seed seed for {@link #random}
+	 * @param ringIndicator value for {@link #ringIndicator}
+	 */
+	private ModemSimulator(String name, InputStream in, OutputStream out, ModemProfile profile, ScheduledExecutorService scheduler, long seed, VirtualPort ringIndicator) {
+		this.name = name;
+		this.in = in;
+		this.out = out;
+		this.profile = profile;
+		this.scheduler = scheduler;
+		this.random = new Random(seed);
+		this.ringIndicator = ringIndicator;
+		this.echo = profile.isEcho();
+	}
+
+//> ACCESSORS
+	/** @return {@link #name} */
+	public String getName() {
+		return name;
+	}
+
+	/** @return the number of commands received */
+	public long getCommandCount() {
+		return commandCount.get();
+	}
+
+	/** @return the number of <code>RING</code>s sent */
+	public long getRingCount() {
+		return ringCount.get();
+	}
+
+	/** @return the number of incoming messages reported, with <code>+CMTI:</code> or <code>+CMT:</code> */
+	public long getSmsDeliveredCount() {
+		return smsDeliveredCount.get();
+	}
+
+	/** @return the number of incoming messages dropped because storage was full */
+	public long getSmsDroppedCount() {
+		return smsDroppedCount.get();
+	}
+
+	/** @return the number of messages sent with <code>AT+CMGS</code> */
+	public long getSmsSentCount() {
+		return smsSentCount.get();
+	}
+
+	/** @return the number of messages stored and not yet deleted */
+	public synchronized int getStoredMessageCount() {
+		return messages.size();
+	}
+
+//> INSTANCE METHODS
+	/** Starts answering commands and sending unsolicited result codes. */
+	public synchronized void start() {
+		if(thread != null || closed) return;
+		thread = new Thread("ModemSimulator-" + name) {
+			@Override
+			public void run() {
+				readLoop();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+		startUnsolicited(profile.getRingRate(), true);
+		startUnsolicited(profile.getSmsRate(), false);
+	}
+
+	/** Stops the simulator, and closes its input stream to release its thread. */
+	public void close() {
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+			for(UnsolicitedStream stream : unsolicitedStreams) stream.cancel();
+		}
+		try {
+			in.close();
+		} catch(IOException ex) {
+			log.debug("Failed to close input of modem " + name, ex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + name + "]";
+	}
+
+//> INSTANCE HELPER METHODS
+	/** Reads and answers commands until closed, or the input ends. */
+	private void readLoop() {
+		byte[] buffer = new byte[256];
+		StringBuilder line = new StringBuilder();
+		// The announced length of the PDU being received after a prompt, or -1 when reading commands
+		int pduLength = -1;
+		try {
+			while(!closed) {
+				int read = in.read(buffer);
+				if(read < 0) return;
+				for(int i=0; i<read; ++i) {
+					int b = buffer[i] & 0xFF;
+					if(pduLength >= 0) {
+						if(b == CTRL_Z || b == ESC) {
+							sendMessage(line.toString(), pduLength, b == ESC);
+							line.setLength(0);
+							pduLength = -1;
+						} else if(b > ' ' && line.length() < MAX_LINE_LENGTH) {
+							line.append((char) b);
+						}
+					} else if(b == '\r') {
+						if(line.length() > 0) pduLength = handleCommand(line.toString());
+						line.setLength(0);
+					} else if(b != '\n' && line.length() < MAX_LINE_LENGTH) {
+						line.append((char) b);
+					}
+				}
+			}
+		} catch(InterruptedIOException ex) {
+			// Closed while waiting to respond
+		} catch(IOException ex) {
+			if(!closed) log.warn("Modem " + name + " failed.", ex);
+		}
+	}
+
+	/**
+	 * Answers a command line.
+	 * @param line the line received, without its carriage return
+	 * @return the length of the PDU to receive after a <code>&gt;</code> prompt, or <code>-1</code> if the command
+	 *   was answered
+	 * @throws IOException if the response could not be written
+	 */
+	private int handleCommand(String line) throws IOException {
+		commandCount.incrementAndGet();
+		if(echo) write(line + "\r");
+		String text = line.trim().toUpperCase();
+		// A real modem ignores anything which is not a command
+		if(!text.startsWith("AT")) return -1;
+		String command = text.substring(2);
+		long due = System.nanoTime() + profile.getCommandLatency().nextNanos(random);
+
+		if(command.startsWith("+CMGS=")) {
+			int pduLength = parseInt(command.substring(6));
+			parkUntil(due);
+			if(pduLength < 1) {
+				write(formatResponse(null, ERROR));
+				return -1;
+			}
+			synchronized(writeLock) {
+				write("\r\n> ");
+				linkReserved = true;
+			}
+			return pduLength;
+		}
+
+		List<String> lines = new ArrayList<String>();
+		String result = execute(command, lines);
+		parkUntil(due);
+		write(formatResponse(lines, result));
+		return -1;
+	}
+
+	/**
+	 * Executes a command, other than <code>AT+CMGS</code>.
+	 * @param command the command in upper case, without the leading <code>AT</code>
+	 * @param lines list to add information text lines to
+	 * @return the final result code
+	 */
+	private String execute(String command, List<String> lines) {
+		if(command.length() == 0 || command.equals("A") || command.equals("H")) {
+			return OK;
+		} else if(command.equals("E0") || command.equals("E1")) {
+			echo = command.equals("E1");
+			return OK;
+		} else if(command.equals("Z") || command.equals("&F")) {
+			echo = profile.isEcho();
+			return OK;
+		} else if(command.equals("I") || command.equals("+CGMI")) {
+			lines.add(MANUFACTURER);
+		} else if(command.equals("+CGMM")) {
+			lines.add(MODEL);
+		} else if(command.equals("+CGSN")) {
+			lines.add(getSerialNumber());
+		} else if(command.equals("+CPIN?")) {
+			lines.add("+CPIN: READY");
+		} else if(command.equals("+CSQ")) {
+			lines.add("+CSQ: " + (10 + random.nextInt(22)) + ",99");
+		} else if(command.equals("+CREG?")) {
+			lines.add("+CREG: 0,1");
+		} else if(command.equals("+CMGF?")) {
+			lines.add("+CMGF: 0");
+		} else if(command.startsWith("+CMGF=")) {
+			// Only PDU mode is simulated
+			return command.equals("+CMGF=0") ? OK : CMS_NOT_SUPPORTED;
+		} else if(command.startsWith("+CNMI=") || command.startsWith("+CMEE=") || command.startsWith("+CSCS=")) {
+			return OK;
+		} else if(command.equals("+CPMS?")) {
+			String storage = "\"SM\"," + getStoredMessageCount() + "," + profile.getStorageCapacity();
+			lines.add("+CPMS: " + storage + "," + storage + "," + storage);
+		} else if(command.startsWith("+CMGR=")) {
+			int index = parseInt(command.substring(6));
+			SmsPdu pdu;
+			synchronized(this) {
+				pdu = messages.get(Integer.valueOf(index));
+			}
+			if(pdu == null) return CMS_INVALID_INDEX;
+			lines.add("+CMGR: 0,," + pdu.getTpduLength());
+			lines.add(pdu.getHex());
+		} else if(command.startsWith("+CMGD=")) {
+			int comma = command.indexOf(',');
+			int index = parseInt(command.substring(6, comma < 0 ? command.length() : comma));
+			synchronized(this) {
+				if(comma >= 0 && parseInt(command.substring(comma + 1)) == 4) messages.clear();
+				else if(messages.remove(Integer.valueOf(index)) == null) return CMS_INVALID_INDEX;
+			}
+		} else if(command.equals("+CMGL") || command.startsWith("+CMGL=")) {
+			synchronized(this) {
+				for(Map.Entry<Integer, SmsPdu> message : messages.entrySet()) {
+					lines.add("+CMGL: " + message.getKey() + ",0,," + message.getValue().getTpduLength());
+					lines.add(message.getValue().getHex());
+				}
+			}
+		} else if(command.startsWith("D")) {
+			return "NO CARRIER";
+		} else {
+			return ERROR;
+		}
+		return OK;
+	}
+
+	/**
+	 * Answers the PDU sent after an <code>AT+CMGS</code> prompt.
+	 * @param pdu the PDU received, as hexadecimal digits
+	 * @param announcedLength the length of the PDU given in the command, excluding the service centre address
+	 * @param abandoned <code>true</code> if the PDU was ended with escape rather than Ctrl-Z
+	 * @throws IOException if the response could not be written
+	 */
+	private void sendMessage(String pdu, int announcedLength, boolean abandoned) throws IOException {
+		try {
+			answerMessage(pdu, announcedLength, abandoned);
+		} finally {
+			synchronized(writeLock) {
+				linkReserved = false;
+				if(heldUnsolicited.length() > 0) {
+					String held = heldUnsolicited.toString();
+					heldUnsolicited.setLength(0);
+					write(held);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the response to the PDU sent after an <code>AT+CMGS</code> prompt.
+	 * @param pdu the PDU received, as hexadecimal digits
+	 * @param announcedLength the length of the PDU given in the command, excluding the service centre address
+	 * @param abandoned <code>true</code> if the PDU was ended with escape rather than Ctrl-Z
+	 * @throws IOException if the response could not be written
+	 */
+	private void answerMessage(String pdu, int announcedLength, boolean abandoned) throws IOException {
+		if(abandoned) {
+			write(formatResponse(null, OK));
+		} else if(!isValidPdu(pdu, announcedLength)) {
+			parkUntil(System.nanoTime() + profile.getCommandLatency().nextNanos(random));
+			write(formatResponse(null, CMS_INVALID_PDU));
+		} else {
+			parkUntil(System.nanoTime() + profile.getSmsSendLatency().nextNanos(random));
+			smsSentCount.incrementAndGet();
+			List<String> lines = new ArrayList<String>();
+			lines.add("+CMGS: " + messageReference);
+			messageReference = (messageReference + 1) & 0xFF;
+			write(formatResponse(lines, OK));
+		}
+	}
+
+	/**
+	 * Starts a stream of unsolicited result codes arriving at random.
+	 * @param rate the average number per second, or <code>0</code> for none
+	 * @param ring <code>true</code> for <code>RING</code>, <code>false</code> for incoming messages
+	 */
+	private void startUnsolicited(double rate, boolean ring) {
+		if(rate <= 0) return;
+		UnsolicitedStream stream = new UnsolicitedStream(rate, ring);
+		unsolicitedStreams.add(stream);
+		stream.scheduleNext();
+	}
+
+	/**
+	 * Reports an incoming call.
+	 * @throws IOException if the result code could not be written
+	 */
+	private void ring() throws IOException {
+		if(ringIndicator != null) ringIndicator.setRI(true);
+		writeUnsolicited("\r\nRING\r\n");
+		if(ringIndicator != null) ringIndicator.setRI(false);
+		ringCount.incrementAndGet();
+	}
+
+	/**
+	 * Reports an incoming message, storing it unless delivering it directly.
+	 * @throws IOException if the result code could not be written
+	 */
+	private void receiveMessage() throws IOException {
+		String originator = "447" + (100000000 + random.nextInt(900000000));
+		SmsPdu pdu = SmsPdu.deliver(originator, MESSAGE_TEXTS[random.nextInt(MESSAGE_TEXTS.length)], System.currentTimeMillis());
+		if(profile.isDirectDelivery()) {
+			writeUnsolicited("\r\n+CMT: ," + pdu.getTpduLength() + "\r\n" + pdu.getHex() + "\r\n");
+		} else {
+			int index = store(pdu);
+			if(index < 0) {
+				smsDroppedCount.incrementAndGet();
+				return;
+			}
+			writeUnsolicited("\r\n+CMTI: \"SM\"," + index + "\r\n");
+		}
+		smsDeliveredCount.incrementAndGet();
+	}
+
+	/**
+	 * @param pdu a message to store
+	 * @return the lowest free index, at which the message was stored, or <code>-1</code> if storage is full
+	 */
+	private synchronized int store(SmsPdu pdu) {
+		int capacity = profile.getStorageCapacity();
+		for(int index=1; index<=capacity; ++index) {
+			Integer key = Integer.valueOf(index);
+			if(!messages.containsKey(key)) {
+				messages.put(key, pdu);
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param text text to send to the host
+	 * @throws IOException if the text could not be written
+	 */
+	private void write(String text) throws IOException {
+		byte[] bytes = text.getBytes(CHARSET);
+		synchronized(writeLock) {
+			out.write(bytes);
+			out.flush();
+		}
+	}
+
+	/**
+	 * @param text an unsolicited result code to send to the host, now or once the link is no longer reserved
+	 * @throws IOException if the text could not be written
+	 */
+	private void writeUnsolicited(String text) throws IOException {
+		synchronized(writeLock) {
+			if(linkReserved) heldUnsolicited.append(text);
+			else write(text);
+		}
+	}
+
+	/** @return a 15 digit serial number derived from {@link #name} */
+	private String getSerialNumber() {
+		String digits = Long.toString(Math.abs((long) name.hashCode()));
+		StringBuilder serial = new StringBuilder("35");
+		for(int i=digits.length(); i<13; ++i) serial.append('0');
+		return serial.append(digits).toString();
+	}
+
+	/**
+	 * Waits until a time by {@link System#nanoTime()}, unless closed first.
+	 * @param deadline the time to wait until
+	 * @throws InterruptedIOException if closed or interrupted while waiting
+	 */
+	private void parkUntil(long deadline) throws InterruptedIOException {
+		long remaining;
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+			if(closed || Thread.interrupted()) throw new InterruptedIOException();
+		}
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Creates a simulator for the device end of a virtual port.  The modem raises DSR, CD and CTS on the port, and
+	 * pulses its ring indicator with each <code>RING</code>.
+	 * @param port a port created by <code>VirtualPorts.create(String)</code>, which is opened by the host
+	 * @param profile behaviour of the modem
+	 * @param scheduler scheduler for unsolicited result codes
+	 * @param seed seed for the modem's random behaviour
+	 * @return the simulator, which must be {@link #start() started}
+	 */
+	public static ModemSimulator attach(VirtualPort port, ModemProfile profile, ScheduledExecutorService scheduler, long seed) {
+		VirtualPort device = port.getPeer();
+		port.setDSR(true);
+		port.setCD(true);
+		port.setCTS(true);
+		return new ModemSimulator(port.getName(), device.getInputStream(), device.getOutputStream(), profile, scheduler, seed, port);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param lines information text lines, or <code>null</code> if there are none
+	 * @param result the final result code
+	 * @return the response as written by a modem in verbose mode
+	 */
+	private static String formatResponse(List<String> lines, String result) {
+		StringBuilder response = new StringBuilder();
+		if(lines != null) {
+			for(String line : lines) response.append("\r\n").append(line).append("\r\n");
+		}
+		return response.append("\r\n").append(result).append("\r\n").toString();
+	}
+
+	/**
+	 * @param text decimal text
+	 * @return the number, or <code>-1</code> if the text is not a number
+	 */
+	private static int parseInt(String text) {
+		try {
+			return Integer.parseInt(text.trim());
+		} catch(NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @param pdu a PDU as hexadecimal digits, starting with the service centre address
+	 * @param announcedLength the length given for the PDU, excluding the service centre address
+	 * @return <code>true</code> if the PDU is hexadecimal and has the announced length
+	 */
+	private static boolean isValidPdu(String pdu, int announcedLength) {
+		if(pdu.length() < 2 || pdu.length() % 2 != 0) return false;
+		for(int i=0; i<pdu.length(); ++i) {
+			if(Character.digit(pdu.charAt(i), 16) < 0) return false;
+		}
+		int serviceCentreLength = Integer.parseInt(pdu.substring(0, 2), 16);
+		return pdu.length() / 2 - 1 - serviceCentreLength == announcedLength;
+	}
+
+//> INNER CLASSES
+	/**
+	 * Unsolicited result codes of one kind, arriving at random at an average rate.
+	 */
+	private final class UnsolicitedStream implements Runnable {
+		/** Average number of arrivals per second */
+		private final double rate;
+		/** <code>true</code> for <code>RING</code>, <code>false</code> for incoming messages */
+		private final boolean ring;
+		/** The next arrival.  Guarded by the simulator. */
+		private ScheduledFuture<?> next;
+
+		/**
+		 * @param rate value for {@link #rate}
+		 * @param ring value for {@link #ring}
+		 */
+		UnsolicitedStream(double rate, boolean ring) {
+			this.rate = rate;
+			this.ring = ring;
+		}
+
+		public void run() {
+			if(closed) return;
+			try {
+				if(ring) ring();
+				else receiveMessage();
+			} catch(IOException ex) {
+				if(!closed) log.warn("Modem " + name + " failed to send an unsolicited result code.", ex);
+				return;
+			}
+			synchronized(ModemSimulator.this) {
+				if(!closed) scheduleNext();
+			}
+		}
+
+		/** Schedules the next arrival, after an exponentially distributed interval.  Must be called holding the simulator. */
+		void scheduleNext() {
+			long delay = (long) (-Math.log(1 - random.nextDouble()) / rate * TimeUnit.SECONDS.toNanos(1));
+			next = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+		}
+
+		/** Cancels the next arrival.  Must be called holding the simulator. */
+		void cancel() {
+			if(next != null) next.cancel(false);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package serial.modem;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * An SMS message in PDU form (3GPP TS 23.040), as exchanged with a modem in PDU mode, <code>AT+CMGF=0</code>.
+ * <p>
+ * Only what a simulated modem needs is supported: creating an SMS-DELIVER with a text in the GSM 7-bit default
+ * alphabet.  The text may only use the characters which the alphabet shares with ASCII: letters, digits, space and
+ * <code>!"#%&amp;'()*+,-./:;&lt;=&gt;?</code>.
+ * </p>
+ * @author Alex
+ */
+public final class SmsPdu {
+//> STATIC CONSTANTS
+	/** Longest text which fits in a single message, in septets */
+	public static final int MAX_SEPTETS = 160;
+	/** Hexadecimal digits */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	/** First octet of an SMS-DELIVER: message type indicator 00, no more messages waiting */
+	private static final int DELIVER_FIRST_OCTET = 0x04;
+	/** Type of address of an international number */
+	private static final int TYPE_INTERNATIONAL = 0x91;
+
+//> INSTANCE PROPERTIES
+	/** The PDU, including an empty service centre address, as hexadecimal digits */
+	private final String hex;
+
+//> CONSTRUCTORS
+	/** @param hex value for {@link #hex} */
+	private SmsPdu(String hex) {
+		this.hex = hex;
+	}
+
+//> ACCESSORS
+	/** @return {@link #hex}, as a modem sends it in <code>+CMGR:</code>, <code>+CMGL:</code> and <code>+CMT:</code> responses */
+	public String getHex() {
+		return hex;
+	}
+
+	/** @return the length in octets excluding the service centre address, as a modem reports it alongside the PDU */
+	public int getTpduLength() {
+		// The empty service centre address is the single octet 00
+		return hex.length() / 2 - 1;
+	}
+
+	@Override
+	public String toString() {
+		return hex;
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Creates a message as delivered to a phone.
+	 * @param originator the sender's international number, without the leading <code>+</code>
+	 * @param text the text of the message, which must be in the supported subset of the GSM 7-bit alphabet
+	 * @param timestamp the time the service centre received the message, in milliseconds since the epoch
+	 * @return the message
+	 * @throws IllegalArgumentException if the number or text cannot be encoded
+	 */
+	public static SmsPdu deliver(String originator, String text, long timestamp) {
+		if(originator.length() == 0) throw new IllegalArgumentException("Originator must not be empty.");
+		if(text.length() > MAX_SEPTETS) throw new IllegalArgumentException("Text is longer than " + MAX_SEPTETS + " characters: " + text.length());
+		StringBuilder pdu = new StringBuilder(32 + text.length() * 2);
+		appendOctet(pdu, 0);
+		appendOctet(pdu, DELIVER_FIRST_OCTET);
+		appendOctet(pdu, originator.length());
+		appendOctet(pdu, TYPE_INTERNATIONAL);
+		appendSemiOctets(pdu, originator);
+		appendOctet(pdu, 0); // Protocol identifier: plain SMS
+		appendOctet(pdu, 0); // Data coding scheme: GSM 7-bit default alphabet
+		appendTimestamp(pdu, timestamp);
+		appendOctet(pdu, text.length());
+		appendSeptets(pdu, text);
+		return new SmsPdu(pdu.toString());
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param pdu the PDU being built
+	 * @param octet the octet to append as two hexadecimal digits
+	 */
+	private static void appendOctet(StringBuilder pdu, int octet) {
+		pdu.append(HEX_DIGITS[(octet >> 4) & 0xF]).append(HEX_DIGITS[octet & 0xF]);
+	}
+
+	/**
+	 * Appends decimal digits in semi-octet order, each pair swapped and padded with <code>F</code>.
+	 * @param pdu the PDU being built
+	 * @param digits the digits
+	 */
+	private static void appendSemiOctets(StringBuilder pdu, String digits) {
+		for(int i=0; i<digits.length(); i+=2) {
+			char low = digits.charAt(i);
+			char high = i + 1 < digits.length() ? digits.charAt(i + 1) : 'F';
+			if(!isDigit(low) || (!isDigit(high) && high != 'F')) throw new IllegalArgumentException("Not a number: " + digits);
+			pdu.append(high).append(low);
+		}
+	}
+
+	/**
+	 * Appends a service centre time stamp, in UTC.
+	 * @param pdu the PDU being built
+	 * @param timestamp the time, in milliseconds since the epoch
+	 */
+	private static void appendTimestamp(StringBuilder pdu, long timestamp) {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.setTimeInMillis(timestamp);
+		int[] fields = {
+				calendar.get(Calendar.YEAR) % 100, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+				calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
+				0 };
+		for(int field : fields) pdu.append((char) ('0' + field % 10)).append((char) ('0' + field / 10));
+	}
+
+	/**
+	 * Appends text packed as 7-bit septets.
+	 * @param pdu the PDU being built
+	 * @param text the text
+	 */
+	private static void appendSeptets(StringBuilder pdu, String text) {
+		int bits = 0;
+		int bitCount = 0;
+		for(int i=0; i<text.length(); ++i) {
+			bits |= toSeptet(text.charAt(i)) << bitCount;
+			bitCount += 7;
+			while(bitCount >= 8) {
+				appendOctet(pdu, bits & 0xFF);
+				bits >>>= 8;
+				bitCount -= 8;
+			}
+		}
+		if(bitCount > 0) appendOctet(pdu, bits & 0xFF);
+	}
+
+	/**
+	 * @param c a character
+	 * @return the character's code in the GSM 7-bit default alphabet
+	 * @throws IllegalArgumentException if the character is not in the supported subset of the alphabet
+	 */
+	private static int toSeptet(char c) {
+		if((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+				|| (c >= ' ' && c <= '?' && c != '$')) return c;
+		throw new IllegalArgumentException("Character not supported in GSM 7-bit text: " + c);
+	}
+
+	/**
+	 * @param c a character
+	 * @return <code>true</code> if the character is a decimal digit
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
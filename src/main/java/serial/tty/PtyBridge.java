@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import serial.SerialClassFactory;
+
+/**
+ * Creates pairs of Linux pseudo-terminals, as test ports which exercise the real kernel tty path without hardware.
+ * <p>
+ * Java cannot call <code>openpty()</code>, so a small Python helper process creates the pairs and copies bytes
+ * between their masters.  One helper serves every pair it creates, so hundreds of pairs cost one process, and
+ * several bridges may be started at once.  The port side of each pair is registered with {@link TtySerialBackend},
+ * so it is listed as well as found by name; the device side is driven by test code.
+ * </p>
+ * <p>
+ * The pairs exist until {@link #close()} is called, or this JVM exits and the helper sees its input close.
+ * </p>
+ * @author Alex
+ */
+public class PtyBridge {
+//> STATIC CONSTANTS
+	/** Locations where the Python 3 executable is searched for */
+	private static final String[] PYTHON_LOCATIONS = { "/usr/bin/python3", "/bin/python3", "/usr/local/bin/python3" };
+	/** Classpath resource containing the helper script */
+	private static final String HELPER_RESOURCE = "pty-bridge.py";
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The helper process */
+	private final Process process;
+	/** The pairs created by {@link #process} */
+	private final List<PtyPair> pairs;
+
+//> CONSTRUCTORS
+	/**
+	 * @param process value for {@link #process}
+	 * @param pairs value for {@link #pairs}
+	 */
+	private PtyBridge(Process process, List<PtyPair> pairs) {
+		this.process = process;
+		this.pairs = Collections.unmodifiableList(pairs);
+	}
+
+//> ACCESSORS
+	/** @return {@link #pairs} */
+	public List<PtyPair> getPairs() {
+		return pairs;
+	}
+
+//> INSTANCE METHODS
+	/** Unregisters the ports, closes the device streams and stops the helper, which destroys the pseudo-terminals. */
+	public void close() {
+		for(PtyPair pair : pairs) {
+			TtyPortIdentifier.unregisterDevice(pair.getPortName());
+			pair.close();
+		}
+		invalidatePortIdentifiers();
+		try {
+			process.getOutputStream().close();
+		} catch(IOException ex) {
+			log.debug("Failed to close pty helper input.", ex);
+		}
+		process.destroy();
+	}
+
+//> STATIC FACTORIES
+	/**
+	 * Starts a helper process and creates pseudo-terminal pairs.
+	 * @param pairCount the number of pairs to create
+	 * @return the bridge
+	 * @throws IOException if Python 3 is not installed, or the helper failed
+	 */
+	public static PtyBridge start(int pairCount) throws IOException {
+		if(pairCount < 1) throw new IllegalArgumentException("Pair count must be at least 1: " + pairCount);
+		String python = getPythonExecutable();
+		if(python == null) throw new IOException("Python 3 executable not found.");
+
+		Process process = new ProcessBuilder(python, "-c", readHelperScript(), Integer.toString(pairCount)).start();
+		List<PtyPair> pairs = new ArrayList<PtyPair>();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+			String line;
+			while((line = reader.readLine()) != null && line.length() > 0) {
+				String[] names = line.split(" ");
+				if(names.length != 2) throw new IOException("Unexpected output from pty helper: " + line);
+				pairs.add(new PtyPair(names[0], names[1]));
+			}
+			if(pairs.size() != pairCount) {
+				throw new IOException("pty helper created " + pairs.size() + " of " + pairCount + " pairs: " + readFully(process.getErrorStream()));
+			}
+		} catch(IOException ex) {
+			process.destroy();
+			throw ex;
+		}
+
+		for(PtyPair pair : pairs) {
+			TtyPortIdentifier.registerDevice(pair.getPortName());
+		}
+		invalidatePortIdentifiers();
+		return new PtyBridge(process, pairs);
+	}
+
+//> STATIC HELPER METHODS
+	/** @return <code>true</code> if pseudo-terminal pairs can be created on this machine */
+	public static boolean isAvailable() {
+		return System.getProperty("os.name", "").toLowerCase().startsWith("linux")
+				&& getPythonExecutable() != null;
+	}
+
+	/** Makes the wrapper's cached port list include the latest registered devices, if it has been initialised. */
+	private static void invalidatePortIdentifiers() {
+		// Before the factory is initialised there is no cached list, and loading the wrapper class would fail
+		if(SerialClassFactory.getInstance() != null) serial.CommPortIdentifier.invalidatePortIdentifiers();
+	}
+
+	/** @return the path of the Python 3 executable, or <code>null</code> if it could not be found */
+	private static String getPythonExecutable() {
+		for(String location : PYTHON_LOCATIONS) {
+			if(new File(location).isFile()) return location;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the text of the helper script
+	 * @throws IOException if the script resource is missing
+	 */
+	private static String readHelperScript() throws IOException {
+		InputStream in = PtyBridge.class.getResourceAsStream(HELPER_RESOURCE);
+		if(in == null) throw new IOException("pty helper script not found: " + HELPER_RESOURCE);
+		try {
+			return readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param in a stream
+	 * @return the contents of the stream as UTF-8 text
+	 * @throws IOException if the stream could not be read
+	 */
+	private static String readFully(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		StringBuilder text = new StringBuilder();
+		String line;
+		while((line = reader.readLine()) != null) text.append(line).append('\n');
+		return text.toString();
+	}
+}
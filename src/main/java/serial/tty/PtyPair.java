@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Two pseudo-terminal slaves joined by a {@link PtyBridge}: bytes written to one are read from the other.
+ * <p>
+ * The {@link #getPortName() port} is opened by the application under test through <code>serial.CommPortIdentifier</code>,
+ * so its bytes pass through the kernel tty layer and the termios settings applied by this backend.  Test code plays
+ * the device at the other end through {@link #getDeviceInputStream()} and {@link #getDeviceOutputStream()}.
+ * </p>
+ * @author Alex
+ */
+public class PtyPair {
+//> INSTANCE PROPERTIES
+	/** Path of the slave opened as a serial port */
+	private final String portName;
+	/** Path of the slave used by the device */
+	private final String deviceName;
+	/** The device slave, open for reading, or <code>null</code> if not yet opened.  Guarded by <code>this</code>. */
+	private FileInputStream deviceIn;
+	/** The device slave, open for writing, or <code>null</code> if not yet opened.  Guarded by <code>this</code>. */
+	private FileOutputStream deviceOut;
+
+//> CONSTRUCTORS
+	/**
+	 * @param portName value for {@link #portName}
+	 * @param deviceName value for {@link #deviceName}
+	 */
+	PtyPair(String portName, String deviceName) {
+		this.portName = portName;
+		this.deviceName = deviceName;
+	}
+
+//> ACCESSORS
+	/** @return {@link #portName}, e.g. <code>/dev/pts/3</code>, for <code>CommPortIdentifier.getPortIdentifier(String)</code> */
+	public String getPortName() {
+		return portName;
+	}
+
+	/** @return {@link #deviceName} */
+	public String getDeviceName() {
+		return deviceName;
+	}
+
+	/**
+	 * @return a stream reading the bytes written to the port, opened on first use
+	 * @throws IOException if the device slave could not be opened
+	 */
+	public synchronized InputStream getDeviceInputStream() throws IOException {
+		if(deviceIn == null) deviceIn = new FileInputStream(deviceName);
+		return deviceIn;
+	}
+
+	/**
+	 * @return a stream writing bytes to be read from the port, opened on first use
+	 * @throws IOException if the device slave could not be opened
+	 */
+	public synchronized OutputStream getDeviceOutputStream() throws IOException {
+		if(deviceOut == null) deviceOut = new FileOutputStream(deviceName);
+		return deviceOut;
+	}
+
+//> INSTANCE METHODS
+	/** Closes the device streams, if they were opened. */
+	synchronized void close() {
+		try {
+			if(deviceIn != null) deviceIn.close();
+		} catch(IOException ex) {
+			// Nothing more we can do
+		}
+		try {
+			if(deviceOut != null) deviceOut.close();
+		} catch(IOException ex) {
+			// Nothing more we can do
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + portName + " <-> " + deviceName + "]";
+	}
+}
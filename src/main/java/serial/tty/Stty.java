@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import serial.UnsupportedCommOperationException;
+
+/**
+ * Applies termios settings to a tty device by running <code>stty</code>.
+ * <p>
+ * GNU <code>stty</code> opens the device with <code>O_NONBLOCK</code>, so this also works on a port whose
+ * <code>open()</code> would otherwise block waiting for carrier detect.
+ * </p>
+ * @author Alex
+ */
+final class Stty {
+//> STATIC CONSTANTS
+	/** Locations where the <code>stty</code> executable is searched for */
+	private static final String[] STTY_LOCATIONS = { "/bin/stty", "/usr/bin/stty" };
+
+//> CONSTRUCTORS
+	/** Utility class; not instantiable. */
+	private Stty() {}
+
+//> STATIC HELPER METHODS
+	/** @return the path of the <code>stty</code> executable, or <code>null</code> if it could not be found */
+	static String getExecutable() {
+		for(String location : STTY_LOCATIONS) {
+			if(new File(location).isFile()) return location;
+		}
+		return null;
+	}
+
+	/**
+	 * Runs <code>stty -F device settings...</code>.
+	 * @param device the path of the tty device
+	 * @param settings the settings to apply, e.g. <code>9600 cs8 -cstopb</code>
+	 * @throws UnsupportedCommOperationException if <code>stty</code> could not be run, or rejected the settings
+	 */
+	static void apply(String device, String... settings) throws UnsupportedCommOperationException {
+		String executable = getExecutable();
+		if(executable == null) throw new UnsupportedCommOperationException("stty executable not found.");
+
+		List<String> command = new ArrayList<String>();
+		command.add(executable);
+		command.add("-F");
+		command.add(device);
+		command.addAll(Arrays.asList(settings));
+
+		try {
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			process.getOutputStream().close();
+			String output = readFully(process.getInputStream());
+			int exitValue = process.waitFor();
+			if(exitValue != 0) {
+				throw new UnsupportedCommOperationException("stty failed with exit value " + exitValue + " for " + command + ": " + output.trim());
+			}
+		} catch(IOException ex) {
+			throw new UnsupportedCommOperationException("Could not run " + command + ": " + ex.getMessage());
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new UnsupportedCommOperationException("Interrupted while running " + command);
+		}
+	}
+
+	/**
+	 * Reads an {@link InputStream} until the end, and closes it.
+	 * @param in the stream to read
+	 * @return the content of the stream, decoded with the platform default encoding
+	 * @throws IOException if there was a problem reading the stream
+	 */
+	private static String readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[256];
+			int count;
+			while((count = in.read(buffer)) != -1) out.write(buffer, 0, count);
+			return out.toString();
+		} finally {
+			in.close();
+		}
+	}
+}
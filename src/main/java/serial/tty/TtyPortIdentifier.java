@@ -0,0 +1,186 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import serial.BackendPortIdentifier;
+import serial.BackendSerialPort;
+import serial.CommPortIdentifier;
+import serial.NoSuchPortException;
+import serial.PortInUseException;
+import serial.UnsupportedCommOperationException;
+
+/**
+ * Identifies a Linux tty device, e.g. <code>/dev/ttyUSB0</code>, and controls ownership of it within this JVM.
+ * @author Alex
+ */
+class TtyPortIdentifier implements BackendPortIdentifier {
+//> STATIC CONSTANTS
+	/** Directory containing the device files */
+	private static final File DEV_DIRECTORY = new File("/dev");
+	/** Prefixes of the names of device files in {@link #DEV_DIRECTORY} which are listed as serial ports */
+	private static final String[] DEVICE_PREFIXES = { "ttyS", "ttyUSB", "ttyACM", "ttyAMA", "rfcomm" };
+	/** Owners of the ports which are currently open in this JVM, keyed by port name.  Guarded by itself. */
+	private static final Map<String, String> OWNERS = new HashMap<String, String>();
+	/** Devices listed as well as those found in {@link #DEV_DIRECTORY}, e.g. pseudo-terminals.  Guarded by itself. */
+	private static final Set<String> REGISTERED_DEVICES = new LinkedHashSet<String>();
+
+//> INSTANCE PROPERTIES
+	/** The path of the device file */
+	private final String name;
+
+//> CONSTRUCTORS
+	/** @param name value for {@link #name} */
+	private TtyPortIdentifier(String name) {
+		this.name = name;
+	}
+
+//> ACCESSORS
+	/**
+	 * @return {@link #name}
+	 * @see BackendPortIdentifier#getName()
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return {@link CommPortIdentifier#PORT_SERIAL}
+	 * @see BackendPortIdentifier#getPortType()
+	 */
+	public int getPortType() {
+		return CommPortIdentifier.PORT_SERIAL;
+	}
+
+	/**
+	 * @return <code>true</code> if this port is open in this JVM
+	 * @see BackendPortIdentifier#isCurrentlyOwned()
+	 */
+	public boolean isCurrentlyOwned() {
+		synchronized(OWNERS) {
+			return OWNERS.containsKey(this.name);
+		}
+	}
+
+	/** @see BackendPortIdentifier#getCurrentOwner() */
+	public String getCurrentOwner() {
+		synchronized(OWNERS) {
+			return OWNERS.get(this.name);
+		}
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * Opens the port.  It is put into raw mode at 9600 baud, 8 data bits, 1 stop bit, no parity.  The timeout only
+	 * covers the port being open elsewhere in this JVM.
+	 * @see BackendPortIdentifier#open(String, int)
+	 */
+	public BackendSerialPort open(String appname, int timeout) throws PortInUseException {
+		synchronized(OWNERS) {
+			long deadline = System.currentTimeMillis() + timeout;
+			while(OWNERS.containsKey(this.name)) {
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining <= 0) throw new PortInUseException("Port " + this.name + " is owned by " + OWNERS.get(this.name));
+				try {
+					OWNERS.wait(remaining);
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new PortInUseException("Interrupted waiting for port " + this.name);
+				}
+			}
+			OWNERS.put(this.name, appname);
+		}
+
+		try {
+			return new TtySerialPort(this);
+		} catch(IOException ex) {
+			release();
+			throw new PortInUseException("Failed to open port " + this.name + ": " + ex.getMessage());
+		} catch(UnsupportedCommOperationException ex) {
+			release();
+			throw new PortInUseException("Failed to configure port " + this.name + ": " + ex.getMessage());
+		}
+	}
+
+	/** Releases ownership of this port, waking up anyone waiting in {@link #open(String, int)}. */
+	void release() {
+		synchronized(OWNERS) {
+			OWNERS.remove(this.name);
+			OWNERS.notifyAll();
+		}
+	}
+
+//> STATIC METHODS
+	/** @return identifiers for all serial device files currently present, followed by any registered devices */
+	static List<BackendPortIdentifier> getPortIdentifiers() {
+		List<BackendPortIdentifier> ports = new ArrayList<BackendPortIdentifier>();
+		String[] deviceNames = DEV_DIRECTORY.list();
+		if(deviceNames != null) {
+			Arrays.sort(deviceNames);
+			for(String deviceName : deviceNames) {
+				if(isSerialDeviceName(deviceName)) {
+					ports.add(new TtyPortIdentifier(new File(DEV_DIRECTORY, deviceName).getPath()));
+				}
+			}
+		}
+		synchronized(REGISTERED_DEVICES) {
+			for(String device : REGISTERED_DEVICES) {
+				ports.add(new TtyPortIdentifier(device));
+			}
+		}
+		return ports;
+	}
+
+	/**
+	 * @param portName the path of the device file, e.g. <code>/dev/ttyUSB0</code>
+	 * @return the identifier for the port
+	 * @throws NoSuchPortException if the device file does not exist
+	 */
+	static TtyPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException {
+		if(portName == null || !new File(portName).exists()) throw new NoSuchPortException("No such port: " + portName);
+		return new TtyPortIdentifier(portName);
+	}
+
+	/**
+	 * Lists a device which is not found by scanning {@link #DEV_DIRECTORY}, e.g. the slave of a pseudo-terminal.
+	 * @param device the path of the device file
+	 */
+	static void registerDevice(String device) {
+		synchronized(REGISTERED_DEVICES) {
+			REGISTERED_DEVICES.add(device);
+		}
+	}
+
+	/** @param device the path of a device file passed to {@link #registerDevice(String)}, which is no longer listed */
+	static void unregisterDevice(String device) {
+		synchronized(REGISTERED_DEVICES) {
+			REGISTERED_DEVICES.remove(device);
+		}
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param deviceName the name of a file in {@link #DEV_DIRECTORY}
+	 * @return <code>true</code> if the name matches one of {@link #DEVICE_PREFIXES} followed by a number
+	 */
+	private static boolean isSerialDeviceName(String deviceName) {
+		for(String prefix : DEVICE_PREFIXES) {
+			if(deviceName.length() > prefix.length()
+					&& deviceName.startsWith(prefix)
+					&& Character.isDigit(deviceName.charAt(prefix.length()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import serial.BackendPortIdentifier;
+import serial.NoSuchPortException;
+import serial.SerialBackend;
+
+/**
+ * {@link SerialBackend} which opens Linux tty devices directly, without RXTX or any other native library.
+ * It is only available on Linux where <code>stty</code> is installed, and is a lower priority than the
+ * native backends.  Only data available and output empty events are supported.
+ * @author Alex
+ */
+public class TtySerialBackend implements SerialBackend {
+//> STATIC CONSTANTS
+	/** Name of the package containing this backend */
+	public static final String PACKAGE_TTY = "serial.tty";
+	/** Priority of this backend */
+	public static final int PRIORITY = 5;
+	/** Features supported by this backend */
+	private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.PORT_ENUMERATION,
+			Capability.EVENTS, Capability.RECEIVE_THRESHOLD, Capability.RECEIVE_TIMEOUT, Capability.FLOW_CONTROL));
+
+//> ACCESSORS
+	/** @see SerialBackend#getPackageName() */
+	public String getPackageName() {
+		return PACKAGE_TTY;
+	}
+
+	/** @see SerialBackend#getPriority() */
+	public int getPriority() {
+		return PRIORITY;
+	}
+
+	/** @see SerialBackend#getCapabilities() */
+	public Set<Capability> getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	/**
+	 * @return <code>true</code> if running on Linux and <code>stty</code> can be found
+	 * @see SerialBackend#isAvailable()
+	 */
+	public boolean isAvailable() {
+		return System.getProperty("os.name", "").toLowerCase().startsWith("linux")
+				&& new File("/dev").isDirectory()
+				&& Stty.getExecutable() != null;
+	}
+
+//> INSTANCE METHODS
+	/**
+	 * @return identifiers for all serial device files currently present, followed by any pseudo-terminals created by
+	 *   a {@link PtyBridge}
+	 * @see SerialBackend#getPortIdentifiers()
+	 */
+	public List<BackendPortIdentifier> getPortIdentifiers() {
+		return TtyPortIdentifier.getPortIdentifiers();
+	}
+
+	/**
+	 * @param portName the path of the device file, e.g. <code>/dev/ttyUSB0</code>
+	 * @see SerialBackend#getPortIdentifier(String)
+	 */
+	public BackendPortIdentifier getPortIdentifier(String portName) throws NoSuchPortException {
+		return TtyPortIdentifier.getPortIdentifier(portName);
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + PACKAGE_TTY + ", priority=" + PRIORITY + "]";
+	}
+}
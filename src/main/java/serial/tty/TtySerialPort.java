@@ -0,0 +1,512 @@
+/**
+ *
+ */
+package serial.tty;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TooManyListenersException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import serial.BackendEventListener;
+import serial.BackendSerialPort;
+import serial.SerialChannel;
+import serial.SerialPortEvent;
+import serial.UnsupportedCommOperationException;
+
+/**
+ * A Linux tty device opened directly through its device file.
+ * <p>
+ * Data is read and written through {@link FileInputStream} and {@link FileOutputStream} on the device file, and
+ * termios settings are applied with <code>stty</code>.  No native library
+ * is involved.  Receive threshold and timeout map onto <code>VMIN</code> and <code>VTIME</code>, so a timeout is rounded
+ * up to a whole number of tenths of a second, and both values are limited to 255 units.  When the timeout expires
+ * without data, <code>read(byte[])</code> returns 0 and <code>read()</code> throws {@link InterruptedIOException};
+ * both return <code>-1</code> only once the port is closed.
+ * </p>
+ * <p>
+ * Only {@link SerialPortEvent#DATA_AVAILABLE} and {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} events are raised, as
+ * line state changes are not visible without a native library.  While a listener is added, the port is polled every
+ * {@link #EVENT_POLL_INTERVAL} milliseconds from a thread shared by all tty ports.  DATA_AVAILABLE is raised by a
+ * poll which finds that data has arrived since the last, as the other backends raise it when data arrives, rather
+ * than on every poll while data is unread.  OUTPUT_BUFFER_EMPTY is raised on the first poll after a write, by which
+ * time the data has been passed to the driver but may not all have left the UART, so the backend does not declare
+ * {@link serial.SerialBackend.Capability#OUTPUT_BUFFER_EMPTY}.
+ * </p>
+ * @author Alex
+ */
+public class TtySerialPort implements BackendSerialPort {
+//> STATIC CONSTANTS
+	/** 5 data bit format. */
+	public static final int DATABITS_5 = 5;
+	/** 6 data bit format. */
+	public static final int DATABITS_6 = 6;
+	/** 7 data bit format. */
+	public static final int DATABITS_7 = 7;
+	/** 8 data bit format. */
+	public static final int DATABITS_8 = 8;
+	/** Number of STOP bits - 1. */
+	public static final int STOPBITS_1 = 1;
+	/** Number of STOP bits - 2. */
+	public static final int STOPBITS_2 = 2;
+	/** Number of STOP bits - 1-1/2.  Not supported by Linux. */
+	public static final int STOPBITS_1_5 = 3;
+	/** No parity bit. */
+	public static final int PARITY_NONE = 0;
+	/** ODD parity scheme. */
+	public static final int PARITY_ODD = 1;
+	/** EVEN parity scheme. */
+	public static final int PARITY_EVEN = 2;
+	/** MARK parity scheme. */
+	public static final int PARITY_MARK = 3;
+	/** SPACE parity scheme. */
+	public static final int PARITY_SPACE = 4;
+	/** Flow control off. */
+	public static final int FLOWCONTROL_NONE = 0;
+	/** RTS/CTS flow control on input. */
+	public static final int FLOWCONTROL_RTSCTS_IN = 1;
+	/** RTS/CTS flow control on output. */
+	public static final int FLOWCONTROL_RTSCTS_OUT = 2;
+	/** XON/XOFF flow control on input. */
+	public static final int FLOWCONTROL_XONXOFF_IN = 4;
+	/** XON/XOFF flow control on output. */
+	public static final int FLOWCONTROL_XONXOFF_OUT = 8;
+	/** Largest value accepted by termios for <code>VMIN</code> and <code>VTIME</code> */
+	private static final int MAX_TERMIOS_CC = 255;
+	/** Number of milliseconds between polls for events while a listener is added */
+	public static final long EVENT_POLL_INTERVAL = 10;
+	/** Thread shared by all tty ports for polling for events */
+	private static final ScheduledExecutorService EVENT_POLLER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "TtySerialPort-events");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** Settings applied when the port is opened */
+	private static final String[] OPEN_SETTINGS = { "raw", "-echo", "clocal", "9600", "cs8", "-cstopb", "-parenb", "-crtscts", "-ixon", "-ixoff", "min", "1", "time", "0" };
+
+//> INSTANCE PROPERTIES
+	/** Logging object */
+	private final Logger log = Logger.getLogger(this.getClass().getName());
+	/** The identifier which opened this port */
+	private final TtyPortIdentifier identifier;
+	/** The device file, open for reading */
+	private final FileInputStream fileIn;
+	/** The device file, open for writing */
+	private final FileOutputStream fileOut;
+	/** The stream returned by {@link #getInputStream()} */
+	private final InputStream in;
+	/** The stream returned by {@link #getOutputStream()} */
+	private final OutputStream out;
+	/** Receive threshold in bytes, or <code>-1</code> if disabled */
+	private int receiveThreshold = -1;
+	/** Receive timeout in milliseconds, or <code>-1</code> if disabled */
+	private int receiveTimeout = -1;
+	/** Advisory input buffer size */
+	private int inputBufferSize;
+	/** Advisory output buffer size */
+	private int outputBufferSize;
+	/** The event listener, or <code>null</code> if none has been added.  Guarded by <code>this</code>. */
+	private BackendEventListener listener;
+	/** Task polling for events for {@link #listener}, or <code>null</code> if none has been added.  Guarded by <code>this</code>. */
+	private ScheduledFuture<?> eventPoll;
+	/** Set <code>true</code> if {@link SerialPortEvent#DATA_AVAILABLE} events should be raised */
+	private volatile boolean notifyOnDataAvailable;
+	/** Set <code>true</code> if {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} events should be raised */
+	private volatile boolean notifyOnOutputEmpty;
+	/** Set <code>true</code> after each write, and cleared when {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} is raised */
+	private volatile boolean outputWritten;
+	/** Number of bytes available at the last event poll, less those read since.  Only used by the poll. */
+	private int polledAvailable;
+	/** Number of bytes read since the last event poll */
+	private final AtomicInteger readSincePoll = new AtomicInteger();
+	/** Set <code>true</code> when {@link #close()} is called */
+	private volatile boolean closed;
+
+//> CONSTRUCTORS
+	/**
+	 * Opens the device file for the supplied identifier and puts it into raw mode.
+	 * @param identifier value for {@link #identifier}
+	 * @throws IOException if the device file could not be opened
+	 * @throws UnsupportedCommOperationException if the initial settings could not be applied
+	 */
+	TtySerialPort(TtyPortIdentifier identifier) throws IOException, UnsupportedCommOperationException {
+		this.identifier = identifier;
+		// Set CLOCAL before opening, so that open() does not block waiting for carrier detect
+		Stty.apply(identifier.getName(), OPEN_SETTINGS);
+		this.fileIn = new FileInputStream(identifier.getName());
+		try {
+			this.fileOut = new FileOutputStream(identifier.getName());
+		} catch(IOException ex) {
+			this.fileIn.close();
+			throw ex;
+		}
+		this.in = new TtyInputStream();
+		this.out = new TtyOutputStream();
+	}
+
+//> ACCESSORS
+	/** @return the name of the port */
+	public String getName() {
+		return identifier.getName();
+	}
+
+	/** @see BackendSerialPort#getInputStream() */
+	public InputStream getInputStream() throws IOException {
+		checkOpen();
+		return in;
+	}
+
+	/** @see BackendSerialPort#getOutputStream() */
+	public OutputStream getOutputStream() throws IOException {
+		checkOpen();
+		return out;
+	}
+
+	/**
+	 * This backend has no channel of its own, so <code>serial.SerialPort.getChannel()</code> adapts the streams.  The
+	 * device file's {@link java.nio.channels.FileChannel}s are not used, as they are interruptible: interrupting a
+	 * thread blocked in one would close the file descriptor shared with the streams, and so the port.
+	 * @return <code>null</code>
+	 * @see BackendSerialPort#getChannel()
+	 */
+	public SerialChannel getChannel() throws IOException {
+		checkOpen();
+		return null;
+	}
+
+	/** @return <code>true</code> if {@link #close()} has been called */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/** @return {@link #inputBufferSize} */
+	public int getInputBufferSize() {
+		return inputBufferSize;
+	}
+
+	/** @param size new value for {@link #inputBufferSize}; this is advisory and has no effect */
+	public void setInputBufferSize(int size) {
+		this.inputBufferSize = size;
+	}
+
+	/** @return {@link #outputBufferSize} */
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	/** @param size new value for {@link #outputBufferSize}; this is advisory and has no effect */
+	public void setOutputBufferSize(int size) {
+		this.outputBufferSize = size;
+	}
+
+//> CONFIGURATION
+	/**
+	 * Sets the line parameters.
+	 * @param baudrate the baud rate; must be one supported by <code>stty</code>
+	 * @param dataBits one of the <code>DATABITS_</code> constants
+	 * @param stopBits {@link #STOPBITS_1} or {@link #STOPBITS_2}
+	 * @param parity one of the <code>PARITY_</code> constants
+	 * @throws UnsupportedCommOperationException if any of the parameters is not supported
+	 */
+	public void setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) throws UnsupportedCommOperationException {
+		List<String> settings = new ArrayList<String>();
+		settings.add(Integer.toString(baudrate));
+
+		if(dataBits < DATABITS_5 || dataBits > DATABITS_8) throw new UnsupportedCommOperationException("Unsupported data bits: " + dataBits);
+		settings.add("cs" + dataBits);
+
+		if(stopBits == STOPBITS_1) settings.add("-cstopb");
+		else if(stopBits == STOPBITS_2) settings.add("cstopb");
+		else throw new UnsupportedCommOperationException("Unsupported stop bits: " + stopBits);
+
+		switch(parity) {
+			case PARITY_NONE:  add(settings, "-parenb", "-cmspar"); break;
+			case PARITY_ODD:   add(settings, "parenb", "parodd", "-cmspar"); break;
+			case PARITY_EVEN:  add(settings, "parenb", "-parodd", "-cmspar"); break;
+			case PARITY_MARK:  add(settings, "parenb", "parodd", "cmspar"); break;
+			case PARITY_SPACE: add(settings, "parenb", "-parodd", "cmspar"); break;
+			default: throw new UnsupportedCommOperationException("Unsupported parity: " + parity);
+		}
+
+		applySettings(settings);
+	}
+
+	/**
+	 * Sets the flow control mode.
+	 * @param flowcontrol a bitmask of the <code>FLOWCONTROL_</code> constants
+	 * @throws UnsupportedCommOperationException if the settings could not be applied
+	 */
+	public void setFlowControlMode(int flowcontrol) throws UnsupportedCommOperationException {
+		List<String> settings = new ArrayList<String>();
+		// termios has a single flag for RTS/CTS in both directions
+		settings.add((flowcontrol & (FLOWCONTROL_RTSCTS_IN | FLOWCONTROL_RTSCTS_OUT)) != 0 ? "crtscts" : "-crtscts");
+		settings.add((flowcontrol & FLOWCONTROL_XONXOFF_IN) != 0 ? "ixoff" : "-ixoff");
+		settings.add((flowcontrol & FLOWCONTROL_XONXOFF_OUT) != 0 ? "ixon" : "-ixon");
+		applySettings(settings);
+	}
+
+	/**
+	 * Enables the receive threshold, as <code>VMIN</code>.
+	 * @param threshold the number of bytes to wait for, up to 255
+	 * @throws UnsupportedCommOperationException if the threshold is out of range or could not be applied
+	 */
+	public void enableReceiveThreshold(int threshold) throws UnsupportedCommOperationException {
+		if(threshold < 0 || threshold > MAX_TERMIOS_CC) throw new UnsupportedCommOperationException("Unsupported receive threshold: " + threshold);
+		this.receiveThreshold = threshold;
+		applyReadSettings();
+	}
+
+	/** Disables the receive threshold. */
+	public void disableReceiveThreshold() {
+		this.receiveThreshold = -1;
+		try {
+			applyReadSettings();
+		} catch(UnsupportedCommOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/** @return <code>true</code> if the receive threshold is enabled */
+	public boolean isReceiveThresholdEnabled() {
+		return receiveThreshold >= 0;
+	}
+
+	/**
+	 * Enables the receive timeout, as <code>VTIME</code>.
+	 * @param timeout the timeout in milliseconds, up to 25500
+	 * @throws UnsupportedCommOperationException if the timeout is out of range or could not be applied
+	 */
+	public void enableReceiveTimeout(int timeout) throws UnsupportedCommOperationException {
+		if(timeout < 0 || toDeciseconds(timeout) > MAX_TERMIOS_CC) throw new UnsupportedCommOperationException("Unsupported receive timeout: " + timeout);
+		this.receiveTimeout = timeout;
+		applyReadSettings();
+	}
+
+	/** Disables the receive timeout. */
+	public void disableReceiveTimeout() {
+		this.receiveTimeout = -1;
+		try {
+			applyReadSettings();
+		} catch(UnsupportedCommOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/** @return <code>true</code> if the receive timeout is enabled */
+	public boolean isReceiveTimeoutEnabled() {
+		return receiveTimeout >= 0;
+	}
+
+//> EVENTS
+	/**
+	 * Adds the listener, and starts polling for events.
+	 * @see BackendSerialPort#addEventListener(BackendEventListener)
+	 */
+	public synchronized void addEventListener(BackendEventListener listener) throws TooManyListenersException {
+		if(this.listener != null) throw new TooManyListenersException();
+		this.listener = listener;
+		// Data already waiting is reported by the first poll
+		this.polledAvailable = 0;
+		this.readSincePoll.set(0);
+		this.eventPoll = EVENT_POLLER.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				pollEvents();
+			}
+		}, EVENT_POLL_INTERVAL, EVENT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Removes the listener, and stops polling for events.
+	 * @see BackendSerialPort#removeEventListener()
+	 */
+	public synchronized void removeEventListener() {
+		if(eventPoll != null) eventPoll.cancel(false);
+		eventPoll = null;
+		listener = null;
+	}
+
+	/**
+	 * Enables or disables {@link SerialPortEvent#DATA_AVAILABLE} and {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY}.
+	 * Other event types are never raised, so are ignored.
+	 * @see BackendSerialPort#setNotification(int, boolean)
+	 */
+	public void setNotification(int eventType, boolean enable) {
+		if(eventType == SerialPortEvent.DATA_AVAILABLE) notifyOnDataAvailable = enable;
+		else if(eventType == SerialPortEvent.OUTPUT_BUFFER_EMPTY) notifyOnOutputEmpty = enable;
+	}
+
+	/** Records that data has been written, so that {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY} is raised on the next poll. */
+	private void markOutputWritten() {
+		outputWritten = true;
+	}
+
+//> LIFECYCLE
+	/**
+	 * Closes the device file and releases ownership of the port.
+	 * @see BackendSerialPort#close()
+	 */
+	public void close() {
+		if(closed) return;
+		closed = true;
+		removeEventListener();
+		try {
+			fileIn.close();
+		} catch(IOException ex) {
+			// Nothing more we can do
+		}
+		try {
+			fileOut.close();
+		} catch(IOException ex) {
+			// Nothing more we can do
+		}
+		identifier.release();
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Raises the events due since the last poll.  Called every {@link #EVENT_POLL_INTERVAL} milliseconds while a
+	 * listener is added.
+	 */
+	private void pollEvents() {
+		BackendEventListener listener;
+		synchronized(this) {
+			listener = this.listener;
+		}
+		if(listener == null || closed) return;
+		try {
+			// Data has arrived if more is available than was left unread after the last poll
+			int available = fileIn.available();
+			int expected = polledAvailable - readSincePoll.getAndSet(0);
+			polledAvailable = available;
+			if(notifyOnDataAvailable && available > expected) {
+				listener.serialEvent(SerialPortEvent.DATA_AVAILABLE, false, true);
+			}
+			if(notifyOnOutputEmpty && outputWritten) {
+				outputWritten = false;
+				listener.serialEvent(SerialPortEvent.OUTPUT_BUFFER_EMPTY, false, true);
+			}
+		} catch(IOException ex) {
+			// The port is being closed; the poll is cancelled by close()
+		} catch(RuntimeException ex) {
+			log.warn("Event listener threw an exception; continuing.", ex);
+		}
+	}
+
+	/**
+	 * Applies {@link #receiveThreshold} and {@link #receiveTimeout} as <code>VMIN</code> and <code>VTIME</code>.
+	 * With neither enabled, reads block until at least one byte is available.
+	 * @throws UnsupportedCommOperationException if the settings could not be applied
+	 */
+	private void applyReadSettings() throws UnsupportedCommOperationException {
+		int vmin;
+		if(receiveThreshold >= 0) vmin = receiveThreshold;
+		else vmin = receiveTimeout >= 0 ? 0 : 1;
+		int vtime = receiveTimeout >= 0 ? toDeciseconds(receiveTimeout) : 0;
+		Stty.apply(identifier.getName(), "min", Integer.toString(vmin), "time", Integer.toString(vtime));
+	}
+
+	/**
+	 * @param settings settings to apply with <code>stty</code>
+	 * @throws UnsupportedCommOperationException if the settings could not be applied
+	 */
+	private void applySettings(List<String> settings) throws UnsupportedCommOperationException {
+		Stty.apply(identifier.getName(), settings.toArray(new String[settings.size()]));
+	}
+
+	/** @throws IOException if this port has been closed */
+	private void checkOpen() throws IOException {
+		if(closed) throw new IOException("Port closed: " + identifier.getName());
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param list list to add to
+	 * @param values values to add
+	 */
+	private static void add(List<String> list, String... values) {
+		for(String value : values) list.add(value);
+	}
+
+	/**
+	 * @param millis a duration in milliseconds
+	 * @return the duration in tenths of a second, rounded up
+	 */
+	private static int toDeciseconds(int millis) {
+		return (millis + 99) / 100;
+	}
+
+//> INNER CLASSES
+	/**
+	 * Input stream over {@link TtySerialPort#fileIn}.  A <code>read()</code> of the device file which returns no data
+	 * because <code>VTIME</code> expired is reported by {@link FileInputStream} as end of stream.  Unless the port has
+	 * been closed, this stream reports it as a read of 0 bytes instead, as the other backends do, or from
+	 * {@link #read()}, which has no way to return 0 bytes, as an {@link InterruptedIOException}.
+	 */
+	private class TtyInputStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			if(closed) return -1;
+			int b = fileIn.read();
+			if(b == -1 && !closed) throw new InterruptedIOException("Receive timeout expired: " + getName());
+			if(b != -1) readSincePoll.incrementAndGet();
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(closed) return -1;
+			int count = fileIn.read(b, off, len);
+			if(count == -1 && !closed) return 0;
+			if(count > 0) readSincePoll.addAndGet(count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return fileIn.available();
+		}
+
+		@Override
+		public void close() {
+			TtySerialPort.this.close();
+		}
+	}
+
+	/**
+	 * Output stream over {@link TtySerialPort#fileOut}, which records each write for
+	 * {@link SerialPortEvent#OUTPUT_BUFFER_EMPTY}.
+	 */
+	private class TtyOutputStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			fileOut.write(b);
+			markOutputWritten();
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			fileOut.write(b, off, len);
+			markOutputWritten();
+		}
+
+		@Override
+		public void close() {
+			TtySerialPort.this.close();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+# Helper for serial.tty.PtyBridge.  Creates pairs of pseudo-terminals and copies bytes between the masters of each
+# pair, so that whatever is written to one slave can be read from the other.  Prints one line per pair giving the two
+# slave device names, then an empty line.  Exits when its standard input is closed.
+import errno, os, pty, resource, select, sys, tty
+
+count = int(sys.argv[1])
+
+# Each pair needs four descriptors, so raise the soft limit as far as allowed
+soft, hard = resource.getrlimit(resource.RLIMIT_NOFILE)
+wanted = 4 * count + 64
+if soft != resource.RLIM_INFINITY and soft < wanted:
+    limit = wanted if hard == resource.RLIM_INFINITY else min(wanted, hard)
+    resource.setrlimit(resource.RLIMIT_NOFILE, (limit, hard))
+
+peer = {}
+pending = {}
+slaves = []
+lines = []
+for i in range(count):
+    ends = []
+    for j in range(2):
+        master, slave = pty.openpty()
+        tty.setraw(slave)
+        os.set_blocking(master, False)
+        # The slave stays open here, so the master never sees a hangup while ports are reopened
+        slaves.append(slave)
+        ends.append((master, os.ttyname(slave)))
+    (master_a, name_a), (master_b, name_b) = ends
+    peer[master_a] = master_b
+    peer[master_b] = master_a
+    pending[master_a] = b''
+    pending[master_b] = b''
+    lines.append(name_a + ' ' + name_b + '\n')
+sys.stdout.write(''.join(lines) + '\n')
+sys.stdout.flush()
+
+poller = select.poll()
+poller.register(0, select.POLLIN)
+
+def update(fd):
+    # Read a master only while its peer has nothing waiting to be written, and ask to write while it has
+    mask = 0 if pending[peer[fd]] else select.POLLIN
+    if pending[fd]:
+        mask |= select.POLLOUT
+    poller.register(fd, mask)
+
+def write_pending(fd):
+    try:
+        written = os.write(fd, pending[fd])
+    except OSError as ex:
+        if ex.errno != errno.EAGAIN:
+            raise
+        written = 0
+    pending[fd] = pending[fd][written:]
+
+for master in peer:
+    update(master)
+
+while True:
+    for fd, event in poller.poll():
+        if fd == 0:
+            if not os.read(0, 4096):
+                sys.exit(0)
+            continue
+        if event & select.POLLOUT:
+            write_pending(fd)
+        if event & select.POLLIN:
+            try:
+                data = os.read(fd, 65536)
+            except OSError:
+                data = b''
+            pending[peer[fd]] += data
+            write_pending(peer[fd])
+        update(fd)
+        update(peer[fd])
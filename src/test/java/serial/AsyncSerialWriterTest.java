@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package serial;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import serial.loopback.LoopbackSerialBackend;
+import serial.loopback.VirtualPort;
+import serial.loopback.VirtualPorts;
+
+/**
+ * Unit tests for {@link AsyncSerialWriter}, on the loopback backend.
+ * @author Alex
+ */
+public class AsyncSerialWriterTest {
+//> STATIC CONSTANTS
+	/** Name of the virtual port written to */
+	private static final String PORT_NAME = "AsyncSerialWriterTest";
+	/** Number of seconds to wait for a write to complete */
+	private static final long WRITE_TIMEOUT = 2;
+
+//> INSTANCE PROPERTIES
+	/** The device end of the virtual port */
+	private VirtualPort device;
+	/** The port under test */
+	private SerialPort port;
+	/** The writer under test */
+	private AsyncSerialWriter writer;
+
+//> SETUP METHODS
+	@Before
+	public void setUp() throws Exception {
+		// The loopback backend is only available once a virtual port exists
+		device = VirtualPorts.create(PORT_NAME).getPeer();
+		SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK);
+		port = CommPortIdentifier.getPortIdentifier(PORT_NAME).open(getClass().getName(), 0);
+		writer = port.getAsyncWriter();
+	}
+
+	@After
+	public void tearDown() {
+		if(port != null) port.close();
+		VirtualPorts.remove(PORT_NAME);
+	}
+
+//> TEST METHODS
+	/** By default a write completes once its bytes are passed to the driver. */
+	@Test
+	public void testWrite() throws Exception {
+		Future<Integer> future = writer.writeAsync(ByteBuffer.wrap(bytes("hello")));
+		assertEquals(Integer.valueOf(5), future.get(WRITE_TIMEOUT, TimeUnit.SECONDS));
+		assertArrayEquals(bytes("hello"), read(device.getInputStream(), 5));
+	}
+
+	/** The loopback backend raises OUTPUT_BUFFER_EMPTY on the writing thread, during the write it is for. */
+	@Test
+	public void testCompleteOnOutputEmpty() throws Exception {
+		writer.setCompleteOnOutputEmpty(true);
+		Future<Integer> future = writer.writeAsync(ByteBuffer.wrap(bytes("hello")));
+		assertEquals(Integer.valueOf(5), future.get(WRITE_TIMEOUT, TimeUnit.SECONDS));
+		future = writer.writeAsync(ByteBuffer.wrap(bytes("world")));
+		assertEquals(Integer.valueOf(5), future.get(WRITE_TIMEOUT, TimeUnit.SECONDS));
+		assertArrayEquals(bytes("helloworld"), read(device.getInputStream(), 10));
+	}
+
+	/** A write which would take the queue past its limit fails without being queued. */
+	@Test
+	public void testQueueLimit() throws Exception {
+		writer.setMaxQueuedBytes(4);
+		Future<Integer> future = writer.writeAsync(ByteBuffer.wrap(bytes("hello")));
+		assertTrue(future.isDone());
+		try {
+			future.get();
+			fail("Write past the queue limit should fail.");
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IOException);
+		}
+		assertEquals(0, writer.getQueuedBytes());
+		assertEquals(Integer.valueOf(4), writer.writeAsync(ByteBuffer.wrap(bytes("four"))).get(WRITE_TIMEOUT, TimeUnit.SECONDS));
+	}
+
+	/** Writes fail once the writer is closed. */
+	@Test
+	public void testClosed() throws Exception {
+		writer.close();
+		try {
+			writer.writeAsync(ByteBuffer.wrap(bytes("hello"))).get();
+			fail("Write after close should fail.");
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IOException);
+		}
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param text ASCII text
+	 * @return the bytes of the text
+	 */
+	private static byte[] bytes(String text) {
+		try {
+			return text.getBytes("US-ASCII");
+		} catch(IOException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Reads an exact number of bytes.
+	 * @param in the stream to read from
+	 * @param length the number of bytes to read
+	 * @return the bytes read
+	 * @throws IOException if the stream ended first or failed
+	 */
+	private static byte[] read(InputStream in, int length) throws IOException {
+		byte[] b = new byte[length];
+		int off = 0;
+		while(off < length) {
+			int read = in.read(b, off, length - off);
+			if(read < 0) throw new IOException("End of stream after " + off + " bytes.");
+			off += read;
+		}
+		return b;
+	}
+}
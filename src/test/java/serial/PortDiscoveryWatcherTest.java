@@ -0,0 +1,229 @@
+/**
+ *
+ */
+package serial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PortDiscoveryWatcher}, against a fake sysfs tree.
+ * @author Alex
+ */
+public class PortDiscoveryWatcherTest {
+//> STATIC CONSTANTS
+	/** Poll interval of the watchers under test */
+	private static final long POLL_INTERVAL = 5;
+	/** Number of seconds to wait for an event */
+	private static final long EVENT_TIMEOUT = 3;
+
+//> INSTANCE PROPERTIES
+	/** Root of the fake tree */
+	private File root;
+	/** The fake sysfs tty class directory */
+	private File sysfsTtyDirectory;
+	/** The fake device directory */
+	private File devDirectory;
+	/** The watcher under test */
+	private PortDiscoveryWatcher watcher;
+	/** Events received from {@link #watcher} */
+	private final BlockingQueue<PortDiscoveryEvent> events = new LinkedBlockingQueue<PortDiscoveryEvent>();
+
+//> SETUP METHODS
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("PortDiscoveryWatcherTest", "");
+		root.delete();
+		sysfsTtyDirectory = new File(root, "sys/class/tty");
+		devDirectory = new File(root, "dev");
+		mkdirs(sysfsTtyDirectory);
+		mkdirs(devDirectory);
+		watcher = new PortDiscoveryWatcher(sysfsTtyDirectory, devDirectory, POLL_INTERVAL);
+		watcher.addListener(new PortDiscoveryListener() {
+			public void portDiscoveryEvent(PortDiscoveryEvent event) {
+				events.add(event);
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		watcher.stop();
+		delete(root);
+	}
+
+//> TEST METHODS
+	/** Ports present at start are listed, but not reported; virtual ttys without a device are ignored. */
+	@Test
+	public void testInitialScan() throws Exception {
+		addTty("ttyS0", false);
+		addTty("ttyUSB0", true);
+		makeOld(devDirectory);
+		watcher.start();
+		assertEquals(1, watcher.getPortNames().size());
+		assertTrue(watcher.getPortNames().contains(new File(devDirectory, "ttyUSB0").getPath()));
+		assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	/** A port which appears is reported with its USB device, and one which goes is reported as removed. */
+	@Test
+	public void testAddAndRemove() throws Exception {
+		makeOld(devDirectory);
+		watcher.start();
+
+		File tty = addUsbTty("ttyUSB0", "0403", "6001", "A1B2C3");
+		PortDiscoveryEvent event = nextEvent();
+		assertEquals(PortDiscoveryEvent.PORT_ADDED, event.getEventType());
+		assertEquals(new File(devDirectory, "ttyUSB0").getPath(), event.getPortName());
+		assertNotNull(event.getUsbDevice());
+		assertEquals("0403", event.getUsbDevice().getVendorId());
+		assertEquals("6001", event.getUsbDevice().getProductId());
+		assertEquals("A1B2C3", event.getUsbDevice().getSerialNumber());
+
+		delete(tty);
+		new File(devDirectory, "ttyUSB0").delete();
+		event = nextEvent();
+		assertEquals(PortDiscoveryEvent.PORT_REMOVED, event.getEventType());
+		assertEquals("A1B2C3", event.getUsbDevice().getSerialNumber());
+		assertEquals(0, watcher.getPortNames().size());
+	}
+
+	/**
+	 * Two ports of a hub which appear within the same second are both reported, although the device directory's
+	 * modification time, at a resolution of a second, is the same after each.
+	 */
+	@Test
+	public void testTwoPortsInOneSecond() throws Exception {
+		makeOld(devDirectory);
+		watcher.start();
+		long stamp = System.currentTimeMillis();
+
+		addUsbTty("ttyUSB0", "0403", "6010", "HUB");
+		devDirectory.setLastModified(stamp);
+		assertEquals(new File(devDirectory, "ttyUSB0").getPath(), nextEvent().getPortName());
+
+		addUsbTty("ttyUSB1", "0403", "6010", "HUB");
+		devDirectory.setLastModified(stamp);
+		assertEquals(new File(devDirectory, "ttyUSB1").getPath(), nextEvent().getPortName());
+	}
+
+	/**
+	 * A tty which gains its device within a second of the last change is reported, although neither the stamps nor
+	 * the number of sysfs entries change.
+	 */
+	@Test
+	public void testDeviceLinkWithinOneSecond() throws Exception {
+		File console = addTty("ttyS1", false);
+		makeOld(devDirectory);
+		watcher.start();
+		long stamp = System.currentTimeMillis();
+
+		addTty("ttyUSB0", true);
+		devDirectory.setLastModified(stamp);
+		assertEquals(new File(devDirectory, "ttyUSB0").getPath(), nextEvent().getPortName());
+
+		mkdirs(new File(console, "device"));
+		devDirectory.setLastModified(stamp);
+		PortDiscoveryEvent event = nextEvent();
+		assertEquals(PortDiscoveryEvent.PORT_ADDED, event.getEventType());
+		assertEquals(new File(devDirectory, "ttyS1").getPath(), event.getPortName());
+	}
+
+//> INSTANCE HELPER METHODS
+	/** @return the next event, failing if none arrives within {@link #EVENT_TIMEOUT} seconds */
+	private PortDiscoveryEvent nextEvent() throws InterruptedException {
+		PortDiscoveryEvent event = events.poll(EVENT_TIMEOUT, TimeUnit.SECONDS);
+		assertNotNull("No event received.", event);
+		return event;
+	}
+
+	/**
+	 * Adds a tty to the fake sysfs tree, and its device file.
+	 * @param name the name of the tty
+	 * @param withDevice <code>true</code> to give it a <code>device</code> directory, as hardware ttys have
+	 * @return the tty's sysfs directory
+	 */
+	private File addTty(String name, boolean withDevice) throws IOException {
+		File staged = new File(root, name);
+		mkdirs(withDevice ? new File(staged, "device") : staged);
+		return install(staged);
+	}
+
+	/**
+	 * Adds a tty whose device has USB device attributes, as a USB serial adapter's does.  Real sysfs links the device to
+	 * a USB interface below the USB device; here the attributes are on the device itself, the first place searched.
+	 * @param name the name of the tty
+	 * @param vendorId the USB vendor ID
+	 * @param productId the USB product ID
+	 * @param serialNumber the USB serial number
+	 * @return the tty's sysfs directory
+	 */
+	private File addUsbTty(String name, String vendorId, String productId, String serialNumber) throws IOException {
+		File staged = new File(root, name);
+		File device = new File(staged, "device");
+		mkdirs(device);
+		write(new File(device, "idVendor"), vendorId + "\n");
+		write(new File(device, "idProduct"), productId + "\n");
+		write(new File(device, "serial"), serialNumber + "\n");
+		return install(staged);
+	}
+
+	/**
+	 * Moves a tty built outside the fake sysfs tree into it in one step, so that the watcher never sees it half built,
+	 * and creates its device file.
+	 * @param staged the tty's directory, outside the tree
+	 * @return the tty's sysfs directory
+	 */
+	private File install(File staged) throws IOException {
+		File tty = new File(sysfsTtyDirectory, staged.getName());
+		if(!staged.renameTo(tty)) throw new IOException("Could not move " + staged + " to " + tty);
+		write(new File(devDirectory, tty.getName()), "");
+		return tty;
+	}
+
+//> STATIC HELPER METHODS
+	/** @param file a file whose modification time is set well in the past */
+	private static void makeOld(File file) {
+		file.setLastModified(System.currentTimeMillis() - 60000);
+	}
+
+	/** @param directory a directory to create, with its parents */
+	private static void mkdirs(File directory) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+	}
+
+	/**
+	 * @param file the file to write
+	 * @param text the text to write to it
+	 */
+	private static void write(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	/** @param file a file or directory to delete, with its contents */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) delete(child);
+		}
+		file.delete();
+	}
+}
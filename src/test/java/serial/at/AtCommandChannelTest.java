@@ -0,0 +1,219 @@
+/**
+ *
+ */
+package serial.at;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import serial.CommPortIdentifier;
+import serial.SerialClassFactory;
+import serial.SerialPort;
+import serial.loopback.LoopbackSerialBackend;
+import serial.loopback.VirtualPort;
+import serial.loopback.VirtualPorts;
+
+/**
+ * Unit tests for {@link AtCommandChannel}, against a modem scripted by the test on the loopback backend.
+ * @author Alex
+ */
+public class AtCommandChannelTest {
+//> STATIC CONSTANTS
+	/** Name of the virtual port the modem is attached to */
+	private static final String PORT_NAME = "AtCommandChannelTest";
+	/** Number of milliseconds to wait for a command or response */
+	private static final long TIMEOUT = 2000;
+	/** Command timeout of the channel in the timeout tests, in milliseconds */
+	private static final long COMMAND_TIMEOUT = 200;
+
+//> INSTANCE PROPERTIES
+	/** The modem end of the virtual port */
+	private VirtualPort modem;
+	/** Stream of the commands sent to {@link #modem} */
+	private InputStream modemIn;
+	/** The port the channel is opened on */
+	private SerialPort port;
+	/** The channel under test */
+	private AtCommandChannel channel;
+	/** Unsolicited result codes received from {@link #channel} */
+	private final BlockingQueue<AtUnsolicitedResult> unsolicited = new LinkedBlockingQueue<AtUnsolicitedResult>();
+
+//> SETUP METHODS
+	@Before
+	public void setUp() throws Exception {
+		// The loopback backend is only available once a virtual port exists
+		modem = VirtualPorts.create(PORT_NAME).getPeer();
+		modemIn = modem.getInputStream();
+		SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK);
+		port = CommPortIdentifier.getPortIdentifier(PORT_NAME).open(getClass().getName(), 0);
+		channel = new AtCommandChannel(port);
+		channel.addUnsolicitedListener(new AtUnsolicitedListener() {
+			public void unsolicitedResult(AtCommandChannel source, AtUnsolicitedResult result) {
+				unsolicited.add(result);
+			}
+		});
+		channel.start();
+	}
+
+	@After
+	public void tearDown() {
+		if(channel != null) channel.close();
+		if(port != null) port.close();
+		VirtualPorts.remove(PORT_NAME);
+	}
+
+//> TEST METHODS
+	/** Commands are written without waiting for earlier responses, and each final result code completes the oldest. */
+	@Test
+	public void testPipelining() throws Exception {
+		Future<AtResponse> first = channel.send("AT+CGMI");
+		Future<AtResponse> second = channel.send("AT+CGMM");
+		assertEquals("AT+CGMI", readCommand());
+		assertEquals("AT+CGMM", readCommand());
+		// The second command's echo arrives amid the first command's response
+		respond("AT+CGMI\r\r\nACME\r\nAT+CGMM\r\r\nOK\r\n\r\nModem 1\r\n\r\nOK\r\n");
+		assertResponse(first, "OK", "ACME");
+		assertResponse(second, "OK", "Modem 1");
+		assertNull(unsolicited.poll());
+	}
+
+	/** An unsolicited result code prefix is a response if it names the command in flight. */
+	@Test
+	public void testUnsolicitedDuringCommand() throws Exception {
+		Future<AtResponse> response = channel.send("AT+CREG?");
+		assertEquals("AT+CREG?", readCommand());
+		respond("AT+CREG?\r\r\nRING\r\n+CREG: 0,1\r\n\r\nOK\r\n");
+		assertResponse(response, "OK", "+CREG: 0,1");
+		AtUnsolicitedResult result = unsolicited.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertEquals("RING", result.getLine());
+		respond("\r\n+CREG: 0,5\r\n");
+		assertEquals("+CREG: 0,5", unsolicited.poll(TIMEOUT, TimeUnit.MILLISECONDS).getLine());
+	}
+
+	/** A late final result code of a command which timed out is not taken for the resync command's answer. */
+	@Test
+	public void testLateResponseAfterTimeout() throws Exception {
+		channel.setCommandTimeout(COMMAND_TIMEOUT);
+		Future<AtResponse> slow = channel.send("AT+X");
+		assertEquals("AT+X", readCommand());
+		respond("AT+X\r\r\n");
+		assertTimedOut(slow);
+
+		Future<AtResponse> next = channel.send("AT+CSQ");
+		assertEquals("AT", readCommand());
+		respond("\r\nOK\r\n");
+		respond("AT\r\r\nOK\r\n");
+		assertEquals("AT+CSQ", readCommand());
+		respond("AT+CSQ\r\r\n+CSQ: 20,99\r\n\r\nOK\r\n");
+		assertResponse(next, "OK", "+CSQ: 20,99");
+		assertNull(unsolicited.poll());
+	}
+
+	/** Without echo, the resync command's final result code is accepted as it arrives. */
+	@Test
+	public void testTimeoutWithoutEcho() throws Exception {
+		channel.setCommandTimeout(COMMAND_TIMEOUT);
+		Future<AtResponse> ok = channel.send("AT");
+		assertEquals("AT", readCommand());
+		respond("\r\nOK\r\n");
+		assertResponse(ok, "OK");
+
+		Future<AtResponse> slow = channel.send("AT+X");
+		assertEquals("AT+X", readCommand());
+		assertTimedOut(slow);
+		Future<AtResponse> next = channel.send("AT+CSQ");
+		assertEquals("AT", readCommand());
+		respond("\r\nOK\r\n");
+		assertEquals("AT+CSQ", readCommand());
+		respond("\r\n+CSQ: 20,99\r\n\r\nOK\r\n");
+		assertResponse(next, "OK", "+CSQ: 20,99");
+	}
+
+	/** If the modem does not answer the resync command either, the commands waiting to be written fail. */
+	@Test
+	public void testModemNotResponding() throws Exception {
+		channel.setCommandTimeout(COMMAND_TIMEOUT);
+		Future<AtResponse> slow = channel.send("AT+X");
+		assertEquals("AT+X", readCommand());
+		assertTimedOut(slow);
+		Future<AtResponse> next = channel.send("AT+CSQ");
+		assertEquals("AT", readCommand());
+		assertTimedOut(next);
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Reads the next command sent to the modem.
+	 * @return the command, without its carriage return
+	 * @throws IOException if reading failed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private String readCommand() throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		StringBuilder command = new StringBuilder();
+		while(true) {
+			if(modemIn.available() > 0) {
+				int b = modemIn.read();
+				if(b == '\r') return command.toString();
+				command.append((char) b);
+			} else if(System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			} else {
+				fail("No command received; so far: " + command);
+			}
+		}
+	}
+
+	/**
+	 * Sends text from the modem.
+	 * @param text the text
+	 * @throws IOException if writing failed
+	 */
+	private void respond(String text) throws IOException {
+		modem.getOutputStream().write(text.getBytes("ISO-8859-1"));
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Checks a command's response.
+	 * @param response the future of the response
+	 * @param finalResult the expected final result code
+	 * @param lines the expected information text
+	 * @throws Exception if the command failed or did not complete in time
+	 */
+	private static void assertResponse(Future<AtResponse> response, String finalResult, String... lines) throws Exception {
+		AtResponse actual = response.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertEquals(finalResult, actual.getFinalResult());
+		assertEquals(Arrays.asList(lines), actual.getLines());
+	}
+
+	/**
+	 * Checks that a command timed out.
+	 * @param response the future of the response
+	 * @throws Exception if the command did not complete in time
+	 */
+	private static void assertTimedOut(Future<AtResponse> response) throws Exception {
+		try {
+			response.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			fail("Command should have timed out.");
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof TimeoutException);
+		}
+	}
+}
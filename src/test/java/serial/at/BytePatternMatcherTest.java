@@ -0,0 +1,167 @@
+/**
+ *
+ */
+package serial.at;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import serial.RingBufferInputStream;
+
+/**
+ * Unit tests for {@link BytePatternSet} and {@link BytePatternMatcher}.
+ * @author Alex
+ */
+public class BytePatternMatcherTest {
+//> TEST METHODS
+	/** A single pattern is found wherever it occurs, with its offsets. */
+	@Test
+	public void testSinglePattern() {
+		Recorder recorder = new Recorder();
+		new BytePatternMatcher(BytePatternSet.compile("OK"), recorder).scan(bytes("xOKyyOK"), 0, 7);
+		assertEquals("[0:1-3, 0:5-7]", recorder.toString());
+	}
+
+	/** Overlapping patterns, and patterns which are suffixes of others, are all reported, in the order they end. */
+	@Test
+	public void testOverlappingPatterns() {
+		Recorder recorder = new Recorder();
+		BytePatternSet patterns = BytePatternSet.compile("he", "she", "his", "hers");
+		new BytePatternMatcher(patterns, recorder).scan(bytes("ushers"), 0, 6);
+		assertEquals("[1:1-4, 0:2-4, 3:2-6]", recorder.toString());
+	}
+
+	/** Failure transitions resume matching inside a partial match which turned out wrong. */
+	@Test
+	public void testFailureTransitions() {
+		Recorder recorder = new Recorder();
+		BytePatternSet patterns = BytePatternSet.compile("+CMTI:", "\r\n+CMT:");
+		new BytePatternMatcher(patterns, recorder).scan(bytes("+CM+CMTI:\r\n+CMT:"), 0, 16);
+		assertEquals("[0:3-9, 1:9-16]", recorder.toString());
+	}
+
+	/** A match split across scans is found, with a start offset before the second region. */
+	@Test
+	public void testMatchSplitAcrossScans() {
+		Recorder recorder = new Recorder();
+		BytePatternMatcher matcher = new BytePatternMatcher(BytePatternSet.compile("RING"), recorder);
+		byte[] b = bytes("xxRIyyNG");
+		matcher.scan(b, 2, 2);
+		assertEquals("[]", recorder.toString());
+		matcher.scan(b, 6, 2);
+		assertEquals("[0:-2-2]", recorder.toString());
+
+		matcher.scan(bytes("R"), 0, 1);
+		matcher.scan(bytes("IN"), 0, 2);
+		matcher.scan(bytes("G\r\n"), 0, 3);
+		assertEquals("[0:-2-2, 0:-3-1]", recorder.toString());
+	}
+
+	/** {@link BytePatternMatcher#reset()} forgets a partial match. */
+	@Test
+	public void testReset() {
+		Recorder recorder = new Recorder();
+		BytePatternMatcher matcher = new BytePatternMatcher(BytePatternSet.compile("OK"), recorder);
+		matcher.scan(bytes("O"), 0, 1);
+		matcher.reset();
+		matcher.scan(bytes("K"), 0, 1);
+		assertEquals("[]", recorder.toString());
+	}
+
+	/** Replacing the patterns restarts matching from the next scan. */
+	@Test
+	public void testSetPatterns() {
+		Recorder recorder = new Recorder();
+		BytePatternMatcher matcher = new BytePatternMatcher(BytePatternSet.compile("ERROR"), recorder);
+		matcher.scan(bytes("ERR"), 0, 3);
+		matcher.setPatterns(BytePatternSet.compile("ERROR", "OR"));
+		matcher.scan(bytes("OR"), 0, 2);
+		assertEquals("[1:0-2]", recorder.toString());
+	}
+
+	/** All byte values can be matched, not only ASCII. */
+	@Test
+	public void testHighBytes() {
+		Recorder recorder = new Recorder();
+		byte[] pattern = { (byte) 0xFF, 0x00, (byte) 0x80 };
+		new BytePatternMatcher(BytePatternSet.compile(pattern), recorder).scan(new byte[] { (byte) 0xFF, (byte) 0xFF, 0x00, (byte) 0x80 }, 0, 4);
+		assertEquals("[0:1-4]", recorder.toString());
+	}
+
+	/** Where the same pattern is given twice, the first index is reported. */
+	@Test
+	public void testDuplicatePatterns() {
+		Recorder recorder = new Recorder();
+		BytePatternSet patterns = BytePatternSet.compile("OK", "OK");
+		assertEquals(2, patterns.size());
+		assertEquals(2, patterns.getMaxLength());
+		new BytePatternMatcher(patterns, recorder).scan(bytes("OK"), 0, 2);
+		assertEquals("[0:0-2]", recorder.toString());
+	}
+
+	/** Buffered bytes of a {@link RingBufferInputStream} are scanned in place, including across its wrap. */
+	@Test
+	public void testScanRingBuffer() throws IOException {
+		RingBufferInputStream in = new RingBufferInputStream(new ByteArrayInputStream(bytes("abcdef\r\nOK\r\n")), 8);
+		in.fill();
+		in.skip(6);
+		in.fill();
+		assertEquals(6, in.getBufferedCount());
+
+		Recorder recorder = new Recorder();
+		new BytePatternMatcher(BytePatternSet.compile("OK\r\n", "\r\n"), recorder).scan(in, 0, in.getBufferedCount());
+		assertEquals("[1:0-2, 0:2-6, 1:4-6]", recorder.toString());
+		assertEquals(6, in.getBufferedCount());
+	}
+
+	/** Empty patterns are rejected. */
+	@Test(expected=IllegalArgumentException.class)
+	public void testEmptyPattern() {
+		BytePatternSet.compile("OK", "");
+	}
+
+	/** Region bounds outside the array are rejected. */
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testBadRegion() {
+		new BytePatternMatcher(BytePatternSet.compile("OK"), new Recorder()).scan(new byte[4], 2, 3);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * @param text some ASCII text
+	 * @return the bytes of the text
+	 */
+	private static byte[] bytes(String text) {
+		try {
+			return text.getBytes("ISO-8859-1");
+		} catch(UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+//> INNER CLASSES
+	/**
+	 * {@link BytePatternListener} which records each match as <code>index:start-end</code>.
+	 */
+	private static final class Recorder implements BytePatternListener {
+		/** The matches reported */
+		private final List<String> matches = new ArrayList<String>();
+
+		/** @see BytePatternListener#patternMatched(BytePatternSet, int, int, int) */
+		public void patternMatched(BytePatternSet patterns, int patternIndex, int startOffset, int endOffset) {
+			matches.add(patternIndex + ":" + startOffset + "-" + endOffset);
+		}
+
+		@Override
+		public String toString() {
+			return matches.toString();
+		}
+	}
+}
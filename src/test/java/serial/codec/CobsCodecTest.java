@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package serial.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static serial.codec.CollectingFrameSink.concat;
+import static serial.codec.CollectingFrameSink.decode;
+import static serial.codec.CollectingFrameSink.decodeBytewise;
+import static serial.codec.CollectingFrameSink.encode;
+import static serial.codec.CollectingFrameSink.nonZeroBytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CobsCodec}.
+ * @author Alex
+ */
+public class CobsCodecTest {
+//> STATIC CONSTANTS
+	/** Maximum frame length of the codecs under test */
+	private static final int MAX_FRAME_LENGTH = 1024;
+
+//> TEST METHODS
+	/** An empty frame is encoded as a single empty block, and decoded from that. */
+	@Test
+	public void testEmptyFrame() throws IOException {
+		byte[] encoded = encode(new CobsCodec(MAX_FRAME_LENGTH), new byte[0]);
+		assertArrayEquals(new byte[] { 0x01, 0x00 }, encoded);
+
+		List<byte[]> frames = decode(new CobsCodec(MAX_FRAME_LENGTH), encoded);
+		assertEquals(1, frames.size());
+		assertEquals(0, frames.get(0).length);
+	}
+
+	/** Delimiters between frames are not empty frames. */
+	@Test
+	public void testRepeatedDelimitersIgnored() throws IOException {
+		List<byte[]> frames = decode(new CobsCodec(MAX_FRAME_LENGTH), new byte[] { 0x00, 0x00, 0x02, 0x11, 0x00, 0x00, 0x00 });
+		assertEquals(1, frames.size());
+		assertArrayEquals(new byte[] { 0x11 }, frames.get(0));
+	}
+
+	/** Zero bytes become block boundaries, including leading and trailing zeros. */
+	@Test
+	public void testZeros() throws IOException {
+		byte[] frame = { 0x00, 0x11, 0x00, 0x00, 0x22, 0x00 };
+		byte[] encoded = encode(new CobsCodec(MAX_FRAME_LENGTH), frame);
+		assertArrayEquals(new byte[] { 0x01, 0x02, 0x11, 0x01, 0x02, 0x22, 0x01, 0x00 }, encoded);
+		assertRoundTrip(frame);
+	}
+
+	/** A frame of exactly one full block has no empty block after it. */
+	@Test
+	public void testFullBlockFrameIsCanonical() throws IOException {
+		byte[] frame = nonZeroBytes(254, 1);
+		byte[] encoded = encode(new CobsCodec(MAX_FRAME_LENGTH), frame);
+		assertArrayEquals(concat(new byte[] { (byte) 0xFF }, frame, new byte[] { 0x00 }), encoded);
+		assertRoundTrip(frame);
+	}
+
+	/** Frames ending on later block boundaries have no empty block after them either. */
+	@Test
+	public void testMultipleFullBlocks() throws IOException {
+		byte[] frame = nonZeroBytes(2 * 254, 7);
+		byte[] encoded = encode(new CobsCodec(MAX_FRAME_LENGTH), frame);
+		assertEquals(2 + 2 * 254 + 1, encoded.length);
+		assertEquals((byte) 0xFF, encoded[0]);
+		assertEquals((byte) 0xFF, encoded[255]);
+		assertEquals(0x00, encoded[encoded.length - 1]);
+		assertRoundTrip(frame);
+	}
+
+	/** A full block followed by more data, or by a zero, starts a new block. */
+	@Test
+	public void testFullBlockFollowedByData() throws IOException {
+		byte[] block = nonZeroBytes(254, 1);
+
+		byte[] frame = concat(block, new byte[] { 0x33 });
+		assertArrayEquals(concat(new byte[] { (byte) 0xFF }, block, new byte[] { 0x02, 0x33, 0x00 }),
+				encode(new CobsCodec(MAX_FRAME_LENGTH), frame));
+		assertRoundTrip(frame);
+
+		frame = concat(block, new byte[] { 0x00 });
+		assertArrayEquals(concat(new byte[] { (byte) 0xFF }, block, new byte[] { 0x01, 0x01, 0x00 }),
+				encode(new CobsCodec(MAX_FRAME_LENGTH), frame));
+		assertRoundTrip(frame);
+	}
+
+	/** The non-canonical encoding of a full block, with an empty block after it, is still decoded. */
+	@Test
+	public void testFullBlockWithTrailingEmptyBlockDecoded() throws IOException {
+		byte[] block = nonZeroBytes(254, 1);
+		List<byte[]> frames = decode(new CobsCodec(MAX_FRAME_LENGTH), concat(new byte[] { (byte) 0xFF }, block, new byte[] { 0x01, 0x00 }));
+		assertEquals(1, frames.size());
+		assertArrayEquals(block, frames.get(0));
+	}
+
+	/** A frame which ends inside a block is reported, and decoding continues with the next frame. */
+	@Test
+	public void testTruncatedBlock() throws IOException {
+		CobsCodec codec = new CobsCodec(MAX_FRAME_LENGTH);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 0x05, 0x11, 0x22, 0x00, 0x02, 0x33, 0x00 });
+		try {
+			codec.decode(in, sink);
+			fail("Truncated block was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		codec.decode(in, sink);
+		assertEquals(1, sink.getFrames().size());
+		assertArrayEquals(new byte[] { 0x33 }, sink.getFrames().get(0));
+	}
+
+	/** A frame which is too long is reported once and discarded, and decoding continues with the next frame. */
+	@Test
+	public void testOversizeFrameDiscarded() throws IOException {
+		CobsCodec codec = new CobsCodec(4);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 0x07, 1, 2, 3, 4, 5, 6, 0x00, 0x02, 0x33, 0x00 });
+		try {
+			codec.decode(in, sink);
+			fail("Oversize frame was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		codec.decode(in, sink);
+		assertEquals(1, sink.getFrames().size());
+		assertArrayEquals(new byte[] { 0x33 }, sink.getFrames().get(0));
+	}
+
+	/** Frames longer than the maximum are not encoded. */
+	@Test(expected=FramingException.class)
+	public void testOversizeFrameNotEncoded() throws IOException {
+		encode(new CobsCodec(4), new byte[5]);
+	}
+
+	/** The encoded length never exceeds {@link CobsCodec#getMaxEncodedLength(int)}. */
+	@Test
+	public void testMaxEncodedLength() throws IOException {
+		CobsCodec codec = new CobsCodec(MAX_FRAME_LENGTH);
+		for(int length=0; length<=MAX_FRAME_LENGTH; length+=127) {
+			byte[] frame = nonZeroBytes(length, 1);
+			byte[] encoded = encode(codec, frame);
+			if(encoded.length > codec.getMaxEncodedLength(length)) fail("Encoded length " + encoded.length + " of " + length + " bytes exceeds maximum.");
+			assertRoundTrip(frame);
+		}
+	}
+
+//> INSTANCE HELPER METHODS
+	/**
+	 * Checks that a frame is decoded from its encoding, whether it arrives in one read or a byte at a time.
+	 * @param frame the frame
+	 */
+	private void assertRoundTrip(byte[] frame) throws IOException {
+		byte[] encoded = encode(new CobsCodec(MAX_FRAME_LENGTH), frame);
+		for(int i=0; i<encoded.length - 1; ++i) {
+			if(encoded[i] == 0) fail("Zero byte inside encoded frame at " + i);
+		}
+
+		List<byte[]> frames = decode(new CobsCodec(MAX_FRAME_LENGTH), encoded);
+		assertEquals(1, frames.size());
+		assertArrayEquals(frame, frames.get(0));
+
+		frames = decodeBytewise(new CobsCodec(MAX_FRAME_LENGTH), encoded);
+		assertEquals(1, frames.size());
+		assertArrayEquals(frame, frames.get(0));
+	}
+}
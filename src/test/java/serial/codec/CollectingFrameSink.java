@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package serial.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FrameSink} which keeps a copy of each frame, for tests.
+ * @author Alex
+ */
+class CollectingFrameSink implements FrameSink {
+//> INSTANCE PROPERTIES
+	/** Copies of the frames received, in order */
+	private final List<byte[]> frames = new ArrayList<byte[]>();
+
+//> ACCESSORS
+	/** @return copies of the frames received, in order */
+	List<byte[]> getFrames() {
+		return frames;
+	}
+
+//> FRAMESINK METHODS
+	/** @see FrameSink#frame(ByteBuffer) */
+	public void frame(ByteBuffer frame) throws IOException {
+		byte[] copy = new byte[frame.remaining()];
+		frame.get(copy);
+		frames.add(copy);
+	}
+
+//> STATIC HELPER METHODS
+	/**
+	 * Passes bytes to a decoder in a single read.
+	 * @param decoder the decoder
+	 * @param encoded the bytes
+	 * @return the frames decoded
+	 * @throws IOException if thrown by the decoder
+	 */
+	static List<byte[]> decode(FrameDecoder decoder, byte[] encoded) throws IOException {
+		CollectingFrameSink sink = new CollectingFrameSink();
+		ByteBuffer in = ByteBuffer.wrap(encoded);
+		decoder.decode(in, sink);
+		if(in.hasRemaining()) throw new AssertionError("Decoder left " + in.remaining() + " bytes unread.");
+		return sink.getFrames();
+	}
+
+	/**
+	 * Passes bytes to a decoder one at a time, as if each arrived in a separate read.
+	 * @param decoder the decoder
+	 * @param encoded the bytes
+	 * @return the frames decoded
+	 * @throws IOException if thrown by the decoder
+	 */
+	static List<byte[]> decodeBytewise(FrameDecoder decoder, byte[] encoded) throws IOException {
+		CollectingFrameSink sink = new CollectingFrameSink();
+		for(byte b : encoded) {
+			ByteBuffer in = ByteBuffer.wrap(new byte[] { b });
+			decoder.decode(in, sink);
+			if(in.hasRemaining()) throw new AssertionError("Decoder left a byte unread.");
+		}
+		return sink.getFrames();
+	}
+
+	/**
+	 * @param encoder the encoder
+	 * @param frame the frame
+	 * @return the encoded frame
+	 * @throws FramingException if thrown by the encoder
+	 */
+	static byte[] encode(FrameEncoder encoder, byte[] frame) throws FramingException {
+		ByteBuffer out = ByteBuffer.allocate(encoder.getMaxEncodedLength(frame.length));
+		encoder.encode(ByteBuffer.wrap(frame), out);
+		out.flip();
+		byte[] encoded = new byte[out.remaining()];
+		out.get(encoded);
+		return encoded;
+	}
+
+	/**
+	 * @param length the length of the array
+	 * @param first the value of the first byte; each following byte is one more, skipping zero
+	 * @return an array with no zero bytes
+	 */
+	static byte[] nonZeroBytes(int length, int first) {
+		byte[] bytes = new byte[length];
+		int value = first;
+		for(int i=0; i<length; ++i) {
+			if((value & 0xFF) == 0) ++value;
+			bytes[i] = (byte) value++;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param arrays some arrays
+	 * @return the arrays joined end to end
+	 */
+	static byte[] concat(byte[]... arrays) {
+		int length = 0;
+		for(byte[] array : arrays) length += array.length;
+		byte[] joined = new byte[length];
+		int position = 0;
+		for(byte[] array : arrays) {
+			System.arraycopy(array, 0, joined, position, array.length);
+			position += array.length;
+		}
+		return joined;
+	}
+}
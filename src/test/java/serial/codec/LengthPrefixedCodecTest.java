@@ -0,0 +1,132 @@
+/**
+ *
+ */
+package serial.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static serial.codec.CollectingFrameSink.concat;
+import static serial.codec.CollectingFrameSink.decode;
+import static serial.codec.CollectingFrameSink.decodeBytewise;
+import static serial.codec.CollectingFrameSink.encode;
+import static serial.codec.CollectingFrameSink.nonZeroBytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LengthPrefixedCodec}.
+ * @author Alex
+ */
+public class LengthPrefixedCodecTest {
+//> TEST METHODS
+	/** An empty frame is just its length field, and is decoded as soon as that has been read. */
+	@Test
+	public void testEmptyFrame() throws IOException {
+		byte[] encoded = encode(new LengthPrefixedCodec(2, 100), new byte[0]);
+		assertArrayEquals(new byte[] { 0x00, 0x00 }, encoded);
+
+		List<byte[]> frames = decode(new LengthPrefixedCodec(2, 100), encoded);
+		assertEquals(1, frames.size());
+		assertEquals(0, frames.get(0).length);
+	}
+
+	/** Length fields are big-endian, for each field size. */
+	@Test
+	public void testFieldSizes() throws IOException {
+		byte[] frame = nonZeroBytes(0x102, 1);
+		assertArrayEquals(concat(new byte[] { 0x01, 0x02 }, frame), encode(new LengthPrefixedCodec(2, 1000), frame));
+		assertArrayEquals(concat(new byte[] { 0x00, 0x00, 0x01, 0x02 }, frame), encode(new LengthPrefixedCodec(4, 1000), frame));
+		assertArrayEquals(new byte[] { 0x01, 0x11 }, encode(new LengthPrefixedCodec(1, 255), new byte[] { 0x11 }));
+	}
+
+	/** Length fields and bodies split across reads are reassembled, and consecutive frames are separated. */
+	@Test
+	public void testSplitAcrossReads() throws IOException {
+		byte[] first = nonZeroBytes(300, 1);
+		byte[] second = { 0x00, 0x11 };
+		LengthPrefixedCodec encoder = new LengthPrefixedCodec(4, 1000);
+		byte[] encoded = concat(encode(encoder, first), encode(encoder, second));
+
+		List<byte[]> frames = decodeBytewise(new LengthPrefixedCodec(4, 1000), encoded);
+		assertEquals(2, frames.size());
+		assertArrayEquals(first, frames.get(0));
+		assertArrayEquals(second, frames.get(1));
+
+		LengthPrefixedCodec codec = new LengthPrefixedCodec(4, 1000);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		codec.decode(ByteBuffer.wrap(encoded, 0, 2), sink);
+		codec.decode(ByteBuffer.wrap(encoded, 2, 150), sink);
+		assertEquals(0, sink.getFrames().size());
+		codec.decode(ByteBuffer.wrap(encoded, 152, encoded.length - 152), sink);
+		assertEquals(2, sink.getFrames().size());
+		assertArrayEquals(first, sink.getFrames().get(0));
+		assertArrayEquals(second, sink.getFrames().get(1));
+	}
+
+	/** A length larger than the maximum is reported as soon as the length field has been read. */
+	@Test
+	public void testOversizeLength() throws IOException {
+		LengthPrefixedCodec codec = new LengthPrefixedCodec(2, 100);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		codec.decode(ByteBuffer.wrap(new byte[] { 0x00 }), sink);
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 0x65, 0x11 });
+		try {
+			codec.decode(in, sink);
+			fail("Oversize length was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		assertEquals(1, in.remaining());
+		assertEquals(0, sink.getFrames().size());
+	}
+
+	/** A four byte length with the top bit set is rejected rather than treated as negative. */
+	@Test
+	public void testOversizeUnsignedLength() throws IOException {
+		try {
+			decode(new LengthPrefixedCodec(4, 100), new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+			fail("Oversize length was not reported.");
+		} catch(FramingException ex) {
+			assertEquals("Frame length 4294967295 exceeds maximum 100.", ex.getMessage());
+		}
+	}
+
+	/** The decoder can be used again after {@link LengthPrefixedCodec#reset()}. */
+	@Test
+	public void testResetAfterOversizeLength() throws IOException {
+		LengthPrefixedCodec codec = new LengthPrefixedCodec(1, 4);
+		try {
+			decode(codec, new byte[] { 0x05 });
+			fail("Oversize length was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		codec.reset();
+		List<byte[]> frames = decode(codec, new byte[] { 0x01, 0x22 });
+		assertEquals(1, frames.size());
+		assertArrayEquals(new byte[] { 0x22 }, frames.get(0));
+	}
+
+	/** Frames longer than the maximum are not encoded. */
+	@Test(expected=FramingException.class)
+	public void testOversizeFrameNotEncoded() throws IOException {
+		encode(new LengthPrefixedCodec(2, 4), new byte[5]);
+	}
+
+	/** A maximum frame length which the length field cannot represent is rejected. */
+	@Test(expected=IllegalArgumentException.class)
+	public void testMaxLengthTooLargeForField() {
+		new LengthPrefixedCodec(1, 256);
+	}
+
+	/** Only 1, 2 and 4 byte length fields are supported. */
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadFieldSize() {
+		new LengthPrefixedCodec(3, 100);
+	}
+}
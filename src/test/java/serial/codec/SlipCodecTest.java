@@ -0,0 +1,122 @@
+/**
+ *
+ */
+package serial.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static serial.codec.CollectingFrameSink.decode;
+import static serial.codec.CollectingFrameSink.decodeBytewise;
+import static serial.codec.CollectingFrameSink.encode;
+import static serial.codec.SlipCodec.END;
+import static serial.codec.SlipCodec.ESC;
+import static serial.codec.SlipCodec.ESC_END;
+import static serial.codec.SlipCodec.ESC_ESC;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SlipCodec}.
+ * @author Alex
+ */
+public class SlipCodecTest {
+//> STATIC CONSTANTS
+	/** Maximum frame length of the codecs under test */
+	private static final int MAX_FRAME_LENGTH = 64;
+
+//> TEST METHODS
+	/** <code>END</code> and <code>ESC</code> are escaped, and frames are delimited at both ends. */
+	@Test
+	public void testEncodeEscapes() throws IOException {
+		byte[] frame = { 0x11, END, ESC, 0x22 };
+		byte[] encoded = encode(new SlipCodec(MAX_FRAME_LENGTH), frame);
+		assertArrayEquals(new byte[] { END, 0x11, ESC, ESC_END, ESC, ESC_ESC, 0x22, END }, encoded);
+
+		List<byte[]> frames = decode(new SlipCodec(MAX_FRAME_LENGTH), encoded);
+		assertEquals(1, frames.size());
+		assertArrayEquals(frame, frames.get(0));
+	}
+
+	/** An escape split from the byte it escapes by a read boundary is still decoded. */
+	@Test
+	public void testEscapeSplitAcrossReads() throws IOException {
+		SlipCodec codec = new SlipCodec(MAX_FRAME_LENGTH);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		codec.decode(ByteBuffer.wrap(new byte[] { END, 0x11, ESC }), sink);
+		assertEquals(0, sink.getFrames().size());
+		codec.decode(ByteBuffer.wrap(new byte[] { ESC_END, ESC }), sink);
+		codec.decode(ByteBuffer.wrap(new byte[] { ESC_ESC, END }), sink);
+		assertEquals(1, sink.getFrames().size());
+		assertArrayEquals(new byte[] { 0x11, END, ESC }, sink.getFrames().get(0));
+
+		List<byte[]> frames = decodeBytewise(new SlipCodec(MAX_FRAME_LENGTH), new byte[] { ESC, ESC_END, ESC, ESC_ESC, END });
+		assertEquals(1, frames.size());
+		assertArrayEquals(new byte[] { END, ESC }, frames.get(0));
+	}
+
+	/** Empty frames, e.g. the leading <code>END</code> of each encoded frame, are ignored. */
+	@Test
+	public void testEmptyFramesIgnored() throws IOException {
+		assertEquals(0, decode(new SlipCodec(MAX_FRAME_LENGTH), new byte[] { END, END, END }).size());
+
+		byte[] encoded = encode(new SlipCodec(MAX_FRAME_LENGTH), new byte[0]);
+		assertArrayEquals(new byte[] { END, END }, encoded);
+		assertEquals(0, decode(new SlipCodec(MAX_FRAME_LENGTH), encoded).size());
+	}
+
+	/** An invalid escape is reported, and the rest of its frame discarded. */
+	@Test
+	public void testInvalidEscape() throws IOException {
+		SlipCodec codec = new SlipCodec(MAX_FRAME_LENGTH);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 0x11, ESC, 0x22, 0x33, END, 0x44, END });
+		try {
+			codec.decode(in, sink);
+			fail("Invalid escape was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		codec.decode(in, sink);
+		assertEquals(1, sink.getFrames().size());
+		assertArrayEquals(new byte[] { 0x44 }, sink.getFrames().get(0));
+	}
+
+	/** A frame which is too long is reported once and discarded, and decoding continues with the next frame. */
+	@Test
+	public void testOversizeFrameDiscarded() throws IOException {
+		SlipCodec codec = new SlipCodec(2);
+		CollectingFrameSink sink = new CollectingFrameSink();
+		ByteBuffer in = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, ESC, ESC_END, END, 0x55, END });
+		try {
+			codec.decode(in, sink);
+			fail("Oversize frame was not reported.");
+		} catch(FramingException ex) {
+			// expected
+		}
+		codec.decode(in, sink);
+		assertEquals(1, sink.getFrames().size());
+		assertArrayEquals(new byte[] { 0x55 }, sink.getFrames().get(0));
+	}
+
+	/** Frames longer than the maximum are not encoded. */
+	@Test(expected=FramingException.class)
+	public void testOversizeFrameNotEncoded() throws IOException {
+		encode(new SlipCodec(2), new byte[3]);
+	}
+
+	/** {@link SlipCodec#reset()} forgets a pending escape. */
+	@Test
+	public void testResetClearsEscape() throws IOException {
+		SlipCodec codec = new SlipCodec(MAX_FRAME_LENGTH);
+		decode(codec, new byte[] { 0x11, ESC });
+		codec.reset();
+		List<byte[]> frames = decode(codec, new byte[] { 0x22, END });
+		assertEquals(1, frames.size());
+		assertArrayEquals(new byte[] { 0x22 }, frames.get(0));
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package serial.loopback;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import serial.CommPortIdentifier;
+import serial.SerialClassFactory;
+import serial.SerialPort;
+import serial.SerialPortPrimitiveListener;
+
+/**
+ * Unit tests for {@link VirtualPort}.
+ * @author Alex
+ */
+public class VirtualPortTest {
+//> STATIC CONSTANTS
+	/** Names of the paired virtual ports */
+	private static final String[] PORT_NAMES = { "VirtualPortTestA", "VirtualPortTestB" };
+	/** Number of writes each writer thread makes */
+	private static final int WRITE_COUNT = 5000;
+	/** Number of milliseconds to wait for the writer threads */
+	private static final long TIMEOUT = 10000;
+
+//> INSTANCE PROPERTIES
+	/** The ports opened on the pair */
+	private final SerialPort[] ports = new SerialPort[PORT_NAMES.length];
+
+//> SETUP METHODS
+	@Before
+	public void setUp() throws Exception {
+		// The loopback backend is only available once a virtual port exists
+		VirtualPorts.createPair(PORT_NAMES[0], PORT_NAMES[1]);
+		SerialClassFactory.init(LoopbackSerialBackend.PACKAGE_LOOPBACK);
+		for(int i=0; i<ports.length; ++i) {
+			ports[i] = CommPortIdentifier.getPortIdentifier(PORT_NAMES[i]).open(getClass().getName(), 0);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for(SerialPort port : ports) {
+			if(port != null) port.close();
+		}
+		for(String name : PORT_NAMES) VirtualPorts.remove(name);
+	}
+
+//> TEST METHODS
+	/** Handlers on both ends which write back on the driver thread, while both ends are written to, do not deadlock. */
+	@Test
+	public void testHandlersWritingBack() throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		SerialPortPrimitiveListener echo = new SerialPortPrimitiveListener() {
+			public void onEvent(SerialPort port, int eventType, boolean oldValue, boolean newValue, long nanoTimestamp) {
+				try {
+					InputStream in = port.getInputStream();
+					byte[] b = new byte[64];
+					int available = in.available();
+					int read = available > 0 ? in.read(b, 0, Math.min(available, b.length)) : 0;
+					// Answer each 1 with a 0, which is not answered, so that the echoes die out
+					for(int i=0; i<read; ++i) {
+						if(b[i] == 1) port.getOutputStream().write(0);
+					}
+				} catch(IOException ex) {
+					failure.compareAndSet(null, ex);
+				}
+			}
+		};
+		for(SerialPort port : ports) port.onDataAvailable(echo);
+
+		Thread[] writers = new Thread[ports.length];
+		for(int i=0; i<writers.length; ++i) {
+			final SerialPort port = ports[i];
+			writers[i] = new Thread("VirtualPortTest-" + i) {
+				@Override
+				public void run() {
+					try {
+						for(int j=0; j<WRITE_COUNT; ++j) port.getOutputStream().write(1);
+					} catch(Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			};
+			writers[i].setDaemon(true);
+			writers[i].start();
+		}
+		for(Thread writer : writers) {
+			writer.join(TIMEOUT);
+			assertFalse("Writer deadlocked.", writer.isAlive());
+		}
+		assertNull(failure.get());
+	}
+}